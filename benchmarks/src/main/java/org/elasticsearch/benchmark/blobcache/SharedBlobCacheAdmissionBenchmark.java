@@ -0,0 +1,217 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the "Elastic License
+ * 2.0", the "GNU Affero General Public License v3.0 only", and the "Server Side
+ * Public License v 1"; you may not use this file except in compliance with, at
+ * your election, the "Elastic License 2.0", the "GNU Affero General Public
+ * License v3.0 only", or the "Server Side Public License, v 1".
+ */
+package org.elasticsearch.benchmark.blobcache;
+
+import org.elasticsearch.blobcache.shared.FrequencySketch;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Replays a trace of region accesses against a simulation of the LFU policy of the shared blob cache, with and without its admission
+ * filter, and reports the hits and misses as secondary results. The trace is either a file with the key of one accessed region per line,
+ * as can be recorded from the accesses to a frozen tier node, or a synthetic trace in which a skewed working set that fits in the cache is
+ * interrupted by scans over twice as many regions as the cache holds.
+ */
+@Fork(1)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@SuppressWarnings("unused") // invoked by benchmarking framework
+public class SharedBlobCacheAdmissionBenchmark {
+
+    @Param({ "" })
+    public String traceFile = "";
+
+    @Param({ "1024" })
+    public int numRegions = 1024;
+
+    @Param({ "false", "true" })
+    public boolean admissionFilter;
+
+    @Param({ "100" })
+    public int maxFreq = 100;
+
+    private int[] trace;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class HitRatio {
+        public long hits;
+        public long misses;
+    }
+
+    @Setup
+    public void setUp() throws IOException {
+        if (traceFile.isEmpty()) {
+            trace = syntheticTrace(numRegions, new Random(0));
+        } else {
+            final Map<String, Integer> regions = new HashMap<>();
+            final List<String> lines = Files.readAllLines(Path.of(traceFile));
+            trace = new int[lines.size()];
+            for (int i = 0; i < trace.length; i++) {
+                trace[i] = regions.computeIfAbsent(lines.get(i).trim(), k -> regions.size());
+            }
+        }
+    }
+
+    private static int[] syntheticTrace(int numRegions, Random random) {
+        final int workingSet = numRegions * 3 / 4;
+        final int scanLength = numRegions * 2;
+        final List<Integer> accesses = new ArrayList<>();
+        int nextScanRegion = workingSet;
+        for (int round = 0; round < 20; round++) {
+            for (int i = 0; i < numRegions * 10; i++) {
+                // skewed towards the first regions of the working set
+                accesses.add((int) (workingSet * Math.pow(random.nextDouble(), 3)));
+            }
+            for (int i = 0; i < scanLength; i++) {
+                accesses.add(nextScanRegion++);
+            }
+        }
+        return accesses.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    @Benchmark
+    public int replay(HitRatio hitRatio) {
+        final LfuSimulation simulation = new LfuSimulation(numRegions, maxFreq, admissionFilter);
+        for (int region : trace) {
+            if (simulation.access(region)) {
+                hitRatio.hits++;
+            } else {
+                hitRatio.misses++;
+            }
+        }
+        return simulation.size();
+    }
+
+    /**
+     * Mirrors the frequency levels, epochs and decay of the LFU cache in {@code SharedBlobCacheService}, without its concurrency.
+     */
+    static final class LfuSimulation {
+        private final int capacity;
+        private final int maxFreq;
+        private final FrequencySketch sketch;
+        private final List<LinkedHashSet<Integer>> levels = new ArrayList<>();
+        private final Map<Integer, int[]> entries = new HashMap<>(); // region -> { freq, lastAccessedEpoch }
+        private int epoch;
+
+        LfuSimulation(int capacity, int maxFreq, boolean admissionFilter) {
+            this.capacity = capacity;
+            this.maxFreq = maxFreq;
+            this.sketch = admissionFilter ? new FrequencySketch(capacity) : null;
+            for (int i = 0; i < maxFreq; i++) {
+                levels.add(new LinkedHashSet<>());
+            }
+        }
+
+        boolean access(int region) {
+            final int[] entry = entries.get(region);
+            if (entry != null) {
+                if (epoch > entry[1] && entry[0] < maxFreq - 1) {
+                    levels.get(entry[0]).remove(region);
+                    entry[0] = Math.min(entry[0] + 2, maxFreq - 1);
+                    entry[1] = epoch;
+                    levels.get(entry[0]).add(region);
+                    record(region);
+                }
+                return true;
+            }
+            int freq = 1;
+            if (entries.size() == capacity) {
+                final boolean admitted = admit(region);
+                if (admitted == false) {
+                    freq = 0;
+                }
+                evict(admitted);
+            }
+            entries.put(region, new int[] { freq, epoch });
+            levels.get(freq).add(region);
+            record(region);
+            return false;
+        }
+
+        private boolean admit(int region) {
+            if (sketch == null) {
+                return true;
+            }
+            for (int i = 1; i < maxFreq; i++) {
+                if (levels.get(i).isEmpty() == false) {
+                    final int victim = levels.get(i).iterator().next();
+                    return sketch.frequency(Integer.hashCode(region)) + 1 > sketch.frequency(Integer.hashCode(victim));
+                }
+            }
+            return true;
+        }
+
+        private void evict(boolean mayDecay) {
+            for (int i = 0; i < maxFreq; i++) {
+                final LinkedHashSet<Integer> level = levels.get(i);
+                if (level.isEmpty() == false) {
+                    final int victim = level.iterator().next();
+                    level.remove(victim);
+                    entries.remove(victim);
+                    break;
+                }
+            }
+            // like the cache, start a new epoch once there are no frequency 0 regions left, unless the new region is on probation
+            if (mayDecay && levels.get(0).isEmpty()) {
+                decay();
+            }
+        }
+
+        private void decay() {
+            levels.get(0).addAll(levels.get(1));
+            for (int region : levels.get(1)) {
+                entries.get(region)[0] = 0;
+            }
+            for (int i = 2; i < maxFreq; i++) {
+                final LinkedHashSet<Integer> level = levels.get(i);
+                for (int region : level) {
+                    entries.get(region)[0] = i - 1;
+                }
+                levels.set(i - 1, level);
+            }
+            levels.set(maxFreq - 1, new LinkedHashSet<>());
+            epoch++;
+        }
+
+        int size() {
+            return entries.size();
+        }
+
+        private void record(int region) {
+            if (sketch != null) {
+                sketch.increment(Integer.hashCode(region));
+            }
+        }
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the "Elastic License
+ * 2.0", the "GNU Affero General Public License v3.0 only", and the "Server Side
+ * Public License v 1"; you may not use this file except in compliance with, at
+ * your election, the "Elastic License 2.0", the "GNU Affero General Public
+ * License v3.0 only", or the "Server Side Public License, v 1".
+ */
+package org.elasticsearch.benchmark.blobcache;
+
+import org.elasticsearch.blobcache.shared.SharedBytes;
+import org.elasticsearch.common.logging.LogConfigurator;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.core.IOUtils;
+import org.elasticsearch.env.Environment;
+import org.elasticsearch.env.NodeEnvironment;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures random reads of 4 KB to 1 MB from the shared blob cache file, read through the page cache, mmapped or with direct I/O. The
+ * cache file fits in memory, so reads through the page cache are mostly served from memory whereas direct I/O always reads from disk:
+ * the difference is the price of keeping the cache out of the page cache, which other files on the node then have to themselves.
+ */
+@Fork(1)
+@Warmup(iterations = 3, time = 5, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 5, time = 5, timeUnit = TimeUnit.SECONDS)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@SuppressWarnings("unused") // invoked by benchmarking framework
+public class SharedBytesReadBenchmark {
+
+    private static final int REGION_SIZE = 16 << 20;
+
+    @Param({ "page_cache", "mmap", "direct_io" })
+    public String mode = "direct_io";
+
+    @Param({ "4096", "65536", "1048576" })
+    public int readSize = 4096;
+
+    @Param({ "64" })
+    public int numRegions = 64;
+
+    private Path path;
+    private NodeEnvironment nodeEnv;
+    private SharedBytes sharedBytes;
+    private ByteBuffer buffer;
+    private Random random;
+
+    @Setup
+    public void setUp() throws IOException {
+        path = Files.createTempDirectory("shared-bytes");
+        LogConfigurator.setNodeName("test");
+        Settings settings = Settings.builder()
+            .put(Environment.PATH_HOME_SETTING.getKey(), path)
+            .putList(Environment.PATH_DATA_SETTING.getKey(), path.toString())
+            .build();
+        nodeEnv = new NodeEnvironment(settings, new Environment(settings, null));
+        sharedBytes = new SharedBytes(
+            numRegions,
+            REGION_SIZE,
+            nodeEnv,
+            ignored -> {},
+            ignored -> {},
+            mode.equals("mmap"),
+            mode.equals("direct_io")
+        );
+        if (mode.equals("direct_io") && sharedBytes.isDirectIO() == false) {
+            throw new IllegalStateException("direct I/O is not supported for [" + path + "]");
+        }
+        random = new Random(0);
+        final ByteBuffer content = ByteBuffer.allocateDirect(SharedBytes.MAX_BYTES_PER_WRITE);
+        for (int region = 0; region < numRegions; region++) {
+            for (int position = 0; position < REGION_SIZE; position += content.capacity()) {
+                content.clear();
+                while (content.hasRemaining()) {
+                    content.put((byte) random.nextInt());
+                }
+                content.flip();
+                sharedBytes.getFileChannel(region).write(content, position);
+            }
+        }
+        buffer = ByteBuffer.allocate(readSize);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        sharedBytes.decRef();
+        IOUtils.close(nodeEnv);
+        IOUtils.rm(path);
+    }
+
+    @Benchmark
+    public int randomRead() throws IOException {
+        final SharedBytes.IO io = sharedBytes.getFileChannel(random.nextInt(numRegions));
+        buffer.clear();
+        return io.read(buffer, random.nextInt(REGION_SIZE - readSize + 1));
+    }
+}
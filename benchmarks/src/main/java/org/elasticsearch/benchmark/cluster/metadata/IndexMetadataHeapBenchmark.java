@@ -0,0 +1,141 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the "Elastic License
+ * 2.0", the "GNU Affero General Public License v3.0 only", and the "Server Side
+ * Public License v 1"; you may not use this file except in compliance with, at
+ * your election, the "Elastic License 2.0", the "GNU Affero General Public
+ * License v3.0 only", or the "Server Side Public License, v 1".
+ */
+package org.elasticsearch.benchmark.cluster.metadata;
+
+import org.elasticsearch.cluster.ClusterModule;
+import org.elasticsearch.cluster.metadata.IndexMetadata;
+import org.elasticsearch.cluster.metadata.IndexMetadataCompactor;
+import org.elasticsearch.cluster.metadata.Metadata;
+import org.elasticsearch.common.UUIDs;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.io.stream.NamedWriteableAwareStreamInput;
+import org.elasticsearch.common.io.stream.NamedWriteableRegistry;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.index.IndexVersion;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the time it takes a node to read the {@link Metadata} of a cluster with many indices from the master, with and without
+ * keeping its {@link IndexMetadata} compact (see {@link IndexMetadataCompactor}). The heap that the metadata retains is measured after
+ * each iteration, outside the timed region, and printed with the iteration results.
+ */
+@Fork(value = 1, jvmArgsPrepend = { "-Xmx8g" })
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@SuppressWarnings("unused") // invoked by benchmarking framework
+public class IndexMetadataHeapBenchmark {
+
+    private static final MemoryMXBean MEMORY_MX_BEAN = ManagementFactory.getMemoryMXBean();
+
+    @Param({ "10000", "100000" })
+    public int numIndices = 100000;
+
+    @Param({ "false", "true" })
+    public boolean compact;
+
+    private NamedWriteableRegistry namedWriteableRegistry;
+    private IndexMetadataCompactor compactor;
+    private BytesReference serializedMetadata;
+    private Metadata metadata;
+    private long usedHeapBeforeIteration;
+
+    @Setup
+    public void setUp() throws IOException {
+        namedWriteableRegistry = new NamedWriteableRegistry(ClusterModule.getNamedWriteables());
+        compactor = new IndexMetadataCompactor(
+            Settings.builder().put(IndexMetadataCompactor.COMPACT_INDEX_METADATA_SETTING.getKey(), compact).build(),
+            namedWriteableRegistry
+        );
+        final String mapping = """
+            {"_doc":{"properties":{
+              "@timestamp":{"type":"date"},
+              "message":{"type":"text"},
+              "host":{"properties":{"name":{"type":"keyword"}}}
+            }}}
+            """;
+        final long creationDate = System.currentTimeMillis();
+        Metadata.Builder mb = Metadata.builder();
+        for (int i = 0; i < numIndices; i++) {
+            IndexMetadata.Builder indexMetadata = IndexMetadata.builder("logs-" + i)
+                .settings(
+                    Settings.builder()
+                        .put(IndexMetadata.SETTING_VERSION_CREATED, IndexVersion.current())
+                        .put(IndexMetadata.SETTING_INDEX_UUID, UUIDs.randomBase64UUID())
+                        .put(IndexMetadata.SETTING_CREATION_DATE, creationDate + i)
+                        .put(IndexMetadata.SETTING_INDEX_PROVIDED_NAME, "logs-" + i)
+                        .put("index.routing.allocation.include._tier_preference", "data_hot")
+                        .put("index.lifecycle.name", "logs")
+                        .put("index.refresh_interval", "5s")
+                )
+                .numberOfShards(1)
+                .numberOfReplicas(1)
+                .putMapping(mapping)
+                .putInSyncAllocationIds(0, Set.of(UUIDs.randomBase64UUID(), UUIDs.randomBase64UUID()));
+            mb.put(indexMetadata);
+        }
+        try (BytesStreamOutput out = new BytesStreamOutput()) {
+            mb.build().writeTo(out);
+            serializedMetadata = out.bytes();
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void releaseMetadata() {
+        metadata = null;
+        usedHeapBeforeIteration = usedHeapAfterGc();
+    }
+
+    @Benchmark
+    public Metadata readMetadata() throws IOException {
+        try (StreamInput in = new NamedWriteableAwareStreamInput(serializedMetadata.streamInput(), namedWriteableRegistry)) {
+            metadata = compactor.compact(Metadata.readFrom(in));
+        }
+        return metadata;
+    }
+
+    @TearDown(Level.Iteration)
+    public void reportRetainedHeap() {
+        final long retainedBytes = usedHeapAfterGc() - usedHeapBeforeIteration;
+        System.out.printf(
+            "%nmetadata of [%d] indices (compact: %s) retains [%d] bytes, [%d] bytes per index%n",
+            metadata.indices().size(),
+            compact,
+            retainedBytes,
+            retainedBytes / numIndices
+        );
+    }
+
+    private static long usedHeapAfterGc() {
+        System.gc();
+        return MEMORY_MX_BEAN.getHeapMemoryUsage().getUsed();
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the "Elastic License
+ * 2.0", the "GNU Affero General Public License v3.0 only", and the "Server Side
+ * Public License v 1"; you may not use this file except in compliance with, at
+ * your election, the "Elastic License 2.0", the "GNU Affero General Public
+ * License v3.0 only", or the "Server Side Public License, v 1".
+ */
+
+package org.elasticsearch.benchmark.index.engine;
+
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.common.UUIDs;
+import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
+import org.elasticsearch.index.engine.CompactBytesRefMap;
+import org.elasticsearch.index.mapper.Uid;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the maps the live version map can keep its entries in. {@code fill} indexes every id into an empty map, which is what
+ * happens between two refreshes, and {@code update} updates ids that are already in the map. Run with {@code -prof gc} to compare
+ * the bytes allocated per entry.
+ */
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class VersionMapBenchmark {
+
+    @Param({ "concurrent", "compact" })
+    private String map;
+
+    @Param({ "100000" })
+    private int ids;
+
+    private BytesRef[] uids;
+    private Long[] versions;
+    private Map<BytesRef, Long> filled;
+
+    @Setup
+    public void setup() {
+        uids = new BytesRef[ids];
+        versions = new Long[ids];
+        for (int i = 0; i < ids; i++) {
+            uids[i] = Uid.encodeId(UUIDs.base64UUID());
+            versions[i] = (long) i;
+        }
+        filled = newMap();
+        fill(filled);
+    }
+
+    private Map<BytesRef, Long> newMap() {
+        return switch (map) {
+            case "concurrent" -> ConcurrentCollections.newConcurrentMapWithAggressiveConcurrency();
+            case "compact" -> new CompactBytesRefMap<>();
+            default -> throw new IllegalArgumentException("unknown map [" + map + "]");
+        };
+    }
+
+    private void fill(Map<BytesRef, Long> target) {
+        for (int i = 0; i < uids.length; i++) {
+            // the engine hands a fresh copy of the uid to the version map for every operation
+            target.put(BytesRef.deepCopyOf(uids[i]), versions[i]);
+        }
+    }
+
+    @Benchmark
+    public Map<BytesRef, Long> fill() {
+        Map<BytesRef, Long> target = newMap();
+        fill(target);
+        return target;
+    }
+
+    @Benchmark
+    public long update() {
+        long sum = 0;
+        for (int i = 0; i < uids.length; i++) {
+            Long previous = filled.put(uids[i], versions[uids.length - 1 - i]);
+            sum += previous;
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the "Elastic License
+ * 2.0", the "GNU Affero General Public License v3.0 only", and the "Server Side
+ * Public License v 1"; you may not use this file except in compliance with, at
+ * your election, the "Elastic License 2.0", the "GNU Affero General Public
+ * License v3.0 only", or the "Server Side Public License, v 1".
+ */
+
+package org.elasticsearch.benchmark.index.mapper;
+
+import org.elasticsearch.common.UUIDs;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.index.mapper.LuceneDocument;
+import org.elasticsearch.index.mapper.MapperService;
+import org.elasticsearch.index.mapper.SourceToParse;
+import org.elasticsearch.xcontent.XContentBuilder;
+import org.elasticsearch.xcontent.XContentType;
+import org.elasticsearch.xcontent.json.JsonXContent;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.zip.GZIPInputStream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Parses ECS-shaped log documents with the filebeat mapping. The documents either spell out the ECS paths as dotted field names, like
+ * shippers usually send them, or as objects, and either keep their fields in the same order, so that their mappers can be resolved
+ * along the parsing plan of the previous document, or shuffle them, so that every document diverges from the plan.
+ */
+@Fork(value = 1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+public class EcsDocumentParserBenchmark {
+
+    @Param({ "1600172297" })
+    private long seed;
+
+    @Param({ "dotted", "objects" })
+    private String paths;
+
+    @Param({ "fixed", "shuffled" })
+    private String fieldOrder;
+
+    private Random random;
+    private MapperService mapperService;
+    private SourceToParse[] sources;
+    private int next;
+
+    @Setup
+    public void setUp() throws IOException {
+        this.random = new Random(seed);
+        try (var in = new GZIPInputStream(BeatsMapperBenchmark.class.getResourceAsStream("filebeat-mapping-8.1.2.json.gz"))) {
+            this.mapperService = MapperServiceFactory.create(new String(in.readAllBytes(), UTF_8));
+        }
+        this.sources = new SourceToParse[10_000];
+        for (int i = 0; i < sources.length; i++) {
+            sources[i] = generateDocument();
+        }
+    }
+
+    private SourceToParse generateDocument() throws IOException {
+        List<Map.Entry<String, Supplier<Object>>> fields = new ArrayList<>(
+            List.of(
+                field("@timestamp", System::currentTimeMillis),
+                field("message", () -> "GET /" + randomFrom("index.html", "search", "api/orders") + " HTTP/1.1"),
+                field("log.level", () -> randomFrom("INFO", "WARN", "ERROR")),
+                field("log.logger", () -> "org.example.http.RequestLogger"),
+                field("log.file.path", () -> randomFrom("/var/log/app-1.log", "/var/log/app-2.log")),
+                field("host.name", () -> "host-" + random.nextInt(16)),
+                field("host.ip", this::randomIp),
+                field("host.os.name", () -> "Linux"),
+                field("service.name", () -> randomFrom("frontend", "checkout", "inventory")),
+                field("event.dataset", () -> "app.access"),
+                field("event.module", () -> "app"),
+                field("event.duration", () -> random.nextInt(1_000_000)),
+                field("client.ip", this::randomIp),
+                field("http.request.method", () -> randomFrom("GET", "POST")),
+                field("http.request.bytes", () -> random.nextInt(1024)),
+                field("http.response.status_code", () -> randomFrom(200, 204, 301, 404, 500)),
+                field("http.response.bytes", () -> random.nextInt(1024 * 1024)),
+                field("url.path", () -> "/api/orders/" + random.nextInt(100_000)),
+                field("user_agent.original", () -> "Mozilla/5.0 (X11; Linux x86_64)"),
+                field("trace.id", UUIDs::randomBase64UUID)
+            )
+        );
+        if (fieldOrder.equals("shuffled")) {
+            Collections.shuffle(fields, random);
+        }
+        Map<String, Object> source = new LinkedHashMap<>();
+        for (Map.Entry<String, Supplier<Object>> field : fields) {
+            if (paths.equals("dotted")) {
+                source.put(field.getKey(), field.getValue().get());
+            } else {
+                putPath(source, field.getKey().split("\\."), field.getValue().get());
+            }
+        }
+        try (XContentBuilder builder = JsonXContent.contentBuilder()) {
+            builder.map(source);
+            return new SourceToParse(UUIDs.randomBase64UUID(), BytesReference.bytes(builder), XContentType.JSON);
+        }
+    }
+
+    private static Map.Entry<String, Supplier<Object>> field(String path, Supplier<Object> value) {
+        return Map.entry(path, value);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void putPath(Map<String, Object> source, String[] path, Object value) {
+        Map<String, Object> object = source;
+        for (int i = 0; i < path.length - 1; i++) {
+            object = (Map<String, Object>) object.computeIfAbsent(path[i], k -> new LinkedHashMap<>());
+        }
+        object.put(path[path.length - 1], value);
+    }
+
+    private String randomIp() {
+        return "" + random.nextInt(255) + '.' + random.nextInt(255) + '.' + random.nextInt(255) + '.' + random.nextInt(255);
+    }
+
+    @SafeVarargs
+    @SuppressWarnings("varargs")
+    private <T> T randomFrom(T... items) {
+        return items[random.nextInt(items.length)];
+    }
+
+    @Benchmark
+    public List<LuceneDocument> benchmarkParseEcsDocument() {
+        // parse the documents in turn, a document parsed twice in a row would always follow the plan
+        SourceToParse source = sources[next];
+        next = (next + 1) % sources.length;
+        return mapperService.documentMapper().parse(source).docs();
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the "Elastic License
+ * 2.0", the "GNU Affero General Public License v3.0 only", and the "Server Side
+ * Public License v 1"; you may not use this file except in compliance with, at
+ * your election, the "Elastic License 2.0", the "GNU Affero General Public
+ * License v3.0 only", or the "Server Side Public License, v 1".
+ */
+
+package org.elasticsearch.benchmark.ingest;
+
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.xcontent.XContentHelper;
+import org.elasticsearch.ingest.LazySourceMap;
+import org.elasticsearch.xcontent.XContentBuilder;
+import org.elasticsearch.xcontent.XContentFactory;
+import org.elasticsearch.xcontent.XContentType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parses a log-like document, reads or changes some of its fields the way a
+ * small pipeline would, and serializes it again, either through plain maps
+ * or through {@link LazySourceMap} like ingest does. The pipeline touches
+ * either a few top level fields, or reads or changes a field at the bottom
+ * of a chain of nested objects.
+ */
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class IngestSourceBenchmark {
+    @Param({ "10", "100" })
+    private int nestedObjects;
+
+    @Param({ "1", "8" })
+    private int depth;
+
+    @Param({ "top_level", "read_nested", "modify_nested" })
+    private String access;
+
+    private BytesReference source;
+
+    @Setup
+    public void setup() throws IOException {
+        XContentBuilder builder = XContentFactory.jsonBuilder();
+        builder.startObject();
+        builder.field("@timestamp", "2024-01-01T00:00:00Z");
+        builder.field("message", "GET /index.html HTTP/1.1 200 1234");
+        for (int o = 0; o < nestedObjects; o++) {
+            builder.startObject("object_" + o);
+            for (int d = 0; d < depth; d++) {
+                for (int f = 0; f < 10; f++) {
+                    builder.field("field_" + f, "value of field " + f + " in object " + o + " at depth " + d);
+                }
+                builder.startObject("inner");
+            }
+            builder.field("number", o).field("flag", o % 2 == 0);
+            for (int d = 0; d < depth; d++) {
+                builder.endObject();
+            }
+            builder.endObject();
+        }
+        builder.endObject();
+        source = BytesReference.bytes(builder);
+    }
+
+    @Benchmark
+    public BytesReference eager() throws IOException {
+        Map<String, Object> map = XContentHelper.convertToMap(source, false, XContentType.JSON).v2();
+        process(map);
+        XContentBuilder builder = XContentFactory.jsonBuilder();
+        builder.map(map);
+        return BytesReference.bytes(builder);
+    }
+
+    @Benchmark
+    public BytesReference lazy() throws IOException {
+        Map<String, Object> map = LazySourceMap.parse(source, XContentType.JSON);
+        process(map);
+        XContentBuilder builder = XContentFactory.jsonBuilder();
+        builder.startObject();
+        LazySourceMap.writeFields(map, builder);
+        builder.endObject();
+        return BytesReference.bytes(builder);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void process(Map<String, Object> map) {
+        switch (access) {
+            case "top_level" -> {
+                String message = (String) map.get("message");
+                map.put("http.method", message.substring(0, 3));
+                map.put("event.ingested", map.get("@timestamp"));
+            }
+            case "read_nested", "modify_nested" -> {
+                // the last object is the one that is the furthest into the source
+                Map<String, Object> object = (Map<String, Object>) map.get("object_" + (nestedObjects - 1));
+                for (int d = 0; d < depth; d++) {
+                    object = (Map<String, Object>) object.get("inner");
+                }
+                Number number = (Number) object.get("number");
+                if (access.equals("modify_nested")) {
+                    object.put("number", number.intValue() + 1);
+                }
+            }
+            default -> throw new IllegalArgumentException("unknown access [" + access + "]");
+        }
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the "Elastic License
+ * 2.0", the "GNU Affero General Public License v3.0 only", and the "Server Side
+ * Public License v 1"; you may not use this file except in compliance with, at
+ * your election, the "Elastic License 2.0", the "GNU Affero General Public
+ * License v3.0 only", or the "Server Side Public License, v 1".
+ */
+
+package org.elasticsearch.benchmark.ingest;
+
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.env.Environment;
+import org.elasticsearch.grok.MatcherWatchdog;
+import org.elasticsearch.index.VersionType;
+import org.elasticsearch.ingest.IngestDocument;
+import org.elasticsearch.ingest.Processor;
+import org.elasticsearch.ingest.useragent.IngestUserAgentPlugin;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parses a corpus of user agents with the {@code user_agent} processor. The
+ * corpus mixes browsers with bots and http clients and randomizes their
+ * versions so, like real traffic, most of it misses the parser's cache.
+ */
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class UserAgentProcessorBenchmark {
+    private static final List<String> TEMPLATES = List.of(
+        "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/%d.0.%d.%d Safari/537.36",
+        "Mozilla/5.0 (Macintosh; Intel Mac OS X 10_15_%d) AppleWebKit/605.1.15 (KHTML, like Gecko) Version/%d.%d Safari/605.1.15",
+        "Mozilla/5.0 (X11; Ubuntu; Linux x86_64; rv:%d.0) Gecko/20100101 Firefox/%d.%d",
+        "Mozilla/5.0 (iPhone; CPU iPhone OS %d_%d like Mac OS X) AppleWebKit/605.1.15 (KHTML, like Gecko) Mobile/15E%d",
+        "Mozilla/5.0 (Linux; Android %d; SM-S9%dB) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/120.0.%d.144 Mobile Safari/537.36",
+        "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/%d.0.0.0 Safari/537.36 Edg/%d.0.%d.91",
+        "Mozilla/5.0 (compatible; Googlebot/%d.%d; +http://www.google.com/bot.html) id/%d",
+        "Mozilla/5.0 (compatible; bingbot/%d.%d; +http://www.bing.com/bingbot.htm) id/%d",
+        "Mozilla/5.0 (compatible; AhrefsBot/%d.%d; +http://ahrefs.com/robot/) id/%d",
+        "Mozilla/5.0 (compatible; SemrushBot/%d~bl; +http://www.semrush.com/bot.html) id/%d.%d",
+        "facebookexternalhit/1.%d (+http://www.facebook.com/externalhit_uatext.php) id/%d.%d",
+        "curl/%d.%d.%d",
+        "python-requests/2.%d.%d (build %d)",
+        "Go-http-client/1.%d (build %d.%d)",
+        "Apache-HttpClient/4.5.%d (Java/17.0.%d.%d)",
+        "okhttp/4.%d.%d.%d",
+        "Dalvik/2.1.0 (Linux; U; Android %d; Redmi Note %d Pro MIUI/V12.5.%d.0)",
+        "Mozilla/5.0 (SMART-TV; Linux; Tizen %d.%d) AppleWebkit/538.1 (KHTML, like Gecko) SamsungBrowser/1.%d TV Safari/538.1"
+    );
+
+    @Param({ "1000" })
+    private int agents;
+
+    @Param({ "false", "true" })
+    private boolean extractDeviceType;
+
+    private Processor processor;
+    private String[] corpus;
+
+    @Setup
+    public void setup() throws Exception {
+        Path home = Files.createTempDirectory("user_agent");
+        Settings settings = Settings.builder()
+            .put(Environment.PATH_HOME_SETTING.getKey(), home)
+            // Measure the parser rather than the cache
+            .put("ingest.user_agent.cache_size", 0)
+            .build();
+        Processor.Parameters parameters = new Processor.Parameters(
+            new Environment(settings, null),
+            null,
+            null,
+            null,
+            null,
+            null,
+            null,
+            null,
+            null,
+            MatcherWatchdog.noop()
+        );
+        Processor.Factory factory = new IngestUserAgentPlugin().getProcessors(parameters).get("user_agent");
+        Map<String, Object> config = new HashMap<>();
+        config.put("field", "agent");
+        config.put("extract_device_type", extractDeviceType);
+        processor = factory.create(Map.of(), null, null, config);
+
+        Random random = new Random(0);
+        corpus = new String[agents];
+        for (int i = 0; i < agents; i++) {
+            String template = TEMPLATES.get(random.nextInt(TEMPLATES.size()));
+            corpus[i] = String.format(Locale.ROOT, template, random.nextInt(130), random.nextInt(20), random.nextInt(10000));
+        }
+    }
+
+    @Benchmark
+    public int parse() throws Exception {
+        int parsed = 0;
+        for (String agent : corpus) {
+            Map<String, Object> source = new HashMap<>();
+            source.put("agent", agent);
+            IngestDocument document = new IngestDocument("index", "id", 1, null, VersionType.INTERNAL, source);
+            processor.execute(document);
+            parsed += document.hasField("user_agent.name") ? 1 : 0;
+        }
+        return parsed;
+    }
+}
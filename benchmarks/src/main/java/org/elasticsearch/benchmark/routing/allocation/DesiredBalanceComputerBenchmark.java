@@ -0,0 +1,180 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the "Elastic License
+ * 2.0", the "GNU Affero General Public License v3.0 only", and the "Server Side
+ * Public License v 1"; you may not use this file except in compliance with, at
+ * your election, the "Elastic License 2.0", the "GNU Affero General Public
+ * License v3.0 only", or the "Server Side Public License, v 1".
+ */
+package org.elasticsearch.benchmark.routing.allocation;
+
+import org.elasticsearch.cluster.ClusterInfo;
+import org.elasticsearch.cluster.ClusterName;
+import org.elasticsearch.cluster.ClusterState;
+import org.elasticsearch.cluster.metadata.IndexMetadata;
+import org.elasticsearch.cluster.metadata.Metadata;
+import org.elasticsearch.cluster.node.DiscoveryNodes;
+import org.elasticsearch.cluster.routing.IndexRoutingTable;
+import org.elasticsearch.cluster.routing.IndexShardRoutingTable;
+import org.elasticsearch.cluster.routing.RoutingTable;
+import org.elasticsearch.cluster.routing.ShardRouting;
+import org.elasticsearch.cluster.routing.allocation.RoutingAllocation;
+import org.elasticsearch.cluster.routing.allocation.allocator.BalancedShardsAllocator;
+import org.elasticsearch.cluster.routing.allocation.allocator.DesiredBalance;
+import org.elasticsearch.cluster.routing.allocation.allocator.DesiredBalanceComputer;
+import org.elasticsearch.cluster.routing.allocation.allocator.DesiredBalanceInput;
+import org.elasticsearch.cluster.routing.allocation.decider.AllocationDeciders;
+import org.elasticsearch.common.settings.ClusterSettings;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.index.IndexVersion;
+import org.elasticsearch.snapshots.SnapshotShardSizeInfo;
+import org.elasticsearch.telemetry.metric.MeterRegistry;
+import org.elasticsearch.threadpool.DefaultBuiltInExecutorBuilders;
+import org.elasticsearch.threadpool.ThreadPool;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the desired balance computation of a large cluster that is balanced already, either for the same nodes or after a node
+ * joined, starting from the previous desired balance as the {@link DesiredBalanceComputer} does in production.
+ */
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@SuppressWarnings("unused") // invoked by benchmarking framework
+public class DesiredBalanceComputerBenchmark {
+
+    @Param(
+        {
+            // indices| shards| replicas| nodes
+            "      500|    100|        1|   100",
+            "     1000|     50|        2|   150",
+            "    50000|      1|        1|   200" }
+    )
+    public String indicesShardsReplicasNodes = "500|100|1|100";
+
+    private ThreadPool threadPool;
+    private DesiredBalanceComputer desiredBalanceComputer;
+    private AllocationDeciders allocationDeciders;
+    private DesiredBalance desiredBalance;
+    private ClusterState balancedClusterState;
+    private ClusterState nodeJoinedClusterState;
+
+    @Setup
+    public void setUp() throws Exception {
+        final String[] params = indicesShardsReplicasNodes.split("\\|");
+
+        int numIndices = toInt(params[0]);
+        int numShards = toInt(params[1]);
+        int numReplicas = toInt(params[2]);
+        int numNodes = toInt(params[3]);
+
+        Settings settings = Settings.builder().put("node.name", DesiredBalanceComputerBenchmark.class.getSimpleName()).build();
+        ClusterSettings clusterSettings = new ClusterSettings(Settings.EMPTY, ClusterSettings.BUILT_IN_CLUSTER_SETTINGS);
+        threadPool = new ThreadPool(settings, MeterRegistry.NOOP, new DefaultBuiltInExecutorBuilders());
+        desiredBalanceComputer = new DesiredBalanceComputer(clusterSettings, threadPool, new BalancedShardsAllocator(Settings.EMPTY));
+        allocationDeciders = Allocators.defaultAllocationDeciders(Settings.EMPTY, clusterSettings);
+
+        Metadata.Builder mb = Metadata.builder();
+        for (int i = 1; i <= numIndices; i++) {
+            mb.put(
+                IndexMetadata.builder("test_" + i)
+                    .settings(Settings.builder().put(IndexMetadata.SETTING_VERSION_CREATED, IndexVersion.current()))
+                    .numberOfShards(numShards)
+                    .numberOfReplicas(numReplicas)
+            );
+        }
+        Metadata metadata = mb.build();
+        RoutingTable.Builder rb = RoutingTable.builder(TestShardRoutingRoleStrategies.DEFAULT_ROLE_ONLY);
+        for (int i = 1; i <= numIndices; i++) {
+            rb.addAsNew(metadata.index("test_" + i));
+        }
+        RoutingTable unassignedRoutingTable = rb.build();
+        DiscoveryNodes.Builder nb = DiscoveryNodes.builder();
+        for (int i = 1; i <= numNodes; i++) {
+            nb.add(Allocators.newNode("node" + i, Map.of()));
+        }
+        ClusterState unassignedClusterState = ClusterState.builder(ClusterName.DEFAULT)
+            .metadata(metadata)
+            .routingTable(unassignedRoutingTable)
+            .nodes(nb)
+            .build();
+
+        desiredBalance = desiredBalanceComputer.compute(
+            DesiredBalance.INITIAL,
+            createInput(unassignedClusterState),
+            new LinkedList<>(),
+            input -> true
+        );
+
+        // start all the shards where the desired balance wants them
+        RoutingTable.Builder balancedRoutingTable = RoutingTable.builder();
+        for (IndexRoutingTable indexRoutingTable : unassignedRoutingTable) {
+            IndexRoutingTable.Builder indexRoutingTableBuilder = IndexRoutingTable.builder(indexRoutingTable.getIndex());
+            for (int shardId = 0; shardId < indexRoutingTable.size(); shardId++) {
+                IndexShardRoutingTable indexShardRoutingTable = indexRoutingTable.shard(shardId);
+                IndexShardRoutingTable.Builder shardBuilder = new IndexShardRoutingTable.Builder(indexShardRoutingTable.shardId());
+                var nodeIds = desiredBalance.getAssignment(indexShardRoutingTable.shardId()).nodeIds().iterator();
+                for (int copy = 0; copy < indexShardRoutingTable.size(); copy++) {
+                    ShardRouting shardRouting = indexShardRoutingTable.shard(copy);
+                    if (nodeIds.hasNext()) {
+                        shardRouting = shardRouting.initialize(nodeIds.next(), null, ShardRouting.UNAVAILABLE_EXPECTED_SHARD_SIZE)
+                            .moveToStarted(ShardRouting.UNAVAILABLE_EXPECTED_SHARD_SIZE);
+                    }
+                    shardBuilder.addShard(shardRouting);
+                }
+                indexRoutingTableBuilder.addIndexShard(shardBuilder);
+            }
+            balancedRoutingTable.add(indexRoutingTableBuilder);
+        }
+        balancedClusterState = ClusterState.builder(unassignedClusterState).routingTable(balancedRoutingTable).build();
+        nodeJoinedClusterState = ClusterState.builder(balancedClusterState)
+            .nodes(DiscoveryNodes.builder(balancedClusterState.nodes()).add(Allocators.newNode("node" + (numNodes + 1), Map.of())))
+            .build();
+    }
+
+    @TearDown
+    public void tearDown() {
+        ThreadPool.terminate(threadPool, 10, TimeUnit.SECONDS);
+    }
+
+    private int toInt(String v) {
+        return Integer.parseInt(v.trim());
+    }
+
+    private DesiredBalanceInput createInput(ClusterState clusterState) {
+        return new DesiredBalanceInput(
+            clusterState.version(),
+            new RoutingAllocation(allocationDeciders, clusterState, ClusterInfo.EMPTY, SnapshotShardSizeInfo.EMPTY, System.nanoTime()),
+            List.of()
+        );
+    }
+
+    @Benchmark
+    public DesiredBalance measureUnchanged() {
+        return desiredBalanceComputer.compute(desiredBalance, createInput(balancedClusterState), new LinkedList<>(), input -> true);
+    }
+
+    @Benchmark
+    public DesiredBalance measureNodeJoined() {
+        return desiredBalanceComputer.compute(desiredBalance, createInput(nodeJoinedClusterState), new LinkedList<>(), input -> true);
+    }
+}
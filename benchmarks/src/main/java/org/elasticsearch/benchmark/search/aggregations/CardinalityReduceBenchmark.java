@@ -0,0 +1,111 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the "Elastic License
+ * 2.0", the "GNU Affero General Public License v3.0 only", and the "Server Side
+ * Public License v 1"; you may not use this file except in compliance with, at
+ * your election, the "Elastic License 2.0", the "GNU Affero General Public
+ * License v3.0 only", or the "Server Side Public License, v 1".
+ */
+package org.elasticsearch.benchmark.search.aggregations;
+
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.search.aggregations.metrics.AbstractHyperLogLogPlusPlus;
+import org.elasticsearch.search.aggregations.metrics.HyperLogLogPlusPlus;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reducing a {@code cardinality} agg under a {@code terms} agg merges one
+ * sketch per shard for each of the terms buckets. This measures the work for
+ * a single bucket: multiply by the number of buckets, say 10,000, to get the
+ * cost of the whole reduction.
+ */
+@Warmup(iterations = 5)
+@Measurement(iterations = 7)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+@Fork(value = 1)
+public class CardinalityReduceBenchmark {
+    @Param({ "500" })
+    private int shards;
+
+    @Param({ "10", "14" })
+    private int precision;
+
+    @Param({ "100000" })
+    private int valuesPerShard;
+
+    private HyperLogLogPlusPlus[] shardSketches;
+    private BytesStreamOutput serialized;
+
+    @Setup
+    public void setup() throws IOException {
+        Random random = new Random(0);
+        shardSketches = new HyperLogLogPlusPlus[shards];
+        serialized = new BytesStreamOutput();
+        for (int s = 0; s < shards; s++) {
+            shardSketches[s] = new HyperLogLogPlusPlus(precision, BigArrays.NON_RECYCLING_INSTANCE, 1);
+            for (int v = 0; v < valuesPerShard; v++) {
+                shardSketches[s].collect(0, random.nextLong());
+            }
+            shardSketches[s].writeTo(0, serialized);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        for (HyperLogLogPlusPlus sketch : shardSketches) {
+            sketch.close();
+        }
+    }
+
+    @Benchmark
+    public long merge() {
+        try (HyperLogLogPlusPlus reduced = new HyperLogLogPlusPlus(precision, BigArrays.NON_RECYCLING_INSTANCE, 1)) {
+            for (HyperLogLogPlusPlus sketch : shardSketches) {
+                reduced.merge(0, sketch, 0);
+            }
+            return reduced.cardinality(0);
+        }
+    }
+
+    @Benchmark
+    public long serialize() throws IOException {
+        try (BytesStreamOutput out = new BytesStreamOutput()) {
+            for (HyperLogLogPlusPlus sketch : shardSketches) {
+                sketch.writeTo(0, out);
+            }
+            return out.size();
+        }
+    }
+
+    @Benchmark
+    public long deserializeAndMerge() throws IOException {
+        try (HyperLogLogPlusPlus reduced = new HyperLogLogPlusPlus(precision, BigArrays.NON_RECYCLING_INSTANCE, 1)) {
+            StreamInput in = serialized.bytes().streamInput();
+            for (int s = 0; s < shards; s++) {
+                try (AbstractHyperLogLogPlusPlus sketch = AbstractHyperLogLogPlusPlus.readFrom(in, BigArrays.NON_RECYCLING_INSTANCE)) {
+                    reduced.merge(0, sketch, 0);
+                }
+            }
+            return reduced.cardinality(0);
+        }
+    }
+}
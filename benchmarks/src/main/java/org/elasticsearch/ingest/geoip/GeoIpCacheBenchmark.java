@@ -0,0 +1,113 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the "Elastic License
+ * 2.0", the "GNU Affero General Public License v3.0 only", and the "Server Side
+ * Public License v 1"; you may not use this file except in compliance with, at
+ * your election, the "Elastic License 2.0", the "GNU Affero General Public
+ * License v3.0 only", or the "Server Side Public License, v 1".
+ */
+
+package org.elasticsearch.ingest.geoip;
+
+import com.maxmind.db.DatabaseRecord;
+
+import org.elasticsearch.common.network.InetAddresses;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Looks up addresses whose record is already in the {@link GeoIpCache}, either cached by address as the geoip processor used to do
+ * or cached by network. A lookup by network probes the cache with the prefix lengths of the networks cached for the database, so
+ * the cache holds IPv6 networks of {@code prefixLengths} distinct prefix lengths. The lookups either repeat the same address, from
+ * the least specific network which is the last one a scan of the prefix lengths would probe, or spread over all the networks.
+ * <p>
+ * This benchmark lives in the same package as {@link GeoIpCache} so that it can use the cache without making it public.
+ */
+@Fork(1)
+@Warmup(iterations = 3, time = 1, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@SuppressWarnings("unused") // invoked by benchmarking framework
+public class GeoIpCacheBenchmark {
+
+    private static final String DATABASE_PATH = "GeoLite2-City.mmdb";
+    private static final int LOOKUPS = 1 << 12;
+    private static final Function<InetAddress, DatabaseRecord<String>> NOT_CACHED = ip -> {
+        throw new AssertionError("[" + ip + "] should be cached");
+    };
+
+    @Param({ "1", "16", "96" })
+    public int prefixLengths = 96;
+
+    @Param({ "repeated", "spread" })
+    public String addresses = "repeated";
+
+    private GeoIpCache cache;
+    private InetAddress[] lookups;
+    private String[] lookupStrings;
+    private int next;
+
+    @Setup
+    public void setUp() throws UnknownHostException {
+        cache = new GeoIpCache(LOOKUPS * 2);
+        final Random random = new Random(0);
+        // network i is 2001:<i>::/<24 + i>, distinct networks differ in their third byte so that they don't overlap
+        final InetAddress[] networks = new InetAddress[prefixLengths];
+        for (int i = 0; i < prefixLengths; i++) {
+            final byte[] address = randomAddressIn(i, random);
+            final int prefixLength = 24 + i;
+            networks[i] = InetAddress.getByAddress(address);
+            cache.getRecord(networks[i], DATABASE_PATH, ip -> new DatabaseRecord<>("network-" + prefixLength, ip, prefixLength));
+        }
+        lookups = new InetAddress[LOOKUPS];
+        lookupStrings = new String[LOOKUPS];
+        for (int i = 0; i < LOOKUPS; i++) {
+            if (addresses.equals("repeated")) {
+                lookups[i] = networks[0];
+            } else {
+                lookups[i] = InetAddress.getByAddress(randomAddressIn(random.nextInt(prefixLengths), random));
+            }
+            lookupStrings[i] = InetAddresses.toAddrString(lookups[i]);
+            final String ip = lookupStrings[i];
+            cache.putIfAbsent(ip, DATABASE_PATH, ignored -> "address-" + ip);
+        }
+    }
+
+    private static byte[] randomAddressIn(int network, Random random) {
+        final byte[] address = new byte[16];
+        random.nextBytes(address);
+        address[0] = 0x20;
+        address[1] = 0x01;
+        address[2] = (byte) network;
+        return address;
+    }
+
+    @Benchmark
+    public String byAddress() {
+        return cache.putIfAbsent(lookupStrings[next++ & (LOOKUPS - 1)], DATABASE_PATH, ip -> {
+            throw new AssertionError("[" + ip + "] should be cached");
+        });
+    }
+
+    @Benchmark
+    public DatabaseRecord<String> byNetwork() {
+        return cache.getRecord(lookups[next++ & (LOOKUPS - 1)], DATABASE_PATH, NOT_CACHED);
+    }
+}
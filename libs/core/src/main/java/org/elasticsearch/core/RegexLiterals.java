@@ -0,0 +1,366 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the "Elastic License
+ * 2.0", the "GNU Affero General Public License v3.0 only", and the "Server Side
+ * Public License v 1"; you may not use this file except in compliance with, at
+ * your election, the "Elastic License 2.0", the "GNU Affero General Public
+ * License v3.0 only", or the "Server Side Public License, v 1".
+ */
+
+package org.elasticsearch.core;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Extracts the literal strings that any text matching a regular expression
+ * must contain, so that callers can rule out text with a plain string search
+ * before running the regex.
+ * <p>
+ * The literals are extracted by a conservative walk over the regex that
+ * understands the syntax that {@link java.util.regex.Pattern} and joni's ruby
+ * syntax have in common: anything we don't fully understand, like inline
+ * options, comments or quoting, makes the whole regex unsupported rather than
+ * risk requiring a literal that a match doesn't contain. Atoms we understand
+ * but that aren't literals, like character classes or escapes such as
+ * {@code \d}, simply don't require anything.
+ */
+public final class RegexLiterals {
+
+    private RegexLiterals() {}
+
+    /**
+     * What a regex, or part of it, requires of the text it matches.
+     */
+    public sealed interface Requirement permits Literal, All, AnyOf {}
+
+    /**
+     * The text must contain the literal.
+     */
+    public record Literal(String literal) implements Requirement {}
+
+    /**
+     * The text must meet all the requirements. If there are none then the
+     * text doesn't have to contain anything.
+     */
+    public record All(List<Requirement> requirements) implements Requirement {}
+
+    /**
+     * The text must meet at least one of the requirements, one per branch of
+     * an alternation.
+     */
+    public record AnyOf(List<Requirement> requirements) implements Requirement {}
+
+    /**
+     * Parse the requirements of a regex.
+     * @return the requirements or {@code null} if the regex uses syntax we
+     *         don't handle
+     */
+    @Nullable
+    public static Requirement parse(String regex) {
+        try {
+            Parser parser = new Parser(regex);
+            Requirement requirement = parser.alternation();
+            if (parser.pos != parser.codePoints.length) {
+                // Unbalanced ')'
+                return null;
+            }
+            return requirement;
+        } catch (Unsupported e) {
+            return null;
+        }
+    }
+
+    /**
+     * Thrown when the regex uses syntax we don't handle.
+     */
+    private static class Unsupported extends Exception {
+        Unsupported() {
+            super(null, null, false, false);
+        }
+    }
+
+    /**
+     * Recursive descent over the regex.
+     */
+    private static class Parser {
+        private final int[] codePoints;
+        private int pos;
+
+        Parser(String regex) {
+            this.codePoints = regex.codePoints().toArray();
+        }
+
+        Requirement alternation() throws Unsupported {
+            List<Requirement> branches = new ArrayList<>();
+            branches.add(sequence());
+            while (peek() == '|') {
+                pos++;
+                branches.add(sequence());
+            }
+            return branches.size() == 1 ? branches.get(0) : new AnyOf(branches);
+        }
+
+        private Requirement sequence() throws Unsupported {
+            List<Requirement> required = new ArrayList<>();
+            StringBuilder run = new StringBuilder();
+            while (pos < codePoints.length && codePoints[pos] != '|' && codePoints[pos] != ')') {
+                int c = codePoints[pos++];
+                switch (c) {
+                    case '(' -> {
+                        Requirement group = group();
+                        boolean groupRequired = quantifier().required;
+                        flush(required, run);
+                        if (groupRequired) {
+                            required.add(group);
+                        }
+                    }
+                    case '[' -> {
+                        skipCharacterClass();
+                        quantifier();
+                        flush(required, run);
+                    }
+                    case '\\' -> literal(required, run, escape());
+                    case '.', '^', '$' -> literal(required, run, -1);
+                    case '*', '+', '?' -> throw new Unsupported();
+                    case '{' -> {
+                        if (isInterval()) {
+                            throw new Unsupported();
+                        }
+                        // Ruby syntax treats a '{' that doesn't start an interval as a literal
+                        literal(required, run, c);
+                    }
+                    default -> literal(required, run, c);
+                }
+            }
+            flush(required, run);
+            return required.size() == 1 ? required.get(0) : new All(required);
+        }
+
+        /**
+         * Add an atom that matches a single character to the current run of
+         * literals, or end the run if it isn't a literal.
+         */
+        private void literal(List<Requirement> required, StringBuilder run, int literal) throws Unsupported {
+            Quantifier quantifier = quantifier();
+            if (literal < 0 || quantifier.required == false) {
+                flush(required, run);
+                return;
+            }
+            run.appendCodePoint(literal);
+            if (quantifier != Quantifier.ONCE) {
+                // The character repeats so whatever follows isn't adjacent to it
+                flush(required, run);
+            }
+        }
+
+        private static void flush(List<Requirement> required, StringBuilder run) {
+            if (run.isEmpty() == false) {
+                required.add(new Literal(run.toString()));
+                run.setLength(0);
+            }
+        }
+
+        /**
+         * Parse a group after its opening {@code (}, consuming its closing {@code )}.
+         */
+        private Requirement group() throws Unsupported {
+            boolean lookaround = false;
+            if (peek() == '?') {
+                pos++;
+                switch (next()) {
+                    case ':', '>' -> {
+                    }
+                    case '=', '!' -> lookaround = true;
+                    case '<' -> {
+                        if (peek() == '=' || peek() == '!') {
+                            pos++;
+                            lookaround = true;
+                        } else {
+                            // Named group
+                            skipPast('>');
+                        }
+                    }
+                    // Inline options, comments, conditionals, and anything else we don't know
+                    default -> throw new Unsupported();
+                }
+            }
+            Requirement inner = alternation();
+            if (next() != ')') {
+                throw new Unsupported();
+            }
+            return lookaround ? new All(List.of()) : inner;
+        }
+
+        /**
+         * Parse an escape after its {@code \}.
+         * @return the literal character or {@code -1} if it isn't a literal
+         */
+        private int escape() throws Unsupported {
+            int c = next();
+            if (Character.isLetterOrDigit(c) == false) {
+                if (c == '<' || c == '>') {
+                    // Word boundaries in some syntaxes
+                    return -1;
+                }
+                return c;
+            }
+            switch (c) {
+                // Quoting and ruby's control and meta escapes
+                case 'Q', 'C', 'M' -> throw new Unsupported();
+                case 'x' -> {
+                    if (peek() == '{') {
+                        skipPast('}');
+                    } else {
+                        skipWhile(2, "0123456789abcdefABCDEF");
+                    }
+                }
+                case 'u' -> skipWhile(4, "0123456789abcdefABCDEF");
+                case 'p', 'P' -> {
+                    if (peek() == '{') {
+                        skipPast('}');
+                    } else if (pos < codePoints.length) {
+                        // Single letter property like \pL
+                        pos++;
+                    }
+                }
+                case 'o', 'N' -> {
+                    if (peek() == '{') {
+                        skipPast('}');
+                    }
+                }
+                case 'k', 'g' -> {
+                    if (peek() == '<') {
+                        skipPast('>');
+                    } else if (peek() == '\'') {
+                        pos++;
+                        skipPast('\'');
+                    }
+                }
+                case 'c' -> next();
+                default -> {
+                    if (c >= '0' && c <= '9') {
+                        // Back references and octal escapes
+                        skipWhile(Integer.MAX_VALUE, "0123456789");
+                    }
+                }
+            }
+            return -1;
+        }
+
+        private void skipCharacterClass() throws Unsupported {
+            int depth = 1;
+            if (peek() == '^') {
+                pos++;
+            }
+            if (peek() == ']') {
+                // A literal ] at the start of the class
+                pos++;
+            }
+            while (depth > 0) {
+                int c = next();
+                if (c == '\\') {
+                    next();
+                } else if (c == '[') {
+                    depth++;
+                } else if (c == ']') {
+                    depth--;
+                }
+            }
+        }
+
+        private Quantifier quantifier() throws Unsupported {
+            Quantifier quantifier;
+            switch (peek()) {
+                case '?', '*' -> {
+                    pos++;
+                    quantifier = Quantifier.OPTIONAL;
+                }
+                case '+' -> {
+                    pos++;
+                    quantifier = Quantifier.REPEATED;
+                }
+                case '{' -> {
+                    if (isInterval() == false) {
+                        return Quantifier.ONCE;
+                    }
+                    pos++;
+                    int min = 0;
+                    while (Character.isDigit(peek())) {
+                        min = Math.min(min * 10 + next() - '0', 1000);
+                    }
+                    skipPast('}');
+                    quantifier = min > 0 ? Quantifier.REPEATED : Quantifier.OPTIONAL;
+                }
+                default -> {
+                    return Quantifier.ONCE;
+                }
+            }
+            // Lazy or possessive
+            if (peek() == '?' || peek() == '+') {
+                pos++;
+            }
+            if (peek() == '?' || peek() == '*' || peek() == '+' || (peek() == '{' && isInterval())) {
+                // Stacked quantifiers aren't worth understanding
+                throw new Unsupported();
+            }
+            return quantifier;
+        }
+
+        /**
+         * Is the {@code {} at {@code pos} the start of an interval like
+         * {@code {1,3}}?
+         */
+        private boolean isInterval() {
+            int i = pos + 1;
+            int digits = 0;
+            while (i < codePoints.length && Character.isDigit(codePoints[i])) {
+                i++;
+                digits++;
+            }
+            if (i < codePoints.length && codePoints[i] == ',') {
+                i++;
+                while (i < codePoints.length && Character.isDigit(codePoints[i])) {
+                    i++;
+                    digits++;
+                }
+            }
+            return digits > 0 && i < codePoints.length && codePoints[i] == '}';
+        }
+
+        private int peek() {
+            return pos < codePoints.length ? codePoints[pos] : -1;
+        }
+
+        private int next() throws Unsupported {
+            if (pos >= codePoints.length) {
+                throw new Unsupported();
+            }
+            return codePoints[pos++];
+        }
+
+        private void skipPast(int end) throws Unsupported {
+            while (next() != end) {
+                // skip
+            }
+        }
+
+        private void skipWhile(int max, String chars) {
+            for (int i = 0; i < max && pos < codePoints.length && chars.indexOf(codePoints[pos]) >= 0; i++) {
+                pos++;
+            }
+        }
+    }
+
+    private enum Quantifier {
+        ONCE(true),
+        REPEATED(true),
+        OPTIONAL(false);
+
+        private final boolean required;
+
+        Quantifier(boolean required) {
+            this.required = required;
+        }
+    }
+}
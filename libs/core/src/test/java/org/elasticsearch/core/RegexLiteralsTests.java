@@ -0,0 +1,80 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the "Elastic License
+ * 2.0", the "GNU Affero General Public License v3.0 only", and the "Server Side
+ * Public License v 1"; you may not use this file except in compliance with, at
+ * your election, the "Elastic License 2.0", the "GNU Affero General Public
+ * License v3.0 only", or the "Server Side Public License, v 1".
+ */
+
+package org.elasticsearch.core;
+
+import org.elasticsearch.core.RegexLiterals.All;
+import org.elasticsearch.core.RegexLiterals.AnyOf;
+import org.elasticsearch.core.RegexLiterals.Literal;
+import org.elasticsearch.core.RegexLiterals.Requirement;
+import org.elasticsearch.test.ESTestCase;
+
+import java.util.List;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
+
+public class RegexLiteralsTests extends ESTestCase {
+
+    public void testSequence() {
+        assertThat(RegexLiterals.parse("foo"), equalTo(new Literal("foo")));
+        assertThat(RegexLiterals.parse("foo \\d+ bar"), equalTo(all(new Literal("foo "), new Literal(" bar"))));
+        assertThat(RegexLiterals.parse("\\[\\w+\\]: "), equalTo(all(new Literal("["), new Literal("]: "))));
+        assertThat(RegexLiterals.parse(".*"), equalTo(all()));
+    }
+
+    public void testQuantifiers() {
+        assertThat(RegexLiterals.parse("ab?c"), equalTo(all(new Literal("a"), new Literal("c"))));
+        assertThat(RegexLiterals.parse("xa+b"), equalTo(all(new Literal("xa"), new Literal("b"))));
+        assertThat(RegexLiterals.parse("a{0,2}bc"), equalTo(new Literal("bc")));
+        assertThat(RegexLiterals.parse("ab{2}c"), equalTo(all(new Literal("ab"), new Literal("c"))));
+        assertThat(RegexLiterals.parse("a(?:bc)?d"), equalTo(all(new Literal("a"), new Literal("d"))));
+        assertThat(RegexLiterals.parse("a(?:bc)+?d"), equalTo(all(new Literal("a"), new Literal("bc"), new Literal("d"))));
+        // Not an interval so it's a literal in ruby syntax
+        assertThat(RegexLiterals.parse("{\\w}"), equalTo(all(new Literal("{"), new Literal("}"))));
+        assertThat(RegexLiterals.parse("a*+?"), nullValue());
+    }
+
+    public void testAlternation() {
+        assertThat(RegexLiterals.parse("foo|bar"), equalTo(anyOf(new Literal("foo"), new Literal("bar"))));
+        assertThat(
+            RegexLiterals.parse("a(b|c)d"),
+            equalTo(all(new Literal("a"), anyOf(new Literal("b"), new Literal("c")), new Literal("d")))
+        );
+        assertThat(RegexLiterals.parse("foo|.*"), equalTo(anyOf(new Literal("foo"), all())));
+    }
+
+    public void testNotLiterals() {
+        assertThat(RegexLiterals.parse("\\x41b"), equalTo(new Literal("b")));
+        assertThat(RegexLiterals.parse("\\pLb\\p{Lu}c"), equalTo(all(new Literal("b"), new Literal("c"))));
+        assertThat(RegexLiterals.parse("a[bc]d"), equalTo(all(new Literal("a"), new Literal("d"))));
+        assertThat(RegexLiterals.parse("a[]b]c"), equalTo(all(new Literal("a"), new Literal("c"))));
+        assertThat(RegexLiterals.parse("a[[:alpha:]\\]]d"), equalTo(all(new Literal("a"), new Literal("d"))));
+        assertThat(RegexLiterals.parse("(?=foo)bar"), equalTo(all(all(), new Literal("bar"))));
+        assertThat(RegexLiterals.parse("(?<w>a)\\k<w>b"), equalTo(all(new Literal("a"), new Literal("b"))));
+    }
+
+    public void testUnsupported() {
+        assertThat(RegexLiterals.parse("(?i)foo"), nullValue());
+        assertThat(RegexLiterals.parse("(?i:foo)bar"), nullValue());
+        assertThat(RegexLiterals.parse("\\Qfoo\\E"), nullValue());
+        assertThat(RegexLiterals.parse("(?#comment)foo"), nullValue());
+        assertThat(RegexLiterals.parse("(foo"), nullValue());
+        assertThat(RegexLiterals.parse("foo)"), nullValue());
+        assertThat(RegexLiterals.parse("*foo"), nullValue());
+    }
+
+    private static Requirement all(Requirement... requirements) {
+        return new All(List.of(requirements));
+    }
+
+    private static Requirement anyOf(Requirement... requirements) {
+        return new AnyOf(List.of(requirements));
+    }
+}
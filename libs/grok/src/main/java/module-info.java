@@ -8,6 +8,7 @@
  */
 
 module org.elasticsearch.grok {
+    requires org.elasticsearch.base;
     requires org.jruby.jcodings;
     requires org.jruby.joni;
 
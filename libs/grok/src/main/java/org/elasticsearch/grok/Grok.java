@@ -55,6 +55,11 @@ public final class Grok {
 
     private final boolean namedCaptures;
     private final Regex compiledExpression;
+    /**
+     * Literals that any text matching the expression must contain or {@code null}
+     * if we couldn't find any.
+     */
+    private final LiteralPrefilter prefilter;
     private final MatcherWatchdog matcherWatchdog;
     private final List<GrokCaptureConfig> captureConfig;
 
@@ -90,6 +95,7 @@ public final class Grok {
             UTF8Encoding.INSTANCE,
             logCallBack::accept
         );
+        this.prefilter = LiteralPrefilter.build(expression);
 
         List<GrokCaptureConfig> grokCaptureConfigs = new ArrayList<>();
         for (Iterator<NameEntry> entry = compiledExpression.namedBackrefIterator(); entry.hasNext();) {
@@ -173,7 +179,11 @@ public final class Grok {
      * @return true if grok expression matches text or there is a timeout, false otherwise.
      */
     public boolean match(String text) {
-        Matcher matcher = compiledExpression.matcher(text.getBytes(StandardCharsets.UTF_8));
+        byte[] utf8Bytes = text.getBytes(StandardCharsets.UTF_8);
+        if (prefilter != null && prefilter.mightMatch(utf8Bytes, 0, utf8Bytes.length) == false) {
+            return false;
+        }
+        Matcher matcher = compiledExpression.matcher(utf8Bytes);
         int result;
         try {
             matcherWatchdog.register(matcher);
@@ -226,6 +236,9 @@ public final class Grok {
      * @throws RuntimeException if there was a timeout
      */
     public boolean match(byte[] utf8Bytes, int offset, int length, GrokCaptureExtracter extracter) {
+        if (prefilter != null && prefilter.mightMatch(utf8Bytes, offset, length) == false) {
+            return false;
+        }
         Matcher matcher = compiledExpression.matcher(utf8Bytes, offset, offset + length);
         int result;
         try {
@@ -257,4 +270,12 @@ public final class Grok {
         return compiledExpression;
     }
 
+    /**
+     * Literals that text must contain to match, one list per alternative, or
+     * {@code null} if we couldn't find any. Visible for testing.
+     */
+    List<List<String>> prefilterLiterals() {
+        return prefilter == null ? null : prefilter.literals();
+    }
+
 }
@@ -0,0 +1,180 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the "Elastic License
+ * 2.0", the "GNU Affero General Public License v3.0 only", and the "Server Side
+ * Public License v 1"; you may not use this file except in compliance with, at
+ * your election, the "Elastic License 2.0", the "GNU Affero General Public
+ * License v3.0 only", or the "Server Side Public License, v 1".
+ */
+
+package org.elasticsearch.grok;
+
+import org.elasticsearch.core.RegexLiterals;
+import org.elasticsearch.core.RegexLiterals.Requirement;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Literal strings that any text matching a regular expression must contain.
+ * Most grok expressions are full of literal delimiters like {@code " - "} or
+ * {@code "] \""} and most lines that don't match a pattern don't contain them,
+ * so checking for them with a plain byte search lets us skip running the
+ * backtracking regex on those lines entirely.
+ * <p>
+ * The literals are extracted by {@link RegexLiterals}, which makes any
+ * expression it doesn't fully understand unconstrained rather than risk
+ * skipping a line that matches. Alternations produce one set of literals per
+ * alternative so multi-pattern processors, which combine their patterns into
+ * a single alternation, can still skip lines that none of their patterns
+ * could match.
+ */
+final class LiteralPrefilter {
+    /**
+     * The maximum number of alternatives we track. More than this and checking
+     * them all costs more than it's likely to save.
+     */
+    private static final int MAX_ALTERNATIVES = 16;
+
+    /**
+     * Each alternative is a list of literals that must all be present in the
+     * text. The text may only match if at least one alternative is present.
+     */
+    private final byte[][][] alternatives;
+
+    private LiteralPrefilter(byte[][][] alternatives) {
+        this.alternatives = alternatives;
+    }
+
+    /**
+     * Build the prefilter for a regular expression in joni's ruby syntax.
+     * @return the prefilter or {@code null} if we can't find literals that
+     *         every match must contain
+     */
+    static LiteralPrefilter build(String regex) {
+        Requirement requirement = RegexLiterals.parse(regex);
+        if (requirement == null) {
+            return null;
+        }
+        List<Set<String>> alternatives = alternatives(requirement);
+        if (alternatives == null) {
+            return null;
+        }
+        byte[][][] result = new byte[alternatives.size()][][];
+        for (int a = 0; a < result.length; a++) {
+            result[a] = alternatives.get(a).stream().map(s -> s.getBytes(StandardCharsets.UTF_8)).toArray(byte[][]::new);
+        }
+        return new LiteralPrefilter(result);
+    }
+
+    /**
+     * The alternatives that text meeting the requirement must contain one of,
+     * each a set of literals that must all be present, or {@code null} if it
+     * doesn't have to contain any literals at all.
+     */
+    private static List<Set<String>> alternatives(Requirement requirement) {
+        if (requirement instanceof RegexLiterals.Literal literal) {
+            return List.of(Set.of(literal.literal()));
+        }
+        if (requirement instanceof RegexLiterals.AnyOf anyOf) {
+            List<Set<String>> result = new ArrayList<>();
+            for (Requirement branch : anyOf.requirements()) {
+                List<Set<String>> alternatives = alternatives(branch);
+                if (alternatives == null) {
+                    return null;
+                }
+                result.addAll(alternatives);
+            }
+            return result.size() > MAX_ALTERNATIVES ? null : result;
+        }
+        List<Set<String>> required = List.of(new LinkedHashSet<>());
+        for (Requirement part : ((RegexLiterals.All) requirement).requirements()) {
+            List<Set<String>> alternatives = alternatives(part);
+            if (alternatives != null) {
+                required = and(required, alternatives);
+            }
+        }
+        for (Set<String> alternative : required) {
+            if (alternative.isEmpty()) {
+                return null;
+            }
+        }
+        return required;
+    }
+
+    /**
+     * Combine the literals required by one part of a sequence with the
+     * literals the next part requires. If that'd make too many alternatives
+     * we just skip the next part's literals which is always safe.
+     */
+    private static List<Set<String>> and(List<Set<String>> required, List<Set<String>> next) {
+        if (required.size() * next.size() > MAX_ALTERNATIVES) {
+            return required;
+        }
+        List<Set<String>> result = new ArrayList<>(required.size() * next.size());
+        for (Set<String> r : required) {
+            for (Set<String> n : next) {
+                Set<String> combined = new LinkedHashSet<>(r);
+                combined.addAll(n);
+                result.add(combined);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Might the text match the regex? {@code false} means it definitely can't.
+     */
+    boolean mightMatch(byte[] utf8Bytes, int offset, int length) {
+        for (byte[][] alternative : alternatives) {
+            if (containsAll(utf8Bytes, offset, length, alternative)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The literals that text must contain, one list per alternative. Visible for testing.
+     */
+    List<List<String>> literals() {
+        List<List<String>> result = new ArrayList<>(alternatives.length);
+        for (byte[][] alternative : alternatives) {
+            List<String> literals = new ArrayList<>(alternative.length);
+            for (byte[] literal : alternative) {
+                literals.add(new String(literal, StandardCharsets.UTF_8));
+            }
+            result.add(literals);
+        }
+        return result;
+    }
+
+    private static boolean containsAll(byte[] utf8Bytes, int offset, int length, byte[][] literals) {
+        for (byte[] literal : literals) {
+            if (indexOf(utf8Bytes, offset, offset + length, literal) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static int indexOf(byte[] bytes, int from, int to, byte[] literal) {
+        byte first = literal[0];
+        int last = to - literal.length;
+        outer: for (int i = from; i <= last; i++) {
+            if (bytes[i] != first) {
+                continue;
+            }
+            for (int j = 1; j < literal.length; j++) {
+                if (bytes[i + j] != literal[j]) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the "Elastic License
+ * 2.0", the "GNU Affero General Public License v3.0 only", and the "Server Side
+ * Public License v 1"; you may not use this file except in compliance with, at
+ * your election, the "Elastic License 2.0", the "GNU Affero General Public
+ * License v3.0 only", or the "Server Side Public License, v 1".
+ */
+
+package org.elasticsearch.grok;
+
+import org.elasticsearch.test.ESTestCase;
+import org.joni.Option;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
+
+public class LiteralPrefilterTests extends ESTestCase {
+    private static final List<String> LINES = List.of(
+        "<22>Aug  1 10:10:10 host1 sshd[1234]: Accepted password for root from 10.0.0.1 port 22 ssh2",
+        "127.0.0.1 - frank [10/Oct/2000:13:55:36 -0700] \"GET /apache_pb.gif HTTP/1.0\" 200 2326 \"-\" \"Mozilla/4.08\"",
+        "<191>1 2009-06-30T18:30:00+02:00 paxton.local grokdebug 4123 - [id1 foo=\"bar\"] message",
+        "2023-01-01T00:00:00.000Z INFO [main] o.e.Node - started",
+        "[2024-05-05 12:00:00,123][WARN ][o.e.c.r.a.DiskThresholdMonitor] [node-1] high disk watermark exceeded",
+        "Mar 16 00:01:25 evita postfix/smtpd[1713]: connect from camomile.example.com[1.2.3.4]",
+        "üñíçødé text with 42 and 3.14 and true",
+        "",
+        "no delimiters here"
+    );
+
+    public void testSequence() {
+        assertThat(literals("foo %{WORD:w} bar"), equalTo(List.of(List.of("foo ", " bar"))));
+        assertThat(literals("\\[%{WORD}\\]: "), equalTo(List.of(List.of("[", "]: "))));
+    }
+
+    public void testQuantifiers() {
+        assertThat(literals("ab?c"), equalTo(List.of(List.of("a", "c"))));
+        assertThat(literals("ab*cd"), equalTo(List.of(List.of("a", "cd"))));
+        assertThat(literals("xa+b"), equalTo(List.of(List.of("xa", "b"))));
+        assertThat(literals("a{0,2}bc"), equalTo(List.of(List.of("bc"))));
+        assertThat(literals("ab{2}c"), equalTo(List.of(List.of("ab", "c"))));
+        assertThat(literals("a(?:bc)?d"), equalTo(List.of(List.of("a", "d"))));
+        assertThat(literals("a(?:bc)+d"), equalTo(List.of(List.of("a", "bc", "d"))));
+        // Not an interval so it's a literal
+        assertThat(literals("{%{WORD}}"), equalTo(List.of(List.of("{", "}"))));
+    }
+
+    public void testAlternation() {
+        assertThat(literals("foo|bar"), equalTo(List.of(List.of("foo"), List.of("bar"))));
+        assertThat(literals("a(?:b|c)d"), equalTo(List.of(List.of("a", "b", "d"), List.of("a", "c", "d"))));
+        assertThat(literals("(?:a %{WORD})|(?:b %{WORD})"), equalTo(List.of(List.of("a "), List.of("b "))));
+        assertThat(literals("foo|.*"), nullValue());
+        assertThat(literals("foo|"), nullValue());
+    }
+
+    public void testNotLiterals() {
+        assertThat(literals("\\x41b"), equalTo(List.of(List.of("b"))));
+        assertThat(literals("\\d+\\.\\d+"), equalTo(List.of(List.of("."))));
+        assertThat(literals("a[bc]d"), equalTo(List.of(List.of("a", "d"))));
+        assertThat(literals("a[[:alpha:]\\]]d"), equalTo(List.of(List.of("a", "d"))));
+        assertThat(literals("(?=foo)bar"), equalTo(List.of(List.of("bar"))));
+        assertThat(literals("(?<w>a)\\k<w>b"), equalTo(List.of(List.of("a", "b"))));
+        assertThat(literals("%{WORD}"), nullValue());
+    }
+
+    public void testUnsupported() {
+        assertThat(literals("(?i)foo"), nullValue());
+        assertThat(literals("(?i:foo)bar"), nullValue());
+        assertThat(literals("\\Qfoo\\E"), nullValue());
+        assertThat(literals("(?#comment)foo"), nullValue());
+    }
+
+    public void testSkipsTextWithoutLiterals() {
+        Grok grok = new Grok(GrokBuiltinPatterns.legacyPatterns(), "%{IP:ip} - \\[%{WORD:w}\\]", logger::warn);
+        assertTrue(grok.match("1.2.3.4 - [foo]"));
+        assertFalse(grok.match("1.2.3.4 + [foo]"));
+        byte[] utf8 = "xx1.2.3.4 - [foo]xx".getBytes(StandardCharsets.UTF_8);
+        GrokCaptureExtracter noop = (bytes, offset, region) -> {};
+        assertTrue(grok.match(utf8, 2, utf8.length - 4, noop));
+        // The literals are outside of the range
+        assertFalse(grok.match(utf8, 0, 10, noop));
+    }
+
+    public void testBuiltinPatternsNeverSkipAMatch() {
+        for (boolean ecsCompatibility : new boolean[] { false, true }) {
+            PatternBank bank = GrokBuiltinPatterns.get(ecsCompatibility);
+            for (String name : bank.bank().keySet()) {
+                Grok grok = new Grok(bank, "%{" + name + "}", logger::warn);
+                for (String line : LINES) {
+                    assertThat(name + " on [" + line + "]", grok.match(line), equalTo(regexMatches(grok, line)));
+                }
+            }
+        }
+    }
+
+    public void testIndexOf() {
+        byte[] bytes = "abcabd".getBytes(StandardCharsets.UTF_8);
+        assertThat(LiteralPrefilter.indexOf(bytes, 0, bytes.length, "abd".getBytes(StandardCharsets.UTF_8)), equalTo(3));
+        assertThat(LiteralPrefilter.indexOf(bytes, 0, 5, "abd".getBytes(StandardCharsets.UTF_8)), equalTo(-1));
+        assertThat(LiteralPrefilter.indexOf(bytes, 1, bytes.length, "a".getBytes(StandardCharsets.UTF_8)), equalTo(3));
+    }
+
+    private List<List<String>> literals(String pattern) {
+        return new Grok(GrokBuiltinPatterns.legacyPatterns(), pattern, logger::warn).prefilterLiterals();
+    }
+
+    private static boolean regexMatches(Grok grok, String text) {
+        byte[] utf8 = text.getBytes(StandardCharsets.UTF_8);
+        // Grok#match(String) searches up to the length of the string in chars
+        return grok.getCompiledExpression().matcher(utf8).search(0, text.length(), Option.DEFAULT) != -1;
+    }
+}
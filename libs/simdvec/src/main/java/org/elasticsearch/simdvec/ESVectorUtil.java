@@ -12,6 +12,8 @@ package org.elasticsearch.simdvec;
 import org.elasticsearch.simdvec.internal.vectorization.ESVectorUtilSupport;
 import org.elasticsearch.simdvec.internal.vectorization.ESVectorizationProvider;
 
+import java.util.Objects;
+
 import static org.elasticsearch.simdvec.internal.vectorization.ESVectorUtilSupport.B_QUERY;
 
 public class ESVectorUtil {
@@ -24,4 +26,14 @@ public class ESVectorUtil {
         }
         return IMPL.ipByteBinByte(q, d);
     }
+
+    /**
+     * Replaces each byte in {@code dst} with the maximum of itself and the
+     * matching byte of {@code src}, comparing the bytes as signed values.
+     */
+    public static void maxInPlace(byte[] dst, int dstOffset, byte[] src, int srcOffset, int length) {
+        Objects.checkFromIndexSize(dstOffset, length, dst.length);
+        Objects.checkFromIndexSize(srcOffset, length, src.length);
+        IMPL.maxInPlace(dst, dstOffset, src, srcOffset, length);
+    }
 }
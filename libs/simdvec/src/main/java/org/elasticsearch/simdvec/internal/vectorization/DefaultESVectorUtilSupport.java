@@ -20,6 +20,17 @@ final class DefaultESVectorUtilSupport implements ESVectorUtilSupport {
         return ipByteBinByteImpl(q, d);
     }
 
+    @Override
+    public void maxInPlace(byte[] dst, int dstOffset, byte[] src, int srcOffset, int length) {
+        maxInPlaceImpl(dst, dstOffset, src, srcOffset, 0, length);
+    }
+
+    public static void maxInPlaceImpl(byte[] dst, int dstOffset, byte[] src, int srcOffset, int from, int length) {
+        for (int i = from; i < length; i++) {
+            dst[dstOffset + i] = (byte) Math.max(dst[dstOffset + i], src[srcOffset + i]);
+        }
+    }
+
     public static long ipByteBinByteImpl(byte[] q, byte[] d) {
         long ret = 0;
         int size = d.length;
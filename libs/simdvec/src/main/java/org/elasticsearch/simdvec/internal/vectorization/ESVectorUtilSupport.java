@@ -14,4 +14,6 @@ public interface ESVectorUtilSupport {
     short B_QUERY = 4;
 
     long ipByteBinByte(byte[] q, byte[] d);
+
+    void maxInPlace(byte[] dst, int dstOffset, byte[] src, int srcOffset, int length);
 }
@@ -48,6 +48,22 @@ public final class PanamaESVectorUtilSupport implements ESVectorUtilSupport {
         return DefaultESVectorUtilSupport.ipByteBinByteImpl(q, d);
     }
 
+    private static final VectorSpecies<Byte> BYTE_SPECIES_PREFERRED = ByteVector.SPECIES_PREFERRED;
+
+    @Override
+    public void maxInPlace(byte[] dst, int dstOffset, byte[] src, int srcOffset, int length) {
+        int i = 0;
+        if (length >= BYTE_SPECIES_PREFERRED.length()) {
+            int limit = BYTE_SPECIES_PREFERRED.loopBound(length);
+            for (; i < limit; i += BYTE_SPECIES_PREFERRED.length()) {
+                var vd = ByteVector.fromArray(BYTE_SPECIES_PREFERRED, dst, dstOffset + i);
+                var vs = ByteVector.fromArray(BYTE_SPECIES_PREFERRED, src, srcOffset + i);
+                vd.max(vs).intoArray(dst, dstOffset + i);
+            }
+        }
+        DefaultESVectorUtilSupport.maxInPlaceImpl(dst, dstOffset, src, srcOffset, i, length);
+    }
+
     private static final VectorSpecies<Byte> BYTE_SPECIES_128 = ByteVector.SPECIES_128;
     private static final VectorSpecies<Byte> BYTE_SPECIES_256 = ByteVector.SPECIES_256;
 
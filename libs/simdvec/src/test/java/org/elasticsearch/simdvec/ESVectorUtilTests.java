@@ -107,6 +107,35 @@ public class ESVectorUtilTests extends BaseVectorizationTests {
         }
     }
 
+    public void testMaxInPlace() {
+        testMaxInPlaceImpl(ESVectorUtil::maxInPlace);
+        testMaxInPlaceImpl(defaultedProvider.getVectorUtilSupport()::maxInPlace);
+        testMaxInPlaceImpl(defOrPanamaProvider.getVectorUtilSupport()::maxInPlace);
+    }
+
+    interface MaxInPlace {
+        void apply(byte[] dst, int dstOffset, byte[] src, int srcOffset, int length);
+    }
+
+    void testMaxInPlaceImpl(MaxInPlace maxInPlaceFunc) {
+        int iterations = atLeast(50);
+        for (int i = 0; i < iterations; i++) {
+            int length = random().nextInt(5000);
+            int dstOffset = random().nextInt(10);
+            int srcOffset = random().nextInt(10);
+            var dst = new byte[dstOffset + length + random().nextInt(10)];
+            var src = new byte[srcOffset + length + random().nextInt(10)];
+            random().nextBytes(dst);
+            random().nextBytes(src);
+            var expected = dst.clone();
+            for (int j = 0; j < length; j++) {
+                expected[dstOffset + j] = (byte) Math.max(dst[dstOffset + j], src[srcOffset + j]);
+            }
+            maxInPlaceFunc.apply(dst, dstOffset, src, srcOffset, length);
+            assertArrayEquals(expected, dst);
+        }
+    }
+
     static int scalarIpByteBin(byte[] q, byte[] d) {
         int res = 0;
         for (int i = 0; i < B_QUERY; i++) {
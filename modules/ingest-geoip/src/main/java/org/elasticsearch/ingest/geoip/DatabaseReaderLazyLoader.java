@@ -9,6 +9,7 @@
 
 package org.elasticsearch.ingest.geoip;
 
+import com.maxmind.db.DatabaseRecord;
 import com.maxmind.db.NoCache;
 import com.maxmind.db.Reader;
 
@@ -18,6 +19,7 @@ import org.apache.lucene.util.SetOnce;
 import org.elasticsearch.ExceptionsHelper;
 import org.elasticsearch.common.CheckedBiFunction;
 import org.elasticsearch.common.CheckedSupplier;
+import org.elasticsearch.common.network.InetAddresses;
 import org.elasticsearch.core.Booleans;
 import org.elasticsearch.core.IOUtils;
 import org.elasticsearch.core.Nullable;
@@ -25,6 +27,7 @@ import org.elasticsearch.core.SuppressForbidden;
 
 import java.io.File;
 import java.io.IOException;
+import java.net.InetAddress;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Objects;
@@ -108,6 +111,21 @@ public class DatabaseReaderLazyLoader implements IpDatabase {
         });
     }
 
+    @Override
+    @Nullable
+    public <DATA, RESPONSE> RESPONSE getResponse(String ipAddress, Class<DATA> clazz, ResponseBuilder<DATA, RESPONSE> responseBuilder) {
+        InetAddress ip = InetAddresses.forString(ipAddress);
+        DatabaseRecord<DATA> record = cache.getRecord(ip, databasePath.toString(), address -> {
+            try {
+                return get().getRecord(address, clazz);
+            } catch (Exception e) {
+                throw ExceptionsHelper.convertToRuntime(e);
+            }
+        });
+        DATA data = record.getData();
+        return data == null ? null : responseBuilder.build(data, ip, record.getNetwork());
+    }
+
     Reader get() throws IOException {
         if (databaseReader.get() == null) {
             synchronized (databaseReader) {
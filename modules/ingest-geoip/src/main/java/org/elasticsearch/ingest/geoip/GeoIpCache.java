@@ -8,6 +8,7 @@
  */
 package org.elasticsearch.ingest.geoip;
 
+import com.maxmind.db.DatabaseRecord;
 import com.maxmind.db.NodeCache;
 
 import org.elasticsearch.common.cache.Cache;
@@ -15,7 +16,11 @@ import org.elasticsearch.common.cache.CacheBuilder;
 import org.elasticsearch.core.TimeValue;
 import org.elasticsearch.ingest.geoip.stats.CacheStats;
 
+import java.net.InetAddress;
 import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Function;
 import java.util.function.LongSupplier;
@@ -25,6 +30,9 @@ import java.util.function.LongSupplier;
  * This cache differs from the maxmind's {@link NodeCache} such that this cache stores the deserialized Json objects to avoid the
  * cost of deserialization for each lookup (cached or not). This comes at slight expense of higher memory usage, but significant
  * reduction of CPU usage.
+ * <p>
+ * Records can also be cached by the network that contains them, see {@link #getRecord}, so that every address in the network
+ * shares one entry. Each network in the database maps every address in it to the same record, so this is exact.
  */
 public final class GeoIpCache {
 
@@ -42,9 +50,17 @@ public final class GeoIpCache {
     };
 
     private final LongSupplier relativeNanoTimeProvider;
-    private final Cache<CacheKey, Object> cache;
+    private final Cache<Key, Object> cache;
     private final AtomicLong hitsTimeInNanos = new AtomicLong(0);
     private final AtomicLong missesTimeInNanos = new AtomicLong(0);
+    /**
+     * Looking up a network probes the cache once per prefix length, but that should only count as a single hit or miss.
+     */
+    private final AtomicLong uncountedMisses = new AtomicLong(0);
+    /**
+     * The prefix lengths of the networks that we've cached for each database.
+     */
+    private final Map<String, PrefixLengths> prefixLengths = new ConcurrentHashMap<>();
 
     // package private for testing
     GeoIpCache(long maxSize, LongSupplier relativeNanoTimeProvider) {
@@ -52,7 +68,7 @@ public final class GeoIpCache {
             throw new IllegalArgumentException("geoip max cache size must be 0 or greater");
         }
         this.relativeNanoTimeProvider = relativeNanoTimeProvider;
-        this.cache = CacheBuilder.<CacheKey, Object>builder().setMaximumWeight(maxSize).build();
+        this.cache = CacheBuilder.<Key, Object>builder().setMaximumWeight(maxSize).build();
     }
 
     GeoIpCache(long maxSize) {
@@ -91,6 +107,65 @@ public final class GeoIpCache {
         }
     }
 
+    /**
+     * Get the record for an address, sharing the cache entry between all of the addresses in the network that contains it.
+     * We don't know the network until we've searched the database, so we probe the cache with the prefix length of the last
+     * network that we found for the database first, which is what repeated lookups of the same address and lookups of traffic
+     * from the same networks need, and then with every other prefix length that we've seen for the database, most specific first.
+     */
+    @SuppressWarnings("unchecked")
+    <DATA> DatabaseRecord<DATA> getRecord(
+        InetAddress ip,
+        String databasePath,
+        Function<InetAddress, DatabaseRecord<DATA>> retrieveFunction
+    ) {
+        byte[] address = ip.getAddress();
+        long cacheStart = relativeNanoTimeProvider.getAsLong();
+        PrefixLengths lengths = prefixLengths.get(databasePath);
+        int probes = 0;
+        Object record = null;
+        if (lengths != null) {
+            int lastFound = lengths.lastFound(address.length);
+            if (lastFound >= 0) {
+                probes++;
+                record = cache.get(NetworkKey.of(databasePath, address, lastFound));
+            }
+            if (record == null) {
+                for (int prefixLength : lengths.get(address.length)) {
+                    if (prefixLength == lastFound) {
+                        continue;
+                    }
+                    probes++;
+                    record = cache.get(NetworkKey.of(databasePath, address, prefixLength));
+                    if (record != null) {
+                        lengths.found(address.length, prefixLength);
+                        break;
+                    }
+                }
+            }
+        }
+        long cacheRequestTime = relativeNanoTimeProvider.getAsLong() - cacheStart;
+
+        if (record == null) {
+            long retrieveStart = relativeNanoTimeProvider.getAsLong();
+            DatabaseRecord<DATA> retrieved = retrieveFunction.apply(ip);
+            int prefixLength = retrieved.getNetwork().getPrefixLength();
+            if (prefixLength >= 0 && prefixLength <= address.length * Byte.SIZE) {
+                // register the prefix length first so the entry is visible as soon as it is in the cache
+                lengths = prefixLengths.computeIfAbsent(databasePath, k -> new PrefixLengths());
+                lengths.add(address.length, prefixLength);
+                lengths.found(address.length, prefixLength);
+                cache.put(NetworkKey.of(databasePath, address, prefixLength), retrieved);
+            }
+            missesTimeInNanos.addAndGet(cacheRequestTime + relativeNanoTimeProvider.getAsLong() - retrieveStart);
+            uncountedMisses.addAndGet(probes - 1);
+            return retrieved;
+        }
+        hitsTimeInNanos.addAndGet(cacheRequestTime);
+        uncountedMisses.addAndGet(probes - 1);
+        return (DatabaseRecord<DATA>) record;
+    }
+
     // only useful for testing
     Object get(String ip, String databasePath) {
         CacheKey cacheKey = new CacheKey(ip, databasePath);
@@ -99,9 +174,10 @@ public final class GeoIpCache {
 
     public int purgeCacheEntriesForDatabase(Path databaseFile) {
         String databasePath = databaseFile.toString();
+        prefixLengths.remove(databasePath);
         int counter = 0;
-        for (CacheKey key : cache.keys()) {
-            if (key.databasePath.equals(databasePath)) {
+        for (Key key : cache.keys()) {
+            if (key.databasePath().equals(databasePath)) {
                 cache.invalidate(key);
                 counter++;
             }
@@ -123,7 +199,7 @@ public final class GeoIpCache {
         return new CacheStats(
             cache.count(),
             stats.getHits(),
-            stats.getMisses(),
+            stats.getMisses() - uncountedMisses.get(),
             stats.getEvictions(),
             TimeValue.nsecToMSec(hitsTimeInNanos.get()),
             TimeValue.nsecToMSec(missesTimeInNanos.get())
@@ -135,5 +211,79 @@ public final class GeoIpCache {
      * path is needed to be included in the cache key. For example, if we only used the IP address as the key the City and ASN the same
      * IP may be in both with different values and we need to cache both.
      */
-    private record CacheKey(String ip, String databasePath) {}
+    private record CacheKey(String ip, String databasePath) implements Key {}
+
+    /**
+     * The key for a record cached by the network that contains it. The address of the network is packed into two longs,
+     * IPv4 addresses only use the first.
+     */
+    private record NetworkKey(String databasePath, int addressLength, long high, long low, int prefixLength) implements Key {
+        static NetworkKey of(String databasePath, byte[] address, int prefixLength) {
+            long high = 0;
+            long low = 0;
+            for (int i = 0; i < address.length; i++) {
+                int keep = Math.max(0, Math.min(Byte.SIZE, prefixLength - i * Byte.SIZE));
+                long masked = address[i] & (0xFF00 >>> keep) & 0xFF;
+                if (i < 8) {
+                    high |= masked << (56 - i * Byte.SIZE);
+                } else {
+                    low |= masked << (56 - (i - 8) * Byte.SIZE);
+                }
+            }
+            return new NetworkKey(databasePath, address.length, high, low, prefixLength);
+        }
+    }
+
+    private sealed interface Key permits CacheKey, NetworkKey {
+        String databasePath();
+    }
+
+    /**
+     * The distinct prefix lengths of the networks cached for a database, most specific first. There are only a few dozen
+     * of these at most so we copy on write. Also tracks the prefix length of the last network that a lookup found.
+     */
+    private static final class PrefixLengths {
+        private volatile int[] ipv4 = new int[0];
+        private volatile int[] ipv6 = new int[0];
+        // racy, a lookup that sees a stale value only probes the cache once more
+        private volatile int lastFoundIpv4 = -1;
+        private volatile int lastFoundIpv6 = -1;
+
+        int[] get(int addressLength) {
+            return addressLength == 4 ? ipv4 : ipv6;
+        }
+
+        int lastFound(int addressLength) {
+            return addressLength == 4 ? lastFoundIpv4 : lastFoundIpv6;
+        }
+
+        void found(int addressLength, int prefixLength) {
+            if (addressLength == 4) {
+                lastFoundIpv4 = prefixLength;
+            } else {
+                lastFoundIpv6 = prefixLength;
+            }
+        }
+
+        synchronized void add(int addressLength, int prefixLength) {
+            int[] lengths = get(addressLength);
+            if (Arrays.stream(lengths).anyMatch(l -> l == prefixLength)) {
+                return;
+            }
+            int[] added = Arrays.copyOf(lengths, lengths.length + 1);
+            added[lengths.length] = prefixLength;
+            // sort most specific first
+            Arrays.sort(added);
+            for (int i = 0; i < added.length / 2; i++) {
+                int tmp = added[i];
+                added[i] = added[added.length - 1 - i];
+                added[added.length - 1 - i] = tmp;
+            }
+            if (addressLength == 4) {
+                ipv4 = added;
+            } else {
+                ipv6 = added;
+            }
+        }
+    }
 }
@@ -9,12 +9,14 @@
 
 package org.elasticsearch.ingest.geoip;
 
+import com.maxmind.db.Network;
 import com.maxmind.db.Reader;
 
 import org.elasticsearch.common.CheckedBiFunction;
 import org.elasticsearch.core.Nullable;
 
 import java.io.IOException;
+import java.net.InetAddress;
 
 /**
  * Provides a uniform interface for interacting with various ip databases.
@@ -38,6 +40,29 @@ public interface IpDatabase extends AutoCloseable {
     @Nullable
     <RESPONSE> RESPONSE getResponse(String ipAddress, CheckedBiFunction<Reader, String, RESPONSE, Exception> responseProvider);
 
+    /**
+     * Returns a response built from the record for the given IP address. Unlike
+     * {@link #getResponse(String, CheckedBiFunction)} the decoded record may be shared with every other address in the same
+     * network so implementations can cache it once per network rather than once per address.
+     *
+     * @param ipAddress the address to lookup
+     * @param clazz the type to decode the record into
+     * @param responseBuilder binds a decoded record to the address that was looked up
+     * @return a possibly-null response
+     * @param <DATA> the type of the decoded record
+     * @param <RESPONSE> the type of response that will be returned
+     */
+    @Nullable
+    <DATA, RESPONSE> RESPONSE getResponse(String ipAddress, Class<DATA> clazz, ResponseBuilder<DATA, RESPONSE> responseBuilder);
+
+    /**
+     * Builds a response for an address from the record of the network that contains it.
+     */
+    @FunctionalInterface
+    interface ResponseBuilder<DATA, RESPONSE> {
+        RESPONSE build(DATA data, InetAddress ipAddress, Network network);
+    }
+
     /**
      * Releases the current database object. Called after processing a single document. Databases should be closed or returned to a
      * resource pool. No further interactions should be expected.
@@ -9,20 +9,15 @@
 
 package org.elasticsearch.ingest.geoip;
 
-import com.maxmind.db.DatabaseRecord;
 import com.maxmind.db.MaxMindDbConstructor;
 import com.maxmind.db.MaxMindDbParameter;
-import com.maxmind.db.Reader;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.elasticsearch.common.Strings;
-import org.elasticsearch.common.network.InetAddresses;
 import org.elasticsearch.common.network.NetworkAddress;
 import org.elasticsearch.core.Nullable;
 
-import java.io.IOException;
-import java.net.InetAddress;
 import java.util.HashMap;
 import java.util.Locale;
 import java.util.Map;
@@ -406,18 +401,14 @@ final class IpinfoIpDataLookups {
 
         @Override
         public final Map<String, Object> getData(final IpDatabase ipDatabase, final String ipAddress) {
-            final Result<RESPONSE> response = ipDatabase.getResponse(ipAddress, this::lookup);
+            final Result<RESPONSE> response = ipDatabase.getResponse(
+                ipAddress,
+                clazz,
+                (data, ip, network) -> new Result<>(data, NetworkAddress.format(ip), network.toString())
+            );
             return (response == null || response.result == null) ? Map.of() : transform(response);
         }
 
-        @Nullable
-        private Result<RESPONSE> lookup(final Reader reader, final String ipAddress) throws IOException {
-            final InetAddress ip = InetAddresses.forString(ipAddress);
-            final DatabaseRecord<RESPONSE> record = reader.getRecord(ip, clazz);
-            final RESPONSE data = record.getData();
-            return (data == null) ? null : new Result<>(data, NetworkAddress.format(ip), record.getNetwork().toString());
-        }
-
         /**
          * Extract the configured properties from the retrieved response
          * @param response the non-null response that was retrieved
@@ -9,7 +9,6 @@
 
 package org.elasticsearch.ingest.geoip;
 
-import com.maxmind.db.DatabaseRecord;
 import com.maxmind.db.Network;
 import com.maxmind.db.Reader;
 import com.maxmind.geoip2.model.AbstractResponse;
@@ -26,11 +25,8 @@ import com.maxmind.geoip2.record.Location;
 import com.maxmind.geoip2.record.Postal;
 import com.maxmind.geoip2.record.Subdivision;
 
-import org.elasticsearch.common.network.InetAddresses;
 import org.elasticsearch.common.network.NetworkAddress;
-import org.elasticsearch.core.Nullable;
 
-import java.io.IOException;
 import java.net.InetAddress;
 import java.util.HashMap;
 import java.util.List;
@@ -645,16 +641,12 @@ final class MaxmindIpDataLookups {
 
         @Override
         public final Map<String, Object> getData(final IpDatabase ipDatabase, final String ipAddress) {
-            final RESPONSE response = ipDatabase.getResponse(ipAddress, this::lookup);
+            final RESPONSE response = ipDatabase.getResponse(ipAddress, clazz, this::build);
             return (response == null) ? Map.of() : transform(response);
         }
 
-        @Nullable
-        private RESPONSE lookup(final Reader reader, final String ipAddress) throws IOException {
-            final InetAddress ip = InetAddresses.forString(ipAddress);
-            final DatabaseRecord<RESPONSE> record = reader.getRecord(ip, clazz);
-            final RESPONSE data = record.getData();
-            return (data == null) ? null : builder.build(data, NetworkAddress.format(ip), record.getNetwork(), List.of("en"));
+        private RESPONSE build(final RESPONSE data, final InetAddress ip, final Network network) {
+            return builder.build(data, NetworkAddress.format(ip), network, List.of("en"));
         }
 
         /**
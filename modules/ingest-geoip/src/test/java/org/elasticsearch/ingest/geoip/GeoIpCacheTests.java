@@ -9,12 +9,16 @@
 
 package org.elasticsearch.ingest.geoip;
 
+import com.maxmind.db.DatabaseRecord;
 import com.maxmind.geoip2.model.AbstractResponse;
 
+import org.elasticsearch.common.network.InetAddresses;
 import org.elasticsearch.core.TimeValue;
 import org.elasticsearch.ingest.geoip.stats.CacheStats;
 import org.elasticsearch.test.ESTestCase;
 
+import java.net.InetAddress;
+import java.nio.file.Path;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Function;
@@ -115,4 +119,81 @@ public class GeoIpCacheTests extends ESTestCase {
         // There are 4 misses. Each is made up of a cache query, and a database query, each being 1ms:
         assertThat(cacheStats.missesTimeInMillis(), equalTo(8L));
     }
+
+    public void testCachesRecordsByNetwork() {
+        GeoIpCache cache = new GeoIpCache(10);
+        AtomicInteger count = new AtomicInteger();
+        Function<InetAddress, DatabaseRecord<String>> retrieve = ip -> {
+            count.incrementAndGet();
+            int prefixLength = ip.getAddress().length == 4 ? 24 : 48;
+            return new DatabaseRecord<>(ip.getAddress().length == 4 ? "ipv4" : "ipv6", ip, prefixLength);
+        };
+
+        DatabaseRecord<String> record = cache.getRecord(InetAddresses.forString("10.0.0.1"), "path/to/db", retrieve);
+        assertThat(record.getNetwork().toString(), equalTo("10.0.0.0/24"));
+        // every address in the network shares the record
+        assertSame(record, cache.getRecord(InetAddresses.forString("10.0.0.255"), "path/to/db", retrieve));
+        assertThat(count.get(), equalTo(1));
+
+        assertNotSame(record, cache.getRecord(InetAddresses.forString("10.0.1.1"), "path/to/db", retrieve));
+        assertNotSame(record, cache.getRecord(InetAddresses.forString("10.0.0.1"), "path/to/other_db", retrieve));
+        assertThat(count.get(), equalTo(3));
+
+        DatabaseRecord<String> ipv6 = cache.getRecord(InetAddresses.forString("2001:db8::1"), "path/to/db", retrieve);
+        assertThat(ipv6.getData(), equalTo("ipv6"));
+        assertSame(ipv6, cache.getRecord(InetAddresses.forString("2001:db8:0:ffff::1"), "path/to/db", retrieve));
+        assertThat(count.get(), equalTo(4));
+
+        CacheStats cacheStats = cache.getCacheStats();
+        assertThat(cacheStats.hits(), equalTo(2L));
+        assertThat(cacheStats.misses(), equalTo(4L));
+
+        assertThat(cache.purgeCacheEntriesForDatabase(Path.of("path/to/db")), equalTo(3));
+        cache.getRecord(InetAddresses.forString("10.0.0.1"), "path/to/db", retrieve);
+        assertThat(count.get(), equalTo(5));
+    }
+
+    public void testNoResultIsCachedByNetwork() {
+        GeoIpCache cache = new GeoIpCache(10);
+        AtomicInteger count = new AtomicInteger();
+        Function<InetAddress, DatabaseRecord<String>> retrieve = ip -> {
+            count.incrementAndGet();
+            return new DatabaseRecord<>(null, ip, 8);
+        };
+        assertNull(cache.getRecord(InetAddresses.forString("192.168.1.1"), "path/to/db", retrieve).getData());
+        assertNull(cache.getRecord(InetAddresses.forString("192.1.2.3"), "path/to/db", retrieve).getData());
+        assertThat(count.get(), equalTo(1));
+    }
+
+    public void testFindsNetworksOfAnyCachedPrefixLength() {
+        GeoIpCache cache = new GeoIpCache(100);
+        AtomicInteger count = new AtomicInteger();
+        // network i is 10.<i>.0.0/<16 + i>
+        Function<InetAddress, DatabaseRecord<String>> retrieve = ip -> {
+            count.incrementAndGet();
+            int prefixLength = 16 + Byte.toUnsignedInt(ip.getAddress()[1]);
+            return new DatabaseRecord<>("network-" + prefixLength, ip, prefixLength);
+        };
+        int networks = randomIntBetween(2, 16);
+        for (int i = 0; i < networks; i++) {
+            InetAddress ip = InetAddresses.forString("10." + i + ".0.0");
+            assertThat(cache.getRecord(ip, "path/to/db", retrieve).getData(), equalTo("network-" + (16 + i)));
+        }
+        assertThat(count.get(), equalTo(networks));
+
+        // addresses from the network that was found last as well as from any other network
+        int lookups = randomIntBetween(1, 100);
+        for (int i = 0; i < lookups; i++) {
+            int network = randomBoolean() ? networks - 1 : randomIntBetween(0, networks - 1);
+            // only vary the bits of the last byte that are not in the prefix of the network
+            int host = randomIntBetween(0, (1 << Math.min(Byte.SIZE, 16 - network)) - 1);
+            InetAddress ip = InetAddresses.forString("10." + network + ".0." + host);
+            assertThat(cache.getRecord(ip, "path/to/db", retrieve).getData(), equalTo("network-" + (16 + network)));
+        }
+        assertThat(count.get(), equalTo(networks));
+
+        CacheStats cacheStats = cache.getCacheStats();
+        assertThat(cacheStats.hits(), equalTo((long) lookups));
+        assertThat(cacheStats.misses(), equalTo((long) networks));
+    }
 }
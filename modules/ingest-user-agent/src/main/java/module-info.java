@@ -8,6 +8,7 @@
  */
 
 module org.elasticsearch.ingest.useragent {
+    requires org.elasticsearch.base;
     requires org.elasticsearch.server;
     requires org.elasticsearch.xcontent;
 }
@@ -0,0 +1,217 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the "Elastic License
+ * 2.0", the "GNU Affero General Public License v3.0 only", and the "Server Side
+ * Public License v 1"; you may not use this file except in compliance with, at
+ * your election, the "Elastic License 2.0", the "GNU Affero General Public
+ * License v3.0 only", or the "Server Side Public License, v 1".
+ */
+
+package org.elasticsearch.ingest.useragent;
+
+import org.elasticsearch.core.RegexLiterals;
+import org.elasticsearch.core.RegexLiterals.Requirement;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Finds the patterns in a list that might match a string without running
+ * them. Most user agent patterns contain a literal, like {@code "Firefox/"} or
+ * {@code "Android"}, that every string they match must contain. We pick one
+ * such literal, or a set of alternative literals, for each pattern and scan
+ * the string once for all of them, indexed by their first three characters.
+ * Only the patterns whose literals we find, plus those we couldn't find any
+ * literals for, need to be run.
+ * <p>
+ * Literals are compared after folding ASCII case which is exactly how
+ * {@link Pattern#CASE_INSENSITIVE} works without {@link Pattern#UNICODE_CASE}.
+ * That lets a single index serve case sensitive and insensitive patterns: it
+ * over-approximates for the case sensitive ones, which is always safe.
+ */
+final class PatternPrefilter {
+    /**
+     * Literals shorter than this are checked with a plain scan rather than
+     * through the index.
+     */
+    private static final int INDEXED_LENGTH = 3;
+
+    private final String[] literals;
+    /**
+     * Indices into {@link #literals} of the literals, any of which must be
+     * present for each pattern to match, or {@code null} if the pattern always
+     * has to be run.
+     */
+    private final int[][] patternLiterals;
+    /**
+     * Indices into {@link #literals} keyed by their first three characters.
+     */
+    private final Map<Long, int[]> literalsByPrefix;
+    /**
+     * Indices into {@link #literals} too short to be indexed.
+     */
+    private final int[] shortLiterals;
+
+    private PatternPrefilter(String[] literals, int[][] patternLiterals, Map<Long, int[]> literalsByPrefix, int[] shortLiterals) {
+        this.literals = literals;
+        this.patternLiterals = patternLiterals;
+        this.literalsByPrefix = literalsByPrefix;
+        this.shortLiterals = shortLiterals;
+    }
+
+    static PatternPrefilter build(List<Pattern> patterns) {
+        Map<String, Integer> literalIds = new HashMap<>();
+        int[][] patternLiterals = new int[patterns.size()][];
+        for (int p = 0; p < patterns.size(); p++) {
+            Set<String> required = requiredLiterals(patterns.get(p));
+            if (required == null) {
+                continue;
+            }
+            patternLiterals[p] = required.stream()
+                .mapToInt(literal -> literalIds.computeIfAbsent(foldCase(literal), k -> literalIds.size()))
+                .toArray();
+        }
+
+        String[] literals = new String[literalIds.size()];
+        literalIds.forEach((literal, id) -> literals[id] = literal);
+        Map<Long, List<Integer>> byPrefix = new HashMap<>();
+        List<Integer> shortLiterals = new ArrayList<>();
+        for (int id = 0; id < literals.length; id++) {
+            if (literals[id].length() < INDEXED_LENGTH) {
+                shortLiterals.add(id);
+            } else {
+                byPrefix.computeIfAbsent(prefix(literals[id], 0), k -> new ArrayList<>()).add(id);
+            }
+        }
+        Map<Long, int[]> literalsByPrefix = new HashMap<>();
+        byPrefix.forEach((prefix, ids) -> literalsByPrefix.put(prefix, ids.stream().mapToInt(Integer::intValue).toArray()));
+        return new PatternPrefilter(
+            literals,
+            patternLiterals,
+            literalsByPrefix,
+            shortLiterals.stream().mapToInt(Integer::intValue).toArray()
+        );
+    }
+
+    /**
+     * The indices of the patterns that might match {@code string}.
+     */
+    BitSet candidates(String string) {
+        String folded = foldCase(string);
+        boolean[] present = new boolean[literals.length];
+        for (int i = 0; i + INDEXED_LENGTH <= folded.length(); i++) {
+            int[] ids = literalsByPrefix.get(prefix(folded, i));
+            if (ids == null) {
+                continue;
+            }
+            for (int id : ids) {
+                if (present[id] == false && folded.startsWith(literals[id], i)) {
+                    present[id] = true;
+                }
+            }
+        }
+        for (int id : shortLiterals) {
+            present[id] = folded.contains(literals[id]);
+        }
+
+        BitSet candidates = new BitSet(patternLiterals.length);
+        for (int p = 0; p < patternLiterals.length; p++) {
+            if (patternLiterals[p] == null) {
+                candidates.set(p);
+                continue;
+            }
+            for (int id : patternLiterals[p]) {
+                if (present[id]) {
+                    candidates.set(p);
+                    break;
+                }
+            }
+        }
+        return candidates;
+    }
+
+    private static long prefix(String s, int offset) {
+        return ((long) s.charAt(offset) << 32) | ((long) s.charAt(offset + 1) << 16) | s.charAt(offset + 2);
+    }
+
+    static String foldCase(String s) {
+        char[] chars = null;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c >= 'A' && c <= 'Z') {
+                if (chars == null) {
+                    chars = s.toCharArray();
+                }
+                chars[i] = (char) (c + ('a' - 'A'));
+            }
+        }
+        return chars == null ? s : new String(chars);
+    }
+
+    /**
+     * Find a set of literals, one of which must be in any string that the
+     * pattern matches.
+     * @return the literals or {@code null} if we couldn't find any
+     */
+    static Set<String> requiredLiterals(Pattern pattern) {
+        if ((pattern.flags() & ~Pattern.CASE_INSENSITIVE) != 0) {
+            return null;
+        }
+        Requirement requirement = RegexLiterals.parse(pattern.pattern());
+        if (requirement == null) {
+            return null;
+        }
+        // Prefer the clause whose shortest literal is longest. Longer literals are rarer.
+        Set<String> best = null;
+        int bestLength = 0;
+        for (Set<String> clause : clauses(requirement)) {
+            int length = clause.stream().mapToInt(String::length).min().orElse(0);
+            if (length > bestLength || (length == bestLength && best != null && clause.size() < best.size())) {
+                best = clause;
+                bestLength = length;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * The requirement as a list of clauses that must all hold, each clause
+     * being a set of literals at least one of which must be present.
+     */
+    private static List<Set<String>> clauses(Requirement requirement) {
+        if (requirement instanceof RegexLiterals.Literal literal) {
+            return List.of(Set.of(literal.literal()));
+        }
+        if (requirement instanceof RegexLiterals.All all) {
+            List<Set<String>> clauses = new ArrayList<>();
+            for (Requirement part : all.requirements()) {
+                clauses.addAll(clauses(part));
+            }
+            return clauses;
+        }
+        // Any branch may match so we need one literal from each of them
+        Set<String> clause = new LinkedHashSet<>();
+        for (Requirement branch : ((RegexLiterals.AnyOf) requirement).requirements()) {
+            String longest = null;
+            for (Set<String> c : clauses(branch)) {
+                if (c.size() == 1) {
+                    String literal = c.iterator().next();
+                    if (longest == null || literal.length() > longest.length()) {
+                        longest = literal;
+                    }
+                }
+            }
+            if (longest == null) {
+                return List.of();
+            }
+            clause.add(longest);
+        }
+        return List.of(clause);
+    }
+}
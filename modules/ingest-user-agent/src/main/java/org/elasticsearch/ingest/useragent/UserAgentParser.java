@@ -18,6 +18,7 @@ import org.elasticsearch.xcontent.XContentType;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -31,6 +32,9 @@ final class UserAgentParser {
     private final List<UserAgentSubpattern> uaPatterns = new ArrayList<>();
     private final List<UserAgentSubpattern> osPatterns = new ArrayList<>();
     private final List<UserAgentSubpattern> devicePatterns = new ArrayList<>();
+    private final PatternPrefilter uaPrefilter;
+    private final PatternPrefilter osPrefilter;
+    private final PatternPrefilter devicePrefilter;
     private final String name;
 
     UserAgentParser(String name, InputStream regexStream, InputStream deviceTypeRegexStream, UserAgentCache cache) {
@@ -45,6 +49,13 @@ final class UserAgentParser {
         } catch (IOException e) {
             throw new ElasticsearchParseException("error parsing regular expression file", e);
         }
+        this.uaPrefilter = buildPrefilter(uaPatterns);
+        this.osPrefilter = buildPrefilter(osPatterns);
+        this.devicePrefilter = buildPrefilter(devicePatterns);
+    }
+
+    private static PatternPrefilter buildPrefilter(List<UserAgentSubpattern> patterns) {
+        return PatternPrefilter.build(patterns.stream().map(UserAgentSubpattern::pattern).toList());
     }
 
     private void init(InputStream regexStream) throws IOException {
@@ -181,9 +192,9 @@ final class UserAgentParser {
         Details details = cache.get(name, agentString);
 
         if (details == null) {
-            VersionedName userAgent = findMatch(uaPatterns, agentString);
-            VersionedName operatingSystem = findMatch(osPatterns, agentString);
-            VersionedName device = findMatch(devicePatterns, agentString);
+            VersionedName userAgent = findMatch(uaPatterns, uaPrefilter, agentString);
+            VersionedName operatingSystem = findMatch(osPatterns, osPrefilter, agentString);
+            VersionedName device = findMatch(devicePatterns, devicePrefilter, agentString);
             String deviceType = extractDeviceType ? deviceTypeParser.findDeviceType(agentString, userAgent, operatingSystem, device) : null;
             details = new Details(userAgent, operatingSystem, device, deviceType);
             cache.put(name, agentString, details);
@@ -192,10 +203,15 @@ final class UserAgentParser {
         return details;
     }
 
-    private static VersionedName findMatch(List<UserAgentSubpattern> possiblePatterns, String agentString) {
+    /**
+     * Find the first pattern that matches, only running those that the
+     * prefilter says might match.
+     */
+    private static VersionedName findMatch(List<UserAgentSubpattern> possiblePatterns, PatternPrefilter prefilter, String agentString) {
         VersionedName versionedName;
-        for (UserAgentSubpattern pattern : possiblePatterns) {
-            versionedName = pattern.match(agentString);
+        BitSet candidates = prefilter.candidates(agentString);
+        for (int p = candidates.nextSetBit(0); p >= 0; p = candidates.nextSetBit(p + 1)) {
+            versionedName = possiblePatterns.get(p).match(agentString);
 
             if (versionedName != null) {
                 return versionedName;
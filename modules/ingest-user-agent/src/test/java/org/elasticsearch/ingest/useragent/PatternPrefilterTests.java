@@ -0,0 +1,120 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the "Elastic License
+ * 2.0", the "GNU Affero General Public License v3.0 only", and the "Server Side
+ * Public License v 1"; you may not use this file except in compliance with, at
+ * your election, the "Elastic License 2.0", the "GNU Affero General Public
+ * License v3.0 only", or the "Server Side Public License, v 1".
+ */
+
+package org.elasticsearch.ingest.useragent;
+
+import org.elasticsearch.ingest.useragent.UserAgentParser.UserAgentSubpattern;
+import org.elasticsearch.test.ESTestCase;
+
+import java.util.BitSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.nullValue;
+
+public class PatternPrefilterTests extends ESTestCase {
+    private static final List<String> AGENTS = List.of(
+        "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/120.0.0.0 Safari/537.36",
+        "Mozilla/5.0 (Macintosh; Intel Mac OS X 10_15_7) AppleWebKit/605.1.15 (KHTML, like Gecko) Version/17.1 Safari/605.1.15",
+        "Mozilla/5.0 (X11; Ubuntu; Linux x86_64; rv:121.0) Gecko/20100101 Firefox/121.0",
+        "Mozilla/5.0 (Linux; Android 14; SM-S918B) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/120.0.6099.144 Mobile Safari/537.36",
+        "Mozilla/5.0 (iPad; CPU OS 16_6 like Mac OS X) AppleWebKit/605.1.15 (KHTML, like Gecko) CriOS/119.0 Mobile/15E148 Safari/604.1",
+        "Mozilla/5.0 (compatible; Googlebot/2.1; +http://www.google.com/bot.html)",
+        "Mozilla/5.0 (compatible; YandexBot/3.0; +http://yandex.com/bots)",
+        "Mozilla/4.0 (compatible; MSIE 8.0; Windows NT 5.1; Trident/4.0)",
+        "Opera/9.80 (Windows NT 6.1; U; en) Presto/2.10.229 Version/11.62",
+        "Mozilla/5.0 (PlayStation 4 3.11) AppleWebKit/537.73 (KHTML, like Gecko)",
+        "Dalvik/2.1.0 (Linux; U; Android 11; Redmi Note 8 Pro MIUI/V12.5.3.0.RGGMIXM)",
+        "facebookexternalhit/1.1 (+http://www.facebook.com/externalhit_uatext.php)",
+        "curl/8.4.0",
+        "python-requests/2.31.0",
+        "Elasticsearch/8.11.0 (linux; amd64)",
+        ""
+    );
+
+    public void testRequiredLiterals() {
+        assertThat(literals("Firefox/(\\d+)"), equalTo(Set.of("Firefox/")));
+        assertThat(literals("(Opera Tablet).*Version/(\\d+)"), equalTo(Set.of("Opera Tablet")));
+        assertThat(literals("ab?cd"), equalTo(Set.of("cd")));
+        assertThat(literals("x+yz"), equalTo(Set.of("yz")));
+        assertThat(literals("(Chromium|Chrome)/(\\d+)"), equalTo(Set.of("Chromium", "Chrome")));
+        assertThat(literals("\\(Mobile;.*Firefox"), equalTo(Set.of("(Mobile;")));
+        assertThat(literals("[]a]bc"), equalTo(Set.of("bc")));
+        assertThat(literals("(?:foo)?bar"), equalTo(Set.of("bar")));
+        assertThat(literals("(Chrome|.*)/(\\d+)"), equalTo(Set.of("/")));
+        assertThat(literals("(Chrome|.*)"), nullValue());
+        assertThat(literals("(?i)firefox"), nullValue());
+        assertThat(literals("\\Qfoo\\E"), nullValue());
+        assertThat(PatternPrefilter.requiredLiterals(Pattern.compile("a b", Pattern.COMMENTS)), nullValue());
+    }
+
+    public void testCandidates() {
+        PatternPrefilter prefilter = PatternPrefilter.build(
+            List.of(
+                Pattern.compile("Firefox/(\\d+)"),
+                Pattern.compile("(Chromium|Chrome)/(\\d+)"),
+                Pattern.compile("googlebot", Pattern.CASE_INSENSITIVE),
+                Pattern.compile("(\\w+)/(\\d+)")
+            )
+        );
+        assertThat(candidates(prefilter, "Mozilla/5.0 Firefox/121.0"), equalTo(List.of(0, 3)));
+        assertThat(candidates(prefilter, "Mozilla/5.0 Chrome/120.0"), equalTo(List.of(1, 3)));
+        assertThat(candidates(prefilter, "Mozilla/5.0 (compatible; Googlebot/2.1)"), equalTo(List.of(2, 3)));
+        assertThat(candidates(prefilter, "curl"), equalTo(List.of()));
+    }
+
+    /**
+     * The prefilter must never skip a pattern that matches.
+     */
+    public void testDefaultPatternsNeverSkipAMatch() {
+        UserAgentParser parser = new UserAgentParser(
+            randomAlphaOfLength(10),
+            UserAgentProcessor.class.getResourceAsStream("/regexes.yml"),
+            null,
+            new UserAgentCache(0)
+        );
+        for (List<UserAgentSubpattern> patterns : List.of(parser.getUaPatterns(), parser.getOsPatterns(), parser.getDevicePatterns())) {
+            PatternPrefilter prefilter = PatternPrefilter.build(patterns.stream().map(UserAgentSubpattern::pattern).toList());
+            for (int i = 0; i < 200; i++) {
+                String agent = randomAgent();
+                BitSet candidates = prefilter.candidates(agent);
+                for (int p = 0; p < patterns.size(); p++) {
+                    if (candidates.get(p) == false) {
+                        assertFalse(patterns.get(p).pattern() + " on " + agent, patterns.get(p).pattern().matcher(agent).find());
+                    }
+                }
+                assertThat(candidates.cardinality(), lessThan(patterns.size()));
+            }
+        }
+    }
+
+    private static String randomAgent() {
+        String agent = randomFrom(AGENTS);
+        if (randomBoolean()) {
+            // Splice two agents together to get combinations we didn't think of
+            String other = randomFrom(AGENTS);
+            int start = between(0, agent.length());
+            int end = between(start, agent.length());
+            agent = agent.substring(0, start) + other.substring(between(0, other.length())) + agent.substring(end);
+        }
+        return randomBoolean() ? agent.toUpperCase(Locale.ROOT) : agent;
+    }
+
+    private static Set<String> literals(String regex) {
+        return PatternPrefilter.requiredLiterals(Pattern.compile(regex));
+    }
+
+    private static List<Integer> candidates(PatternPrefilter prefilter, String string) {
+        return prefilter.candidates(string).stream().boxed().toList();
+    }
+}
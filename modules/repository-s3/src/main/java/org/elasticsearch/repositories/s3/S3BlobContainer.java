@@ -53,8 +53,11 @@ import org.elasticsearch.common.blobstore.support.BlobContainerUtils;
 import org.elasticsearch.common.blobstore.support.BlobMetadata;
 import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.collect.Iterators;
+import org.elasticsearch.common.io.Streams;
+import org.elasticsearch.common.io.stream.ReleasableBytesStreamOutput;
 import org.elasticsearch.common.unit.ByteSizeUnit;
 import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
 import org.elasticsearch.core.CheckedConsumer;
 import org.elasticsearch.core.Nullable;
 import org.elasticsearch.core.TimeValue;
@@ -74,6 +77,9 @@ import java.util.Date;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Function;
 import java.util.stream.Collectors;
@@ -517,21 +523,40 @@ class S3BlobContainer extends AbstractBlobContainer {
             final List<PartETag> parts = new ArrayList<>();
 
             long bytesCount = 0;
-            for (int i = 1; i <= nbParts; i++) {
-                final boolean lastPart = i == nbParts;
-                final UploadPartRequest uploadRequest = createPartUploadRequest(
+            final int maxConcurrentPartUploads = s3BlobStore.maxConcurrentPartUploads();
+            if (maxConcurrentPartUploads > 1 && nbParts > 1) {
+                bytesCount = uploadPartsConcurrently(
                     purpose,
-                    input,
-                    uploadId.get(),
-                    i,
+                    s3BlobStore,
+                    clientReference,
                     blobName,
-                    lastPart ? lastPartSize : partSize,
-                    lastPart
+                    uploadId.get(),
+                    input,
+                    nbParts,
+                    partSize,
+                    lastPartSize,
+                    maxConcurrentPartUploads,
+                    parts
                 );
-                bytesCount += uploadRequest.getPartSize();
+            } else {
+                for (int i = 1; i <= nbParts; i++) {
+                    final boolean lastPart = i == nbParts;
+                    final UploadPartRequest uploadRequest = createPartUploadRequest(
+                        purpose,
+                        input,
+                        uploadId.get(),
+                        i,
+                        blobName,
+                        lastPart ? lastPartSize : partSize,
+                        lastPart
+                    );
+                    bytesCount += uploadRequest.getPartSize();
 
-                final UploadPartResult uploadResponse = SocketAccess.doPrivileged(() -> clientReference.client().uploadPart(uploadRequest));
-                parts.add(uploadResponse.getPartETag());
+                    final UploadPartResult uploadResponse = SocketAccess.doPrivileged(
+                        () -> clientReference.client().uploadPart(uploadRequest)
+                    );
+                    parts.add(uploadResponse.getPartETag());
+                }
             }
 
             if (bytesCount != blobSize) {
@@ -559,6 +584,165 @@ class S3BlobContainer extends AbstractBlobContainer {
         }
     }
 
+    /**
+     * Uploads the parts of a multipart upload with up to {@code maxConcurrentPartUploads} of them in flight at once. The parts are read
+     * from the input in order on the calling thread, so the reads remain subject to any rate limit on the input, and each part is
+     * buffered until it's uploaded. A part is uploaded on the snapshot pool if the node has a {@link S3BlobStore#partUploadPermits()
+     * permit} to spare, otherwise the calling thread uploads it. The calling thread also uploads any part that hasn't started by the time
+     * it needs to wait for it, so it never waits for a free thread in the pool.
+     *
+     * @return the number of bytes read from the input, having added the {@link PartETag}s of the uploaded parts to {@code parts}
+     */
+    private long uploadPartsConcurrently(
+        OperationPurpose purpose,
+        S3BlobStore s3BlobStore,
+        AmazonS3Reference clientReference,
+        String blobName,
+        String uploadId,
+        InputStream input,
+        int nbParts,
+        long partSize,
+        long lastPartSize,
+        int maxConcurrentPartUploads,
+        List<PartETag> parts
+    ) throws IOException {
+        final Semaphore partUploadPermits = s3BlobStore.partUploadPermits();
+        final PartUpload[] partUploads = new PartUpload[nbParts];
+        boolean success = false;
+        try {
+            long bytesCount = 0;
+            for (int i = 0; i < nbParts; i++) {
+                if (i >= maxConcurrentPartUploads) {
+                    // bound the number of buffered parts by waiting for the oldest one before reading another
+                    partUploads[i - maxConcurrentPartUploads].uploadOrAwait();
+                }
+                final boolean lastPart = i == nbParts - 1;
+                final long size = lastPart ? lastPartSize : partSize;
+                final ReleasableBytesStreamOutput buffer = new ReleasableBytesStreamOutput(s3BlobStore.bigArrays());
+                final PartUpload partUpload;
+                try {
+                    final long read = org.elasticsearch.core.Streams.copy(Streams.limitStream(input, size), buffer, false);
+                    if (read != size) {
+                        throw new IOException(
+                            Strings.format("Failed to execute multipart upload for [%s], expected %d bytes but got %d", blobName, size, read)
+                        );
+                    }
+                    bytesCount += read;
+                    final UploadPartRequest uploadRequest = createPartUploadRequest(
+                        purpose,
+                        buffer.bytes().streamInput(),
+                        uploadId,
+                        i + 1,
+                        blobName,
+                        size,
+                        lastPart
+                    );
+                    partUpload = new PartUpload(clientReference, uploadRequest, buffer);
+                } catch (Exception e) {
+                    buffer.close();
+                    throw e;
+                }
+                partUploads[i] = partUpload;
+                if (partUploadPermits.tryAcquire()) {
+                    try {
+                        s3BlobStore.getSnapshotExecutor().execute(() -> {
+                            try {
+                                partUpload.uploadIfNotStarted();
+                            } finally {
+                                partUploadPermits.release();
+                            }
+                        });
+                    } catch (EsRejectedExecutionException e) {
+                        partUploadPermits.release();
+                        partUpload.uploadIfNotStarted();
+                    }
+                } else {
+                    partUpload.uploadIfNotStarted();
+                }
+            }
+            for (PartUpload partUpload : partUploads) {
+                parts.add(partUpload.uploadOrAwait());
+            }
+            success = true;
+            return bytesCount;
+        } finally {
+            if (success == false) {
+                // don't leave any part uploads running nor any buffers behind when the caller aborts the upload
+                for (PartUpload partUpload : partUploads) {
+                    if (partUpload != null) {
+                        partUpload.cancelOrAwait();
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * The upload of a buffered part of a multipart upload, which is run by whichever thread gets to it first. Only a thread that found
+     * the upload already started waits for it, and it's the thread that started it that completes it, so this uses a plain latch
+     * rather than a future that would not allow one snapshot thread to wait for another.
+     */
+    private static final class PartUpload {
+        private final AmazonS3Reference clientReference;
+        private final UploadPartRequest uploadRequest;
+        private final ReleasableBytesStreamOutput buffer;
+        private final AtomicBoolean started = new AtomicBoolean();
+        private final CountDownLatch done = new CountDownLatch(1);
+        private volatile PartETag partETag;
+        private volatile RuntimeException failure;
+
+        PartUpload(AmazonS3Reference clientReference, UploadPartRequest uploadRequest, ReleasableBytesStreamOutput buffer) {
+            this.clientReference = clientReference;
+            this.uploadRequest = uploadRequest;
+            this.buffer = buffer;
+        }
+
+        void uploadIfNotStarted() {
+            if (started.compareAndSet(false, true)) {
+                try (buffer) {
+                    partETag = SocketAccess.doPrivileged(() -> clientReference.client().uploadPart(uploadRequest)).getPartETag();
+                } catch (RuntimeException e) {
+                    failure = e;
+                } finally {
+                    done.countDown();
+                }
+            }
+        }
+
+        PartETag uploadOrAwait() {
+            uploadIfNotStarted();
+            awaitUninterruptibly();
+            if (failure != null) {
+                throw failure;
+            }
+            return partETag;
+        }
+
+        void cancelOrAwait() {
+            if (started.compareAndSet(false, true)) {
+                buffer.close();
+                done.countDown();
+            } else {
+                awaitUninterruptibly();
+            }
+        }
+
+        private void awaitUninterruptibly() {
+            boolean interrupted = false;
+            while (true) {
+                try {
+                    done.await();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
     // non-static, package private for testing
     void ensureMultiPartUploadSize(final long blobSize) {
         if (blobSize > MAX_FILE_SIZE_USING_MULTIPART.getBytes()) {
@@ -48,6 +48,7 @@ import java.util.Objects;
 import java.util.Optional;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.atomic.LongAdder;
@@ -92,6 +93,8 @@ class S3BlobStore implements BlobStore {
 
     private final int bulkDeletionBatchSize;
 
+    private final int maxConcurrentPartUploads;
+
     S3BlobStore(
         S3Service service,
         String bucket,
@@ -116,6 +119,7 @@ class S3BlobStore implements BlobStore {
         this.snapshotExecutor = threadPool.executor(ThreadPool.Names.SNAPSHOT);
         this.s3RepositoriesMetrics = s3RepositoriesMetrics;
         this.bulkDeletionBatchSize = S3Repository.DELETION_BATCH_SIZE_SETTING.get(repositoryMetadata.settings());
+        this.maxConcurrentPartUploads = S3Repository.MAX_CONCURRENT_PART_UPLOADS_SETTING.get(repositoryMetadata.settings());
 
     }
 
@@ -311,6 +315,17 @@ class S3BlobStore implements BlobStore {
         return bufferSize.getBytes();
     }
 
+    public int maxConcurrentPartUploads() {
+        return maxConcurrentPartUploads;
+    }
+
+    /**
+     * The node-wide permits for uploading parts of multipart uploads on other threads than the ones that write the blobs.
+     */
+    public Semaphore partUploadPermits() {
+        return service.partUploadPermits;
+    }
+
     public RepositoryMetadata getRepositoryMetadata() {
         return repositoryMetadata;
     }
@@ -145,6 +145,14 @@ class S3Repository extends MeteredBlobStoreRepository {
      */
     static final Setting<Integer> MAX_MULTIPART_PARTS = Setting.intSetting("max_multipart_parts", 10_000, 1, 10_000);
 
+    /**
+     * Maximum number of parts of a single multipart upload to upload concurrently. Each part in flight is buffered in memory, so this
+     * costs up to this many times {@link #BUFFER_SIZE_SETTING} of heap for each blob being uploaded. Defaults to 1, which uploads the
+     * parts one after another straight from the source without buffering them. See also
+     * {@link S3Service#REPOSITORY_S3_MAX_CONCURRENT_PART_UPLOADS_SETTING}.
+     */
+    static final Setting<Integer> MAX_CONCURRENT_PART_UPLOADS_SETTING = Setting.intSetting("max_concurrent_part_uploads", 1, 1, 32);
+
     /**
      * Sets the S3 storage class type for the backup files. Values may be standard, reduced_redundancy,
      * standard_ia, onezone_ia and intelligent_tiering. Defaults to standard.
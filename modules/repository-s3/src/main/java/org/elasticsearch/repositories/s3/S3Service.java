@@ -52,6 +52,7 @@ import java.time.Clock;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.Semaphore;
 
 import static com.amazonaws.SDKGlobalConfiguration.AWS_ROLE_ARN_ENV_VAR;
 import static com.amazonaws.SDKGlobalConfiguration.AWS_ROLE_SESSION_NAME_ENV_VAR;
@@ -74,6 +75,18 @@ class S3Service implements Closeable {
         TimeValue.timeValueHours(24),
         Setting.Property.NodeScope
     );
+
+    /**
+     * Maximum number of parts of multipart uploads that all the S3 repositories on the node upload on other threads than the ones that
+     * write the blobs, see {@link S3Repository#MAX_CONCURRENT_PART_UPLOADS_SETTING}.
+     */
+    static final Setting<Integer> REPOSITORY_S3_MAX_CONCURRENT_PART_UPLOADS_SETTING = Setting.intSetting(
+        "repository_s3.max_concurrent_part_uploads",
+        4,
+        0,
+        Setting.Property.NodeScope
+    );
+
     private volatile Map<S3ClientSettings, AmazonS3Reference> clientsCache = emptyMap();
 
     /**
@@ -95,6 +108,7 @@ class S3Service implements Closeable {
     final TimeValue compareAndExchangeTimeToLive;
     final TimeValue compareAndExchangeAntiContentionDelay;
     final boolean isStateless;
+    final Semaphore partUploadPermits;
 
     S3Service(Environment environment, Settings nodeSettings, ResourceWatcherService resourceWatcherService) {
         webIdentityTokenCredentialsProvider = new CustomWebIdentityTokenCredentialsProvider(
@@ -107,6 +121,7 @@ class S3Service implements Closeable {
         compareAndExchangeTimeToLive = REPOSITORY_S3_CAS_TTL_SETTING.get(nodeSettings);
         compareAndExchangeAntiContentionDelay = REPOSITORY_S3_CAS_ANTI_CONTENTION_DELAY_SETTING.get(nodeSettings);
         isStateless = DiscoveryNode.isStateless(nodeSettings);
+        partUploadPermits = new Semaphore(REPOSITORY_S3_MAX_CONCURRENT_PART_UPLOADS_SETTING.get(nodeSettings));
     }
 
     /**
@@ -28,25 +28,36 @@ import com.amazonaws.services.s3.model.UploadPartResult;
 import org.elasticsearch.common.blobstore.BlobPath;
 import org.elasticsearch.common.blobstore.BlobStoreException;
 import org.elasticsearch.common.unit.ByteSizeUnit;
+import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
 import org.elasticsearch.core.Tuple;
 import org.elasticsearch.test.ESTestCase;
+import org.elasticsearch.threadpool.TestThreadPool;
+import org.elasticsearch.threadpool.ThreadPool;
 import org.mockito.ArgumentCaptor;
 
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
 import static org.elasticsearch.repositories.blobstore.BlobStoreTestUtil.randomPurpose;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -262,6 +273,73 @@ public class S3BlobStoreContainerTests extends ESTestCase {
         assertEquals(expectedEtags, actualETags);
     }
 
+    public void testExecuteMultipartUploadWithConcurrentParts() throws Exception {
+        final String bucketName = randomAlphaOfLengthBetween(1, 10);
+        final String blobName = randomAlphaOfLengthBetween(1, 10);
+        final byte[] data = randomByteArrayOfLength(Math.toIntExact(ByteSizeUnit.MB.toBytes(5)) + between(0, 1024 * 1024));
+        final long bufferSize = between(256 * 1024, 1024 * 1024);
+        final int maxConcurrentPartUploads = between(2, 4);
+
+        final ThreadPool threadPool = new TestThreadPool(getTestName());
+        try {
+            final S3BlobStore blobStore = mock(S3BlobStore.class);
+            when(blobStore.bucket()).thenReturn(bucketName);
+            when(blobStore.bufferSizeInBytes()).thenReturn(bufferSize);
+            when(blobStore.getStorageClass()).thenReturn(randomFrom(StorageClass.values()));
+            when(blobStore.bigArrays()).thenReturn(BigArrays.NON_RECYCLING_INSTANCE);
+            when(blobStore.maxConcurrentPartUploads()).thenReturn(maxConcurrentPartUploads);
+            when(blobStore.partUploadPermits()).thenReturn(new Semaphore(between(0, 3)));
+            when(blobStore.getSnapshotExecutor()).thenReturn(threadPool.executor(ThreadPool.Names.SNAPSHOT));
+
+            final AmazonS3 client = mock(AmazonS3.class);
+            when(blobStore.clientReference()).thenReturn(new AmazonS3Reference(client));
+
+            final InitiateMultipartUploadResult initResult = new InitiateMultipartUploadResult();
+            initResult.setUploadId(randomAlphaOfLength(10));
+            when(client.initiateMultipartUpload(any())).thenReturn(initResult);
+
+            final Map<Integer, byte[]> uploadedParts = ConcurrentCollections.newConcurrentMap();
+            final AtomicInteger inFlight = new AtomicInteger();
+            when(client.uploadPart(any())).thenAnswer(invocationOnMock -> {
+                final UploadPartRequest request = (UploadPartRequest) invocationOnMock.getArguments()[0];
+                assertThat(inFlight.incrementAndGet(), lessThanOrEqualTo(maxConcurrentPartUploads));
+                try {
+                    final byte[] bytes = request.getInputStream().readAllBytes();
+                    assertEquals(request.getPartSize(), bytes.length);
+                    assertNull(uploadedParts.put(request.getPartNumber(), bytes));
+                    final UploadPartResult response = new UploadPartResult();
+                    response.setPartNumber(request.getPartNumber());
+                    response.setETag("etag-" + request.getPartNumber());
+                    return response;
+                } finally {
+                    inFlight.decrementAndGet();
+                }
+            });
+
+            final ArgumentCaptor<CompleteMultipartUploadRequest> compArgCaptor = ArgumentCaptor.forClass(
+                CompleteMultipartUploadRequest.class
+            );
+            when(client.completeMultipartUpload(compArgCaptor.capture())).thenReturn(new CompleteMultipartUploadResult());
+
+            final S3BlobContainer blobContainer = new S3BlobContainer(BlobPath.EMPTY, blobStore);
+            blobContainer.executeMultipartUpload(randomPurpose(), blobStore, blobName, new ByteArrayInputStream(data), data.length);
+
+            final int numberOfParts = S3BlobContainer.numberOfMultiparts(data.length, bufferSize).v1().intValue();
+            assertThat(uploadedParts.size(), equalTo(numberOfParts));
+            final ByteArrayOutputStream uploaded = new ByteArrayOutputStream();
+            for (int i = 1; i <= numberOfParts; i++) {
+                uploaded.write(uploadedParts.get(i));
+            }
+            assertArrayEquals(data, uploaded.toByteArray());
+
+            final List<String> actualETags = compArgCaptor.getValue().getPartETags().stream().map(PartETag::getETag).toList();
+            assertEquals(IntStream.rangeClosed(1, numberOfParts).mapToObj(i -> "etag-" + i).toList(), actualETags);
+            verify(client, never()).abortMultipartUpload(any());
+        } finally {
+            ThreadPool.terminate(threadPool, 10, TimeUnit.SECONDS);
+        }
+    }
+
     public void testExecuteMultipartUploadAborted() {
         final String bucketName = randomAlphaOfLengthBetween(1, 10);
         final String blobName = randomAlphaOfLengthBetween(1, 10);
@@ -30,7 +30,6 @@ import org.elasticsearch.repositories.ShardSnapshotResult;
 import org.elasticsearch.repositories.blobstore.BlobStoreRepository;
 import org.elasticsearch.snapshots.mockstore.MockRepository;
 import org.elasticsearch.test.ESIntegTestCase;
-import org.elasticsearch.xcontent.NamedXContentRegistry;
 
 import java.io.IOException;
 import java.nio.file.Path;
@@ -893,12 +892,7 @@ public class CloneSnapshotIT extends AbstractSnapshotIntegTestCase {
         RepositoryShardId repositoryShardId,
         ShardGeneration generation
     ) throws IOException {
-        return BlobStoreRepository.INDEX_SHARD_SNAPSHOTS_FORMAT.read(
-            repository.getMetadata().name(),
-            repository.shardContainer(repositoryShardId.index(), repositoryShardId.shardId()),
-            generation.getGenerationUUID(),
-            NamedXContentRegistry.EMPTY
-        );
+        return repository.getBlobStoreIndexShardSnapshots(repositoryShardId.index(), repositoryShardId.shardId(), generation);
     }
 
     private static BlobStoreIndexShardSnapshot readShardSnapshot(
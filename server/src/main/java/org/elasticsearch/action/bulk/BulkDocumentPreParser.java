@@ -0,0 +1,159 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the "Elastic License
+ * 2.0", the "GNU Affero General Public License v3.0 only", and the "Server Side
+ * Public License v 1"; you may not use this file except in compliance with, at
+ * your election, the "Elastic License 2.0", the "GNU Affero General Public
+ * License v3.0 only", or the "Server Side Public License, v 1".
+ */
+
+package org.elasticsearch.action.bulk;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.elasticsearch.action.DocWriteRequest;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
+import org.elasticsearch.core.Nullable;
+import org.elasticsearch.index.mapper.DocumentMapper;
+import org.elasticsearch.index.mapper.MapperService;
+import org.elasticsearch.index.mapper.ParsedDocument;
+import org.elasticsearch.plugins.internal.DocumentParsingProvider;
+
+import java.util.concurrent.Executor;
+
+/**
+ * Parses the index requests that follow the item a {@link BulkShardRequest} is currently executing on the primary on other threads,
+ * so that the next documents are ready by the time the engine is done indexing the current one. The items themselves are still
+ * executed one by one and in order by {@link TransportShardBulkAction}, which is what assigns their sequence numbers and handles
+ * their mapping updates. A document that was parsed ahead is only used if the mapping didn't change in the meantime, otherwise
+ * and whenever parsing ahead failed or didn't get to run, the item is parsed on the executing thread like before.
+ */
+final class BulkDocumentPreParser {
+
+    private static final Logger logger = LogManager.getLogger(BulkDocumentPreParser.class);
+
+    /**
+     * The number of items after the current one that are parsed ahead.
+     */
+    static final int WINDOW = 8;
+
+    private final BulkShardRequest request;
+    private final MapperService mapperService;
+    private final Executor executor;
+    private final DocumentParsingProvider documentParsingProvider;
+    private final Slot[] slots;
+    private int nextToParse;
+    private boolean stopped;
+
+    BulkDocumentPreParser(
+        BulkShardRequest request,
+        MapperService mapperService,
+        Executor executor,
+        DocumentParsingProvider documentParsingProvider
+    ) {
+        this.request = request;
+        this.mapperService = mapperService;
+        this.executor = executor;
+        this.documentParsingProvider = documentParsingProvider;
+        this.slots = new Slot[request.items().length];
+    }
+
+    /**
+     * Starts parsing the index requests in the {@link #WINDOW} items after {@code currentItem} that haven't been started yet.
+     */
+    void parseAhead(int currentItem) {
+        if (stopped) {
+            return;
+        }
+        final DocumentMapper mapper = mapperService.documentMapper();
+        if (mapper == null) {
+            // The first document creates the mapping so there's nothing to parse the others with
+            return;
+        }
+        final int end = Math.min(slots.length, currentItem + 1 + WINDOW);
+        for (int i = Math.max(nextToParse, currentItem + 1); i < end; i++) {
+            nextToParse = i + 1;
+            final DocWriteRequest<?> itemRequest = request.items()[i].request();
+            if (itemRequest instanceof IndexRequest indexRequest) {
+                final Slot slot = new Slot(mapper, indexRequest);
+                slots[i] = slot;
+                try {
+                    executor.execute(slot);
+                } catch (EsRejectedExecutionException e) {
+                    // The write pool is busy enough, parse the rest on the executing thread
+                    logger.trace("rejected parsing bulk items ahead", e);
+                    stopped = true;
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the document parsed ahead for the given item if it is still valid for the current mapping. Each item can only be
+     * taken once, for instance a document is parsed again when it's retried after a mapping update.
+     */
+    @Nullable
+    ParsedDocument take(int item) {
+        final Slot slot = slots[item];
+        if (slot == null) {
+            return null;
+        }
+        slots[item] = null;
+        final ParsedDocument doc = slot.take();
+        if (doc == null || slot.mapper != mapperService.documentMapper()) {
+            return null;
+        }
+        return doc;
+    }
+
+    /**
+     * Stops parsing ahead. Waits for the documents that are being parsed so that nothing reads the request's sources anymore
+     * once the request completes.
+     */
+    void close() {
+        stopped = true;
+        for (int i = 0; i < slots.length; i++) {
+            if (slots[i] != null) {
+                slots[i].take();
+                slots[i] = null;
+            }
+        }
+    }
+
+    private class Slot implements Runnable {
+        private final DocumentMapper mapper;
+        private final IndexRequest indexRequest;
+        private boolean taken;
+        private ParsedDocument doc;
+
+        Slot(DocumentMapper mapper, IndexRequest indexRequest) {
+            this.mapper = mapper;
+            this.indexRequest = indexRequest;
+        }
+
+        @Override
+        public synchronized void run() {
+            if (taken) {
+                return;
+            }
+            try {
+                doc = mapper.parse(TransportShardBulkAction.newSourceToParse(indexRequest, documentParsingProvider));
+            } catch (Exception e) {
+                // Parsing it again on the executing thread reports the failure for the item
+                logger.trace("failed to parse bulk item ahead", e);
+            }
+        }
+
+        /**
+         * Takes the parsed document, waiting if it's being parsed right now. Returns {@code null} if it wasn't parsed.
+         */
+        synchronized ParsedDocument take() {
+            taken = true;
+            final ParsedDocument result = doc;
+            doc = null;
+            return result;
+        }
+    }
+}
@@ -100,6 +100,11 @@ class BulkPrimaryExecutionContext {
         return getCurrentItem().request();
     }
 
+    /** returns the position of the current item in {@link BulkShardRequest#items()} */
+    int getCurrentItemIndex() {
+        return currentIndex;
+    }
+
     public BulkShardRequest getBulkShardRequest() {
         return request;
     }
@@ -110,6 +110,12 @@ public class IncrementalBulkService {
         private Exception bulkActionLevelFailure = null;
         private long currentBulkSize = 0L;
         private BulkRequest bulkRequest = null;
+        private BulkRequest.IncrementalState incrementalState = EMPTY_STATE;
+        /**
+         * A sub-batch that is ready to be sent once the one in progress completes. Only one sub-batch is in progress at a time and
+         * no more items are read while one is waiting, which bounds the memory of the items that were parsed but not indexed yet.
+         */
+        private SubBatch pendingBatch = null;
 
         protected Handler(
             Client client,
@@ -126,54 +132,37 @@ public class IncrementalBulkService {
             this.waitForActiveShards = waitForActiveShards != null ? ActiveShardCount.parseString(waitForActiveShards) : null;
             this.timeout = timeout;
             this.refresh = refresh;
-            createNewBulkRequest(EMPTY_STATE);
+            createNewBulkRequest();
         }
 
         public void addItems(List<DocWriteRequest<?>> items, Releasable releasable, Runnable nextItems) {
             assert closed == false;
-            assert bulkInProgress == false;
-            if (bulkActionLevelFailure != null) {
-                shortCircuitDueToTopLevelFailure(items, releasable);
-                nextItems.run();
-            } else {
-                assert bulkRequest != null;
-                if (internalAddItems(items, releasable)) {
-                    if (shouldBackOff()) {
-                        final boolean isFirstRequest = incrementalRequestSubmitted == false;
-                        incrementalRequestSubmitted = true;
-                        try (ThreadContext.StoredContext ignored = threadContext.stashContext()) {
-                            requestContext.restore();
-                            final ArrayList<Releasable> toRelease = new ArrayList<>(releasables);
-                            releasables.clear();
-                            bulkInProgress = true;
-                            client.bulk(bulkRequest, ActionListener.runAfter(new ActionListener<>() {
-
-                                @Override
-                                public void onResponse(BulkResponse bulkResponse) {
-                                    handleBulkSuccess(bulkResponse);
-                                    createNewBulkRequest(
-                                        new BulkRequest.IncrementalState(bulkResponse.getIncrementalState().shardLevelFailures(), true)
-                                    );
-                                }
-
-                                @Override
-                                public void onFailure(Exception e) {
-                                    handleBulkFailure(isFirstRequest, e);
-                                }
-                            }, () -> {
-                                bulkInProgress = false;
-                                requestContext = threadContext.newStoredContext();
-                                toRelease.forEach(Releasable::close);
-                                nextItems.run();
-                            }));
+            final Runnable action;
+            synchronized (this) {
+                assert pendingBatch == null : "items added while a sub-batch is waiting to be sent";
+                if (bulkActionLevelFailure != null) {
+                    shortCircuitDueToTopLevelFailure(items, releasable);
+                    action = nextItems;
+                } else {
+                    assert bulkRequest != null;
+                    if (internalAddItems(items, releasable)) {
+                        if (shouldBackOff()) {
+                            // Only read more items once these are indexed
+                            action = sendOrQueue(takeBatch(nextItems, false, null));
+                        } else if (indexingPressure.shouldStreamBulk(currentBulkSize)) {
+                            // Index these items while the next ones are read and parsed
+                            action = sendOrQueue(takeBatch(nextItems, true, null));
+                        } else {
+                            action = nextItems;
                         }
                     } else {
-                        nextItems.run();
+                        action = nextItems;
                     }
-                } else {
-                    nextItems.run();
                 }
             }
+            if (action != null) {
+                action.run();
+            }
         }
 
         private boolean shouldBackOff() {
@@ -181,54 +170,42 @@ public class IncrementalBulkService {
         }
 
         public void lastItems(List<DocWriteRequest<?>> items, Releasable releasable, ActionListener<BulkResponse> listener) {
-            assert bulkInProgress == false;
-            if (bulkActionLevelFailure != null) {
-                shortCircuitDueToTopLevelFailure(items, releasable);
-                errorResponse(listener);
-            } else {
-                assert bulkRequest != null;
-                if (internalAddItems(items, releasable)) {
-                    try (ThreadContext.StoredContext ignored = threadContext.stashContext()) {
-                        requestContext.restore();
-                        final ArrayList<Releasable> toRelease = new ArrayList<>(releasables);
-                        releasables.clear();
-                        // We do not need to set this back to false as this will be the last request.
-                        bulkInProgress = true;
-                        client.bulk(bulkRequest, ActionListener.runBefore(new ActionListener<>() {
-
-                            private final boolean isFirstRequest = incrementalRequestSubmitted == false;
-
-                            @Override
-                            public void onResponse(BulkResponse bulkResponse) {
-                                handleBulkSuccess(bulkResponse);
-                                listener.onResponse(combineResponses());
-                            }
-
-                            @Override
-                            public void onFailure(Exception e) {
-                                handleBulkFailure(isFirstRequest, e);
-                                errorResponse(listener);
-                            }
-                        }, () -> toRelease.forEach(Releasable::close)));
-                    }
+            final Runnable action;
+            synchronized (this) {
+                assert pendingBatch == null : "items added while a sub-batch is waiting to be sent";
+                if (bulkActionLevelFailure != null) {
+                    shortCircuitDueToTopLevelFailure(items, releasable);
+                    action = sendOrQueue(new SubBatch(null, List.of(), -1, null, false, listener));
                 } else {
-                    errorResponse(listener);
+                    assert bulkRequest != null;
+                    if (internalAddItems(items, releasable)) {
+                        action = sendOrQueue(takeBatch(null, false, listener));
+                    } else {
+                        action = sendOrQueue(new SubBatch(null, List.of(), -1, null, false, listener));
+                    }
                 }
             }
+            if (action != null) {
+                action.run();
+            }
         }
 
         @Override
         public void close() {
-            closed = true;
-            releasables.forEach(Releasable::close);
-            releasables.clear();
+            final List<Releasable> toRelease;
+            synchronized (this) {
+                closed = true;
+                toRelease = new ArrayList<>(releasables);
+                releasables.clear();
+            }
+            toRelease.forEach(Releasable::close);
         }
 
         private void shortCircuitDueToTopLevelFailure(List<DocWriteRequest<?>> items, Releasable releasable) {
             assert releasables.isEmpty();
             assert bulkRequest == null;
             if (globalFailure == false) {
-                addItemLevelFailures(items);
+                responses.add(itemLevelFailures(items, bulkActionLevelFailure));
             }
             Releasables.close(releasable);
         }
@@ -241,30 +218,150 @@ public class IncrementalBulkService {
             }
         }
 
-        private void handleBulkSuccess(BulkResponse bulkResponse) {
-            responses.add(bulkResponse);
+        /**
+         * Takes the items added so far into a sub-batch, reserving the place of its response so that the combined response lists the
+         * items in the order they were added even though the later items may already be accounted for when this one completes.
+         */
+        private SubBatch takeBatch(
+            @Nullable Runnable nextItems,
+            boolean nextItemsOnceSent,
+            @Nullable ActionListener<BulkResponse> listener
+        ) {
+            final SubBatch batch = new SubBatch(
+                bulkRequest,
+                new ArrayList<>(releasables),
+                responses.size(),
+                nextItems,
+                nextItemsOnceSent,
+                listener
+            );
+            responses.add(null);
+            releasables.clear();
             currentBulkSize = 0L;
             bulkRequest = null;
+            if (listener == null) {
+                createNewBulkRequest();
+            }
+            return batch;
+        }
+
+        /**
+         * Returns the action that sends the given sub-batch, or {@code null} if it has to wait for the sub-batch in progress, in which
+         * case it is sent once that one completes.
+         */
+        @Nullable
+        private Runnable sendOrQueue(SubBatch batch) {
+            if (bulkInProgress) {
+                assert pendingBatch == null;
+                pendingBatch = batch;
+                return null;
+            }
+            if (batch.request == null) {
+                return () -> errorResponse(batch.listener);
+            }
+            final ThreadContext.StoredContext context = prepareToSend(batch);
+            return () -> send(batch, context);
         }
 
-        private void handleBulkFailure(boolean isFirstRequest, Exception e) {
+        private ThreadContext.StoredContext prepareToSend(SubBatch batch) {
+            assert bulkInProgress == false;
+            bulkInProgress = true;
+            batch.isFirstRequest = incrementalRequestSubmitted == false;
+            if (batch.listener == null) {
+                incrementalRequestSubmitted = true;
+            }
+            batch.request.incrementalState(incrementalState);
+            return requestContext;
+        }
+
+        private void send(SubBatch batch, ThreadContext.StoredContext context) {
+            try (ThreadContext.StoredContext ignored = threadContext.stashContext()) {
+                context.restore();
+                client.bulk(batch.request, new ActionListener<>() {
+                    @Override
+                    public void onResponse(BulkResponse bulkResponse) {
+                        onBatchCompleted(batch, bulkResponse, null);
+                    }
+
+                    @Override
+                    public void onFailure(Exception e) {
+                        onBatchCompleted(batch, null, e);
+                    }
+                });
+            }
+            if (batch.nextItemsOnceSent) {
+                batch.nextItems.run();
+            }
+        }
+
+        private void onBatchCompleted(SubBatch batch, @Nullable BulkResponse bulkResponse, @Nullable Exception e) {
+            final SubBatch next;
+            ThreadContext.StoredContext context = null;
+            synchronized (this) {
+                if (e == null) {
+                    responses.set(batch.responseIndex, bulkResponse);
+                    incrementalState = new BulkRequest.IncrementalState(bulkResponse.getIncrementalState().shardLevelFailures(), true);
+                } else if (bulkActionLevelFailure == null) {
+                    handleBulkFailure(batch.isFirstRequest, e, batch);
+                } else {
+                    // Adding items was rejected while this sub-batch was in progress
+                    responses.set(batch.responseIndex, itemLevelFailures(batch.request.requests(), e));
+                }
+                bulkInProgress = false;
+                requestContext = threadContext.newStoredContext();
+                next = pendingBatch;
+                pendingBatch = null;
+                if (next != null && next.request != null && bulkActionLevelFailure == null) {
+                    context = prepareToSend(next);
+                }
+            }
+            batch.releasables.forEach(Releasable::close);
+            if (batch.listener != null) {
+                errorResponse(batch.listener);
+            } else if (batch.nextItemsOnceSent == false) {
+                batch.nextItems.run();
+            }
+            if (next != null) {
+                if (context != null) {
+                    send(next, context);
+                } else if (next.listener != null) {
+                    errorResponse(next.listener);
+                } else {
+                    // Failed together with the sub-batch that was in progress, carry on reading to short circuit the remaining items
+                    next.nextItems.run();
+                }
+            }
+        }
+
+        private void handleBulkFailure(boolean isFirstRequest, Exception e, @Nullable SubBatch failedBatch) {
             assert bulkActionLevelFailure == null;
             globalFailure = isFirstRequest;
             bulkActionLevelFailure = e;
-            addItemLevelFailures(bulkRequest.requests());
-            currentBulkSize = 0;
-            bulkRequest = null;
+            if (failedBatch != null) {
+                responses.set(failedBatch.responseIndex, itemLevelFailures(failedBatch.request.requests(), e));
+            }
+            if (pendingBatch != null && pendingBatch.request != null) {
+                responses.set(pendingBatch.responseIndex, itemLevelFailures(pendingBatch.request.requests(), e));
+                pendingBatch.releasables.forEach(Releasable::close);
+            }
+            if (bulkRequest != null) {
+                responses.add(itemLevelFailures(bulkRequest.requests(), e));
+                releasables.forEach(Releasable::close);
+                releasables.clear();
+                currentBulkSize = 0;
+                bulkRequest = null;
+            }
         }
 
-        private void addItemLevelFailures(List<DocWriteRequest<?>> items) {
+        private static BulkResponse itemLevelFailures(List<DocWriteRequest<?>> items, Exception cause) {
             BulkItemResponse[] bulkItemResponses = new BulkItemResponse[items.size()];
             int idx = 0;
             for (DocWriteRequest<?> item : items) {
-                BulkItemResponse.Failure failure = new BulkItemResponse.Failure(item.index(), item.id(), bulkActionLevelFailure);
+                BulkItemResponse.Failure failure = new BulkItemResponse.Failure(item.index(), item.id(), cause);
                 bulkItemResponses[idx++] = BulkItemResponse.failure(idx, item.opType(), failure);
             }
 
-            responses.add(new BulkResponse(bulkItemResponses, 0, 0));
+            return new BulkResponse(bulkItemResponses, 0, 0);
         }
 
         private boolean internalAddItems(List<DocWriteRequest<?>> items, Releasable releasable) {
@@ -276,18 +373,15 @@ public class IncrementalBulkService {
                 currentBulkSize += size;
                 return true;
             } catch (EsRejectedExecutionException e) {
-                handleBulkFailure(incrementalRequestSubmitted == false, e);
-                releasables.forEach(Releasable::close);
-                releasables.clear();
+                handleBulkFailure(incrementalRequestSubmitted == false, e, null);
                 return false;
             }
         }
 
-        private void createNewBulkRequest(BulkRequest.IncrementalState incrementalState) {
+        private void createNewBulkRequest() {
             assert currentBulkSize == 0L;
             assert bulkRequest == null;
             bulkRequest = new BulkRequest();
-            bulkRequest.incrementalState(incrementalState);
 
             if (waitForActiveShards != null) {
                 bulkRequest.waitForActiveShards(waitForActiveShards);
@@ -319,5 +413,41 @@ public class IncrementalBulkService {
 
             return new BulkResponse(bulkItemResponses, tookInMillis, ingestTookInMillis);
         }
+
+        /**
+         * Items that are sent as one bulk request, together with what to do once it has been sent or completed.
+         */
+        private static class SubBatch {
+            private final BulkRequest request;
+            private final List<Releasable> releasables;
+            private final int responseIndex;
+            private final Runnable nextItems;
+            private final boolean nextItemsOnceSent;
+            private final ActionListener<BulkResponse> listener;
+            private boolean isFirstRequest;
+
+            /**
+             * @param request           the items to send, or {@code null} if there is nothing to send and only the listener is
+             *                          completed once the sub-batch in progress completes
+             * @param nextItems         reads the next items, or {@code null} for the last sub-batch
+             * @param nextItemsOnceSent whether to read the next items as soon as this sub-batch is sent rather than once it completes
+             * @param listener          the listener for the whole bulk, only set for the last sub-batch
+             */
+            SubBatch(
+                @Nullable BulkRequest request,
+                List<Releasable> releasables,
+                int responseIndex,
+                @Nullable Runnable nextItems,
+                boolean nextItemsOnceSent,
+                @Nullable ActionListener<BulkResponse> listener
+            ) {
+                this.request = request;
+                this.releasables = releasables;
+                this.responseIndex = responseIndex;
+                this.nextItems = nextItems;
+                this.nextItemsOnceSent = nextItemsOnceSent;
+                this.listener = listener;
+            }
+        }
     }
 }
@@ -51,6 +51,7 @@ import org.elasticsearch.index.mapper.DocumentMapper;
 import org.elasticsearch.index.mapper.MapperException;
 import org.elasticsearch.index.mapper.MapperService;
 import org.elasticsearch.index.mapper.MappingLookup;
+import org.elasticsearch.index.mapper.ParsedDocument;
 import org.elasticsearch.index.mapper.SourceToParse;
 import org.elasticsearch.index.seqno.SequenceNumbers;
 import org.elasticsearch.index.shard.IndexShard;
@@ -223,7 +224,12 @@ public class TransportShardBulkAction extends TransportWriteAction<BulkShardRequ
         @Nullable Consumer<Runnable> postWriteAction,
         DocumentParsingProvider documentParsingProvider
     ) {
-        new ActionRunnable<>(listener) {
+        final BulkDocumentPreParser preParser = newPreParser(request, primary, executor, documentParsingProvider);
+        // Documents that are still being parsed ahead must be done before the request and its sources are released
+        final ActionListener<PrimaryResult<BulkShardRequest, BulkShardResponse>> primaryListener = preParser == null
+            ? listener
+            : ActionListener.runBefore(listener, preParser::close);
+        new ActionRunnable<>(primaryListener) {
 
             private final BulkPrimaryExecutionContext context = new BulkPrimaryExecutionContext(request, primary);
 
@@ -234,6 +240,9 @@ public class TransportShardBulkAction extends TransportWriteAction<BulkShardRequ
             @Override
             protected void doRun() throws Exception {
                 while (context.hasMoreOperationsToExecute()) {
+                    if (preParser != null) {
+                        preParser.parseAhead(context.getCurrentItemIndex());
+                    }
                     if (executeBulkItemRequest(
                         context,
                         updateHelper,
@@ -241,7 +250,8 @@ public class TransportShardBulkAction extends TransportWriteAction<BulkShardRequ
                         mappingUpdater,
                         waitForMappingUpdate,
                         onMappingUpdateDone,
-                        documentParsingProvider
+                        documentParsingProvider,
+                        preParser
                     ) == false) {
                         // We are waiting for a mapping update on another thread, that will invoke this action again once its done
                         // so we just break out here.
@@ -258,7 +268,7 @@ public class TransportShardBulkAction extends TransportWriteAction<BulkShardRequ
             public void onRejection(Exception e) {
                 // We must finish the outstanding request. Finishing the outstanding request can include
                 // refreshing and fsyncing. Therefore, we must force execution on the WRITE thread.
-                executor.execute(new ActionRunnable<>(listener) {
+                executor.execute(new ActionRunnable<>(primaryListener) {
 
                     @Override
                     protected void doRun() {
@@ -290,7 +300,7 @@ public class TransportShardBulkAction extends TransportWriteAction<BulkShardRequ
 
             private void finishRequest() {
                 ActionListener.completeWith(
-                    listener,
+                    primaryListener,
                     () -> new WritePrimaryResult<>(
                         context.getBulkShardRequest(),
                         context.buildShardResponse(),
@@ -305,6 +315,36 @@ public class TransportShardBulkAction extends TransportWriteAction<BulkShardRequ
         }.run();
     }
 
+    /**
+     * Returns a {@link BulkDocumentPreParser} if the request has more than one item and the shard already has a mapping to
+     * parse documents with, {@code null} otherwise.
+     */
+    @Nullable
+    private static BulkDocumentPreParser newPreParser(
+        BulkShardRequest request,
+        IndexShard primary,
+        Executor executor,
+        DocumentParsingProvider documentParsingProvider
+    ) {
+        final MapperService mapperService = primary.mapperService();
+        if (request.items().length < 2 || mapperService == null || mapperService.documentMapper() == null) {
+            return null;
+        }
+        return new BulkDocumentPreParser(request, mapperService, executor, documentParsingProvider);
+    }
+
+    static SourceToParse newSourceToParse(IndexRequest request, DocumentParsingProvider documentParsingProvider) {
+        XContentMeteringParserDecorator meteringParserDecorator = documentParsingProvider.newMeteringParserDecorator(request);
+        return new SourceToParse(
+            request.id(),
+            request.source(),
+            request.getContentType(),
+            request.routing(),
+            request.getDynamicTemplates(),
+            meteringParserDecorator
+        );
+    }
+
     /**
      * Executes bulk item requests and handles request execution exceptions.
      * @return {@code true} if request completed on this thread and the listener was invoked, {@code false} if the request triggered
@@ -318,6 +358,28 @@ public class TransportShardBulkAction extends TransportWriteAction<BulkShardRequ
         ObjLongConsumer<ActionListener<Void>> waitForMappingUpdate,
         ActionListener<Void> itemDoneListener,
         DocumentParsingProvider documentParsingProvider
+    ) throws Exception {
+        return executeBulkItemRequest(
+            context,
+            updateHelper,
+            nowInMillisSupplier,
+            mappingUpdater,
+            waitForMappingUpdate,
+            itemDoneListener,
+            documentParsingProvider,
+            null
+        );
+    }
+
+    static boolean executeBulkItemRequest(
+        BulkPrimaryExecutionContext context,
+        UpdateHelper updateHelper,
+        LongSupplier nowInMillisSupplier,
+        MappingUpdatePerformer mappingUpdater,
+        ObjLongConsumer<ActionListener<Void>> waitForMappingUpdate,
+        ActionListener<Void> itemDoneListener,
+        DocumentParsingProvider documentParsingProvider,
+        @Nullable BulkDocumentPreParser preParser
     ) throws Exception {
         final DocWriteRequest.OpType opType = context.getCurrent().opType();
 
@@ -365,25 +427,32 @@ public class TransportShardBulkAction extends TransportWriteAction<BulkShardRequ
             );
         } else {
             final IndexRequest request = context.getRequestToExecute();
-
-            XContentMeteringParserDecorator meteringParserDecorator = documentParsingProvider.newMeteringParserDecorator(request);
-            final SourceToParse sourceToParse = new SourceToParse(
-                request.id(),
-                request.source(),
-                request.getContentType(),
-                request.routing(),
-                request.getDynamicTemplates(),
-                meteringParserDecorator
-            );
-            result = primary.applyIndexOperationOnPrimary(
-                version,
-                request.versionType(),
-                sourceToParse,
-                request.ifSeqNo(),
-                request.ifPrimaryTerm(),
-                request.getAutoGeneratedTimestamp(),
-                request.isRetry()
-            );
+            // Updates are translated on this thread so only plain index requests may have been parsed ahead
+            final ParsedDocument parsedDoc = preParser == null || updateResult != null
+                ? null
+                : preParser.take(context.getCurrentItemIndex());
+            if (parsedDoc == null) {
+                result = primary.applyIndexOperationOnPrimary(
+                    version,
+                    request.versionType(),
+                    newSourceToParse(request, documentParsingProvider),
+                    request.ifSeqNo(),
+                    request.ifPrimaryTerm(),
+                    request.getAutoGeneratedTimestamp(),
+                    request.isRetry()
+                );
+            } else {
+                // the document was parsed, and its source metered, by the pre-parser already
+                result = primary.applyIndexOperationOnPrimary(
+                    version,
+                    request.versionType(),
+                    parsedDoc,
+                    request.ifSeqNo(),
+                    request.ifPrimaryTerm(),
+                    request.getAutoGeneratedTimestamp(),
+                    request.isRetry()
+                );
+            }
             if (result.getResultType() == Engine.Result.Type.MAPPING_UPDATE_REQUIRED) {
                 return handleMappingUpdateRequired(
                     context,
@@ -9,9 +9,11 @@
 
 package org.elasticsearch.cluster.action.index;
 
+import org.elasticsearch.ExceptionsHelper;
 import org.elasticsearch.action.ActionListener;
 import org.elasticsearch.action.admin.indices.mapping.put.PutMappingRequest;
 import org.elasticsearch.action.admin.indices.mapping.put.TransportAutoPutMappingAction;
+import org.elasticsearch.action.support.SubscribableListener;
 import org.elasticsearch.action.support.master.MasterNodeRequest;
 import org.elasticsearch.client.internal.Client;
 import org.elasticsearch.client.internal.IndicesAdminClient;
@@ -21,12 +23,24 @@ import org.elasticsearch.common.settings.Setting.Property;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.util.concurrent.AdjustableSemaphore;
 import org.elasticsearch.common.util.concurrent.RunOnce;
+import org.elasticsearch.common.util.concurrent.ThrottledIterator;
 import org.elasticsearch.core.TimeValue;
 import org.elasticsearch.index.Index;
+import org.elasticsearch.index.mapper.MapperException;
 import org.elasticsearch.index.mapper.Mapping;
 import org.elasticsearch.injection.guice.Inject;
+import org.elasticsearch.telemetry.metric.LongCounter;
+import org.elasticsearch.telemetry.metric.LongHistogram;
+import org.elasticsearch.telemetry.metric.MeterRegistry;
 import org.elasticsearch.xcontent.XContentType;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
 /**
  * Called by shards in the cluster when their mapping was dynamically updated and it needs to be updated
  * in the cluster state meta data (and broadcast to all members).
@@ -49,14 +63,38 @@ public class MappingUpdatedAction {
         Property.NodeScope
     );
 
+    public static final String WAIT_TIME_METRIC = "es.indices.mapping.dynamic_update.wait.time";
+    public static final String COALESCED_METRIC = "es.indices.mapping.dynamic_update.coalesced.total";
+
     private IndicesAdminClient client;
     private volatile TimeValue dynamicMappingUpdateTimeout;
     private final AdjustableSemaphore semaphore;
+    /**
+     * The updates that wait for a permit to be sent, by index. Updates for an index that come in while one waits are merged into
+     * it rather than waiting for a permit of their own. Guarded by itself.
+     */
+    private final Map<Index, PendingUpdate> pendingUpdates = new HashMap<>();
+    private final LongHistogram waitTime;
+    private final LongCounter coalescedUpdates;
 
-    @Inject
     public MappingUpdatedAction(Settings settings, ClusterSettings clusterSettings) {
+        this(settings, clusterSettings, MeterRegistry.NOOP);
+    }
+
+    @Inject
+    public MappingUpdatedAction(Settings settings, ClusterSettings clusterSettings, MeterRegistry meterRegistry) {
         this.dynamicMappingUpdateTimeout = INDICES_MAPPING_DYNAMIC_TIMEOUT_SETTING.get(settings);
         this.semaphore = new AdjustableSemaphore(INDICES_MAX_IN_FLIGHT_UPDATES_SETTING.get(settings), true);
+        this.waitTime = meterRegistry.registerLongHistogram(
+            WAIT_TIME_METRIC,
+            "time a thread was blocked waiting to send a dynamic mapping update to the master",
+            "ms"
+        );
+        this.coalescedUpdates = meterRegistry.registerLongCounter(
+            COALESCED_METRIC,
+            "number of dynamic mapping updates that were merged into another update for the same index",
+            "unit"
+        );
         clusterSettings.addSettingsUpdateConsumer(INDICES_MAPPING_DYNAMIC_TIMEOUT_SETTING, this::setDynamicMappingUpdateTimeout);
         clusterSettings.addSettingsUpdateConsumer(INDICES_MAX_IN_FLIGHT_UPDATES_SETTING, this::setMaxInFlightUpdates);
     }
@@ -78,27 +116,86 @@ public class MappingUpdatedAction {
      * but not for the mapping update to be applied on all nodes. The timeout specified by
      * {@code timeout} is the master node timeout ({@link MasterNodeRequest#masterNodeTimeout()}),
      * potentially waiting for a master node to be available.
+     * <p>
+     * If another update for the same index is waiting to be sent, this update is merged into it and the method returns without
+     * blocking. The listener is then completed when the merged update is.
      */
     public void updateMappingOnMaster(Index index, Mapping mappingUpdate, ActionListener<Void> listener) {
+        final PendingUpdate pendingUpdate;
+        synchronized (pendingUpdates) {
+            final PendingUpdate existing = pendingUpdates.get(index);
+            if (existing != null && existing.tryMerge(mappingUpdate, listener)) {
+                coalescedUpdates.increment();
+                return;
+            }
+            pendingUpdate = new PendingUpdate(index, mappingUpdate, listener);
+            if (existing == null) {
+                pendingUpdates.put(index, pendingUpdate);
+            }
+        }
         final RunOnce release = new RunOnce(semaphore::release);
+        final long startNanos = System.nanoTime();
         try {
             semaphore.acquire();
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
-            listener.onFailure(e);
+            pendingUpdate.close().onFailure(e);
             return;
+        } finally {
+            waitTime.record(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
         }
-        boolean successFullySent = false;
         try {
-            sendUpdateMapping(index, mappingUpdate, ActionListener.runBefore(listener, release::run));
-            successFullySent = true;
-        } finally {
-            if (successFullySent == false) {
-                release.run();
-            }
+            pendingUpdate.close();
+            sendUpdateMapping(index, pendingUpdate.merged, new ActionListener<>() {
+                @Override
+                public void onResponse(Void unused) {
+                    release.run();
+                    pendingUpdate.listeners.onResponse(null);
+                }
+
+                @Override
+                public void onFailure(Exception e) {
+                    if (pendingUpdate.updates.size() > 1 && isRejectedMapping(e)) {
+                        // Don't let one update fail the ones it was merged with, e.g. by conflicting with the mapping on the master
+                        sendOneByOne(pendingUpdate, release);
+                    } else {
+                        release.run();
+                        pendingUpdate.listeners.onFailure(e);
+                    }
+                }
+            });
+        } catch (Exception e) {
+            release.run();
+            pendingUpdate.listeners.onFailure(e);
         }
     }
 
+    /**
+     * Whether the master rejected the mapping update itself, e.g. because it conflicts with the mapping of the index or exceeds one of
+     * its limits, as opposed to failing to process it at all, e.g. because it timed out or lost its mastership. Only the former may
+     * succeed for some of the updates that were merged.
+     */
+    private static boolean isRejectedMapping(Exception e) {
+        final Throwable cause = ExceptionsHelper.unwrapCause(e);
+        return cause instanceof IllegalArgumentException || cause instanceof MapperException;
+    }
+
+    /**
+     * Sends the updates that were merged into the given one separately and one after the other, holding on to the permit of the merged
+     * update until they are all done.
+     */
+    private void sendOneByOne(PendingUpdate pendingUpdate, Runnable release) {
+        ThrottledIterator.run(
+            IntStream.range(0, pendingUpdate.updates.size()).iterator(),
+            (ref, i) -> ActionListener.run(
+                ActionListener.releaseAfter(pendingUpdate.updateListeners.get(i), ref),
+                l -> sendUpdateMapping(pendingUpdate.index, pendingUpdate.updates.get(i), l)
+            ),
+            1,
+            release
+        );
+    }
+
     // used by tests
     int blockedThreads() {
         return semaphore.getQueueLength();
@@ -117,4 +214,55 @@ public class MappingUpdatedAction {
             listener.delegateFailureAndWrap((l, r) -> l.onResponse(null))
         );
     }
+
+    /**
+     * A dynamic mapping update that waits to be sent, merged from the updates of one or more shards of an index.
+     */
+    private final class PendingUpdate {
+        private final Index index;
+        private final List<Mapping> updates = new ArrayList<>();
+        private final List<ActionListener<Void>> updateListeners = new ArrayList<>();
+        private final SubscribableListener<Void> listeners = new SubscribableListener<>();
+        private Mapping merged;
+        private boolean closed;
+
+        PendingUpdate(Index index, Mapping update, ActionListener<Void> listener) {
+            this.index = index;
+            this.merged = update;
+            this.updates.add(update);
+            this.updateListeners.add(listener);
+            this.listeners.addListener(listener);
+        }
+
+        /**
+         * Merges the given update into this one, unless it has been sent already or the updates fail to merge.
+         */
+        boolean tryMerge(Mapping update, ActionListener<Void> listener) {
+            assert Thread.holdsLock(pendingUpdates);
+            if (closed || merged == null || update == null) {
+                return false;
+            }
+            try {
+                merged = merged.mergeDynamicUpdate(update);
+            } catch (Exception e) {
+                // the update is sent on its own instead, and fails there if it is invalid
+                return false;
+            }
+            updates.add(update);
+            updateListeners.add(listener);
+            listeners.addListener(listener);
+            return true;
+        }
+
+        /**
+         * Stops merging updates into this one.
+         */
+        SubscribableListener<Void> close() {
+            synchronized (pendingUpdates) {
+                closed = true;
+                pendingUpdates.remove(index, this);
+            }
+            return listeners;
+        }
+    }
 }
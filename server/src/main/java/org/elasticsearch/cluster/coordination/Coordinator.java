@@ -31,6 +31,7 @@ import org.elasticsearch.cluster.coordination.CoordinationState.VoteCollection;
 import org.elasticsearch.cluster.coordination.ElectionStrategy.NodeEligibility;
 import org.elasticsearch.cluster.coordination.FollowersChecker.FollowerCheckRequest;
 import org.elasticsearch.cluster.coordination.JoinHelper.InitialJoinAccumulator;
+import org.elasticsearch.cluster.metadata.IndexMetadataCompactor;
 import org.elasticsearch.cluster.metadata.Metadata;
 import org.elasticsearch.cluster.node.DiscoveryNode;
 import org.elasticsearch.cluster.node.DiscoveryNodes;
@@ -283,7 +284,14 @@ public class Coordinator extends AbstractLifecycleComponent implements ClusterSt
             ApplyCommitRequest::new,
             (request, channel, task) -> handleApplyCommit(request, new ChannelActionListener<>(channel).map(r -> Empty.INSTANCE))
         );
-        this.publicationHandler = new PublicationTransportHandler(transportService, namedWriteableRegistry, this::handlePublishRequest);
+        this.publicationHandler = new PublicationTransportHandler(
+            transportService,
+            namedWriteableRegistry,
+            this::handlePublishRequest,
+            new IndexMetadataCompactor(settings, namedWriteableRegistry)
+        );
+        clusterSettings.initializeAndWatch(PublicationTransportHandler.PUBLISH_RELAY_FAN_OUT_SETTING, publicationHandler::setRelayFanOut);
+        clusterSettings.initializeAndWatch(PublicationTransportHandler.PUBLISH_RELAY_TIMEOUT_SETTING, publicationHandler::setRelayTimeout);
         this.leaderChecker = new LeaderChecker(settings, transportService, this::onLeaderFailure, nodeHealthService);
         this.followersChecker = new FollowersChecker(
             settings,
@@ -1620,6 +1628,7 @@ public class Coordinator extends AbstractLifecycleComponent implements ClusterSt
                         followersChecker.setCurrentNodes(publishNodes);
                         lagDetector.setTrackedNodes(publishNodes);
                         publication.start(followersChecker.getFaultyNodes());
+                        publicationContext.sendRelayedPublishRequests();
                     } catch (Exception e) {
                         assert false : e;
                         if (currentPublication.isEmpty()) {
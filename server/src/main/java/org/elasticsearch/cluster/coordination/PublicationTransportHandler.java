@@ -11,15 +11,18 @@ package org.elasticsearch.cluster.coordination;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.elasticsearch.ElasticsearchException;
+import org.elasticsearch.ElasticsearchTimeoutException;
 import org.elasticsearch.TransportVersion;
 import org.elasticsearch.TransportVersions;
 import org.elasticsearch.action.ActionListener;
 import org.elasticsearch.action.ActionRunnable;
 import org.elasticsearch.action.support.ChannelActionListener;
+import org.elasticsearch.action.support.RefCountingRunnable;
 import org.elasticsearch.cluster.ClusterState;
 import org.elasticsearch.cluster.ClusterStatePublicationEvent;
 import org.elasticsearch.cluster.Diff;
 import org.elasticsearch.cluster.IncompatibleClusterStateVersionException;
+import org.elasticsearch.cluster.metadata.IndexMetadataCompactor;
 import org.elasticsearch.cluster.node.DiscoveryNode;
 import org.elasticsearch.cluster.node.DiscoveryNodeRole;
 import org.elasticsearch.cluster.node.DiscoveryNodes;
@@ -34,26 +37,37 @@ import org.elasticsearch.common.io.stream.PositionTrackingOutputStreamStreamOutp
 import org.elasticsearch.common.io.stream.RecyclerBytesStreamOutput;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.settings.Setting;
+import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.util.LazyInitializable;
+import org.elasticsearch.common.util.concurrent.EsExecutors;
 import org.elasticsearch.core.AbstractRefCounted;
 import org.elasticsearch.core.IOUtils;
 import org.elasticsearch.core.Releasables;
+import org.elasticsearch.core.TimeValue;
 import org.elasticsearch.tasks.Task;
+import org.elasticsearch.threadpool.Scheduler;
 import org.elasticsearch.threadpool.ThreadPool;
 import org.elasticsearch.transport.BytesTransportRequest;
 import org.elasticsearch.transport.NodeNotConnectedException;
+import org.elasticsearch.transport.ReceiveTimeoutTransportException;
+import org.elasticsearch.transport.RemoteTransportException;
 import org.elasticsearch.transport.Transport;
 import org.elasticsearch.transport.TransportException;
 import org.elasticsearch.transport.TransportRequestOptions;
 import org.elasticsearch.transport.TransportService;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executor;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 import java.util.function.Function;
 
 import static org.elasticsearch.core.Strings.format;
@@ -68,17 +82,50 @@ import static org.elasticsearch.threadpool.ThreadPool.Names.GENERIC;
  * <p>
  * It also uses the {@link Diff} mechanism to reduce the data to be transferred wherever possible. This is only a best-effort mechanism so
  * we fall back to sending a full cluster state if the diff cannot be applied for some reason.
+ * <p>
+ * In very large clusters the master can also send the diff to only some of the nodes and have each of them forward the same bytes to a
+ * group of other nodes, see {@link #PUBLISH_RELAY_FAN_OUT_SETTING}.
  */
 public class PublicationTransportHandler {
 
     private static final Logger logger = LogManager.getLogger(PublicationTransportHandler.class);
 
     public static final String PUBLISH_STATE_ACTION_NAME = "internal:cluster/coordination/publish_state";
+    public static final String PUBLISH_STATE_RELAY_ACTION_NAME = "internal:cluster/coordination/publish_state_relay";
+
+    /**
+     * The number of nodes each relay node forwards a cluster state diff to. If positive, the master splits the nodes that receive the
+     * same diff into groups of one relay and this many other nodes, and only sends the diff to the relays. The relays respond once
+     * every node in their group has handled the diff, so the master still sees the response of every node. Master-eligible nodes and
+     * nodes that receive a full cluster state always get it directly from the master. Defaults to {@code 0}, which disables relaying.
+     */
+    public static final Setting<Integer> PUBLISH_RELAY_FAN_OUT_SETTING = Setting.intSetting(
+        "cluster.publish.relay.fan_out",
+        0,
+        0,
+        Setting.Property.NodeScope,
+        Setting.Property.Dynamic
+    );
+
+    /**
+     * How long a relay node waits for the nodes it forwards a cluster state diff to. Once it elapses the relay responds with the results
+     * it has, and the master sends the diff directly to the nodes that haven't responded yet, so that a single unresponsive node doesn't
+     * hold back the responses of the rest of its group. The master itself gives up on a relay that hasn't responded within twice this
+     * time and sends the diff directly to every node of its group. Defaults to {@code 10s}, well within the publish timeout.
+     */
+    public static final Setting<TimeValue> PUBLISH_RELAY_TIMEOUT_SETTING = Setting.timeSetting(
+        "cluster.publish.relay.timeout",
+        TimeValue.timeValueSeconds(10),
+        TimeValue.timeValueMillis(1),
+        Setting.Property.NodeScope,
+        Setting.Property.Dynamic
+    );
 
     private final TransportService transportService;
     private final Executor clusterCoordinationExecutor;
     private final NamedWriteableRegistry namedWriteableRegistry;
     private final Function<PublishRequest, PublishWithJoinResponse> handlePublishRequest;
+    private final IndexMetadataCompactor indexMetadataCompactor;
 
     private final AtomicReference<ClusterState> lastSeenClusterState = new AtomicReference<>();
 
@@ -96,15 +143,33 @@ public class PublicationTransportHandler {
 
     private final SerializationStatsTracker serializationStatsTracker = new SerializationStatsTracker();
 
+    private volatile int relayFanOut;
+    private volatile TimeValue relayTimeout = PUBLISH_RELAY_TIMEOUT_SETTING.getDefault(Settings.EMPTY);
+
     public PublicationTransportHandler(
         TransportService transportService,
         NamedWriteableRegistry namedWriteableRegistry,
         Function<PublishRequest, PublishWithJoinResponse> handlePublishRequest
+    ) {
+        this(
+            transportService,
+            namedWriteableRegistry,
+            handlePublishRequest,
+            new IndexMetadataCompactor(Settings.EMPTY, namedWriteableRegistry)
+        );
+    }
+
+    public PublicationTransportHandler(
+        TransportService transportService,
+        NamedWriteableRegistry namedWriteableRegistry,
+        Function<PublishRequest, PublishWithJoinResponse> handlePublishRequest,
+        IndexMetadataCompactor indexMetadataCompactor
     ) {
         this.transportService = transportService;
         this.clusterCoordinationExecutor = transportService.getThreadPool().executor(ThreadPool.Names.CLUSTER_COORDINATION);
         this.namedWriteableRegistry = namedWriteableRegistry;
         this.handlePublishRequest = handlePublishRequest;
+        this.indexMetadataCompactor = indexMetadataCompactor;
 
         transportService.registerRequestHandler(
             PUBLISH_STATE_ACTION_NAME,
@@ -114,6 +179,22 @@ public class PublicationTransportHandler {
             BytesTransportRequest::new,
             (request, channel, task) -> this.handleIncomingPublishRequest(request, new ChannelActionListener<>(channel))
         );
+        transportService.registerRequestHandler(
+            PUBLISH_STATE_RELAY_ACTION_NAME,
+            transportService.getThreadPool().generic(),
+            false,
+            false,
+            RelayedPublishRequest::new,
+            (request, channel, task) -> this.handleRelayedPublishRequest(request, task, new ChannelActionListener<>(channel))
+        );
+    }
+
+    public void setRelayFanOut(int relayFanOut) {
+        this.relayFanOut = relayFanOut;
+    }
+
+    public void setRelayTimeout(TimeValue relayTimeout) {
+        this.relayTimeout = relayTimeout;
     }
 
     public PublishClusterStateStats stats() {
@@ -140,16 +221,17 @@ public class PublicationTransportHandler {
             in.setTransportVersion(request.version());
             // If true we received full cluster state - otherwise diffs
             if (in.readBoolean()) {
-                final ClusterState incomingState;
+                final ClusterState readState;
                 // Close early to release resources used by the de-compression as early as possible
                 try (StreamInput input = in) {
-                    incomingState = ClusterState.readFrom(input, transportService.getLocalNode());
+                    readState = ClusterState.readFrom(input, transportService.getLocalNode());
                     assert input.read() == -1;
                 } catch (Exception e) {
                     logger.warn("unexpected error while deserializing an incoming cluster state", e);
                     assert false : e;
                     throw e;
                 }
+                final ClusterState incomingState = indexMetadataCompactor.compact(readState);
                 fullClusterStateReceivedCount.incrementAndGet();
                 logger.debug("received full cluster state version [{}] with size [{}]", incomingState.version(), request.bytes().length());
                 acceptState(incomingState, publishResponseListener.map(response -> {
@@ -163,7 +245,9 @@ public class PublicationTransportHandler {
                     incompatibleClusterStateDiffReceivedCount.incrementAndGet();
                     throw new IncompatibleClusterStateVersionException("have no local cluster state");
                 } else {
-                    final ClusterState incomingState = deserializeAndApplyDiff(request, in, lastSeen);
+                    final ClusterState incomingState = indexMetadataCompactor.compact(
+                        deserializeAndApplyDiff(request, in, lastSeen)
+                    );
                     compatibleClusterStateDiffReceivedCount.incrementAndGet();
                     logger.debug(
                         "received diff cluster state version [{}] with uuid [{}], diff size [{}]",
@@ -182,6 +266,116 @@ public class PublicationTransportHandler {
         }
     }
 
+    /**
+     * Forwards a publication to the targets of the request and handles it locally, responding once all of them have responded or the
+     * timeout of the request elapsed, whichever comes first. Nodes that haven't responded by then are reported as not reached so that the
+     * master sends them the publication directly.
+     */
+    private void handleRelayedPublishRequest(
+        RelayedPublishRequest request,
+        Task task,
+        ActionListener<RelayedPublishResponse> relayedPublishResponseListener
+    ) {
+        assert ThreadPool.assertCurrentThreadPool(GENERIC);
+        final DiscoveryNode localNode = transportService.getLocalNode();
+        final List<DiscoveryNode> targets = request.targets();
+        final AtomicReferenceArray<RelayedPublishResponse.Result> results = new AtomicReferenceArray<>(targets.size() + 1);
+        final ActionListener<RelayedPublishResponse> responseListener = ActionListener.notifyOnce(relayedPublishResponseListener);
+        final Runnable respond = () -> {
+            final List<RelayedPublishResponse.Result> response = new ArrayList<>(results.length());
+            for (int i = 0; i < results.length(); i++) {
+                final RelayedPublishResponse.Result result = results.get(i);
+                if (result != null) {
+                    response.add(result);
+                } else {
+                    final DiscoveryNode node = i == 0 ? localNode : targets.get(i - 1);
+                    logger.debug("no response from [{}] within [{}], responding to the master without it", node, request.timeout());
+                    response.add(
+                        RelayedPublishResponse.Result.failure(
+                            new ElasticsearchTimeoutException("no response from [{}] within [{}]", node, request.timeout()),
+                            false
+                        )
+                    );
+                }
+            }
+            responseListener.onResponse(new RelayedPublishResponse(response));
+        };
+        final Scheduler.ScheduledCancellable timeout = transportService.getThreadPool()
+            .schedule(respond, request.timeout(), transportService.getThreadPool().generic());
+        try (var refs = new RefCountingRunnable(() -> {
+            timeout.cancel();
+            respond.run();
+        })) {
+            // forward first, the local node can handle the diff while it's on its way to the other nodes
+            for (int i = 0; i < targets.size(); i++) {
+                final int index = i + 1;
+                forwardPublishRequest(request, targets.get(i), task, ActionListener.releaseAfter(ActionListener.wrap(response -> {
+                    results.set(index, RelayedPublishResponse.Result.success(response));
+                }, e -> {
+                    // only failures that came back from the target itself are final, the master retries the other ones directly
+                    results.set(index, RelayedPublishResponse.Result.failure(e, e instanceof RemoteTransportException));
+                }), refs.acquire()));
+            }
+
+            final ActionListener<PublishWithJoinResponse> localListener = ActionListener.releaseAfter(ActionListener.wrap(response -> {
+                results.set(0, RelayedPublishResponse.Result.success(response));
+            }, e -> {
+                results.set(
+                    0,
+                    RelayedPublishResponse.Result.failure(
+                        new RemoteTransportException(localNode.getName(), localNode.getAddress(), PUBLISH_STATE_ACTION_NAME, e),
+                        true
+                    )
+                );
+            }), refs.acquire());
+            try {
+                handleIncomingPublishRequest(new BytesTransportRequest(request.bytes(), request.version()), localListener);
+            } catch (Exception e) {
+                localListener.onFailure(e);
+            }
+        }
+    }
+
+    private void forwardPublishRequest(
+        RelayedPublishRequest request,
+        DiscoveryNode target,
+        Task task,
+        ActionListener<PublishWithJoinResponse> listener
+    ) {
+        final Transport.Connection connection;
+        try {
+            connection = transportService.getConnection(target);
+        } catch (NodeNotConnectedException e) {
+            logger.debug(() -> format("no connection to [%s] available, not relaying cluster state", target), e);
+            listener.onFailure(e);
+            return;
+        }
+        if (connection.getTransportVersion().equals(request.version()) == false) {
+            listener.onFailure(
+                new IllegalStateException(
+                    "cannot relay cluster state serialized with transport version ["
+                        + request.version().toReleaseVersion()
+                        + "] to node "
+                        + target
+                        + " using ["
+                        + connection.getTransportVersion().toReleaseVersion()
+                        + "]"
+                )
+            );
+            return;
+        }
+        final ReleasableBytesReference bytes = request.bytes();
+        bytes.mustIncRef();
+        transportService.sendChildRequest(
+            connection,
+            PUBLISH_STATE_ACTION_NAME,
+            new BytesTransportRequest(bytes, request.version()),
+            task,
+            STATE_REQUEST_OPTIONS,
+            new CleanableResponseHandler<>(listener, PublishWithJoinResponse::new, EsExecutors.DIRECT_EXECUTOR_SERVICE, bytes::decRef)
+        );
+    }
+
     private ClusterState deserializeAndApplyDiff(BytesTransportRequest request, StreamInput in, ClusterState currentState)
         throws IOException {
         ClusterState incomingState;
@@ -358,6 +552,8 @@ public class PublicationTransportHandler {
         // All the values of these maps have one ref for the context (while it's open) and one for each in-flight message.
         private final Map<TransportVersion, ReleasableBytesReference> serializedStates = new ConcurrentHashMap<>();
         private final Map<TransportVersion, ReleasableBytesReference> serializedDiffs = new HashMap<>();
+        // The groups of nodes that receive the diff through a relay, see PUBLISH_RELAY_FAN_OUT_SETTING.
+        private final Map<DiscoveryNode, RelayGroup> relayGroups = new HashMap<>();
 
         PublicationContext(ClusterStatePublicationEvent clusterStatePublicationEvent) {
             discoveryNodes = clusterStatePublicationEvent.getNewState().nodes();
@@ -372,6 +568,7 @@ public class PublicationTransportHandler {
             final LazyInitializable<Diff<ClusterState>, RuntimeException> diffSupplier = new LazyInitializable<>(
                 () -> newState.diff(previousState)
             );
+            final Map<TransportVersion, List<DiscoveryNode>> relayableNodes = new HashMap<>();
             for (DiscoveryNode node : discoveryNodes) {
                 if (node.equals(transportService.getLocalNode())) {
                     // publication to local node bypasses any serialization
@@ -395,6 +592,27 @@ public class PublicationTransportHandler {
                         connection.getTransportVersion(),
                         v -> serializeDiffClusterState(newState, diffSupplier.getOrCompute(), node, v)
                     );
+                    if (node.isMasterNode() == false
+                        && connection.getTransportVersion().onOrAfter(TransportVersions.RELAYED_CLUSTER_STATE_PUBLICATION)) {
+                        relayableNodes.computeIfAbsent(connection.getTransportVersion(), v -> new ArrayList<>()).add(node);
+                    }
+                }
+            }
+
+            final int fanOut = relayFanOut;
+            final TimeValue timeout = relayTimeout;
+            if (fanOut > 0) {
+                for (Map.Entry<TransportVersion, List<DiscoveryNode>> entry : relayableNodes.entrySet()) {
+                    final List<DiscoveryNode> nodes = entry.getValue();
+                    if (nodes.size() <= fanOut) {
+                        continue;
+                    }
+                    for (int start = 0; start < nodes.size(); start += fanOut + 1) {
+                        final RelayGroup relayGroup = new RelayGroup(serializedDiffs.get(entry.getKey()), entry.getKey(), timeout);
+                        for (DiscoveryNode node : nodes.subList(start, Math.min(start + fanOut + 1, nodes.size()))) {
+                            relayGroups.put(node, relayGroup);
+                        }
+                    }
                 }
             }
         }
@@ -499,7 +717,7 @@ public class PublicationTransportHandler {
                 listener.onFailure(new IllegalStateException("publication context released before transmission"));
                 return;
             }
-            sendClusterState(connection, bytes, ActionListener.runAfter(listener.delegateResponse((delegate, e) -> {
+            final var diffListener = ActionListener.runAfter(listener.delegateResponse((delegate, e) -> {
                 if (e instanceof final TransportException transportException) {
                     if (transportException.unwrapCause() instanceof IncompatibleClusterStateVersionException) {
                         logger.debug(
@@ -516,7 +734,22 @@ public class PublicationTransportHandler {
 
                 logger.debug(() -> format("failed to send cluster state to %s", destination), e);
                 delegate.onFailure(e);
-            }), this::decRef));
+            }), this::decRef);
+
+            final RelayGroup relayGroup = relayGroups.get(destination);
+            if (relayGroup != null && relayGroup.add(destination, connection, diffListener)) {
+                logger.trace("cluster state diff for version [{}] to [{}] will be sent through a relay", newState.version(), destination);
+                return;
+            }
+            sendClusterState(connection, bytes, diffListener);
+        }
+
+        /**
+         * Sends the diffs that were held back to go through relay nodes, once the publish requests for all the nodes have been issued.
+         */
+        public void sendRelayedPublishRequests() {
+            assert refCount() > 0;
+            Set.copyOf(relayGroups.values()).forEach(RelayGroup::send);
         }
 
         private void sendClusterState(
@@ -540,6 +773,113 @@ public class PublicationTransportHandler {
             );
         }
 
+        /**
+         * A group of nodes that receive the same diff, which the master sends to the first of them only. That node relays it to the
+         * others and responds with the responses of every node of the group.
+         */
+        private class RelayGroup {
+            private final ReleasableBytesReference bytes;
+            private final TransportVersion version;
+            private final TimeValue timeout;
+            private final List<DiscoveryNode> nodes = new ArrayList<>();
+            private final List<Transport.Connection> connections = new ArrayList<>();
+            private final List<ActionListener<PublishWithJoinResponse>> listeners = new ArrayList<>();
+            private boolean sent;
+
+            RelayGroup(ReleasableBytesReference bytes, TransportVersion version, TimeValue timeout) {
+                this.bytes = bytes;
+                this.version = version;
+                this.timeout = timeout;
+            }
+
+            synchronized boolean add(
+                DiscoveryNode node,
+                Transport.Connection connection,
+                ActionListener<PublishWithJoinResponse> listener
+            ) {
+                if (sent) {
+                    return false;
+                }
+                nodes.add(node);
+                connections.add(connection);
+                listeners.add(listener);
+                return true;
+            }
+
+            void send() {
+                synchronized (this) {
+                    assert sent == false;
+                    sent = true;
+                }
+                if (nodes.isEmpty()) {
+                    return;
+                }
+                if (nodes.size() == 1) {
+                    sendClusterState(connections.get(0), bytes, listeners.get(0));
+                    return;
+                }
+                if (bytes.tryIncRef() == false) {
+                    assert false;
+                    listeners.forEach(l -> l.onFailure(new IllegalStateException("serialized cluster state released before transmission")));
+                    return;
+                }
+                final DiscoveryNode relay = nodes.get(0);
+                logger.trace("sending cluster state diff for version [{}] to {} through [{}]", newState.version(), nodes, relay);
+                transportService.sendChildRequest(
+                    connections.get(0),
+                    PUBLISH_STATE_RELAY_ACTION_NAME,
+                    new RelayedPublishRequest(List.copyOf(nodes.subList(1, nodes.size())), bytes, version, timeout),
+                    task,
+                    // unlike other publish requests this one times out: the relay responds within its own timeout unless it's stuck itself
+                    TransportRequestOptions.of(TimeValue.timeValueMillis(timeout.millis() * 2), TransportRequestOptions.Type.STATE),
+                    new CleanableResponseHandler<>(new ActionListener<RelayedPublishResponse>() {
+                        @Override
+                        public void onResponse(RelayedPublishResponse response) {
+                            handleResponse(response);
+                        }
+
+                        @Override
+                        public void onFailure(Exception e) {
+                            handleRelayFailure(e);
+                        }
+                    }, RelayedPublishResponse::new, clusterCoordinationExecutor, bytes::decRef)
+                );
+            }
+
+            private void handleResponse(RelayedPublishResponse response) {
+                final List<RelayedPublishResponse.Result> results = response.getResults();
+                assert results.size() == nodes.size() : results + " vs " + nodes;
+                for (int i = 0; i < nodes.size(); i++) {
+                    final DiscoveryNode node = nodes.get(i);
+                    final RelayedPublishResponse.Result result = results.get(i);
+                    if (result.response() != null) {
+                        listeners.get(i).onResponse(result.response());
+                    } else if (result.delivered()) {
+                        listeners.get(i).onFailure(result.failure());
+                    } else {
+                        logger.debug(
+                            () -> format("[%s] could not relay cluster state to %s, sending it directly", nodes.get(0), node),
+                            result.failure()
+                        );
+                        sendClusterState(connections.get(i), bytes, listeners.get(i));
+                    }
+                }
+            }
+
+            private void handleRelayFailure(Exception e) {
+                logger.debug(() -> format("failed to relay cluster state through %s, sending it directly to %s", nodes.get(0), nodes), e);
+                if (e instanceof ReceiveTimeoutTransportException) {
+                    // the relay may just be slow, it gets another chance like the other nodes
+                    sendClusterState(connections.get(0), bytes, listeners.get(0));
+                } else {
+                    listeners.get(0).onFailure(e);
+                }
+                for (int i = 1; i < nodes.size(); i++) {
+                    sendClusterState(connections.get(i), bytes, listeners.get(i));
+                }
+            }
+        }
+
         @Override
         protected void closeInternal() {
             serializedDiffs.values().forEach(Releasables::closeExpectNoException);
@@ -0,0 +1,110 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the "Elastic License
+ * 2.0", the "GNU Affero General Public License v3.0 only", and the "Server Side
+ * Public License v 1"; you may not use this file except in compliance with, at
+ * your election, the "Elastic License 2.0", the "GNU Affero General Public
+ * License v3.0 only", or the "Server Side Public License, v 1".
+ */
+package org.elasticsearch.cluster.coordination;
+
+import org.elasticsearch.TransportVersion;
+import org.elasticsearch.cluster.node.DiscoveryNode;
+import org.elasticsearch.common.bytes.ReleasableBytesReference;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.core.RefCounted;
+import org.elasticsearch.core.TimeValue;
+import org.elasticsearch.transport.TransportRequest;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Asks a relay node to handle a serialized cluster state diff itself and to forward the same bytes to some other nodes, see
+ * {@link PublicationTransportHandler#PUBLISH_RELAY_FAN_OUT_SETTING}. The bytes are serialized with the transport version of the
+ * connection to the relay, which is also the transport version of the connections to the nodes it forwards them to.
+ */
+public class RelayedPublishRequest extends TransportRequest implements RefCounted {
+
+    private final List<DiscoveryNode> targets;
+    private final ReleasableBytesReference bytes;
+    private final TransportVersion version;
+    private final TimeValue timeout;
+
+    public RelayedPublishRequest(StreamInput in) throws IOException {
+        super(in);
+        targets = in.readCollectionAsImmutableList(DiscoveryNode::new);
+        bytes = in.readReleasableBytesReference();
+        timeout = in.readTimeValue();
+        version = in.getTransportVersion();
+    }
+
+    public RelayedPublishRequest(
+        List<DiscoveryNode> targets,
+        ReleasableBytesReference bytes,
+        TransportVersion version,
+        TimeValue timeout
+    ) {
+        this.targets = targets;
+        this.bytes = bytes;
+        this.version = version;
+        this.timeout = timeout;
+    }
+
+    /**
+     * The nodes to forward the publication to, not including the relay itself.
+     */
+    public List<DiscoveryNode> targets() {
+        return targets;
+    }
+
+    public ReleasableBytesReference bytes() {
+        return bytes;
+    }
+
+    public TransportVersion version() {
+        return version;
+    }
+
+    /**
+     * How long the relay waits for the targets before responding without them, see
+     * {@link PublicationTransportHandler#PUBLISH_RELAY_TIMEOUT_SETTING}.
+     */
+    public TimeValue timeout() {
+        return timeout;
+    }
+
+    @Override
+    public void writeTo(StreamOutput out) throws IOException {
+        super.writeTo(out);
+        out.writeCollection(targets);
+        out.writeBytesReference(bytes);
+        out.writeTimeValue(timeout);
+    }
+
+    @Override
+    public void incRef() {
+        bytes.incRef();
+    }
+
+    @Override
+    public boolean tryIncRef() {
+        return bytes.tryIncRef();
+    }
+
+    @Override
+    public boolean decRef() {
+        return bytes.decRef();
+    }
+
+    @Override
+    public boolean hasReferences() {
+        return bytes.hasReferences();
+    }
+
+    @Override
+    public String toString() {
+        return "RelayedPublishRequest{targets=" + targets + ", size=" + bytes.length() + ", timeout=" + timeout + '}';
+    }
+}
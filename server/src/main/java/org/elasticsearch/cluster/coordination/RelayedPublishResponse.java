@@ -0,0 +1,82 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the "Elastic License
+ * 2.0", the "GNU Affero General Public License v3.0 only", and the "Server Side
+ * Public License v 1"; you may not use this file except in compliance with, at
+ * your election, the "Elastic License 2.0", the "GNU Affero General Public
+ * License v3.0 only", or the "Server Side Public License, v 1".
+ */
+package org.elasticsearch.cluster.coordination;
+
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.io.stream.Writeable;
+import org.elasticsearch.core.Nullable;
+import org.elasticsearch.transport.TransportResponse;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Response to a {@link RelayedPublishRequest}: the outcome of the publication on the relay itself followed by the outcome on each of
+ * the {@link RelayedPublishRequest#targets()}, in order.
+ */
+public class RelayedPublishResponse extends TransportResponse {
+
+    private final List<Result> results;
+
+    public RelayedPublishResponse(List<Result> results) {
+        this.results = results;
+    }
+
+    public RelayedPublishResponse(StreamInput in) throws IOException {
+        this.results = in.readCollectionAsImmutableList(Result::readFrom);
+    }
+
+    @Override
+    public void writeTo(StreamOutput out) throws IOException {
+        out.writeCollection(results);
+    }
+
+    public List<Result> getResults() {
+        return results;
+    }
+
+    @Override
+    public String toString() {
+        return "RelayedPublishResponse{results=" + results + '}';
+    }
+
+    /**
+     * The outcome of the publication on a single node. A failure is {@code delivered} if it came back from the node itself, otherwise
+     * the relay could not send the publication to the node and the master should send it directly instead.
+     */
+    public record Result(@Nullable PublishWithJoinResponse response, @Nullable Exception failure, boolean delivered) implements Writeable {
+
+        public static Result success(PublishWithJoinResponse response) {
+            return new Result(response, null, true);
+        }
+
+        public static Result failure(Exception failure, boolean delivered) {
+            return new Result(null, failure, delivered);
+        }
+
+        static Result readFrom(StreamInput in) throws IOException {
+            final PublishWithJoinResponse response = in.readOptionalWriteable(PublishWithJoinResponse::new);
+            if (response != null) {
+                return success(response);
+            }
+            final Exception failure = in.readException();
+            return failure(failure, in.readBoolean());
+        }
+
+        @Override
+        public void writeTo(StreamOutput out) throws IOException {
+            out.writeOptionalWriteable(response);
+            if (response == null) {
+                out.writeException(failure);
+                out.writeBoolean(delivered);
+            }
+        }
+    }
+}
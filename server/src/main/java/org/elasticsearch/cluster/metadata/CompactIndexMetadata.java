@@ -0,0 +1,75 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the "Elastic License
+ * 2.0", the "GNU Affero General Public License v3.0 only", and the "Server Side
+ * Public License v 1"; you may not use this file except in compliance with, at
+ * your election, the "Elastic License 2.0", the "GNU Affero General Public
+ * License v3.0 only", or the "Server Side Public License, v 1".
+ */
+
+package org.elasticsearch.cluster.metadata;
+
+import org.elasticsearch.ElasticsearchException;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.cache.Cache;
+import org.elasticsearch.common.compress.CompressorFactory;
+import org.elasticsearch.common.io.stream.NamedWriteableAwareStreamInput;
+import org.elasticsearch.common.io.stream.NamedWriteableRegistry;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.core.Nullable;
+
+import java.io.IOException;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * The compressed serialized form of an {@link IndexMetadata} that a compact instance (see {@link IndexMetadata#isCompact()}) reads its
+ * settings, custom data, in-sync allocation ids, rollover infos, lifecycle state, inference fields and stats from. The materialized
+ * instances are kept in a bounded cache that is shared by all compact instances of a node, keyed by the identity of this object, so
+ * that repeated accesses to the same index don't deserialize it again. See {@link IndexMetadataCompactor}.
+ */
+final class CompactIndexMetadata {
+
+    private final BytesReference bytes;
+    @Nullable
+    private final MappingMetadata mapping;
+    private final NamedWriteableRegistry namedWriteableRegistry;
+    private final Cache<CompactIndexMetadata, IndexMetadata> cache;
+
+    CompactIndexMetadata(
+        BytesReference bytes,
+        @Nullable MappingMetadata mapping,
+        NamedWriteableRegistry namedWriteableRegistry,
+        Cache<CompactIndexMetadata, IndexMetadata> cache
+    ) {
+        this.bytes = bytes;
+        this.mapping = mapping;
+        this.namedWriteableRegistry = namedWriteableRegistry;
+        this.cache = cache;
+    }
+
+    IndexMetadata materialize() {
+        try {
+            return cache.computeIfAbsent(this, CompactIndexMetadata::read);
+        } catch (ExecutionException e) {
+            assert false : e;
+            throw new ElasticsearchException("failed to read compact index metadata", e.getCause());
+        }
+    }
+
+    private IndexMetadata read() throws IOException {
+        // the mapping was written as its hash, and the compact instance holds on to the deduplicated mapping itself
+        try (
+            StreamInput in = new NamedWriteableAwareStreamInput(
+                CompressorFactory.COMPRESSOR.threadLocalStreamInput(bytes.streamInput()),
+                namedWriteableRegistry
+            )
+        ) {
+            final IndexMetadata indexMetadata = IndexMetadata.readFrom(in, hash -> {
+                assert mapping != null && mapping.getSha256().equals(hash) : hash;
+                return mapping;
+            });
+            assert in.read() == -1;
+            return indexMetadata;
+        }
+    }
+}
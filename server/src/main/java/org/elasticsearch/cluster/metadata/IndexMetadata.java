@@ -648,6 +648,10 @@ public class IndexMetadata implements Diffable<IndexMetadata>, ToXContentFragmen
     @Nullable
     private final Long shardSizeInBytesForecast;
 
+    // set if this instance only holds the fields the cluster state needs to be applied, see CompactIndexMetadata
+    @Nullable
+    private final CompactIndexMetadata compact;
+
     private IndexMetadata(
         final Index index,
         final long version,
@@ -753,13 +757,96 @@ public class IndexMetadata implements Diffable<IndexMetadata>, ToXContentFragmen
         this.stats = stats;
         this.writeLoadForecast = writeLoadForecast;
         this.shardSizeInBytesForecast = shardSizeInBytesForecast;
+        this.compact = null;
         assert numberOfShards * routingFactor == routingNumShards : routingNumShards + " must be a multiple of " + numberOfShards;
     }
 
+    /**
+     * Copies the given instance without its settings, custom data, in-sync allocation ids, rollover infos, lifecycle state, inference
+     * fields and stats, which are read back from the serialized form held by {@code compact} when they are accessed.
+     */
+    private IndexMetadata(IndexMetadata full, CompactIndexMetadata compact) {
+        assert full.compact == null;
+        this.index = full.index;
+        this.version = full.version;
+        this.mappingVersion = full.mappingVersion;
+        this.mappingsUpdatedVersion = full.mappingsUpdatedVersion;
+        this.settingsVersion = full.settingsVersion;
+        this.aliasesVersion = full.aliasesVersion;
+        this.primaryTerms = full.primaryTerms;
+        this.state = full.state;
+        this.numberOfShards = full.numberOfShards;
+        this.numberOfReplicas = full.numberOfReplicas;
+        this.totalNumberOfShards = full.totalNumberOfShards;
+        this.settings = null;
+        this.mapping = full.mapping;
+        this.inferenceFields = null;
+        this.customData = null;
+        this.aliases = full.aliases;
+        this.inSyncAllocationIds = null;
+        this.requireFilters = full.requireFilters;
+        this.includeFilters = full.includeFilters;
+        this.excludeFilters = full.excludeFilters;
+        this.initialRecoveryFilters = full.initialRecoveryFilters;
+        this.indexCreatedVersion = full.indexCreatedVersion;
+        this.routingNumShards = full.routingNumShards;
+        this.routingFactor = full.routingFactor;
+        this.routingPartitionSize = full.routingPartitionSize;
+        this.routingPaths = full.routingPaths;
+        this.waitForActiveShards = full.waitForActiveShards;
+        this.rolloverInfos = null;
+        this.isSystem = full.isSystem;
+        this.isHidden = full.isHidden;
+        this.timestampRange = full.timestampRange;
+        this.eventIngestedRange = full.eventIngestedRange;
+        this.priority = full.priority;
+        this.creationDate = full.creationDate;
+        this.ignoreDiskWatermarks = full.ignoreDiskWatermarks;
+        this.tierPreference = full.tierPreference;
+        this.shardsPerNodeLimit = full.shardsPerNodeLimit;
+        this.lifecyclePolicyName = full.lifecyclePolicyName;
+        this.lifecycleExecutionState = null;
+        this.autoExpandReplicas = full.autoExpandReplicas;
+        this.isSearchableSnapshot = full.isSearchableSnapshot;
+        this.isPartialSearchableSnapshot = full.isPartialSearchableSnapshot;
+        this.indexCompatibilityVersion = full.indexCompatibilityVersion;
+        this.indexMode = full.indexMode;
+        this.timeSeriesStart = full.timeSeriesStart;
+        this.timeSeriesEnd = full.timeSeriesEnd;
+        this.stats = null;
+        this.writeLoadForecast = full.writeLoadForecast;
+        this.shardSizeInBytesForecast = full.shardSizeInBytesForecast;
+        this.compact = compact;
+    }
+
+    /**
+     * @return a copy of this instance that reads its less frequently used fields from {@code compact} on demand
+     */
+    IndexMetadata withCompact(CompactIndexMetadata compact) {
+        return new IndexMetadata(full(), compact);
+    }
+
+    /**
+     * @return whether this instance reads its less frequently used fields from a serialized copy on demand
+     */
+    boolean isCompact() {
+        return compact != null;
+    }
+
+    /**
+     * @return this instance, or the materialized full instance if this one is compact
+     */
+    private IndexMetadata full() {
+        return compact == null ? this : compact.materialize();
+    }
+
     IndexMetadata withMappingMetadata(MappingMetadata mapping) {
         if (mapping() == mapping) {
             return this;
         }
+        if (compact != null) {
+            return full().withMappingMetadata(mapping);
+        }
         return new IndexMetadata(
             this.index,
             this.version,
@@ -818,9 +905,12 @@ public class IndexMetadata implements Diffable<IndexMetadata>, ToXContentFragmen
      * @return updated instance
      */
     public IndexMetadata withInSyncAllocationIds(int shardId, Set<String> inSyncSet) {
-        if (inSyncSet.equals(inSyncAllocationIds.get(shardId))) {
+        if (inSyncSet.equals(inSyncAllocationIds(shardId))) {
             return this;
         }
+        if (compact != null) {
+            return full().withInSyncAllocationIds(shardId, inSyncSet);
+        }
         return new IndexMetadata(
             this.index,
             this.version,
@@ -878,6 +968,9 @@ public class IndexMetadata implements Diffable<IndexMetadata>, ToXContentFragmen
      * @return updated instance with incremented primary term
      */
     public IndexMetadata withIncrementedPrimaryTerm(int shardId) {
+        if (compact != null) {
+            return full().withIncrementedPrimaryTerm(shardId);
+        }
         final long[] incremented = this.primaryTerms.clone();
         incremented[shardId]++;
         return new IndexMetadata(
@@ -945,6 +1038,9 @@ public class IndexMetadata implements Diffable<IndexMetadata>, ToXContentFragmen
         if (timestampRange.equals(this.timestampRange) && eventIngestedRange.equals(this.eventIngestedRange)) {
             return this;
         }
+        if (compact != null) {
+            return full().withTimestampRanges(timestampRange, eventIngestedRange, minClusterTransportVersion);
+        }
         IndexLongFieldRange allowedEventIngestedRange = eventIngestedRange;
         // remove this check when the EVENT_INGESTED_RANGE_IN_CLUSTER_STATE version is removed
         if (minClusterTransportVersion.before(TransportVersions.EVENT_INGESTED_RANGE_IN_CLUSTER_STATE)) {
@@ -1005,6 +1101,9 @@ public class IndexMetadata implements Diffable<IndexMetadata>, ToXContentFragmen
      * @return a copy of this instance that has its version incremented by one
      */
     public IndexMetadata withIncrementedVersion() {
+        if (compact != null) {
+            return full().withIncrementedVersion();
+        }
         return new IndexMetadata(
             this.index,
             this.version + 1,
@@ -1160,7 +1259,7 @@ public class IndexMetadata implements Diffable<IndexMetadata>, ToXContentFragmen
     }
 
     public Settings getSettings() {
-        return settings;
+        return full().settings;
     }
 
     public Map<String, AliasMetadata> getAliases() {
@@ -1173,7 +1272,7 @@ public class IndexMetadata implements Diffable<IndexMetadata>, ToXContentFragmen
 
     public List<String> getTierPreference() {
         if (tierPreference == null) {
-            final List<String> parsed = DataTier.parseTierList(DataTier.TIER_PREFERENCE_SETTING.get(settings));
+            final List<String> parsed = DataTier.parseTierList(DataTier.TIER_PREFERENCE_SETTING.get(getSettings()));
             assert false : "the setting parsing should always throw if we didn't store a tier preference when building this instance";
             return parsed;
         }
@@ -1189,7 +1288,7 @@ public class IndexMetadata implements Diffable<IndexMetadata>, ToXContentFragmen
     }
 
     public LifecycleExecutionState getLifecycleExecutionState() {
-        return lifecycleExecutionState;
+        return full().lifecycleExecutionState;
     }
 
     public AutoExpandReplicas getAutoExpandReplicas() {
@@ -1248,12 +1347,12 @@ public class IndexMetadata implements Diffable<IndexMetadata>, ToXContentFragmen
     }
 
     public Map<String, InferenceFieldMetadata> getInferenceFields() {
-        return inferenceFields;
+        return full().inferenceFields;
     }
 
     @Nullable
     public IndexMetadataStats getStats() {
-        return stats;
+        return full().stats;
     }
 
     public OptionalDouble getForecastedWriteLoad() {
@@ -1276,6 +1375,7 @@ public class IndexMetadata implements Diffable<IndexMetadata>, ToXContentFragmen
     public static final String INDEX_SHRINK_INITIAL_RECOVERY_KEY = INDEX_ROUTING_INITIAL_RECOVERY_GROUP_SETTING.getKey() + "_id";
 
     public Index getResizeSourceIndex() {
+        final Settings settings = getSettings();
         return INDEX_RESIZE_SOURCE_UUID.exists(settings)
             ? new Index(INDEX_RESIZE_SOURCE_NAME.get(settings), INDEX_RESIZE_SOURCE_UUID.get(settings))
             : null;
@@ -1341,24 +1441,24 @@ public class IndexMetadata implements Diffable<IndexMetadata>, ToXContentFragmen
     public static final String LIFECYCLE_NAME = "index.lifecycle.name";
 
     Map<String, DiffableStringMap> getCustomData() {
-        return this.customData;
+        return full().customData;
     }
 
     public Map<String, String> getCustomData(final String key) {
-        return this.customData.get(key);
+        return full().customData.get(key);
     }
 
     public Map<Integer, Set<String>> getInSyncAllocationIds() {
-        return inSyncAllocationIds;
+        return full().inSyncAllocationIds;
     }
 
     public Map<String, RolloverInfo> getRolloverInfos() {
-        return rolloverInfos;
+        return full().rolloverInfos;
     }
 
     public Set<String> inSyncAllocationIds(int shardId) {
         assert shardId >= 0 && shardId < numberOfShards;
-        return inSyncAllocationIds.get(shardId);
+        return full().inSyncAllocationIds.get(shardId);
     }
 
     @Nullable
@@ -1424,8 +1524,11 @@ public class IndexMetadata implements Diffable<IndexMetadata>, ToXContentFragmen
         if (o == null || getClass() != o.getClass()) {
             return false;
         }
+        if (compact != null) {
+            return full().equals(o);
+        }
 
-        IndexMetadata that = (IndexMetadata) o;
+        IndexMetadata that = ((IndexMetadata) o).full();
 
         if (version != that.version) {
             return false;
@@ -1475,6 +1578,9 @@ public class IndexMetadata implements Diffable<IndexMetadata>, ToXContentFragmen
 
     @Override
     public int hashCode() {
+        if (compact != null) {
+            return full().hashCode();
+        }
         int result = index.hashCode();
         result = 31 * result + Long.hashCode(version);
         result = 31 * result + state.hashCode();
@@ -1494,7 +1600,7 @@ public class IndexMetadata implements Diffable<IndexMetadata>, ToXContentFragmen
 
     @Override
     public Diff<IndexMetadata> diff(IndexMetadata previousState) {
-        return new IndexMetadataDiff(previousState, this);
+        return new IndexMetadataDiff(previousState.full(), full());
     }
 
     public static Diff<IndexMetadata> readDiffFrom(StreamInput in) throws IOException {
@@ -1719,7 +1825,8 @@ public class IndexMetadata implements Diffable<IndexMetadata>, ToXContentFragmen
         }
 
         @Override
-        public IndexMetadata apply(IndexMetadata part) {
+        public IndexMetadata apply(IndexMetadata compactOrFull) {
+            final IndexMetadata part = compactOrFull.full();
             Builder builder = builder(index);
             builder.version(version);
             builder.mappingVersion(mappingVersion);
@@ -1834,6 +1941,10 @@ public class IndexMetadata implements Diffable<IndexMetadata>, ToXContentFragmen
      * @param mappingsAsHash whether to serialize {@link MappingMetadata} in full or just its hash {@link MappingMetadata#getSha256()}
      */
     public void writeTo(StreamOutput out, boolean mappingsAsHash) throws IOException {
+        if (compact != null) {
+            full().writeTo(out, mappingsAsHash);
+            return;
+        }
         out.writeString(index.getName()); // uuid will come as part of settings
         out.writeLong(version);
         out.writeVLong(mappingVersion);
@@ -1948,7 +2059,8 @@ public class IndexMetadata implements Diffable<IndexMetadata>, ToXContentFragmen
             this.isSystem = false;
         }
 
-        public Builder(IndexMetadata indexMetadata) {
+        public Builder(IndexMetadata compactOrFull) {
+            final IndexMetadata indexMetadata = compactOrFull.full();
             this.index = indexMetadata.getIndex().getName();
             this.state = indexMetadata.state;
             this.version = indexMetadata.version;
@@ -2499,7 +2611,7 @@ public class IndexMetadata implements Diffable<IndexMetadata>, ToXContentFragmen
                 builder.endObject();
             }
 
-            for (Map.Entry<String, DiffableStringMap> cursor : indexMetadata.customData.entrySet()) {
+            for (Map.Entry<String, DiffableStringMap> cursor : indexMetadata.getCustomData().entrySet()) {
                 builder.stringStringMap(cursor.getKey(), cursor.getValue());
             }
 
@@ -2530,7 +2642,7 @@ public class IndexMetadata implements Diffable<IndexMetadata>, ToXContentFragmen
             }
 
             builder.startObject(KEY_IN_SYNC_ALLOCATIONS);
-            for (Map.Entry<Integer, Set<String>> cursor : indexMetadata.inSyncAllocationIds.entrySet()) {
+            for (Map.Entry<Integer, Set<String>> cursor : indexMetadata.getInSyncAllocationIds().entrySet()) {
                 builder.startArray(String.valueOf(cursor.getKey()));
                 for (String allocationId : cursor.getValue()) {
                     builder.value(allocationId);
@@ -2556,9 +2668,9 @@ public class IndexMetadata implements Diffable<IndexMetadata>, ToXContentFragmen
             indexMetadata.eventIngestedRange.toXContent(builder, params);
             builder.endObject();
 
-            if (indexMetadata.stats != null) {
+            if (indexMetadata.getStats() != null) {
                 builder.startObject(KEY_STATS);
-                indexMetadata.stats.toXContent(builder, params);
+                indexMetadata.getStats().toXContent(builder, params);
                 builder.endObject();
             }
 
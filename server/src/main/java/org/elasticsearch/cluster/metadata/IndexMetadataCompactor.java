@@ -0,0 +1,128 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the "Elastic License
+ * 2.0", the "GNU Affero General Public License v3.0 only", and the "Server Side
+ * Public License v 1"; you may not use this file except in compliance with, at
+ * your election, the "Elastic License 2.0", the "GNU Affero General Public
+ * License v3.0 only", or the "Server Side Public License, v 1".
+ */
+
+package org.elasticsearch.cluster.metadata;
+
+import org.elasticsearch.ElasticsearchException;
+import org.elasticsearch.cluster.ClusterState;
+import org.elasticsearch.cluster.node.DiscoveryNode;
+import org.elasticsearch.common.cache.Cache;
+import org.elasticsearch.common.cache.CacheBuilder;
+import org.elasticsearch.common.compress.CompressorFactory;
+import org.elasticsearch.common.io.Streams;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.io.stream.NamedWriteableRegistry;
+import org.elasticsearch.common.io.stream.OutputStreamStreamOutput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.settings.Setting;
+import org.elasticsearch.common.settings.Settings;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Keeps the {@link IndexMetadata} of the cluster state that a node receives from the master in a compact form. Every node holds the
+ * metadata of every index in the cluster, but nodes that are not master-eligible rarely look at more than the routing-related fields of
+ * indices they don't hold shards of. A compact {@link IndexMetadata} keeps those fields and its mapping on heap and holds the rest in
+ * compressed serialized form, materializing the full instance on demand through a bounded cache shared by all indices. The
+ * {@link Metadata} API is unchanged: compact instances are equal to, and behave like, the full ones.
+ */
+public class IndexMetadataCompactor {
+
+    /**
+     * Whether to keep the index metadata of received cluster states in compact form. Defaults to {@code true} on nodes that are not
+     * master-eligible, since the elected master reads the full metadata of every index whenever it computes a new cluster state.
+     */
+    public static final Setting<Boolean> COMPACT_INDEX_METADATA_SETTING = Setting.boolSetting(
+        "cluster.metadata.compact_index_metadata",
+        settings -> Boolean.toString(DiscoveryNode.isMasterNode(settings) == false),
+        Setting.Property.NodeScope
+    );
+
+    /**
+     * The number of materialized compact index metadata instances the node keeps.
+     */
+    public static final Setting<Integer> INDEX_METADATA_CACHE_SIZE_SETTING = Setting.intSetting(
+        "cluster.metadata.index_metadata_cache.size",
+        10000,
+        1,
+        Setting.Property.NodeScope
+    );
+
+    private final boolean enabled;
+    private final NamedWriteableRegistry namedWriteableRegistry;
+    private final Cache<CompactIndexMetadata, IndexMetadata> cache;
+
+    public IndexMetadataCompactor(Settings settings, NamedWriteableRegistry namedWriteableRegistry) {
+        this.enabled = COMPACT_INDEX_METADATA_SETTING.get(settings);
+        this.namedWriteableRegistry = namedWriteableRegistry;
+        this.cache = CacheBuilder.<CompactIndexMetadata, IndexMetadata>builder()
+            .setMaximumWeight(INDEX_METADATA_CACHE_SIZE_SETTING.get(settings))
+            .build();
+    }
+
+    /**
+     * @return the given cluster state with the index metadata that isn't compact yet replaced by compact instances, or the given cluster
+     *         state itself if compaction is disabled or all of its index metadata is already compact
+     */
+    public ClusterState compact(ClusterState clusterState) {
+        if (enabled == false) {
+            return clusterState;
+        }
+        final Metadata metadata = clusterState.metadata();
+        final Metadata compacted = compact(metadata);
+        return compacted == metadata ? clusterState : ClusterState.builder(clusterState).metadata(compacted).build();
+    }
+
+    /**
+     * @return the given metadata with the index metadata that isn't compact yet replaced by compact instances. Index metadata that was
+     *         compacted by an earlier call is kept as-is, so that applying a diff only compacts the indices it changed.
+     */
+    public Metadata compact(Metadata metadata) {
+        if (enabled == false) {
+            return metadata;
+        }
+        Map<String, IndexMetadata> updates = null;
+        for (IndexMetadata indexMetadata : metadata) {
+            if (indexMetadata.isCompact() == false) {
+                if (updates == null) {
+                    updates = new HashMap<>();
+                }
+                updates.put(indexMetadata.getIndex().getName(), compact(indexMetadata));
+            }
+        }
+        return updates == null ? metadata : metadata.withCompactIndexMetadata(updates);
+    }
+
+    IndexMetadata compact(IndexMetadata indexMetadata) {
+        assert indexMetadata.isCompact() == false;
+        final BytesStreamOutput bytes = new BytesStreamOutput();
+        try (
+            StreamOutput out = new OutputStreamStreamOutput(
+                CompressorFactory.COMPRESSOR.threadLocalOutputStream(Streams.flushOnCloseStream(bytes))
+            )
+        ) {
+            indexMetadata.writeTo(out, true);
+        } catch (IOException e) {
+            assert false : e;
+            throw new ElasticsearchException("failed to compact metadata of index {}", e, indexMetadata.getIndex());
+        }
+        return indexMetadata.withCompact(
+            new CompactIndexMetadata(bytes.copyBytes(), indexMetadata.mapping(), namedWriteableRegistry, cache)
+        );
+    }
+
+    /**
+     * @return the number of materialized index metadata instances currently cached
+     */
+    public int cachedCount() {
+        return cache.count();
+    }
+}
@@ -13,6 +13,7 @@ import org.apache.logging.log4j.Level;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.elasticsearch.cluster.ClusterInfoSimulator;
+import org.elasticsearch.cluster.routing.RoutingChangesObserver;
 import org.elasticsearch.cluster.routing.RoutingNodes;
 import org.elasticsearch.cluster.routing.ShardRouting;
 import org.elasticsearch.cluster.routing.UnassignedInfo;
@@ -103,14 +104,7 @@ public class DesiredBalanceComputer {
         }
 
         // we assume that all ongoing recoveries will complete
-        for (final var routingNode : routingNodes) {
-            for (final var shardRouting : routingNode) {
-                if (shardRouting.initializing()) {
-                    clusterInfoSimulator.simulateShardStarted(shardRouting);
-                    routingNodes.startShard(shardRouting, changes, 0L);
-                }
-            }
-        }
+        startInitializingShards(routingNodes, changes, clusterInfoSimulator);
 
         // we are not responsible for allocating unassigned primaries of existing shards, and we're only responsible for allocating
         // unassigned replicas if the ReplicaShardAllocator gives up, so we must respect these ignored shards
@@ -144,10 +138,15 @@ public class DesiredBalanceComputer {
         for (final var entry : shardRoutings.entrySet()) {
             final var shardId = entry.getKey();
             final var routings = entry.getValue();
+            final var assignment = previousDesiredBalance.getAssignment(shardId);
+
+            if (assignment != null && isOnDesiredNodes(routings, assignment)) {
+                // most shards are already where the previous balance wants them, there's nothing to do for them here
+                continue;
+            }
 
             // treemap (keyed by node ID) so that we are consistent about the order of future relocations
             final var shardsToRelocate = new TreeMap<String, ShardRouting>();
-            final var assignment = previousDesiredBalance.getAssignment(shardId);
 
             // treeset (ordered by node ID) so that we are consistent about the order of future relocations
             final var targetNodes = assignment != null ? new TreeSet<>(assignment.nodeIds()) : new TreeSet<String>();
@@ -288,16 +287,7 @@ public class DesiredBalanceComputer {
             delegateAllocator.allocate(routingAllocation);
             assert routingNodes.unassigned().isEmpty(); // any unassigned shards should now be ignored
 
-            hasChanges = false;
-            for (final var routingNode : routingNodes) {
-                for (final var shardRouting : routingNode) {
-                    if (shardRouting.initializing()) {
-                        hasChanges = true;
-                        clusterInfoSimulator.simulateShardStarted(shardRouting);
-                        routingNodes.startShard(shardRouting, changes, 0L);
-                    }
-                }
-            }
+            hasChanges = startInitializingShards(routingNodes, changes, clusterInfoSimulator);
 
             i++;
             final int iterations = i;
@@ -371,6 +361,44 @@ public class DesiredBalanceComputer {
         return new DesiredBalance(lastConvergedIndex, assignments);
     }
 
+    /**
+     * Starts all the initializing shards, visiting only the shards that are initializing rather than every shard in the cluster since
+     * there are usually just a few of them in each iteration of the computation.
+     *
+     * @return whether there were any initializing shards
+     */
+    private static boolean startInitializingShards(
+        RoutingNodes routingNodes,
+        RoutingChangesObserver changes,
+        ClusterInfoSimulator clusterInfoSimulator
+    ) {
+        boolean startedShards = false;
+        for (final var routingNode : routingNodes) {
+            for (final var shardRouting : routingNode.initializing()) {
+                startedShards = true;
+                clusterInfoSimulator.simulateShardStarted(shardRouting);
+                routingNodes.startShard(shardRouting, changes, 0L);
+            }
+        }
+        return startedShards;
+    }
+
+    /**
+     * Whether all copies of a shard are started on nodes of its previous assignment, in which case moving the shards to their desired
+     * locations has nothing to do.
+     */
+    private static boolean isOnDesiredNodes(ShardRoutings routings, ShardAssignment assignment) {
+        if (routings.unassigned().isEmpty() == false) {
+            return false;
+        }
+        for (final var shardRouting : routings.assigned()) {
+            if (assignment.nodeIds().contains(shardRouting.currentNodeId()) == false) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     private static Map<ShardId, ShardAssignment> collectShardAssignments(RoutingNodes routingNodes) {
         final var entries = routingNodes.getAssignedShards().entrySet();
         assert entries.stream().flatMap(t -> t.getValue().stream()).allMatch(ShardRouting::started) : routingNodes;
@@ -114,6 +114,20 @@ public final class ClusterApplierRecordingService {
             return this::stop;
         }
 
+        /**
+         * Records a part of the action that is currently being recorded, as an action of its own named after both of them. The time spent
+         * in the part still counts towards the action too.
+         */
+        Releasable recordPart(String part) {
+            if (recording == false) {
+                throw new IllegalStateException("not recording");
+            }
+
+            final String action = currentAction + " > " + part;
+            final long partStartMillis = threadPool.rawRelativeTimeInMillis();
+            return () -> recordings.add(new Tuple<>(action, threadPool.rawRelativeTimeInMillis() - partStartMillis));
+        }
+
         void stop() {
             recording = false;
             long elapsedMillis = threadPool.rawRelativeTimeInMillis() - this.startMillis;
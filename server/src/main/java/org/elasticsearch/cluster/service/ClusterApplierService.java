@@ -99,6 +99,9 @@ public class ClusterApplierService extends AbstractLifecycleComponent implements
 
     private final ClusterApplierRecordingService recordingService;
 
+    @Nullable // if not currently applying a cluster state, only accessed on the applier thread
+    private Recorder currentRecorder;
+
     private NodeConnectionsService nodeConnectionsService;
 
     public ClusterApplierService(String nodeName, Settings settings, ClusterSettings clusterSettings, ThreadPool threadPool) {
@@ -430,6 +433,7 @@ public class ClusterApplierService extends AbstractLifecycleComponent implements
             }
             try {
                 setIsApplyingClusterState();
+                currentRecorder = stopWatch;
                 applyChanges(previousClusterState, newClusterState, source, stopWatch);
                 TimeValue executionTime = getTimeSince(startTimeMillis);
                 logger.debug(
@@ -466,6 +470,7 @@ public class ClusterApplierService extends AbstractLifecycleComponent implements
                 assert applicationMayFail();
                 clusterApplyListener.onFailure(e);
             } finally {
+                currentRecorder = null;
                 clearIsApplyingClusterState();
             }
         }
@@ -664,6 +669,16 @@ public class ClusterApplierService extends AbstractLifecycleComponent implements
         return recordingService.getStats();
     }
 
+    /**
+     * Records the time spent in a part of the work of the applier that is currently applying a cluster state, so that it shows up in the
+     * {@link #getStats() stats} and the slow cluster state application warnings next to the time spent in each applier.
+     */
+    public Releasable recordApplierPart(String part) {
+        assert ThreadPool.assertCurrentThreadPool(CLUSTER_UPDATE_THREAD_NAME);
+        final Recorder recorder = currentRecorder;
+        return recorder == null ? () -> {} : recorder.recordPart(part);
+    }
+
     // Exposed only for testing
     public int getTimeoutClusterStateListenersSize() {
         return timeoutClusterStateListeners.size();
@@ -0,0 +1,271 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the "Elastic License
+ * 2.0", the "GNU Affero General Public License v3.0 only", and the "Server Side
+ * Public License v 1"; you may not use this file except in compliance with, at
+ * your election, the "Elastic License 2.0", the "GNU Affero General Public
+ * License v3.0 only", or the "Server Side Public License, v 1".
+ */
+
+package org.elasticsearch.common.blobstore.support;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.elasticsearch.common.Strings;
+import org.elasticsearch.common.blobstore.BlobContainer;
+import org.elasticsearch.common.blobstore.OperationPurpose;
+import org.elasticsearch.common.io.stream.ReleasableBytesStreamOutput;
+import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.core.Streams;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * An {@link InputStream} over a blob that reads it as consecutive ranges of {@code rangeSize} bytes, of which up to {@code concurrency}
+ * are read at once with {@link BlobContainer#readBlob(OperationPurpose, String, long, long)} while the consumer works through the
+ * stream in order. A single stream over a large blob rarely uses more than a fraction of the bandwidth to the blob store, but several
+ * concurrent range reads usually do.
+ * <p>
+ * The ranges ahead of the one that is being consumed are read on the given executor, and the consuming thread reads any range that
+ * hasn't started by the time it needs it itself, so this stream makes progress even if the executor is busy with the consumer. Each
+ * range is buffered in pages from {@link BigArrays} until it has been consumed, so a stream holds at most {@code concurrency} ranges.
+ * How many ranges were read, and how many of them ahead of the consumer, is logged at {@code TRACE} when the stream is closed.
+ */
+public class ParallelRangeInputStream extends InputStream {
+
+    private static final Logger logger = LogManager.getLogger(ParallelRangeInputStream.class);
+
+    private final BlobContainer container;
+    private final OperationPurpose purpose;
+    private final String blobName;
+    private final long length;
+    private final long rangeSize;
+    private final int concurrency;
+    private final Executor executor;
+    private final BigArrays bigArrays;
+    private final Range[] ranges;
+    private final AtomicInteger rangesRead = new AtomicInteger();
+    private final AtomicInteger rangesReadAhead = new AtomicInteger();
+    private final AtomicLong bytesRead = new AtomicLong();
+
+    private int nextRange;
+    private int nextRangeToRead;
+    private Range currentRange;
+    private InputStream currentStream;
+    private boolean closed;
+
+    public ParallelRangeInputStream(
+        BlobContainer container,
+        OperationPurpose purpose,
+        String blobName,
+        long length,
+        long rangeSize,
+        int concurrency,
+        Executor executor,
+        BigArrays bigArrays
+    ) {
+        if (rangeSize <= 0) {
+            throw new IllegalArgumentException("range size must be positive but was [" + rangeSize + "]");
+        }
+        if (concurrency < 1) {
+            throw new IllegalArgumentException("concurrency must be at least 1 but was [" + concurrency + "]");
+        }
+        this.container = container;
+        this.purpose = purpose;
+        this.blobName = blobName;
+        this.length = length;
+        this.rangeSize = rangeSize;
+        this.concurrency = concurrency;
+        this.executor = executor;
+        this.bigArrays = bigArrays;
+        this.ranges = new Range[Math.toIntExact(length == 0L ? 0L : 1L + (length - 1L) / rangeSize)];
+    }
+
+    @Override
+    public int read() throws IOException {
+        final InputStream stream = currentStream();
+        return stream == null ? -1 : stream.read();
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        final InputStream stream = currentStream();
+        return stream == null ? -1 : stream.read(b, off, len);
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        final InputStream stream = currentStream();
+        return stream == null ? 0L : stream.skip(n);
+    }
+
+    @Override
+    public int available() throws IOException {
+        return currentStream == null ? 0 : currentStream.available();
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    private InputStream currentStream() throws IOException {
+        if (closed) {
+            throw new IOException("stream is closed");
+        }
+        while (currentStream == null || currentStream.available() == 0) {
+            if (currentRange != null) {
+                currentRange.release();
+                currentRange = null;
+                currentStream = null;
+            }
+            if (nextRange == ranges.length) {
+                return null;
+            }
+            currentRange = openRange(nextRange++);
+            currentStream = currentRange.buffer.bytes().streamInput();
+        }
+        return currentStream;
+    }
+
+    private Range openRange(int index) throws IOException {
+        // keep up to concurrency ranges in flight, including the one we are about to consume
+        while (nextRangeToRead < ranges.length && nextRangeToRead < index + concurrency) {
+            final long position = nextRangeToRead * rangeSize;
+            final Range range = new Range(position, Math.min(rangeSize, length - position));
+            ranges[nextRangeToRead] = range;
+            if (nextRangeToRead > index) {
+                try {
+                    executor.execute(() -> range.readIfNotStarted(true));
+                } catch (RejectedExecutionException e) {
+                    // the consumer reads the range itself when it gets there
+                    logger.trace("read ahead of [{}] at [{}] was rejected", blobName, position);
+                }
+            }
+            nextRangeToRead++;
+        }
+        final Range range = ranges[index];
+        ranges[index] = null;
+        range.readOrAwait();
+        return range;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (currentRange != null) {
+            currentRange.release();
+            currentRange = null;
+            currentStream = null;
+        }
+        for (int i = nextRange; i < nextRangeToRead; i++) {
+            ranges[i].cancelOrAwait();
+            ranges[i] = null;
+        }
+        logger.trace(
+            "read [{}] of [{}] ranges of [{}] ([{}] bytes), [{}] of them ahead of the consumer",
+            rangesRead.get(),
+            ranges.length,
+            blobName,
+            bytesRead.get(),
+            rangesReadAhead.get()
+        );
+    }
+
+    private final class Range {
+        private final long position;
+        private final long length;
+        private final AtomicBoolean started = new AtomicBoolean();
+        private final CountDownLatch done = new CountDownLatch(1);
+        private volatile ReleasableBytesStreamOutput buffer;
+        private volatile Exception failure;
+
+        Range(long position, long length) {
+            this.position = position;
+            this.length = length;
+        }
+
+        void readIfNotStarted(boolean ahead) {
+            if (started.compareAndSet(false, true)) {
+                final ReleasableBytesStreamOutput output = new ReleasableBytesStreamOutput(bigArrays);
+                boolean success = false;
+                try (InputStream stream = container.readBlob(purpose, blobName, position, length)) {
+                    final long read = Streams.copy(stream, output, false);
+                    if (read != length) {
+                        throw new EOFException(
+                            Strings.format("expected [%d] bytes at [%d] of blob [%s] but read [%d]", length, position, blobName, read)
+                        );
+                    }
+                    buffer = output;
+                    success = true;
+                    rangesRead.incrementAndGet();
+                    bytesRead.addAndGet(read);
+                    if (ahead) {
+                        rangesReadAhead.incrementAndGet();
+                    }
+                } catch (Exception e) {
+                    failure = e;
+                } finally {
+                    if (success == false) {
+                        output.close();
+                    }
+                    done.countDown();
+                }
+            }
+        }
+
+        void readOrAwait() throws IOException {
+            readIfNotStarted(false);
+            awaitUninterruptibly();
+            if (failure != null) {
+                if (failure instanceof IOException ioException) {
+                    throw ioException;
+                }
+                throw new IOException("failed to read [" + blobName + "] at [" + position + "]", failure);
+            }
+        }
+
+        void cancelOrAwait() {
+            if (started.compareAndSet(false, true)) {
+                done.countDown();
+            } else {
+                awaitUninterruptibly();
+                release();
+            }
+        }
+
+        void release() {
+            final ReleasableBytesStreamOutput output = buffer;
+            if (output != null) {
+                buffer = null;
+                output.close();
+            }
+        }
+
+        private void awaitUninterruptibly() {
+            boolean interrupted = false;
+            while (true) {
+                try {
+                    done.await();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
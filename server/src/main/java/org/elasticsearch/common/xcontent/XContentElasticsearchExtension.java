@@ -14,6 +14,7 @@ import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.time.DateFormatter;
 import org.elasticsearch.common.unit.ByteSizeValue;
 import org.elasticsearch.core.TimeValue;
+import org.elasticsearch.ingest.LazySourceMap;
 import org.elasticsearch.xcontent.XContentBuilder;
 import org.elasticsearch.xcontent.XContentBuilderExtension;
 
@@ -88,6 +89,8 @@ public class XContentElasticsearchExtension implements XContentBuilderExtension
                 b.value(bytes.bytes, bytes.offset, bytes.length);
             }
         });
+
+        writers.put(LazySourceMap.class, (b, v) -> ((LazySourceMap) v).toXContent(b));
         return writers;
     }
 
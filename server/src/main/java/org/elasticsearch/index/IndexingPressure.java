@@ -79,6 +79,16 @@ public class IndexingPressure {
         Setting.Property.NodeScope
     );
 
+    /**
+     * The size at which an incremental bulk sends the items it parsed so far even if there is no memory pressure, so that they are
+     * indexed while the rest of the request body is still being received and parsed.
+     */
+    public static final Setting<ByteSizeValue> SPLIT_BULK_STREAMING_SIZE = Setting.byteSizeSetting(
+        "indexing_pressure.memory.split_bulk.streaming.bulk_size",
+        ByteSizeValue.ofMb(2),
+        Setting.Property.NodeScope
+    );
+
     private static final Logger logger = LogManager.getLogger(IndexingPressure.class);
 
     private final AtomicLong currentCombinedCoordinatingAndPrimaryBytes = new AtomicLong(0);
@@ -109,6 +119,7 @@ public class IndexingPressure {
     private final long lowWatermarkSize;
     private final long highWatermark;
     private final long highWatermarkSize;
+    private final long streamingSize;
     private final long coordinatingLimit;
     private final long primaryLimit;
     private final long replicaLimit;
@@ -118,6 +129,7 @@ public class IndexingPressure {
         this.lowWatermarkSize = SPLIT_BULK_LOW_WATERMARK_SIZE.get(settings).getBytes();
         this.highWatermark = SPLIT_BULK_HIGH_WATERMARK.get(settings).getBytes();
         this.highWatermarkSize = SPLIT_BULK_HIGH_WATERMARK_SIZE.get(settings).getBytes();
+        this.streamingSize = SPLIT_BULK_STREAMING_SIZE.get(settings).getBytes();
         this.coordinatingLimit = MAX_COORDINATING_BYTES.get(settings).getBytes();
         this.primaryLimit = MAX_PRIMARY_BYTES.get(settings).getBytes();
         this.replicaLimit = MAX_REPLICA_BYTES.get(settings).getBytes();
@@ -268,6 +280,10 @@ public class IndexingPressure {
         return (currentUsage >= lowWatermark && size >= lowWatermarkSize) || (currentUsage >= highWatermark && size >= highWatermarkSize);
     }
 
+    public boolean shouldStreamBulk(long size) {
+        return size >= streamingSize;
+    }
+
     public IndexingPressureStats stats() {
         // TODO: Update stats with new primary/replica/coordinating limits and add throttling stats
         return new IndexingPressureStats(
@@ -0,0 +1,362 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the "Elastic License
+ * 2.0", the "GNU Affero General Public License v3.0 only", and the "Server Side
+ * Public License v 1"; you may not use this file except in compliance with, at
+ * your election, the "Elastic License 2.0", the "GNU Affero General Public
+ * License v3.0 only", or the "Server Side Public License, v 1".
+ */
+
+package org.elasticsearch.index.engine;
+
+import org.apache.lucene.util.ArrayUtil;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.RamUsageEstimator;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A thread safe map from {@link BytesRef} to values that doesn't allocate any objects per entry. The keys are copied into a
+ * shared {@code byte[]} and the entries are found through open addressing, which saves the {@link BytesRef}, its array header and
+ * the hash table node that a {@link java.util.concurrent.ConcurrentHashMap} would keep for every key. Every operation locks one of a
+ * fixed number of segments that is picked by the key's hash. {@link #entrySet()} returns a point in time copy of the entries.
+ */
+public final class CompactBytesRefMap<V> extends AbstractMap<BytesRef, V> {
+
+    /**
+     * Bytes used per entry on top of the key's bytes and the value itself. The hash table is between a quarter and half full so
+     * takes three slots per entry on average, then the hash, the key's offset and length and the reference to the value.
+     */
+    public static final long BYTES_PER_ENTRY = 3 * Integer.BYTES + 3 * Integer.BYTES + RamUsageEstimator.NUM_BYTES_OBJECT_REF;
+
+    private static final int SEGMENTS = Math.min(
+        64,
+        Integer.highestOneBit(Math.max(Runtime.getRuntime().availableProcessors() * 2, 16))
+    );
+    private static final int SEGMENT_SHIFT = Integer.SIZE - Integer.numberOfTrailingZeros(SEGMENTS);
+    private static final int MIN_CAPACITY = 8;
+
+    private final Segment<V>[] segments;
+
+    public CompactBytesRefMap() {
+        this(0);
+    }
+
+    /**
+     * @param expectedSize the number of entries the map is expected to hold. The segments only allocate their tables on the first
+     *                     insertion so empty maps are cheap regardless of this.
+     */
+    @SuppressWarnings("unchecked")
+    public CompactBytesRefMap(int expectedSize) {
+        final int segmentCapacity = Math.max(MIN_CAPACITY, expectedSize / SEGMENTS);
+        segments = new Segment[SEGMENTS];
+        for (int i = 0; i < segments.length; i++) {
+            segments[i] = new Segment<>(segmentCapacity);
+        }
+    }
+
+    private Segment<V> segment(int hash) {
+        return segments[hash >>> SEGMENT_SHIFT];
+    }
+
+    @Override
+    public V get(Object key) {
+        if (key instanceof BytesRef bytesRef) {
+            final int hash = bytesRef.hashCode();
+            return segment(hash).get(bytesRef, hash);
+        }
+        return null;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return get(key) != null;
+    }
+
+    @Override
+    public V put(BytesRef key, V value) {
+        if (value == null) {
+            throw new IllegalArgumentException("null values are not supported");
+        }
+        final int hash = key.hashCode();
+        return segment(hash).put(key, hash, value);
+    }
+
+    @Override
+    public V remove(Object key) {
+        if (key instanceof BytesRef bytesRef) {
+            final int hash = bytesRef.hashCode();
+            return segment(hash).remove(bytesRef, hash);
+        }
+        return null;
+    }
+
+    @Override
+    public int size() {
+        int size = 0;
+        for (Segment<V> segment : segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        for (Segment<V> segment : segments) {
+            if (segment.size() > 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void clear() {
+        for (Segment<V> segment : segments) {
+            segment.clear();
+        }
+    }
+
+    @Override
+    public Set<Entry<BytesRef, V>> entrySet() {
+        final List<Entry<BytesRef, V>> entries = new ArrayList<>();
+        for (Segment<V> segment : segments) {
+            segment.copyEntriesTo(entries);
+        }
+        return new AbstractSet<>() {
+            @Override
+            public Iterator<Entry<BytesRef, V>> iterator() {
+                return entries.iterator();
+            }
+
+            @Override
+            public int size() {
+                return entries.size();
+            }
+        };
+    }
+
+    private static final class Segment<V> {
+        private final int initialCapacity;
+
+        /** Index of the entry plus one for each slot, zero for empty slots. */
+        private int[] table;
+        private int[] hashes;
+        private int[] keyOffsets;
+        private int[] keyLengths;
+        private Object[] values;
+        private byte[] keys;
+        private int size;
+        private int keysUsed;
+        /** Bytes of {@link #keys} that belong to removed entries. */
+        private int keysGarbage;
+
+        Segment(int initialCapacity) {
+            this.initialCapacity = initialCapacity;
+        }
+
+        synchronized int size() {
+            return size;
+        }
+
+        @SuppressWarnings("unchecked")
+        synchronized V get(BytesRef key, int hash) {
+            final int slot = slot(key, hash);
+            return slot >= 0 ? (V) values[table[slot] - 1] : null;
+        }
+
+        @SuppressWarnings("unchecked")
+        synchronized V put(BytesRef key, int hash, V value) {
+            int slot = slot(key, hash);
+            if (slot >= 0) {
+                final int entry = table[slot] - 1;
+                final V previous = (V) values[entry];
+                values[entry] = value;
+                return previous;
+            }
+            if (table == null || (size + 1) * 2 > table.length) {
+                grow();
+                slot = slot(key, hash);
+            }
+            final int keyOffset = appendKey(key);
+            final int entry = size++;
+            if (entry == hashes.length) {
+                final int newLength = ArrayUtil.oversize(entry + 1, Integer.BYTES);
+                hashes = Arrays.copyOf(hashes, newLength);
+                keyOffsets = Arrays.copyOf(keyOffsets, newLength);
+                keyLengths = Arrays.copyOf(keyLengths, newLength);
+                values = Arrays.copyOf(values, newLength);
+            }
+            hashes[entry] = hash;
+            keyOffsets[entry] = keyOffset;
+            keyLengths[entry] = key.length;
+            values[entry] = value;
+            table[-slot - 1] = entry + 1;
+            return null;
+        }
+
+        @SuppressWarnings("unchecked")
+        synchronized V remove(BytesRef key, int hash) {
+            final int slot = slot(key, hash);
+            if (slot < 0) {
+                return null;
+            }
+            final int entry = table[slot] - 1;
+            final V previous = (V) values[entry];
+            keysGarbage += keyLengths[entry];
+            deleteSlot(slot);
+            final int last = --size;
+            if (entry != last) {
+                // Keep the entries dense by moving the last one into the hole
+                table[slotOfEntry(last)] = entry + 1;
+                hashes[entry] = hashes[last];
+                keyOffsets[entry] = keyOffsets[last];
+                keyLengths[entry] = keyLengths[last];
+                values[entry] = values[last];
+            }
+            values[last] = null;
+            if (size == 0) {
+                keysUsed = 0;
+                keysGarbage = 0;
+            } else if (keysGarbage > keysUsed / 2) {
+                compactKeys();
+            }
+            return previous;
+        }
+
+        synchronized void clear() {
+            table = null;
+            hashes = null;
+            keyOffsets = null;
+            keyLengths = null;
+            values = null;
+            keys = null;
+            size = 0;
+            keysUsed = 0;
+            keysGarbage = 0;
+        }
+
+        @SuppressWarnings("unchecked")
+        synchronized void copyEntriesTo(List<Entry<BytesRef, V>> entries) {
+            for (int i = 0; i < size; i++) {
+                final BytesRef key = new BytesRef(Arrays.copyOfRange(keys, keyOffsets[i], keyOffsets[i] + keyLengths[i]));
+                entries.add(new SimpleImmutableEntry<>(key, (V) values[i]));
+            }
+        }
+
+        /**
+         * Returns the slot that holds the key if it is present, or {@code -slot - 1} for the empty slot it would be inserted at.
+         */
+        private int slot(BytesRef key, int hash) {
+            if (table == null) {
+                return -1;
+            }
+            final int mask = table.length - 1;
+            int slot = hash & mask;
+            while (true) {
+                final int entry = table[slot] - 1;
+                if (entry < 0) {
+                    return -slot - 1;
+                }
+                if (hashes[entry] == hash
+                    && Arrays.equals(
+                        keys,
+                        keyOffsets[entry],
+                        keyOffsets[entry] + keyLengths[entry],
+                        key.bytes,
+                        key.offset,
+                        key.offset + key.length
+                    )) {
+                    return slot;
+                }
+                slot = (slot + 1) & mask;
+            }
+        }
+
+        private int slotOfEntry(int entry) {
+            final int mask = table.length - 1;
+            int slot = hashes[entry] & mask;
+            while (table[slot] != entry + 1) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+
+        /**
+         * Empties the slot, shifting back the entries that probed past it so that lookups don't need tombstones.
+         */
+        private void deleteSlot(int slot) {
+            final int mask = table.length - 1;
+            int hole = slot;
+            int next = slot;
+            while (true) {
+                next = (next + 1) & mask;
+                final int entry = table[next] - 1;
+                if (entry < 0) {
+                    break;
+                }
+                final int ideal = hashes[entry] & mask;
+                final boolean reachableWithoutHole = hole <= next ? (hole < ideal && ideal <= next) : (hole < ideal || ideal <= next);
+                if (reachableWithoutHole == false) {
+                    table[hole] = table[next];
+                    hole = next;
+                }
+            }
+            table[hole] = 0;
+        }
+
+        private void grow() {
+            if (table == null) {
+                final int capacity = Integer.highestOneBit(initialCapacity - 1) << 2;
+                table = new int[capacity];
+                hashes = new int[initialCapacity];
+                keyOffsets = new int[initialCapacity];
+                keyLengths = new int[initialCapacity];
+                values = new Object[initialCapacity];
+                keys = new byte[initialCapacity * 16];
+                return;
+            }
+            table = new int[table.length << 1];
+            final int mask = table.length - 1;
+            for (int entry = 0; entry < size; entry++) {
+                int slot = hashes[entry] & mask;
+                while (table[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                table[slot] = entry + 1;
+            }
+        }
+
+        private int appendKey(BytesRef key) {
+            if (keysUsed + key.length > keys.length) {
+                if (keysGarbage > 0) {
+                    compactKeys();
+                }
+                keys = ArrayUtil.grow(keys, keysUsed + key.length);
+            }
+            final int offset = keysUsed;
+            System.arraycopy(key.bytes, key.offset, keys, offset, key.length);
+            keysUsed += key.length;
+            return offset;
+        }
+
+        private void compactKeys() {
+            final byte[] compacted = new byte[Math.max(keysUsed - keysGarbage, initialCapacity * 16)];
+            int used = 0;
+            for (int entry = 0; entry < size; entry++) {
+                System.arraycopy(keys, keyOffsets[entry], compacted, used, keyLengths[entry]);
+                keyOffsets[entry] = used;
+                used += keyLengths[entry];
+            }
+            keys = compacted;
+            keysUsed = used;
+            keysGarbage = 0;
+        }
+    }
+}
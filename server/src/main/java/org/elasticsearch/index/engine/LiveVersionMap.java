@@ -65,13 +65,13 @@ public final class LiveVersionMap implements ReferenceManager.RefreshListener, A
 
         // Modifies the map of this instance by merging with the given VersionLookup
         public void merge(VersionLookup versionLookup) {
-            long existingEntriesSize = 0;
+            long ramAccounting = 0;
             for (var entry : versionLookup.map.entrySet()) {
-                var existingValue = map.get(entry.getKey());
-                existingEntriesSize += existingValue == null ? 0 : mapEntryBytesUsed(entry.getKey(), existingValue);
+                var existingValue = map.put(entry.getKey(), entry.getValue());
+                ramAccounting += entryBytesUsed(entry.getKey(), entry.getValue());
+                ramAccounting -= existingValue == null ? 0 : entryBytesUsed(entry.getKey(), existingValue);
             }
-            map.putAll(versionLookup.map);
-            adjustRamUsage(versionLookup.ramBytesUsed() - existingEntriesSize);
+            adjustRamUsage(ramAccounting);
             minDeleteTimestamp.accumulateAndGet(versionLookup.minDeleteTimestamp(), Math::min);
         }
 
@@ -85,9 +85,9 @@ public final class LiveVersionMap implements ReferenceManager.RefreshListener, A
         }
 
         VersionValue put(BytesRef key, VersionValue value) {
-            long ramAccounting = mapEntryBytesUsed(key, value);
+            long ramAccounting = entryBytesUsed(key, value);
             VersionValue previousValue = map.put(key, value);
-            ramAccounting += previousValue == null ? 0 : -mapEntryBytesUsed(key, previousValue);
+            ramAccounting += previousValue == null ? 0 : -entryBytesUsed(key, previousValue);
             adjustRamUsage(ramAccounting);
             return previousValue;
         }
@@ -111,7 +111,7 @@ public final class LiveVersionMap implements ReferenceManager.RefreshListener, A
         VersionValue remove(BytesRef uid) {
             VersionValue previousValue = map.remove(uid);
             if (previousValue != null) {
-                adjustRamUsage(-mapEntryBytesUsed(uid, previousValue));
+                adjustRamUsage(-entryBytesUsed(uid, previousValue));
             }
             return previousValue;
         }
@@ -139,6 +139,14 @@ public final class LiveVersionMap implements ReferenceManager.RefreshListener, A
             return (BASE_BYTES_PER_BYTESREF + key.bytes.length) + (BASE_BYTES_PER_CHM_ENTRY + value.ramBytesUsed());
         }
 
+        private long entryBytesUsed(BytesRef key, VersionValue value) {
+            if (map instanceof CompactBytesRefMap) {
+                // the key is copied into the map so only its length counts
+                return CompactBytesRefMap.BYTES_PER_ENTRY + key.length + value.ramBytesUsed();
+            }
+            return mapEntryBytesUsed(key, value);
+        }
+
         // Used only for testing
         Map<BytesRef, VersionValue> getMap() {
             return map;
@@ -165,7 +173,7 @@ public final class LiveVersionMap implements ReferenceManager.RefreshListener, A
         }
 
         Maps() {
-            this(new VersionLookup(ConcurrentCollections.newConcurrentMapWithAggressiveConcurrency()), VersionLookup.EMPTY, false);
+            this(new VersionLookup(new CompactBytesRefMap<>()), VersionLookup.EMPTY, false);
         }
 
         boolean isSafeAccessMode() {
@@ -184,7 +192,7 @@ public final class LiveVersionMap implements ReferenceManager.RefreshListener, A
          */
         Maps buildTransitionMap() {
             return new Maps(
-                new VersionLookup(ConcurrentCollections.newConcurrentMapWithAggressiveConcurrency(current.size())),
+                new VersionLookup(new CompactBytesRefMap<>(current.size())),
                 current,
                 shouldInheritSafeAccess()
             );
@@ -17,6 +17,7 @@ import org.elasticsearch.index.IndexVersion;
 import org.elasticsearch.index.IndexVersions;
 
 import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
 
 public class DocumentMapper {
     private final String type;
@@ -25,6 +26,7 @@ public class DocumentMapper {
     private final DocumentParser documentParser;
     private final MapperMetrics mapperMetrics;
     private final IndexVersion indexVersion;
+    private final AtomicReference<ParsingPlan> parsingPlan = new AtomicReference<>(ParsingPlan.EMPTY);
 
     static final NodeFeature INDEX_SORTING_ON_NESTED = new NodeFeature("mapper.index_sorting_on_nested");
 
@@ -110,7 +112,11 @@ public class DocumentMapper {
     }
 
     public ParsedDocument parse(SourceToParse source) throws DocumentParsingException {
-        return documentParser.parseDocument(source, mappingLookup);
+        return documentParser.parseDocument(source, mappingLookup, parsingPlan);
+    }
+
+    ParsingPlan parsingPlan() {
+        return parsingPlan.get();
     }
 
     public void validate(IndexSettings settings, boolean checkLimits) {
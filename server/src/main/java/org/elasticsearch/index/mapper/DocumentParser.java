@@ -45,6 +45,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiFunction;
 import java.util.function.Consumer;
 
 import static org.elasticsearch.index.mapper.vectors.DenseVectorFieldMapper.MAX_DIMS_COUNT;
@@ -74,6 +76,21 @@ public final class DocumentParser {
      * @throws DocumentParsingException whenever there's a problem parsing the document
      */
     public ParsedDocument parseDocument(SourceToParse source, MappingLookup mappingLookup) throws DocumentParsingException {
+        return parseDocument(source, mappingLookup, null);
+    }
+
+    /**
+     * Parse a document, resolving the mappers of its fields along the given plan if its fields are in the same order as the
+     * previous document's, and updating the plan otherwise.
+     *
+     * @param source        the document to parse
+     * @param mappingLookup the mappings information needed to parse the document
+     * @param parsingPlan   the plan for the documents parsed with {@code mappingLookup}, or {@code null} to look up every field
+     * @return the parsed document
+     * @throws DocumentParsingException whenever there's a problem parsing the document
+     */
+    ParsedDocument parseDocument(SourceToParse source, MappingLookup mappingLookup, @Nullable AtomicReference<ParsingPlan> parsingPlan)
+        throws DocumentParsingException {
         if (source.source() != null && source.source().length() == 0) {
             throw new DocumentParsingException(new XContentLocation(0, 0), "failed to parse, document is empty");
         }
@@ -86,7 +103,13 @@ public final class DocumentParser {
                 XContentHelper.createParser(parserConfiguration, source.source(), xContentType)
             )
         ) {
-            context = new RootDocumentParserContext(mappingLookup, mappingParserContext, source, parser);
+            context = new RootDocumentParserContext(
+                mappingLookup,
+                mappingParserContext,
+                source,
+                parser,
+                parsingPlan == null ? null : parsingPlan.get()
+            );
             validateStart(context.parser());
             MetadataFieldMapper[] metadataFieldsMappers = mappingLookup.getMapping().getSortedMetadataMappers();
             internalParseDocument(metadataFieldsMappers, context);
@@ -99,6 +122,13 @@ public final class DocumentParser {
         }
         assert context.path.pathAsText("").isEmpty() : "found leftover path elements: " + context.path.pathAsText("");
 
+        if (parsingPlan != null) {
+            ParsingPlan nextPlan = context.parsingPlan.build();
+            if (nextPlan != null) {
+                parsingPlan.set(nextPlan);
+            }
+        }
+
         Mapping dynamicUpdate = createDynamicUpdate(context);
 
         return new ParsedDocument(
@@ -184,7 +214,8 @@ public final class DocumentParser {
                 context.mappingLookup(),
                 mappingParserContext,
                 context.sourceToParse(),
-                parser
+                parser,
+                null
             );
             var nameValues = parseDocForMissingValues(newContext, fields);
             for (var nameValue : nameValues) {
@@ -469,6 +500,7 @@ public final class DocumentParser {
     private static void innerParseObject(DocumentParserContext context) throws IOException {
 
         final XContentParser parser = context.parser();
+        final ParsingPlan.Cursor parsingPlan = context.parsingPlan();
         XContentParser.Token token = parser.currentToken();
         String currentFieldName = null;
         assert token == XContentParser.Token.FIELD_NAME || token == XContentParser.Token.END_OBJECT;
@@ -485,6 +517,9 @@ public final class DocumentParser {
                     if (currentFieldName.isBlank()) {
                         throwFieldNameBlank(context, currentFieldName);
                     }
+                    if (parsingPlan != null) {
+                        parsingPlan.nextField(currentFieldName, context.path().length());
+                    }
                     break;
                 case START_OBJECT:
                     parseObject(context, currentFieldName);
@@ -628,7 +663,7 @@ public final class DocumentParser {
 
     private static void parseObject(final DocumentParserContext context, String currentFieldName) throws IOException {
         assert currentFieldName != null;
-        Mapper objectMapper = context.getMapper(currentFieldName);
+        Mapper objectMapper = getPlannedMapper(context, currentFieldName, DocumentParserContext::getMapper);
         if (objectMapper != null) {
             doParseObject(context, currentFieldName, objectMapper);
         } else {
@@ -1020,6 +1055,29 @@ public final class DocumentParser {
     // if no mapper is found, checks to see if a runtime field with the specified
     // field name exists and if so returns a no-op mapper to prevent indexing
     private static Mapper getLeafMapper(final DocumentParserContext context, String fieldName) {
+        return getPlannedMapper(context, fieldName, DocumentParser::lookupLeafMapper);
+    }
+
+    // takes the mapper of the current field from the parsing plan if it has one, and looks it up otherwise
+    private static Mapper getPlannedMapper(
+        final DocumentParserContext context,
+        String fieldName,
+        BiFunction<DocumentParserContext, String, Mapper> lookup
+    ) {
+        final ParsingPlan.Cursor parsingPlan = context.parsingPlan();
+        if (parsingPlan == null) {
+            return lookup.apply(context, fieldName);
+        }
+        final int depth = context.path().length();
+        Mapper mapper = parsingPlan.mapper(fieldName, depth);
+        if (mapper == null) {
+            mapper = lookup.apply(context, fieldName);
+            parsingPlan.resolved(fieldName, depth, mapper);
+        }
+        return mapper;
+    }
+
+    private static Mapper lookupLeafMapper(final DocumentParserContext context, String fieldName) {
         Mapper mapper = context.getMapper(fieldName);
         if (mapper != null) {
             return mapper;
@@ -1153,6 +1211,7 @@ public final class DocumentParser {
         private final LuceneDocument document;
         private final List<LuceneDocument> documents = new ArrayList<>();
         private final long maxAllowedNumNestedDocs;
+        private final ParsingPlan.Cursor parsingPlan;
         private long numNestedDocs;
         private boolean docsReversed = false;
 
@@ -1160,7 +1219,8 @@ public final class DocumentParser {
             MappingLookup mappingLookup,
             MappingParserContext mappingParserContext,
             SourceToParse source,
-            XContentParser parser
+            XContentParser parser,
+            @Nullable ParsingPlan parsingPlan
         ) throws IOException {
             super(
                 mappingLookup,
@@ -1178,6 +1238,12 @@ public final class DocumentParser {
             this.documents.add(document);
             this.maxAllowedNumNestedDocs = indexSettings().getMappingNestedDocsLimit();
             this.numNestedDocs = 0L;
+            this.parsingPlan = parsingPlan == null ? null : parsingPlan.cursor();
+        }
+
+        @Override
+        ParsingPlan.Cursor parsingPlan() {
+            return parsingPlan;
         }
 
         @Override
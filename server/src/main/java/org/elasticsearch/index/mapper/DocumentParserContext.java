@@ -14,6 +14,7 @@ import org.apache.lucene.document.StringField;
 import org.apache.lucene.index.IndexableField;
 import org.apache.lucene.util.BytesRef;
 import org.elasticsearch.common.time.DateFormatter;
+import org.elasticsearch.core.Nullable;
 import org.elasticsearch.core.Tuple;
 import org.elasticsearch.index.IndexMode;
 import org.elasticsearch.index.IndexSettings;
@@ -60,6 +61,11 @@ public abstract class DocumentParserContext {
             return in.isWithinCopyTo();
         }
 
+        @Override
+        ParsingPlan.Cursor parsingPlan() {
+            return in.parsingPlan();
+        }
+
         @Override
         public ContentPath path() {
             return in.path();
@@ -667,6 +673,16 @@ public abstract class DocumentParserContext {
         return false;
     }
 
+    /**
+     * The plan to resolve the mappers of the fields this context parses along, {@code null} to look up every field. The contexts
+     * of objects and nested documents follow the plan of the document they are in, while the fields that are copied to with
+     * {@code copy_to} are always looked up.
+     */
+    @Nullable
+    ParsingPlan.Cursor parsingPlan() {
+        return null;
+    }
+
     public final DocumentParserContext createChildContext(ObjectMapper parent) {
         return new Wrapper(parent, this);
     }
@@ -736,6 +752,11 @@ public abstract class DocumentParserContext {
                 return true;
             }
 
+            @Override
+            ParsingPlan.Cursor parsingPlan() {
+                return null;
+            }
+
             @Override
             public LuceneDocument doc() {
                 return doc;
@@ -131,6 +131,15 @@ public final class Mapping implements ToXContentFragment {
         return root.syntheticFieldLoader(stream);
     }
 
+    /**
+     * Merges another dynamic mapping update into this one, so that both can be sent to the master as a single update.
+     *
+     * @throws IllegalArgumentException if the updates conflict, for instance because they map the same field differently
+     */
+    public Mapping mergeDynamicUpdate(Mapping update) {
+        return merge(update, MergeReason.MAPPING_AUTO_UPDATE, Long.MAX_VALUE);
+    }
+
     /**
      * Merges a new mapping into the existing one.
      *
@@ -0,0 +1,162 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the "Elastic License
+ * 2.0", the "GNU Affero General Public License v3.0 only", and the "Server Side
+ * Public License v 1"; you may not use this file except in compliance with, at
+ * your election, the "Elastic License 2.0", the "GNU Affero General Public
+ * License v3.0 only", or the "Server Side Public License, v 1".
+ */
+
+package org.elasticsearch.index.mapper;
+
+import org.apache.lucene.util.ArrayUtil;
+import org.elasticsearch.common.Strings;
+import org.elasticsearch.core.Nullable;
+
+/**
+ * The fields of the last document that was parsed with a {@link DocumentMapper}, in the order they appear in the document and
+ * together with the depth of the object they are in and the mappers {@link DocumentParser} resolved for them. Log-like documents
+ * usually have the same fields in the same order, so the mappers of the next document can be taken from the plan by position instead
+ * of looking up the metadata mappers, the objects' mappers and the runtime fields for every field. The fields of objects, including
+ * the ones that dotted field names like ECS's {@code host.name} are expanded to, are part of the plan too: as long as the names and
+ * depths of all the fields before them match the plan, a field is at the same path as the one the plan has at its position. A field
+ * that isn't where the plan expects it is looked up as usual, and the plan is then replaced by one that follows the new document.
+ * Plans belong to a {@link DocumentMapper}, so a mapping update starts a new one.
+ */
+final class ParsingPlan {
+
+    static final ParsingPlan EMPTY = new ParsingPlan(Strings.EMPTY_ARRAY, new int[0], new Mapper[0], 0);
+
+    /**
+     * The maximum number of fields a plan covers, the fields that come after these are looked up as usual.
+     */
+    static final int MAX_FIELDS = 1024;
+
+    private final String[] fieldNames;
+    /** The number of objects each field is in. */
+    private final int[] depths;
+    /** The mapper resolved for each field, {@code null} for fields that aren't mapped. */
+    private final Mapper[] mappers;
+    private final int size;
+
+    private ParsingPlan(String[] fieldNames, int[] depths, Mapper[] mappers, int size) {
+        this.fieldNames = fieldNames;
+        this.depths = depths;
+        this.mappers = mappers;
+        this.size = size;
+    }
+
+    int size() {
+        return size;
+    }
+
+    Cursor cursor() {
+        return new Cursor(this);
+    }
+
+    private boolean matches(int position, String fieldName, int depth) {
+        return position < size && depths[position] == depth && fieldName.equals(fieldNames[position]);
+    }
+
+    /**
+     * Follows the fields of a document that is being parsed along a plan. It only allocates once the document diverges from
+     * the plan, from then on it records the document's fields to build the next plan from.
+     */
+    static final class Cursor {
+        private final ParsingPlan plan;
+        private int position = -1;
+        private String[] fieldNames;
+        private int[] depths;
+        private Mapper[] mappers;
+
+        private Cursor(ParsingPlan plan) {
+            this.plan = plan;
+        }
+
+        /**
+         * Moves on to the next field of the document.
+         *
+         * @param depth the number of objects the field is in, {@code 0} for the fields at the root of the document
+         */
+        void nextField(String fieldName, int depth) {
+            position++;
+            if (position >= MAX_FIELDS) {
+                return;
+            }
+            if (fieldNames == null) {
+                if (plan.matches(position, fieldName, depth)) {
+                    return;
+                }
+                diverge(position);
+            }
+            if (position >= fieldNames.length) {
+                fieldNames = ArrayUtil.grow(fieldNames, position + 1);
+                depths = ArrayUtil.grow(depths, position + 1);
+                mappers = ArrayUtil.grow(mappers, position + 1);
+            }
+            fieldNames[position] = fieldName;
+            depths[position] = depth;
+            mappers[position] = null;
+        }
+
+        /**
+         * Returns the mapper the plan has for the current field, or {@code null} if it has to be looked up. The field has to be
+         * looked up too if it isn't the current field, like the field of an array of objects once the cursor moved on to the fields
+         * of its first object.
+         */
+        @Nullable
+        Mapper mapper(String fieldName, int depth) {
+            if (fieldNames == null && position >= 0 && plan.matches(position, fieldName, depth)) {
+                return plan.mappers[position];
+            }
+            return null;
+        }
+
+        /**
+         * Records the mapper that was looked up for the current field.
+         */
+        void resolved(String fieldName, int depth, @Nullable Mapper mapper) {
+            if (position < 0 || position >= MAX_FIELDS || mapper == null) {
+                return;
+            }
+            if (fieldNames == null) {
+                if (plan.matches(position, fieldName, depth) == false) {
+                    return;
+                }
+                // The plan had no mapper for this field, e.g. because it wasn't mapped yet in the previous document
+                diverge(position + 1);
+            } else if (depths[position] != depth || fieldName.equals(fieldNames[position]) == false) {
+                return;
+            }
+            mappers[position] = mapper;
+        }
+
+        /**
+         * Returns the plan to parse the next documents with, or {@code null} if this document followed the current one.
+         */
+        @Nullable
+        ParsingPlan build() {
+            final int fields = Math.min(position + 1, MAX_FIELDS);
+            if (fieldNames == null) {
+                if (fields == plan.size) {
+                    return null;
+                }
+                diverge(fields);
+            }
+            return new ParsingPlan(fieldNames, depths, mappers, fields);
+        }
+
+        /**
+         * Starts recording the document's fields, copying the given number of fields it shares with the plan.
+         */
+        private void diverge(int matchingFields) {
+            final int capacity = Math.min(MAX_FIELDS, Math.max(plan.size, position + 1));
+            fieldNames = new String[Math.max(capacity, 1)];
+            depths = new int[fieldNames.length];
+            mappers = new Mapper[fieldNames.length];
+            System.arraycopy(plan.fieldNames, 0, fieldNames, 0, matchingFields);
+            System.arraycopy(plan.depths, 0, depths, 0, matchingFields);
+            System.arraycopy(plan.mappers, 0, mappers, 0, matchingFields);
+        }
+    }
+}
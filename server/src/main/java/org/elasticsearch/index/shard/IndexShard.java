@@ -936,7 +936,38 @@ public class IndexShard extends AbstractIndexShardComponent implements IndicesCl
             autoGeneratedTimestamp,
             isRetry,
             Engine.Operation.Origin.PRIMARY,
-            sourceToParse
+            sourceToParse,
+            null
+        );
+    }
+
+    /**
+     * Indexes a document on the primary that was already parsed with the current {@link DocumentMapper}, as is, instead of parsing
+     * its source.
+     */
+    public Engine.IndexResult applyIndexOperationOnPrimary(
+        long version,
+        VersionType versionType,
+        ParsedDocument parsedDoc,
+        long ifSeqNo,
+        long ifPrimaryTerm,
+        long autoGeneratedTimestamp,
+        boolean isRetry
+    ) throws IOException {
+        assert versionType.validateVersionForWrites(version);
+        return applyIndexOperation(
+            getEngine(),
+            UNASSIGNED_SEQ_NO,
+            getOperationPrimaryTerm(),
+            version,
+            versionType,
+            ifSeqNo,
+            ifPrimaryTerm,
+            autoGeneratedTimestamp,
+            isRetry,
+            Engine.Operation.Origin.PRIMARY,
+            null,
+            parsedDoc
         );
     }
 
@@ -959,7 +990,8 @@ public class IndexShard extends AbstractIndexShardComponent implements IndicesCl
             autoGeneratedTimeStamp,
             isRetry,
             Engine.Operation.Origin.REPLICA,
-            sourceToParse
+            sourceToParse,
+            null
         );
     }
 
@@ -974,27 +1006,45 @@ public class IndexShard extends AbstractIndexShardComponent implements IndicesCl
         long autoGeneratedTimeStamp,
         boolean isRetry,
         Engine.Operation.Origin origin,
-        SourceToParse sourceToParse
+        @Nullable SourceToParse sourceToParse,
+        @Nullable ParsedDocument parsedDoc
     ) throws IOException {
+        assert (sourceToParse == null) != (parsedDoc == null) : "either the source or the parsed document must be given";
         assert opPrimaryTerm <= getOperationPrimaryTerm()
             : "op term [ " + opPrimaryTerm + " ] > shard term [" + getOperationPrimaryTerm() + "]";
         ensureWriteAllowed(origin);
         Engine.Index operation;
         try {
-            operation = prepareIndex(
-                mapperService,
-                sourceToParse,
-                seqNo,
-                opPrimaryTerm,
-                version,
-                versionType,
-                origin,
-                autoGeneratedTimeStamp,
-                isRetry,
-                ifSeqNo,
-                ifPrimaryTerm,
-                getRelativeTimeInNanos()
-            );
+            if (parsedDoc == null) {
+                operation = prepareIndex(
+                    mapperService,
+                    sourceToParse,
+                    seqNo,
+                    opPrimaryTerm,
+                    version,
+                    versionType,
+                    origin,
+                    autoGeneratedTimeStamp,
+                    isRetry,
+                    ifSeqNo,
+                    ifPrimaryTerm,
+                    getRelativeTimeInNanos()
+                );
+            } else {
+                operation = newIndexOperation(
+                    parsedDoc,
+                    seqNo,
+                    opPrimaryTerm,
+                    version,
+                    versionType,
+                    origin,
+                    autoGeneratedTimeStamp,
+                    isRetry,
+                    ifSeqNo,
+                    ifPrimaryTerm,
+                    getRelativeTimeInNanos()
+                );
+            }
             Mapping update = operation.parsedDoc().dynamicMappingsUpdate();
             if (update != null) {
                 return new Engine.IndexResult(update, operation.parsedDoc().id());
@@ -1005,7 +1055,7 @@ public class IndexShard extends AbstractIndexShardComponent implements IndicesCl
             // can not raise an exception that may block any replication of previous operations to the
             // replicas
             verifyNotClosed(e);
-            return new Engine.IndexResult(e, version, opPrimaryTerm, seqNo, sourceToParse.id());
+            return new Engine.IndexResult(e, version, opPrimaryTerm, seqNo, parsedDoc == null ? sourceToParse.id() : parsedDoc.id());
         }
         return index(engine, operation);
     }
@@ -1048,6 +1098,34 @@ public class IndexShard extends AbstractIndexShardComponent implements IndicesCl
             // whether mappings were provided or not.
             doc.addDynamicMappingsUpdate(mapping);
         }
+        return newIndexOperation(
+            doc,
+            seqNo,
+            primaryTerm,
+            version,
+            versionType,
+            origin,
+            autoGeneratedIdTimestamp,
+            isRetry,
+            ifSeqNo,
+            ifPrimaryTerm,
+            startTimeInNanos
+        );
+    }
+
+    private static Engine.Index newIndexOperation(
+        ParsedDocument doc,
+        long seqNo,
+        long primaryTerm,
+        long version,
+        VersionType versionType,
+        Engine.Operation.Origin origin,
+        long autoGeneratedIdTimestamp,
+        boolean isRetry,
+        long ifSeqNo,
+        long ifPrimaryTerm,
+        long startTimeInNanos
+    ) {
         return new Engine.Index(
             Uid.encodeId(doc.id()),
             doc,
@@ -2014,7 +2092,8 @@ public class IndexShard extends AbstractIndexShardComponent implements IndicesCl
                     index.getAutoGeneratedIdTimestamp(),
                     true,
                     origin,
-                    new SourceToParse(index.id(), index.source(), XContentHelper.xContentType(index.source()), index.routing())
+                    new SourceToParse(index.id(), index.source(), XContentHelper.xContentType(index.source()), index.routing()),
+                    null
                 );
             }
             case DELETE -> {
@@ -96,6 +96,25 @@ public class BlobStoreIndexShardSnapshots implements Iterable<SnapshotFiles>, To
         );
     }
 
+    /**
+     * Creates a new list of the shard's snapshots ({@link BlobStoreIndexShardSnapshots}) adding all the shard snapshots of the given
+     * delta, in order. Typically used to read a shard generation that is stored as a delta on top of a base generation.
+     */
+    public BlobStoreIndexShardSnapshots withAddedSnapshots(BlobStoreIndexShardSnapshots delta) {
+        if (delta.shardSnapshots.isEmpty()) {
+            return this;
+        }
+        final Map<String, FileInfo> updatedFiles = new HashMap<>(files);
+        for (Map.Entry<String, FileInfo> entry : delta.files.entrySet()) {
+            final FileInfo known = updatedFiles.putIfAbsent(entry.getKey(), entry.getValue());
+            assert known == null || known.isSame(entry.getValue());
+        }
+        final List<SnapshotFiles> updatedSnapshots = new ArrayList<>(shardSnapshots.size() + delta.shardSnapshots.size());
+        updatedSnapshots.addAll(shardSnapshots);
+        updatedSnapshots.addAll(delta.shardSnapshots);
+        return new BlobStoreIndexShardSnapshots(updatedFiles, updatedSnapshots);
+    }
+
     /**
      * Create a new instance that has a new snapshot by name {@code target} added which shares all files with the snapshot of name
      * {@code source}.
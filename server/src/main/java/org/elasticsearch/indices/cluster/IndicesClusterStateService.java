@@ -42,6 +42,7 @@ import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.util.concurrent.AbstractRunnable;
 import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
 import org.elasticsearch.common.util.concurrent.EsExecutors;
+import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
 import org.elasticsearch.common.util.concurrent.ThreadContext;
 import org.elasticsearch.common.util.concurrent.ThrottledTaskRunner;
 import org.elasticsearch.core.Nullable;
@@ -88,7 +89,9 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 
@@ -114,6 +117,19 @@ public class IndicesClusterStateService extends AbstractLifecycleComponent imple
         Setting.Property.NodeScope
     );
 
+    /**
+     * The maximum number of threads, including the applier thread, that update the mappings of the indices that a cluster state creates
+     * or changes. Parsing and merging mappings is usually most of the work of applying a cluster state that creates many indices, e.g.
+     * after a full cluster restart or a mass rollover, and the mappings of different indices don't depend on each other.
+     */
+    public static final Setting<Integer> CONCURRENT_MAPPING_UPDATES_SETTING = Setting.intSetting(
+        "indices.cluster_state.concurrent_mapping_updates",
+        s -> Integer.toString(Math.min(EsExecutors.NODE_PROCESSORS_SETTING.get(s).roundUp(), 4)),
+        1,
+        64,
+        Setting.Property.NodeScope
+    );
+
     final AllocatedIndices<? extends Shard, ? extends AllocatedIndex<? extends Shard>> indicesService;
     private final ClusterService clusterService;
     private final ThreadPool threadPool;
@@ -135,6 +151,7 @@ public class IndicesClusterStateService extends AbstractLifecycleComponent imple
     private final NodeClient client;
     private final TimeValue shardLockRetryInterval;
     private final TimeValue shardLockRetryTimeout;
+    private final int concurrentMappingUpdates;
 
     private final Executor shardCloseExecutor;
 
@@ -200,6 +217,7 @@ public class IndicesClusterStateService extends AbstractLifecycleComponent imple
         this.client = client;
         this.shardLockRetryInterval = SHARD_LOCK_RETRY_INTERVAL_SETTING.get(settings);
         this.shardLockRetryTimeout = SHARD_LOCK_RETRY_TIMEOUT_SETTING.get(settings);
+        this.concurrentMappingUpdates = CONCURRENT_MAPPING_UPDATES_SETTING.get(settings);
         this.shardCloseExecutor = new ShardCloseExecutor(settings, threadPool.generic());
     }
 
@@ -297,13 +315,25 @@ public class IndicesClusterStateService extends AbstractLifecycleComponent imple
 
         updateFailedShardsCache(state);
 
-        deleteIndices(event); // also deletes shards of deleted indices
+        try (var ignored = recordApplierPart("delete indices")) {
+            deleteIndices(event); // also deletes shards of deleted indices
+        }
 
-        removeIndicesAndShards(event); // also removes shards of removed indices
+        try (var ignored = recordApplierPart("remove indices and shards")) {
+            removeIndicesAndShards(event); // also removes shards of removed indices
+        }
 
-        updateIndices(event); // can also fail shards, but these are then guaranteed to be in failedShardsCache
+        try (var ignored = recordApplierPart("update indices")) {
+            updateIndices(event); // can also fail shards, but these are then guaranteed to be in failedShardsCache
+        }
 
-        createIndicesAndUpdateShards(state);
+        try (var ignored = recordApplierPart("create indices and update shards")) {
+            createIndicesAndUpdateShards(state);
+        }
+    }
+
+    private Releasable recordApplierPart(String part) {
+        return clusterService.getClusterApplierService().recordApplierPart(part);
     }
 
     /**
@@ -572,41 +602,113 @@ public class IndicesClusterStateService extends AbstractLifecycleComponent imple
             }
         }
 
+        final Map<Index, AllocatedIndex<? extends Shard>> createdIndices = new HashMap<>();
+        final List<MappingUpdate> mappingUpdates = new ArrayList<>();
         for (Map.Entry<Index, List<ShardRouting>> entry : indicesToCreate.entrySet()) {
             final Index index = entry.getKey();
             final IndexMetadata indexMetadata = state.metadata().index(index);
             logger.debug("[{}] creating index", index);
 
-            AllocatedIndex<? extends Shard> indexService = null;
+            final AllocatedIndex<? extends Shard> indexService;
             try {
                 indexService = indicesService.createIndex(indexMetadata, buildInIndexListener, true);
-                indexService.updateMapping(null, indexMetadata);
             } catch (Exception e) {
-                final String failShardReason;
-                if (indexService == null) {
-                    failShardReason = "failed to create index";
-                } else {
-                    failShardReason = "failed to update mapping for index";
-                    indicesService.removeIndex(
-                        index,
-                        FAILURE,
-                        "removing index (mapping update failed)",
-                        shardCloseExecutor,
-                        getShardsClosedListener()
-                    );
-                }
                 for (ShardRouting shardRouting : entry.getValue()) {
-                    sendFailShard(shardRouting, failShardReason, e, state);
+                    sendFailShard(shardRouting, "failed to create index", e, state);
+                }
+                continue;
+            }
+            createdIndices.put(index, indexService);
+            mappingUpdates.add(new MappingUpdate(indexService, null, indexMetadata));
+        }
+
+        final Map<Index, Exception> mappingFailures = updateMappings(mappingUpdates);
+
+        for (Map.Entry<Index, AllocatedIndex<? extends Shard>> entry : createdIndices.entrySet()) {
+            final Index index = entry.getKey();
+            final Exception mappingFailure = mappingFailures.get(index);
+            if (mappingFailure != null) {
+                indicesService.removeIndex(
+                    index,
+                    FAILURE,
+                    "removing index (mapping update failed)",
+                    shardCloseExecutor,
+                    getShardsClosedListener()
+                );
+                for (ShardRouting shardRouting : indicesToCreate.get(index)) {
+                    sendFailShard(shardRouting, "failed to update mapping for index", mappingFailure, state);
                 }
                 continue;
             }
             // we succeeded in creating the index service, so now we can create the missing shards assigned to this node
-            for (ShardRouting shardRouting : entry.getValue()) {
-                createOrUpdateShard(state, shardRouting, indexService);
+            for (ShardRouting shardRouting : indicesToCreate.get(index)) {
+                createOrUpdateShard(state, shardRouting, entry.getValue());
             }
         }
     }
 
+    private record MappingUpdate(
+        AllocatedIndex<? extends Shard> indexService,
+        @Nullable IndexMetadata currentIndexMetadata,
+        IndexMetadata newIndexMetadata
+    ) {
+        Index index() {
+            return newIndexMetadata.getIndex();
+        }
+    }
+
+    /**
+     * Applies the given mapping updates on up to {@link #CONCURRENT_MAPPING_UPDATES_SETTING} threads and returns the failures by index
+     * once all of them have completed. The applier thread works through the updates too, so it doesn't wait for other threads to become
+     * available but only for the updates they have already started, and the rest of the cluster state is still applied in order.
+     */
+    private Map<Index, Exception> updateMappings(List<MappingUpdate> mappingUpdates) {
+        assert ThreadPool.assertCurrentThreadPool(ClusterApplierService.CLUSTER_UPDATE_THREAD_NAME);
+        final Map<Index, Exception> failures = ConcurrentCollections.newConcurrentMap();
+        final AtomicInteger nextUpdate = new AtomicInteger();
+        final CountDownLatch completedUpdates = new CountDownLatch(mappingUpdates.size());
+        final Runnable worker = () -> {
+            int update;
+            while ((update = nextUpdate.getAndIncrement()) < mappingUpdates.size()) {
+                final MappingUpdate mappingUpdate = mappingUpdates.get(update);
+                try {
+                    mappingUpdate.indexService().updateMapping(mappingUpdate.currentIndexMetadata(), mappingUpdate.newIndexMetadata());
+                } catch (Exception e) {
+                    failures.put(mappingUpdate.index(), e);
+                } finally {
+                    completedUpdates.countDown();
+                }
+            }
+        };
+
+        final int otherThreads = Math.min(concurrentMappingUpdates, mappingUpdates.size()) - 1;
+        for (int i = 0; i < otherThreads; i++) {
+            try {
+                threadPool.generic().execute(threadPool.getThreadContext().preserveContext(worker));
+            } catch (EsRejectedExecutionException e) {
+                // shutting down, the applier thread does the remaining updates
+                logger.debug("failed to fork mapping updates", e);
+                break;
+            }
+        }
+        worker.run();
+
+        boolean interrupted = false;
+        while (true) {
+            try {
+                completedUpdates.await();
+                break;
+            } catch (InterruptedException e) {
+                // the updates must all complete before applying the rest of the cluster state, they don't take long anyway
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        return failures;
+    }
+
     private void createOrUpdateShard(ClusterState state, ShardRouting shardRouting, AllocatedIndex<? extends Shard> indexService) {
         Shard shard = indexService.getShardOrNull(shardRouting.shardId().id());
         if (shard == null) {
@@ -622,42 +724,36 @@ public class IndicesClusterStateService extends AbstractLifecycleComponent imple
             return;
         }
         final ClusterState state = event.state();
+        final List<MappingUpdate> mappingUpdates = new ArrayList<>();
         for (AllocatedIndex<? extends Shard> indexService : indicesService) {
             final IndexMetadata currentIndexMetadata = indexService.getIndexSettings().getIndexMetadata();
             final Index index = indexService.getIndexSettings().getIndex();
             final IndexMetadata newIndexMetadata = state.metadata().index(index);
             assert newIndexMetadata != null : "index " + index + " should have been removed by deleteIndices";
             if (ClusterChangedEvent.indexMetadataChanged(currentIndexMetadata, newIndexMetadata)) {
-                String reason = null;
                 try {
-                    reason = "metadata update failed";
-                    try {
-                        indexService.updateMetadata(currentIndexMetadata, newIndexMetadata);
-                    } catch (Exception e) {
-                        assert false : e;
-                        throw e;
-                    }
-
-                    reason = "mapping update failed";
-                    indexService.updateMapping(currentIndexMetadata, newIndexMetadata);
+                    indexService.updateMetadata(currentIndexMetadata, newIndexMetadata);
                 } catch (Exception e) {
-                    indicesService.removeIndex(
-                        index,
-                        FAILURE,
-                        "removing index (" + reason + ")",
-                        shardCloseExecutor,
-                        getShardsClosedListener()
-                    );
+                    assert false : e;
+                    failIndex(state, index, "metadata update failed", e);
+                    continue;
+                }
+                mappingUpdates.add(new MappingUpdate(indexService, currentIndexMetadata, newIndexMetadata));
+            }
+        }
 
-                    // fail shards that would be created or updated by createOrUpdateShards
-                    RoutingNode localRoutingNode = state.getRoutingNodes().node(state.nodes().getLocalNodeId());
-                    if (localRoutingNode != null) {
-                        for (final ShardRouting shardRouting : localRoutingNode) {
-                            if (shardRouting.index().equals(index) && failedShardsCache.containsKey(shardRouting.shardId()) == false) {
-                                sendFailShard(shardRouting, "failed to update index (" + reason + ")", e, state);
-                            }
-                        }
-                    }
+        updateMappings(mappingUpdates).forEach((index, e) -> failIndex(state, index, "mapping update failed", e));
+    }
+
+    private void failIndex(ClusterState state, Index index, String reason, Exception e) {
+        indicesService.removeIndex(index, FAILURE, "removing index (" + reason + ")", shardCloseExecutor, getShardsClosedListener());
+
+        // fail shards that would be created or updated by createOrUpdateShards
+        RoutingNode localRoutingNode = state.getRoutingNodes().node(state.nodes().getLocalNodeId());
+        if (localRoutingNode != null) {
+            for (final ShardRouting shardRouting : localRoutingNode) {
+                if (shardRouting.index().equals(index) && failedShardsCache.containsKey(shardRouting.shardId()) == false) {
+                    sendFailShard(shardRouting, "failed to update index (" + reason + ")", e, state);
                 }
             }
         }
@@ -13,6 +13,7 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.apache.logging.log4j.util.Strings;
 import org.elasticsearch.ElasticsearchException;
+import org.elasticsearch.ElasticsearchGenerationException;
 import org.elasticsearch.ElasticsearchParseException;
 import org.elasticsearch.ExceptionsHelper;
 import org.elasticsearch.ResourceNotFoundException;
@@ -70,6 +71,7 @@ import org.elasticsearch.script.ScriptService;
 import org.elasticsearch.threadpool.Scheduler;
 import org.elasticsearch.threadpool.ThreadPool;
 import org.elasticsearch.xcontent.XContentBuilder;
+import org.elasticsearch.xcontent.XContentFactory;
 
 import java.io.IOException;
 import java.util.ArrayList;
@@ -109,6 +111,17 @@ public class IngestService implements ClusterStateApplier, ReportingService<Inge
 
     private static final Logger logger = LogManager.getLogger(IngestService.class);
 
+    /**
+     * The most chunks that the documents of a single bulk request are split
+     * into to run through their pipelines concurrently.
+     */
+    static final int MAX_CONCURRENT_CHUNKS = 4;
+    /**
+     * Bulk requests with fewer documents than this per chunk aren't worth
+     * forking and run on a single thread.
+     */
+    static final int MIN_DOCUMENTS_PER_CHUNK = 128;
+
     private final MasterServiceTaskQueue<PipelineClusterStateUpdateTask> taskQueue;
     private final ClusterService clusterService;
     private final ScriptService scriptService;
@@ -732,81 +745,170 @@ public class IngestService implements ClusterStateApplier, ReportingService<Inge
             protected void doRun() {
                 final Thread originalThread = Thread.currentThread();
                 try (var refs = new RefCountingRunnable(() -> onCompletion.accept(originalThread, null))) {
+                    final List<PendingDocument> pending = new ArrayList<>();
                     int i = 0;
                     for (DocWriteRequest<?> actionRequest : actionRequests) {
                         IndexRequest indexRequest = TransportBulkAction.getIndexWriteRequest(actionRequest);
-                        if (indexRequest == null) {
-                            i++;
-                            continue;
+                        if (indexRequest != null) {
+                            PipelineIterator pipelines = getAndResetPipelines(indexRequest);
+                            if (pipelines.hasNext()) {
+                                assert actionRequest.index() != null;
+                                pending.add(new PendingDocument(i, indexRequest, pipelines));
+                            }
                         }
+                        i++;
+                    }
 
-                        PipelineIterator pipelines = getAndResetPipelines(indexRequest);
-                        Pipeline firstPipeline = pipelines.peekFirst();
-                        if (pipelines.hasNext() == false) {
-                            i++;
-                            continue;
-                        }
+                    // fork all but the first chunk to other write threads and run the first one here
+                    final int chunks = Math.max(1, Math.min(MAX_CONCURRENT_CHUNKS, pending.size() / MIN_DOCUMENTS_PER_CHUNK));
+                    final int chunkSize = (pending.size() + chunks - 1) / chunks;
+                    for (int from = chunkSize; from < pending.size(); from += chunkSize) {
+                        final List<PendingDocument> chunk = pending.subList(from, Math.min(from + chunkSize, pending.size()));
+                        executor.execute(newChunkRunnable(chunk, onDropped, resolveFailureStore, onStoreFailure, onFailure, refs));
+                    }
+                    newChunkRunnable(
+                        pending.subList(0, Math.min(chunkSize, pending.size())),
+                        onDropped,
+                        resolveFailureStore,
+                        onStoreFailure,
+                        onFailure,
+                        refs
+                    ).run();
+                }
+            }
+        });
+    }
 
-                        // start the stopwatch and acquire a ref to indicate that we're working on this document
-                        final long startTimeInNanos = System.nanoTime();
-                        totalMetrics.preIngest();
-                        if (firstPipeline != null) {
-                            firstPipeline.getMetrics().preIngestBytes(indexRequest.ramBytesUsed());
-                        }
-                        final int slot = i;
-                        final Releasable ref = refs.acquire();
-                        final XContentMeteringParserDecorator meteringParserDecorator = documentParsingProvider.newMeteringParserDecorator(
-                            indexRequest
-                        );
-                        final IngestDocument ingestDocument = newIngestDocument(indexRequest, meteringParserDecorator);
-                        final org.elasticsearch.script.Metadata originalDocumentMetadata = ingestDocument.getMetadata().clone();
-                        // the document listener gives us three-way logic: a document can fail processing (1), or it can
-                        // be successfully processed. a successfully processed document can be kept (2) or dropped (3).
-                        final ActionListener<IngestPipelinesExecutionResult> documentListener = ActionListener.runAfter(
-                            new ActionListener<>() {
-                                @Override
-                                public void onResponse(IngestPipelinesExecutionResult result) {
-                                    assert result != null;
-                                    if (result.success) {
-                                        if (result.shouldKeep == false) {
-                                            onDropped.accept(slot);
-                                        } else {
-                                            assert firstPipeline != null;
-                                            firstPipeline.getMetrics().postIngestBytes(indexRequest.ramBytesUsed());
-                                        }
-                                    } else {
-                                        // We were given a failure result in the onResponse method, so we must store the failure
-                                        // Recover the original document state, track a failed ingest, and pass it along
-                                        updateIndexRequestMetadata(indexRequest, originalDocumentMetadata);
-                                        totalMetrics.ingestFailed();
-                                        onStoreFailure.apply(slot, result.failedIndex, result.exception);
-                                    }
-                                }
-
-                                @Override
-                                public void onFailure(Exception e) {
-                                    totalMetrics.ingestFailed();
-                                    onFailure.accept(slot, e);
-                                }
-                            },
-                            () -> {
-                                // regardless of success or failure, we always stop the ingest "stopwatch" and release the ref to indicate
-                                // that we're finished with this document
-                                final long ingestTimeInNanos = System.nanoTime() - startTimeInNanos;
-                                totalMetrics.postIngest(ingestTimeInNanos);
-                                ref.close();
-                            }
-                        );
+    /**
+     * Returns a runnable that executes the pipelines of a chunk of the documents of a bulk request, one document after the other. If the
+     * chunk is rejected, or a document fails in a way that its pipelines can't handle, all the documents that did not run yet fail too.
+     */
+    private AbstractRunnable newChunkRunnable(
+        final List<PendingDocument> chunk,
+        final IntConsumer onDropped,
+        final Function<String, Boolean> resolveFailureStore,
+        final TriConsumer<Integer, String, Exception> onStoreFailure,
+        final BiConsumer<Integer, Exception> onFailure,
+        final RefCountingRunnable refs
+    ) {
+        final Releasable chunkRef = refs.acquire();
+        return new AbstractRunnable() {
+            private int next;
 
-                        executePipelines(pipelines, indexRequest, ingestDocument, resolveFailureStore, documentListener);
-                        indexRequest.setNormalisedBytesParsed(meteringParserDecorator.meteredDocumentSize().ingestedBytes());
-                        assert actionRequest.index() != null;
+            @Override
+            protected void doRun() {
+                for (; next < chunk.size(); next++) {
+                    executeDocument(chunk.get(next), onDropped, resolveFailureStore, onStoreFailure, onFailure, refs);
+                }
+            }
 
-                        i++;
+            @Override
+            public void onRejection(Exception e) {
+                for (PendingDocument document : chunk) {
+                    totalMetrics.ingestFailed();
+                    onFailure.accept(document.slot(), e);
+                }
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                // we failed part way through the chunk, the document we were on failed already so fail the ones we didn't get to
+                for (next++; next < chunk.size(); next++) {
+                    totalMetrics.ingestFailed();
+                    onFailure.accept(chunk.get(next).slot(), e);
+                }
+            }
+
+            @Override
+            public boolean isForceExecution() {
+                // the bulk request was already admitted onto the write pool so we don't want to drop half of it
+                return true;
+            }
+
+            @Override
+            public void onAfter() {
+                chunkRef.close();
+            }
+        };
+    }
+
+    /**
+     * A document of a bulk request that needs to run through at least one pipeline.
+     */
+    private record PendingDocument(int slot, IndexRequest indexRequest, PipelineIterator pipelines) {}
+
+    private void executeDocument(
+        final PendingDocument document,
+        final IntConsumer onDropped,
+        final Function<String, Boolean> resolveFailureStore,
+        final TriConsumer<Integer, String, Exception> onStoreFailure,
+        final BiConsumer<Integer, Exception> onFailure,
+        final RefCountingRunnable refs
+    ) {
+        final int slot = document.slot();
+        final IndexRequest indexRequest = document.indexRequest();
+        final PipelineIterator pipelines = document.pipelines();
+        final Pipeline firstPipeline = pipelines.peekFirst();
+
+        // start the stopwatch and acquire a ref to indicate that we're working on this document
+        final long startTimeInNanos = System.nanoTime();
+        totalMetrics.preIngest();
+        if (firstPipeline != null) {
+            firstPipeline.getMetrics().preIngestBytes(indexRequest.ramBytesUsed());
+        }
+        final Releasable ref = refs.acquire();
+        final XContentMeteringParserDecorator meteringParserDecorator;
+        final IngestDocument ingestDocument;
+        final org.elasticsearch.script.Metadata originalDocumentMetadata;
+        try {
+            meteringParserDecorator = documentParsingProvider.newMeteringParserDecorator(indexRequest);
+            ingestDocument = newIngestDocument(indexRequest, meteringParserDecorator);
+            originalDocumentMetadata = ingestDocument.getMetadata().clone();
+        } catch (RuntimeException e) {
+            // fail this document and release its ref before failing the rest of its chunk, no document listener will do it
+            totalMetrics.ingestFailed();
+            totalMetrics.postIngest(System.nanoTime() - startTimeInNanos);
+            onFailure.accept(slot, e);
+            ref.close();
+            throw e;
+        }
+        // the document listener gives us three-way logic: a document can fail processing (1), or it can
+        // be successfully processed. a successfully processed document can be kept (2) or dropped (3).
+        final ActionListener<IngestPipelinesExecutionResult> documentListener = ActionListener.runAfter(new ActionListener<>() {
+            @Override
+            public void onResponse(IngestPipelinesExecutionResult result) {
+                assert result != null;
+                if (result.success) {
+                    if (result.shouldKeep == false) {
+                        onDropped.accept(slot);
+                    } else {
+                        assert firstPipeline != null;
+                        firstPipeline.getMetrics().postIngestBytes(indexRequest.ramBytesUsed());
                     }
+                } else {
+                    // We were given a failure result in the onResponse method, so we must store the failure
+                    // Recover the original document state, track a failed ingest, and pass it along
+                    updateIndexRequestMetadata(indexRequest, originalDocumentMetadata);
+                    totalMetrics.ingestFailed();
+                    onStoreFailure.apply(slot, result.failedIndex, result.exception);
                 }
             }
+
+            @Override
+            public void onFailure(Exception e) {
+                totalMetrics.ingestFailed();
+                onFailure.accept(slot, e);
+            }
+        }, () -> {
+            // regardless of success or failure, we always stop the ingest "stopwatch" and release the ref to indicate
+            // that we're finished with this document
+            final long ingestTimeInNanos = System.nanoTime() - startTimeInNanos;
+            totalMetrics.postIngest(ingestTimeInNanos);
+            ref.close();
         });
+
+        executePipelines(pipelines, indexRequest, ingestDocument, resolveFailureStore, documentListener);
+        indexRequest.setNormalisedBytesParsed(meteringParserDecorator.meteredDocumentSize().ingestedBytes());
     }
 
     /**
@@ -1139,14 +1241,11 @@ public class IngestService implements ClusterStateApplier, ReportingService<Inge
      * Builds a new ingest document from the passed-in index request.
      */
     private static IngestDocument newIngestDocument(final IndexRequest request, XContentParserDecorator parserDecorator) {
-        return new IngestDocument(
-            request.index(),
-            request.id(),
-            request.version(),
-            request.routing(),
-            request.versionType(),
-            request.sourceAsMap(parserDecorator)
-        );
+        // objects in the source are only parsed if a processor reads them, see LazySourceMap, unless a decorator needs to see them
+        Map<String, Object> source = parserDecorator == XContentMeteringParserDecorator.NOOP
+            ? LazySourceMap.parse(request.source(), request.getContentType())
+            : request.sourceAsMap(parserDecorator);
+        return new IngestDocument(request.index(), request.id(), request.version(), request.routing(), request.versionType(), source);
     }
 
     /**
@@ -1185,7 +1284,16 @@ public class IngestService implements ClusterStateApplier, ReportingService<Inge
         // we already check for self references elsewhere (and clear the bit), so this should always be false,
         // keeping the check and assert as a guard against extraordinarily surprising circumstances
         assert ensureNoSelfReferences == false;
-        request.source(document.getSource(), request.getContentType(), ensureNoSelfReferences);
+        final Map<String, Object> source = document.getSource();
+        try {
+            XContentBuilder builder = XContentFactory.contentBuilder(request.getContentType());
+            builder.startObject();
+            LazySourceMap.writeFields(source, builder);
+            builder.endObject();
+            request.source(builder);
+        } catch (IOException e) {
+            throw new ElasticsearchGenerationException("Failed to generate [" + source + "]", e);
+        }
     }
 
     /**
@@ -0,0 +1,554 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the "Elastic License
+ * 2.0", the "GNU Affero General Public License v3.0 only", and the "Server Side
+ * Public License v 1"; you may not use this file except in compliance with, at
+ * your election, the "Elastic License 2.0", the "GNU Affero General Public
+ * License v3.0 only", or the "Server Side Public License, v 1".
+ */
+
+package org.elasticsearch.ingest;
+
+import org.apache.lucene.util.ArrayUtil;
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.compress.CompressorFactory;
+import org.elasticsearch.common.xcontent.XContentHelper;
+import org.elasticsearch.xcontent.XContentBuilder;
+import org.elasticsearch.xcontent.XContentParser;
+import org.elasticsearch.xcontent.XContentParserConfiguration;
+import org.elasticsearch.xcontent.XContentType;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractMap;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * An object in a JSON ingest document's source that isn't parsed into a map
+ * until something reads it.
+ * <p>
+ * The source is scanned once up front, without tokenizing it, to find where
+ * every object and array in it starts and ends. An object is then a range of
+ * the original bytes: reading it parses only its own fields, jumping over
+ * the objects and arrays inside of it, which stay lazy in turn. Nothing is
+ * copied, so reading {@code a.b.c} costs about as much as the fields of
+ * {@code a}, {@code b} and {@code c} no matter how deep or large the rest
+ * of the document is. Arrays are parsed when the object holding them is.
+ * <p>
+ * When the document is written back, objects that haven't changed are
+ * copied from the original bytes in one go. An object that has changed is
+ * written field by field, copying the bytes of the values it still has from
+ * the source and serializing only the new ones and the arrays, which we
+ * can't tell apart from arrays a processor changed in place.
+ * <p>
+ * Other content types, compressed sources and JSON with comments are parsed
+ * into plain maps up front.
+ */
+public final class LazySourceMap extends AbstractMap<String, Object> {
+    private final Structure structure;
+    /**
+     * Offset of the object's opening brace in {@link Structure#bytes}.
+     */
+    private final int start;
+    /**
+     * Offset just past the object's closing brace in {@link Structure#bytes}.
+     */
+    private final int end;
+    /**
+     * The parsed object or {@code null} until something reads it.
+     */
+    private Map<String, Object> map;
+    /**
+     * Where the values of the object's fields are in the source, or
+     * {@code null} until something reads it.
+     */
+    private Map<String, Field> fields;
+
+    private record Field(int start, int end, Object value) {}
+
+    private LazySourceMap(Structure structure, int start, int end) {
+        this.structure = structure;
+        this.start = start;
+        this.end = end;
+    }
+
+    /**
+     * Parse a document's source, leaving the objects in it unparsed until
+     * they are read if it is JSON and as plain maps if it isn't.
+     */
+    public static Map<String, Object> parse(BytesReference source, XContentType xContentType) {
+        if (xContentType == XContentType.JSON && CompressorFactory.compressorForUnknownXContentType(source) == null) {
+            BytesRef bytes = source.toBytesRef();
+            Structure structure = Structure.scan(bytes.bytes, bytes.offset, bytes.offset + bytes.length);
+            if (structure != null) {
+                LazySourceMap root = new LazySourceMap(structure, structure.opens[0], structure.closes[0]);
+                // the top level fields are always read, so read them now and leave errors in them to the parser below
+                try {
+                    if (root.readFields()) {
+                        return root;
+                    }
+                } catch (UncheckedIOException e) {
+                    // fall through
+                }
+            }
+        }
+        // let the parser deal with anything we don't scan, including telling the caller what's wrong with it
+        return XContentHelper.convertToMap(source, false, xContentType).v2();
+    }
+
+    /**
+     * Has this object been parsed?
+     */
+    boolean isParsed() {
+        return map != null;
+    }
+
+    private Map<String, Object> parsed() {
+        if (map == null && readFields() == false) {
+            // let the parser tell us what's wrong with the object, or parse it if it's something we don't expect
+            try (XContentParser parser = parser(start, end)) {
+                map = parser.map();
+            } catch (IOException e) {
+                throw new UncheckedIOException("failed to parse source object", e);
+            }
+            fields = Map.of();
+        }
+        return map;
+    }
+
+    private boolean readFields() {
+        Map<String, Field> scanned = parseFields();
+        if (scanned == null) {
+            return false;
+        }
+        map = new HashMap<>(scanned.size());
+        for (Map.Entry<String, Field> field : scanned.entrySet()) {
+            map.put(field.getKey(), field.getValue().value());
+        }
+        fields = scanned;
+        return true;
+    }
+
+    /**
+     * Read the fields of this object from the source, or return {@code null}
+     * if it isn't the plain JSON we expect.
+     */
+    private Map<String, Field> parseFields() {
+        final byte[] bytes = structure.bytes;
+        final Map<String, Field> scanned = new HashMap<>();
+        int pos = Structure.skipWhitespace(bytes, start + 1, end);
+        if (bytes[pos] == '}') {
+            return scanned;
+        }
+        while (true) {
+            if (bytes[pos] != '"') {
+                return null;
+            }
+            int nameEnd = structure.skipString(pos);
+            String name = string(pos, nameEnd);
+            pos = Structure.skipWhitespace(bytes, nameEnd, end);
+            if (bytes[pos] != ':') {
+                return null;
+            }
+            int valueStart = Structure.skipWhitespace(bytes, pos + 1, end);
+            int valueEnd = skipValue(valueStart);
+            if (valueEnd < 0 || scanned.containsKey(name)) {
+                return null;
+            }
+            scanned.put(name, new Field(valueStart, valueEnd, value(valueStart, valueEnd)));
+            pos = Structure.skipWhitespace(bytes, valueEnd, end);
+            if (bytes[pos] == '}') {
+                return scanned;
+            }
+            if (bytes[pos] != ',') {
+                return null;
+            }
+            pos = Structure.skipWhitespace(bytes, pos + 1, end);
+        }
+    }
+
+    private int skipValue(int pos) {
+        final byte[] bytes = structure.bytes;
+        return switch (bytes[pos]) {
+            case '{', '[' -> structure.closeOf(pos);
+            case '"' -> structure.skipString(pos);
+            case ',', '}', ']', ':' -> -1;
+            default -> {
+                while (pos < end && Structure.endsScalar(bytes[pos]) == false) {
+                    pos++;
+                }
+                yield pos;
+            }
+        };
+    }
+
+    private Object value(int valueStart, int valueEnd) {
+        final byte[] bytes = structure.bytes;
+        return switch (bytes[valueStart]) {
+            case '{' -> new LazySourceMap(structure, valueStart, valueEnd);
+            case '"' -> string(valueStart, valueEnd);
+            case 't' -> literal(valueStart, valueEnd, "true", Boolean.TRUE);
+            case 'f' -> literal(valueStart, valueEnd, "false", Boolean.FALSE);
+            case 'n' -> literal(valueStart, valueEnd, "null", null);
+            default -> number(valueStart, valueEnd);
+        };
+    }
+
+    private String string(int valueStart, int valueEnd) {
+        final byte[] bytes = structure.bytes;
+        for (int i = valueStart + 1; i < valueEnd - 1; i++) {
+            if (bytes[i] == '\\') {
+                return (String) parseValue(valueStart, valueEnd);
+            }
+        }
+        return new String(bytes, valueStart + 1, valueEnd - valueStart - 2, StandardCharsets.UTF_8);
+    }
+
+    private Object literal(int valueStart, int valueEnd, String literal, Object value) {
+        if (valueEnd - valueStart == literal.length()) {
+            boolean matches = true;
+            for (int i = 0; i < literal.length(); i++) {
+                matches &= structure.bytes[valueStart + i] == literal.charAt(i);
+            }
+            if (matches) {
+                return value;
+            }
+        }
+        return parseValue(valueStart, valueEnd);
+    }
+
+    /**
+     * Read a JSON number the way the parser would: as an {@link Integer},
+     * {@link Long} or {@link BigInteger} if it's integral and fits, and as a
+     * {@link Double} if it isn't.
+     */
+    private Object number(int valueStart, int valueEnd) {
+        final byte[] bytes = structure.bytes;
+        int pos = valueStart;
+        if (pos < valueEnd && bytes[pos] == '-') {
+            pos++;
+        }
+        int digits = skipDigits(bytes, pos, valueEnd);
+        boolean integral = true;
+        if (digits == pos || (bytes[pos] == '0' && digits > pos + 1)) {
+            return parseValue(valueStart, valueEnd);
+        }
+        pos = digits;
+        if (pos < valueEnd && bytes[pos] == '.') {
+            integral = false;
+            digits = skipDigits(bytes, pos + 1, valueEnd);
+            if (digits == pos + 1) {
+                return parseValue(valueStart, valueEnd);
+            }
+            pos = digits;
+        }
+        if (pos < valueEnd && (bytes[pos] == 'e' || bytes[pos] == 'E')) {
+            integral = false;
+            pos++;
+            if (pos < valueEnd && (bytes[pos] == '+' || bytes[pos] == '-')) {
+                pos++;
+            }
+            digits = skipDigits(bytes, pos, valueEnd);
+            if (digits == pos) {
+                return parseValue(valueStart, valueEnd);
+            }
+            pos = digits;
+        }
+        if (pos != valueEnd) {
+            return parseValue(valueStart, valueEnd);
+        }
+        String text = new String(bytes, valueStart, valueEnd - valueStart, StandardCharsets.ISO_8859_1);
+        if (integral == false) {
+            return Double.parseDouble(text);
+        }
+        try {
+            long value = Long.parseLong(text);
+            return value == (int) value ? (Object) (int) value : (Object) value;
+        } catch (NumberFormatException e) {
+            return new BigInteger(text);
+        }
+    }
+
+    private static int skipDigits(byte[] bytes, int pos, int end) {
+        while (pos < end && bytes[pos] >= '0' && bytes[pos] <= '9') {
+            pos++;
+        }
+        return pos;
+    }
+
+    /**
+     * Parse a value we don't read ourselves, like an array or a string with
+     * escapes, or have the parser tell us what's wrong with it.
+     */
+    private Object parseValue(int valueStart, int valueEnd) {
+        try (XContentParser parser = parser(valueStart, valueEnd)) {
+            return switch (parser.nextToken()) {
+                case START_ARRAY -> parser.list();
+                case VALUE_STRING -> parser.text();
+                case VALUE_NUMBER -> parser.numberValue();
+                case VALUE_BOOLEAN -> parser.booleanValue();
+                case VALUE_NULL -> null;
+                default -> parser.map();
+            };
+        } catch (IOException e) {
+            throw new UncheckedIOException("failed to parse source value", e);
+        }
+    }
+
+    private XContentParser parser(int valueStart, int valueEnd) throws IOException {
+        return XContentType.JSON.xContent()
+            .createParser(XContentParserConfiguration.EMPTY, structure.bytes, valueStart, valueEnd - valueStart);
+    }
+
+    /**
+     * Has this object, or anything in it, changed since it was read from the
+     * source?
+     */
+    private boolean isUnchanged() {
+        if (map == null) {
+            return true;
+        }
+        if (map.size() != fields.size()) {
+            return false;
+        }
+        for (Map.Entry<String, Object> entry : map.entrySet()) {
+            if (isUnchanged(entry.getKey(), entry.getValue()) == false) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Is this the value the field had in the source? We can only tell for
+     * values that can't be changed in place, and for our own objects.
+     */
+    private boolean isUnchanged(String name, Object value) {
+        Field field = fields.get(name);
+        if (field == null || field.value() != value) {
+            return false;
+        }
+        return value instanceof LazySourceMap lazy ? lazy.isUnchanged() : value instanceof List<?> == false;
+    }
+
+    private BytesReference raw(int rawStart, int rawEnd) {
+        return new BytesArray(structure.bytes, rawStart, rawEnd - rawStart);
+    }
+
+    @Override
+    public int size() {
+        return parsed().size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return parsed().isEmpty();
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return parsed().containsKey(key);
+    }
+
+    @Override
+    public Object get(Object key) {
+        return parsed().get(key);
+    }
+
+    @Override
+    public Object put(String key, Object value) {
+        return parsed().put(key, value);
+    }
+
+    @Override
+    public Object remove(Object key) {
+        return parsed().remove(key);
+    }
+
+    @Override
+    public void clear() {
+        parsed().clear();
+    }
+
+    @Override
+    public Set<Entry<String, Object>> entrySet() {
+        return parsed().entrySet();
+    }
+
+    /**
+     * Write the fields of a source map, copying the bytes of any objects
+     * that haven't changed rather than serializing them again.
+     */
+    public static void writeFields(Map<String, ?> fields, XContentBuilder builder) throws IOException {
+        if (fields instanceof LazySourceMap lazy) {
+            lazy.writeChangedFields(builder);
+            return;
+        }
+        for (Map.Entry<String, ?> field : fields.entrySet()) {
+            writeField(field.getKey(), field.getValue(), builder);
+        }
+    }
+
+    private static void writeField(String name, Object value, XContentBuilder builder) throws IOException {
+        if (value instanceof LazySourceMap lazy) {
+            if (lazy.isUnchanged()) {
+                builder.rawField(name, lazy.raw(lazy.start, lazy.end).streamInput(), XContentType.JSON);
+            } else {
+                builder.startObject(name);
+                lazy.writeChangedFields(builder);
+                builder.endObject();
+            }
+        } else {
+            builder.field(name, value);
+        }
+    }
+
+    private void writeChangedFields(XContentBuilder builder) throws IOException {
+        for (Map.Entry<String, Object> entry : parsed().entrySet()) {
+            Object value = entry.getValue();
+            if (value instanceof LazySourceMap == false && isUnchanged(entry.getKey(), value)) {
+                Field field = fields.get(entry.getKey());
+                builder.rawField(entry.getKey(), raw(field.start(), field.end()).streamInput(), XContentType.JSON);
+            } else {
+                writeField(entry.getKey(), value, builder);
+            }
+        }
+    }
+
+    /**
+     * Write this object as a value. We can't copy the raw bytes here because
+     * we might be in an array, but we can still skip building the map.
+     */
+    public void toXContent(XContentBuilder builder) throws IOException {
+        if (isUnchanged()) {
+            try (XContentParser parser = parser(start, end)) {
+                parser.nextToken();
+                builder.copyCurrentStructure(parser);
+            }
+        } else {
+            builder.startObject();
+            writeChangedFields(builder);
+            builder.endObject();
+        }
+    }
+
+    /**
+     * Where the objects and arrays of a JSON document start and end, from a
+     * single pass over its bytes that only looks for brackets and strings.
+     */
+    private static final class Structure {
+        private final byte[] bytes;
+        /**
+         * Offsets of the opening brackets in the order they appear, so they
+         * can be binary searched.
+         */
+        private int[] opens = new int[16];
+        /**
+         * Offsets just past the matching closing brackets.
+         */
+        private int[] closes = new int[16];
+        private int count;
+
+        private Structure(byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        /**
+         * Scan a document, returning {@code null} if it isn't a single
+         * object with matching brackets and terminated strings, or if it has
+         * comments, which the parser accepts but we don't look for.
+         */
+        static Structure scan(byte[] bytes, int from, int to) {
+            Structure structure = new Structure(bytes);
+            int[] stack = new int[16];
+            int depth = 0;
+            int pos = skipWhitespace(bytes, from, to);
+            if (pos == to || bytes[pos] != '{') {
+                return null;
+            }
+            while (pos < to) {
+                switch (bytes[pos]) {
+                    case '"' -> {
+                        pos = structure.skipString(pos, to);
+                        if (pos < 0) {
+                            return null;
+                        }
+                        continue;
+                    }
+                    case '{', '[' -> {
+                        stack = ArrayUtil.grow(stack, depth + 1);
+                        stack[depth++] = structure.open(pos);
+                    }
+                    case '}', ']' -> {
+                        if (depth == 0) {
+                            return null;
+                        }
+                        int open = stack[--depth];
+                        if ((bytes[structure.opens[open]] == '{') != (bytes[pos] == '}')) {
+                            return null;
+                        }
+                        structure.closes[open] = pos + 1;
+                        if (depth == 0) {
+                            return skipWhitespace(bytes, pos + 1, to) == to ? structure : null;
+                        }
+                    }
+                    case '/' -> {
+                        return null;
+                    }
+                    default -> {
+                    }
+                }
+                pos++;
+            }
+            return null;
+        }
+
+        private int open(int pos) {
+            if (count == opens.length) {
+                opens = ArrayUtil.grow(opens, count + 1);
+                closes = ArrayUtil.growExact(closes, opens.length);
+            }
+            opens[count] = pos;
+            return count++;
+        }
+
+        int closeOf(int pos) {
+            return closes[Arrays.binarySearch(opens, 0, count, pos)];
+        }
+
+        int skipString(int pos) {
+            return skipString(pos, bytes.length);
+        }
+
+        private int skipString(int pos, int to) {
+            for (pos++; pos < to; pos++) {
+                if (bytes[pos] == '"') {
+                    return pos + 1;
+                }
+                if (bytes[pos] == '\\') {
+                    pos++;
+                }
+            }
+            return -1;
+        }
+
+        static int skipWhitespace(byte[] bytes, int pos, int to) {
+            while (pos < to && (bytes[pos] == ' ' || bytes[pos] == '\n' || bytes[pos] == '\r' || bytes[pos] == '\t')) {
+                pos++;
+            }
+            return pos;
+        }
+
+        static boolean endsScalar(byte b) {
+            return b == ',' || b == '}' || b == ']' || b == ' ' || b == '\n' || b == '\r' || b == '\t';
+        }
+    }
+}
@@ -666,6 +666,7 @@ class NodeConstruction {
         Settings settings = settingsModule.getSettings();
 
         modules.bindToInstance(Tracer.class, telemetryProvider.getTracer());
+        modules.bindToInstance(MeterRegistry.class, telemetryProvider.getMeterRegistry());
 
         TaskManager taskManager = new TaskManager(
             settings,
@@ -1091,6 +1092,7 @@ class NodeConstruction {
             systemIndices.getExecutorSelector(),
             telemetryProvider.getTracer()
         );
+        searchService.getSegmentCountCache().registerMetrics(telemetryProvider.getMeterRegistry());
 
         modules.add(
             loadPersistentTasksService(
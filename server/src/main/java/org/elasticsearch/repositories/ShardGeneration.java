@@ -27,9 +27,17 @@ import java.util.Random;
  * The generation ID of a shard, used to name the shard-level {@code index-$SHARD_GEN} file that represents a {@link
  * BlobStoreIndexShardSnapshots} instance. Before 7.6 ({@link SnapshotsService#SHARD_GEN_IN_REPO_DATA_VERSION}) these generations were
  * numeric, but recent versions use a UUID instead.
+ * <p>
+ * Since {@link SnapshotsService#SHARD_INDEX_DELTAS_VERSION} a generation may also be a delta of the form {@code $BASE.$UUID}, whose blob
+ * only lists the snapshots that were added since the base generation, whose blob lists all the others. See {@link #newDelta}.
  */
 public final class ShardGeneration implements Writeable, ToXContentFragment {
 
+    /**
+     * Separates the base generation from the UUID of a delta generation. It is not part of the base64 alphabet of the UUIDs.
+     */
+    private static final char DELTA_SEPARATOR = '.';
+
     private final String rawGeneration;
 
     /**
@@ -46,6 +54,14 @@ public final class ShardGeneration implements Writeable, ToXContentFragment {
         return new ShardGeneration(UUIDs.randomBase64UUID(random));
     }
 
+    /**
+     * @return a new (fresh) delta generation on top of the base of the given generation, see {@link #baseGeneration}. Its blob only
+     *         lists the snapshots that were added since that base, so the base blob must be kept for as long as the delta is referenced.
+     */
+    public static ShardGeneration newDelta(ShardGeneration generation) {
+        return new ShardGeneration(generation.baseGeneration().rawGeneration + DELTA_SEPARATOR + UUIDs.randomBase64UUID());
+    }
+
     /**
      * Construct a specific {@link ShardGeneration}. Doing this is generally a mistake, you should either create a new fresh one with {@link
      * #newGeneration} or else read one from the wire with {@link #ShardGeneration(StreamInput)} or {@link #fromXContent(XContentParser)}.
@@ -83,6 +99,22 @@ public final class ShardGeneration implements Writeable, ToXContentFragment {
         return rawGeneration;
     }
 
+    /**
+     * @return whether this is a delta generation whose blob only lists the snapshots added since its {@link #baseGeneration}
+     */
+    public boolean isDelta() {
+        return rawGeneration.indexOf(DELTA_SEPARATOR) >= 0;
+    }
+
+    /**
+     * @return the generation whose blob lists the snapshots that this delta generation doesn't list itself, or this generation if it
+     *         isn't a delta
+     */
+    public ShardGeneration baseGeneration() {
+        final int separator = rawGeneration.indexOf(DELTA_SEPARATOR);
+        return separator < 0 ? this : new ShardGeneration(rawGeneration.substring(0, separator));
+    }
+
     @Override
     public String toString() {
         return rawGeneration;
@@ -56,6 +56,7 @@ import org.elasticsearch.common.blobstore.DeleteResult;
 import org.elasticsearch.common.blobstore.OperationPurpose;
 import org.elasticsearch.common.blobstore.fs.FsBlobContainer;
 import org.elasticsearch.common.blobstore.support.BlobMetadata;
+import org.elasticsearch.common.blobstore.support.ParallelRangeInputStream;
 import org.elasticsearch.common.bytes.BytesArray;
 import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.collect.Iterators;
@@ -261,6 +262,12 @@ public abstract class BlobStoreRepository extends AbstractLifecycleComponent imp
      */
     public static final String SNAPSHOT_INDEX_NAME_FORMAT = SNAPSHOT_INDEX_PREFIX + "%s";
 
+    /**
+     * The maximum number of snapshots that a shard-level delta {@code index-${uuid}} blob lists before the next snapshot of the shard
+     * writes a full blob again. See {@link ShardGeneration#newDelta}.
+     */
+    static final int MAX_SHARD_INDEX_DELTA_SNAPSHOTS = 16;
+
     /**
      * Name prefix for blobs holding the actual shard data.
      */
@@ -340,6 +347,30 @@ public abstract class BlobStoreRepository extends AbstractLifecycleComponent imp
      */
     public static final Setting<Boolean> USE_FOR_PEER_RECOVERY_SETTING = Setting.boolSetting("use_for_peer_recovery", false);
 
+    /**
+     * Setting that defines how many ranges of a single file part are read from the repository at once when restoring a shard. With the
+     * default of {@code 1} each part is read with a single request.
+     */
+    public static final Setting<Integer> MAX_CONCURRENT_RESTORE_RANGE_READS_SETTING = Setting.intSetting(
+        "max_concurrent_restore_range_reads",
+        1,
+        1,
+        32,
+        Setting.Property.NodeScope
+    );
+
+    /**
+     * Size of the ranges in which file parts are read if {@link #MAX_CONCURRENT_RESTORE_RANGE_READS_SETTING} is greater than {@code 1}.
+     * Parts that are not larger than this are read with a single request.
+     */
+    public static final Setting<ByteSizeValue> RESTORE_RANGE_SIZE_SETTING = Setting.byteSizeSetting(
+        "restore_range_size",
+        ByteSizeValue.ofMb(8),
+        ByteSizeValue.ofMb(1),
+        ByteSizeValue.ofMb(256),
+        Setting.Property.NodeScope
+    );
+
     protected final boolean supportURLRepo;
 
     private final boolean compress;
@@ -467,6 +498,13 @@ public abstract class BlobStoreRepository extends AbstractLifecycleComponent imp
      */
     private final int maxSnapshotCount;
 
+    /**
+     * Maximum number of ranges of a file part that are read at once when restoring a shard.
+     */
+    private final int maxConcurrentRestoreRangeReads;
+
+    private final long restoreRangeSize;
+
     private final ShardSnapshotTaskRunner shardSnapshotTaskRunner;
 
     private final ThrottledTaskRunner staleBlobDeleteRunner;
@@ -497,6 +535,8 @@ public abstract class BlobStoreRepository extends AbstractLifecycleComponent imp
         readOnly = metadata.settings().getAsBoolean(READONLY_SETTING_KEY, false);
         cacheRepositoryData = CACHE_REPOSITORY_DATA.get(metadata.settings());
         bufferSize = Math.toIntExact(BUFFER_SIZE_SETTING.get(metadata.settings()).getBytes());
+        maxConcurrentRestoreRangeReads = MAX_CONCURRENT_RESTORE_RANGE_READS_SETTING.get(metadata.settings());
+        restoreRangeSize = RESTORE_RANGE_SIZE_SETTING.get(metadata.settings()).getBytes();
         this.namedXContentRegistry = namedXContentRegistry;
         this.basePath = basePath;
         this.maxSnapshotCount = MAX_SNAPSHOTS_SETTING.get(metadata.settings());
@@ -602,7 +642,7 @@ public abstract class BlobStoreRepository extends AbstractLifecycleComponent imp
                     Collections.emptySet(),
                     shardContainer,
                     shardGeneration
-                ).v1();
+                ).snapshots();
                 existingShardGen = shardGeneration;
             }
             SnapshotFiles existingTargetFiles = null;
@@ -1318,7 +1358,7 @@ public abstract class BlobStoreRepository extends AbstractLifecycleComponent imp
                             originalShardBlobs,
                             shardContainer,
                             originalRepositoryData.shardGenerations().getShardGen(indexId, shardId)
-                        ).v1();
+                        ).snapshots();
                     } else {
                         Tuple<BlobStoreIndexShardSnapshots, Long> tuple = buildBlobStoreIndexShardSnapshots(
                             originalShardBlobs,
@@ -1915,22 +1955,30 @@ public abstract class BlobStoreRepository extends AbstractLifecycleComponent imp
         }
         if (writeShardGenerations) {
             final int prefixPathLen = basePath().buildAsString().length();
-            updatedRepositoryData.shardGenerations()
-                .obsoleteShardGenerations(existingRepositoryData.shardGenerations())
+            final ShardGenerations updatedShardGenerations = updatedRepositoryData.shardGenerations();
+            updatedShardGenerations.obsoleteShardGenerations(existingRepositoryData.shardGenerations())
                 .forEach(
                     (indexId, gens) -> gens.forEach(
-                        (shardId, oldGen) -> toDelete.add(
-                            shardPath(indexId, shardId).buildAsString().substring(prefixPathLen) + BlobStoreRepository.SNAPSHOT_INDEX_PREFIX
-                                + oldGen.getGenerationUUID()
+                        (shardId, oldGen) -> addObsoleteShardIndexBlobs(
+                            toDelete,
+                            shardPath(indexId, shardId).buildAsString().substring(prefixPathLen) + SNAPSHOT_INDEX_PREFIX,
+                            oldGen,
+                            updatedShardGenerations.getShardGen(indexId, shardId)
                         )
                     )
                 );
             for (Map.Entry<RepositoryShardId, Set<ShardGeneration>> obsoleteEntry : finalizeSnapshotContext.obsoleteShardGenerations()
                 .entrySet()) {
-                final String containerPath = shardPath(obsoleteEntry.getKey().index(), obsoleteEntry.getKey().shardId()).buildAsString()
-                    .substring(prefixPathLen) + SNAPSHOT_INDEX_PREFIX;
+                final IndexId indexId = obsoleteEntry.getKey().index();
+                final int shardId = obsoleteEntry.getKey().shardId();
+                final String containerPath = shardPath(indexId, shardId).buildAsString().substring(prefixPathLen) + SNAPSHOT_INDEX_PREFIX;
                 for (ShardGeneration shardGeneration : obsoleteEntry.getValue()) {
-                    toDelete.add(containerPath + shardGeneration);
+                    addObsoleteShardIndexBlobs(
+                        toDelete,
+                        containerPath,
+                        shardGeneration,
+                        updatedShardGenerations.getShardGen(indexId, shardId)
+                    );
                 }
             }
         }
@@ -1957,6 +2005,29 @@ public abstract class BlobStoreRepository extends AbstractLifecycleComponent imp
         }
     }
 
+    /**
+     * Adds the shard-level {@code index-${uuid}} blobs that are no longer needed once the given generation is obsolete. The blob of an
+     * obsolete generation that is the base of the current generation must be kept, and the base of an obsolete delta generation is
+     * obsolete too unless it is the base of the current generation.
+     *
+     * @param containerPath     the path of the shard container relative to the repository root, followed by {@link #SNAPSHOT_INDEX_PREFIX}
+     * @param currentGeneration the current generation of the shard, or {@code null} if there is none
+     */
+    static void addObsoleteShardIndexBlobs(
+        Set<String> toDelete,
+        String containerPath,
+        ShardGeneration obsoleteGeneration,
+        @Nullable ShardGeneration currentGeneration
+    ) {
+        final ShardGeneration currentBase = currentGeneration == null ? null : currentGeneration.baseGeneration();
+        if (obsoleteGeneration.equals(currentBase) == false) {
+            toDelete.add(containerPath + obsoleteGeneration.getGenerationUUID());
+        }
+        if (obsoleteGeneration.isDelta() && obsoleteGeneration.baseGeneration().equals(currentBase) == false) {
+            toDelete.add(containerPath + obsoleteGeneration.baseGeneration().getGenerationUUID());
+        }
+    }
+
     @Override
     public void getSnapshotInfo(
         Collection<SnapshotId> snapshotIds,
@@ -3207,15 +3278,15 @@ public abstract class BlobStoreRepository extends AbstractLifecycleComponent imp
             }
 
             snapshotStatus.ensureNotAborted();
-            Tuple<BlobStoreIndexShardSnapshots, ShardGeneration> tuple = buildBlobStoreIndexShardSnapshots(
+            final ShardIndex shardIndex = buildBlobStoreIndexShardSnapshots(
                 context.indexId(),
                 shardId.id(),
                 blobs,
                 shardContainer,
                 generation
             );
-            BlobStoreIndexShardSnapshots snapshots = tuple.v1();
-            ShardGeneration fileListGeneration = tuple.v2();
+            BlobStoreIndexShardSnapshots snapshots = shardIndex.snapshots();
+            ShardGeneration fileListGeneration = shardIndex.generation();
 
             if (snapshots.snapshots().stream().anyMatch(sf -> sf.snapshot().equals(snapshotId.getName()))) {
                 throw new IndexShardSnapshotFailedException(
@@ -3319,22 +3390,23 @@ public abstract class BlobStoreRepository extends AbstractLifecycleComponent imp
             final boolean writeShardGens = SnapshotsService.useShardGenerations(context.getRepositoryMetaVersion());
             final boolean writeFileInfoWriterUUID = SnapshotsService.includeFileInfoWriterUUID(context.getRepositoryMetaVersion());
             // build a new BlobStoreIndexShardSnapshot, that includes this one and all the saved ones
-            final BlobStoreIndexShardSnapshots updatedBlobStoreIndexShardSnapshots = snapshots.withAddedSnapshot(
-                new SnapshotFiles(snapshotId.getName(), indexCommitPointFiles, context.stateIdentifier())
-            );
+            final SnapshotFiles snapshotFiles = new SnapshotFiles(snapshotId.getName(), indexCommitPointFiles, context.stateIdentifier());
+            final BlobStoreIndexShardSnapshots updatedBlobStoreIndexShardSnapshots = snapshots.withAddedSnapshot(snapshotFiles);
             final Runnable afterWriteSnapBlob;
             if (writeShardGens) {
                 // When using shard generations we can safely write the index-${uuid} blob before writing out any of the actual data
                 // for this shard since the uuid named blob will simply not be referenced in case of error and thus we will never
                 // reference a generation that has not had all its files fully upload.
-                indexGeneration = ShardGeneration.newGeneration();
+                // If possible we only write the snapshots added since the base of the current generation, see shardIndexDelta.
+                final BlobStoreIndexShardSnapshots delta = shardIndexDelta(context.getRepositoryMetaVersion(), shardIndex, snapshotFiles);
+                indexGeneration = delta == null ? ShardGeneration.newGeneration() : ShardGeneration.newDelta(fileListGeneration);
                 try {
                     final Map<String, String> serializationParams = Collections.singletonMap(
                         BlobStoreIndexShardSnapshot.FileInfo.SERIALIZE_WRITER_UUID,
                         Boolean.toString(writeFileInfoWriterUUID)
                     );
                     INDEX_SHARD_SNAPSHOTS_FORMAT.write(
-                        updatedBlobStoreIndexShardSnapshots,
+                        delta == null ? updatedBlobStoreIndexShardSnapshots : delta,
                         shardContainer,
                         indexGeneration.getGenerationUUID(),
                         compress,
@@ -3612,6 +3684,20 @@ public abstract class BlobStoreRepository extends AbstractLifecycleComponent imp
                                 @Override
                                 protected InputStream openSlice(int slice) throws IOException {
                                     ensureNotClosing(store);
+                                    final long partBytes = fileInfo.partBytes(slice);
+                                    if (maxConcurrentRestoreRangeReads > 1 && partBytes > restoreRangeSize) {
+                                        // read large parts as concurrent ranges, but still write them to the verifying output in order
+                                        return new ParallelRangeInputStream(
+                                            container,
+                                            OperationPurpose.SNAPSHOT_DATA,
+                                            fileInfo.partName(slice),
+                                            partBytes,
+                                            restoreRangeSize,
+                                            maxConcurrentRestoreRangeReads,
+                                            executor,
+                                            bigArrays
+                                        );
+                                    }
                                     return container.readBlob(OperationPurpose.SNAPSHOT_DATA, fileInfo.partName(slice));
                                 }
 
@@ -3802,6 +3888,29 @@ public abstract class BlobStoreRepository extends AbstractLifecycleComponent imp
         return "BlobStoreRepository[" + "[" + metadata.name() + "], [" + blobStore.get() + ']' + ']';
     }
 
+    /**
+     * A shard snapshot normally rewrites the shard-level {@code index-${uuid}} blob which lists the files of all the shard's snapshots, so
+     * with many retained snapshots the metadata written per snapshot grows with their number. If the repository supports it, the new
+     * generation is written as a delta on top of the base of the current generation instead, listing only the snapshots added since then.
+     * Once the delta would list more than {@link #MAX_SHARD_INDEX_DELTA_SNAPSHOTS} snapshots, or more snapshots than its base, a full blob
+     * is written again, which becomes the base of the following deltas. Snapshot deletions always write a full blob.
+     *
+     * @return the snapshots to write to a delta on top of the base of the current generation, or {@code null} to write a full blob
+     */
+    @Nullable
+    private static BlobStoreIndexShardSnapshots shardIndexDelta(
+        IndexVersion repositoryMetaVersion,
+        ShardIndex shardIndex,
+        SnapshotFiles snapshotFiles
+    ) {
+        if (SnapshotsService.useShardIndexDeltas(repositoryMetaVersion) == false || shardIndex.delta() == null) {
+            return null;
+        }
+        final BlobStoreIndexShardSnapshots delta = shardIndex.delta().withAddedSnapshot(snapshotFiles);
+        final int baseSnapshotCount = shardIndex.snapshots().snapshots().size() - shardIndex.delta().snapshots().size();
+        return delta.snapshots().size() <= Math.min(MAX_SHARD_INDEX_DELTA_SNAPSHOTS, baseSnapshotCount) ? delta : null;
+    }
+
     /**
      * Utility for atomically writing shard level metadata to a numeric shard generation. This is only required for writing
      * numeric shard generations where atomic writes with fail-if-already-exists checks are useful in preventing repository corruption.
@@ -3855,7 +3964,7 @@ public abstract class BlobStoreRepository extends AbstractLifecycleComponent imp
             blobs = shardContainer.listBlobsByPrefix(OperationPurpose.SNAPSHOT_METADATA, SNAPSHOT_INDEX_PREFIX).keySet();
         }
 
-        return buildBlobStoreIndexShardSnapshots(indexId, shardId, blobs, shardContainer, shardGen).v1();
+        return buildBlobStoreIndexShardSnapshots(indexId, shardId, blobs, shardContainer, shardGen).snapshots();
     }
 
     /**
@@ -3868,9 +3977,9 @@ public abstract class BlobStoreRepository extends AbstractLifecycleComponent imp
      * @param generation shard generation or {@code null} in case there was no shard generation tracked in the {@link RepositoryData} for
      *                   this shard because its snapshot was created in a version older than
      *                   {@link SnapshotsService#SHARD_GEN_IN_REPO_DATA_VERSION}.
-     * @return tuple of BlobStoreIndexShardSnapshots and the last snapshot index generation
+     * @return the shard's snapshots and the generation they were read from
      */
-    private Tuple<BlobStoreIndexShardSnapshots, ShardGeneration> buildBlobStoreIndexShardSnapshots(
+    private ShardIndex buildBlobStoreIndexShardSnapshots(
         IndexId indexId,
         int shardId,
         Set<String> blobs,
@@ -3879,18 +3988,26 @@ public abstract class BlobStoreRepository extends AbstractLifecycleComponent imp
     ) throws IOException {
         if (generation != null) {
             if (generation.equals(ShardGenerations.NEW_SHARD_GEN)) {
-                return new Tuple<>(BlobStoreIndexShardSnapshots.EMPTY, ShardGenerations.NEW_SHARD_GEN);
+                return new ShardIndex(BlobStoreIndexShardSnapshots.EMPTY, ShardGenerations.NEW_SHARD_GEN, null);
             }
             try {
-                return new Tuple<>(
-                    INDEX_SHARD_SNAPSHOTS_FORMAT.read(
-                        metadata.name(),
-                        shardContainer,
-                        generation.getGenerationUUID(),
-                        namedXContentRegistry
-                    ),
-                    generation
+                final BlobStoreIndexShardSnapshots shardSnapshots = INDEX_SHARD_SNAPSHOTS_FORMAT.read(
+                    metadata.name(),
+                    shardContainer,
+                    generation.getGenerationUUID(),
+                    namedXContentRegistry
+                );
+                if (generation.isDelta() == false) {
+                    return new ShardIndex(shardSnapshots, generation, BlobStoreIndexShardSnapshots.EMPTY);
+                }
+                // the delta only lists the snapshots added since its base, which lists all the others
+                final BlobStoreIndexShardSnapshots baseSnapshots = INDEX_SHARD_SNAPSHOTS_FORMAT.read(
+                    metadata.name(),
+                    shardContainer,
+                    generation.baseGeneration().getGenerationUUID(),
+                    namedXContentRegistry
                 );
+                return new ShardIndex(baseSnapshots.withAddedSnapshots(shardSnapshots), generation, shardSnapshots);
             } catch (NoSuchFileException noSuchFileException) {
                 // Master may have concurrently mutated the shard generation. This can happen when master fails over
                 // which is "expected". We do not need to apply the following workaround for missing file in this case.
@@ -3971,7 +4088,7 @@ public abstract class BlobStoreRepository extends AbstractLifecycleComponent imp
                         metadata.name(),
                         shardContainer.path()
                     );
-                    return new Tuple<>(blobStoreIndexShardSnapshots, generation);
+                    return new ShardIndex(blobStoreIndexShardSnapshots, generation, null);
                 } catch (Exception fallbackException) {
                     logger.error(
                         Strings.format("failed while reading all shard snapshots from [%s][%s]", metadata.name(), shardContainer.path()),
@@ -3983,10 +4100,25 @@ public abstract class BlobStoreRepository extends AbstractLifecycleComponent imp
             }
         } else {
             final Tuple<BlobStoreIndexShardSnapshots, Long> legacyIndex = buildBlobStoreIndexShardSnapshots(blobs, shardContainer);
-            return new Tuple<>(legacyIndex.v1(), new ShardGeneration(legacyIndex.v2()));
+            return new ShardIndex(legacyIndex.v1(), new ShardGeneration(legacyIndex.v2()), null);
         }
     }
 
+    /**
+     * The snapshots of a shard as read from the shard-level {@code index-${uuid}} blob of the given generation.
+     *
+     * @param snapshots  all snapshots of the shard
+     * @param generation the generation they were read from
+     * @param delta      the snapshots that were read from the delta blob of the generation, {@link BlobStoreIndexShardSnapshots#EMPTY} if
+     *                   they were all read from a single blob, or {@code null} if the generation's blob wasn't read so a new generation
+     *                   must not be written as a delta on top of it
+     */
+    private record ShardIndex(
+        BlobStoreIndexShardSnapshots snapshots,
+        ShardGeneration generation,
+        @Nullable BlobStoreIndexShardSnapshots delta
+    ) {}
+
     /**
      * Loads all available snapshots in the repository
      *
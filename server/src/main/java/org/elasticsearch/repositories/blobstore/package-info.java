@@ -171,7 +171,10 @@
  * the shard's path and contains a list of all the files referenced by the snapshot as well as some metadata about the snapshot. See the
  * documentation of {@code BlobStoreIndexShardSnapshot} for details on its contents.</li>
  * <li>Once all the segments and the {@code BlobStoreIndexShardSnapshot} blob have been written, an updated
- * {@code BlobStoreIndexShardSnapshots} blob is written to the shard's path with name {@code index-${newUUID}}.</li>
+ * {@code BlobStoreIndexShardSnapshots} blob is written to the shard's path with name {@code index-${newUUID}}. If the repository's
+ * version supports it ({@link org.elasticsearch.snapshots.SnapshotsService#SHARD_INDEX_DELTAS_VERSION}) this blob is a delta with name
+ * {@code index-${baseUUID}.${newUUID}} that only lists the shard snapshots added since the base blob {@code index-${baseUUID}}, until
+ * enough snapshots have been added that a full blob is written again.</li>
  * </ol>
  * At this point, all of the necessary shard data and shard metadata for the new shard snapshot have been written to the repository, but the
  * metadata outside of the shard directory has not been updated to point to the new shard snapshot as the latest. The next finalization step
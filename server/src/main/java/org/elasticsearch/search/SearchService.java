@@ -12,6 +12,8 @@ package org.elasticsearch.search;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
 import org.apache.lucene.search.FieldDoc;
 import org.apache.lucene.search.MatchAllDocsQuery;
 import org.apache.lucene.search.Query;
@@ -60,6 +62,7 @@ import org.elasticsearch.index.query.InnerHitContextBuilder;
 import org.elasticsearch.index.query.InnerHitsRewriteContext;
 import org.elasticsearch.index.query.MatchAllQueryBuilder;
 import org.elasticsearch.index.query.MatchNoneQueryBuilder;
+import org.elasticsearch.index.query.ParsedQuery;
 import org.elasticsearch.index.query.QueryBuilder;
 import org.elasticsearch.index.query.QueryRewriteContext;
 import org.elasticsearch.index.query.Rewriteable;
@@ -81,6 +84,7 @@ import org.elasticsearch.search.aggregations.AggregationReduceContext;
 import org.elasticsearch.search.aggregations.AggregatorFactories;
 import org.elasticsearch.search.aggregations.MultiBucketConsumerService;
 import org.elasticsearch.search.aggregations.SearchContextAggregations;
+import org.elasticsearch.search.aggregations.bucket.filter.SegmentCountCache;
 import org.elasticsearch.search.aggregations.support.AggregationContext;
 import org.elasticsearch.search.aggregations.support.AggregationContext.ProductionAggregationContext;
 import org.elasticsearch.search.builder.PointInTimeBuilder;
@@ -313,6 +317,8 @@ public class SearchService extends AbstractLifecycleComponent implements IndexEv
 
     private final MultiBucketConsumerService multiBucketConsumerService;
 
+    private final SegmentCountCache segmentCountCache;
+
     private final AtomicInteger openScrollContexts = new AtomicInteger();
     private final String sessionId = UUIDs.randomBase64UUID();
 
@@ -347,6 +353,7 @@ public class SearchService extends AbstractLifecycleComponent implements IndexEv
         );
         this.executorSelector = executorSelector;
         this.tracer = tracer;
+        this.segmentCountCache = new SegmentCountCache(settings, circuitBreakerService.getBreaker(CircuitBreaker.FIELDDATA));
 
         TimeValue keepAliveInterval = KEEPALIVE_INTERVAL_SETTING.get(settings);
         setKeepAlives(DEFAULT_KEEPALIVE_SETTING.get(settings), MAX_KEEPALIVE_SETTING.get(settings));
@@ -1344,7 +1351,12 @@ public class SearchService extends AbstractLifecycleComponent implements IndexEv
                 context::isCancelled,
                 context::buildFilteredQuery,
                 enableRewriteAggsToFilterByFilter,
-                source.aggregations().isInSortOrderExecutionRequired()
+                source.aggregations().isInSortOrderExecutionRequired(),
+                segmentCountCache,
+                source.pointInTimeBuilder() != null && context.readerContext().singleSession() == false
+                    ? context.readerContext().sharedState()
+                    : null,
+                source.runtimeMappings()
             );
             context.addQuerySearchResultReleasable(aggContext);
             try {
@@ -1461,6 +1473,46 @@ public class SearchService extends AbstractLifecycleComponent implements IndexEv
             }
             context.queryPhaseRankShardContext(source.rankBuilder().buildQueryPhaseShardContext(queries, context.from()));
         }
+        addBottomSortFilter(context, source);
+    }
+
+    /**
+     * If the coordinating node sent us the bottom sort values of the top hits
+     * it has already collected from other shards then documents on this shard
+     * that sort after them can't make it into the response. When nothing else
+     * needs to see every matching document we filter on the primary sort so
+     * the query can skip whole blocks of non-competitive documents from the
+     * first hit rather than waiting for the shard's own queue to fill.
+     */
+    private static void addBottomSortFilter(DefaultSearchContext context, SearchSourceBuilder source) {
+        SearchSortValuesAndFormats bottomSortValues = context.request().getBottomSortValues();
+        if (bottomSortValues == null
+            || context.trackTotalHitsUpTo() != SearchContext.TRACK_TOTAL_HITS_DISABLED
+            || context.terminateAfter() != SearchContext.DEFAULT_TERMINATE_AFTER
+            || context.aggregations() != null
+            || context.suggest() != null
+            || context.collapse() != null
+            || context.rescore().isEmpty() == false
+            || context.scrollContext() != null
+            || context.queryPhaseRankShardContext() != null
+            || Boolean.TRUE.equals(source.explain())) {
+            return;
+        }
+        FieldSortBuilder primarySort = FieldSortBuilder.getPrimaryFieldSortOrNull(source);
+        if (primarySort == null) {
+            return;
+        }
+        Query bottomSortFilter = primarySort.buildBottomSortFilterOrNull(context.getSearchExecutionContext(), bottomSortValues);
+        if (bottomSortFilter == null) {
+            return;
+        }
+        Query query = context.query() == null ? new MatchAllDocsQuery() : context.query();
+        Query filtered = new BooleanQuery.Builder().add(query, BooleanClause.Occur.MUST)
+            .add(bottomSortFilter, BooleanClause.Occur.FILTER)
+            .build();
+        context.parsedQuery(
+            context.parsedQuery() == null ? new ParsedQuery(filtered) : new ParsedQuery(filtered, context.parsedQuery())
+        );
     }
 
     /**
@@ -1529,6 +1581,10 @@ public class SearchService extends AbstractLifecycleComponent implements IndexEv
         return openScrollContexts.get();
     }
 
+    public SegmentCountCache getSegmentCountCache() {
+        return segmentCountCache;
+    }
+
     public ResponseCollectorService getResponseCollectorService() {
         return this.responseCollectorService;
     }
@@ -35,6 +35,9 @@ import org.apache.lucene.util.Bits;
 import org.apache.lucene.util.RoaringDocIdSet;
 import org.elasticsearch.ElasticsearchParseException;
 import org.elasticsearch.common.Rounding;
+import org.elasticsearch.common.breaker.CircuitBreakingException;
+import org.elasticsearch.core.Nullable;
+import org.elasticsearch.core.Releasable;
 import org.elasticsearch.core.Releasables;
 import org.elasticsearch.core.Strings;
 import org.elasticsearch.index.IndexSortConfig;
@@ -65,6 +68,7 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
 import java.util.function.BiConsumer;
 import java.util.function.LongUnaryOperator;
 
@@ -73,6 +77,12 @@ import static org.elasticsearch.search.aggregations.MultiBucketConsumerService.M
 public final class CompositeAggregator extends BucketsAggregator implements SizedBucketAggregator {
 
     private static final Logger logger = LogManager.getLogger(CompositeAggregator.class);
+    /**
+     * How many pages worth of buckets to collect when the search is bound to
+     * a point in time so the following pages can skip collection entirely.
+     */
+    static final int PREFETCH_PAGES = 4;
+
     private final int size;
     private final List<String> sourceNames;
     private final int[] reverseMuls;
@@ -92,6 +102,28 @@ public final class CompositeAggregator extends BucketsAggregator implements Size
 
     private boolean earlyTerminated;
 
+    private final List<CompositeValuesSourceBuilder<?>> sourceBuilders;
+    /**
+     * Storage shared with later pages against the same point in time or
+     * {@code null} if we shouldn't prefetch.
+     */
+    private final ConcurrentMap<String, Object> pointInTimeState;
+    /**
+     * The number of buckets we collect which is larger than {@link #size}
+     * when we're prefetching buckets for the following pages.
+     */
+    private final int collectSize;
+    /**
+     * Buckets prefetched by an earlier page that this page is served from or
+     * {@code null} if we have to collect it.
+     */
+    private final PrefetchedBuckets prefetched;
+    /**
+     * The page served from {@link #prefetched} or {@code null} if we have to
+     * collect it.
+     */
+    private final List<InternalComposite.InternalBucket> prefetchedPage;
+
     CompositeAggregator(
         String name,
         AggregatorFactories factories,
@@ -100,6 +132,7 @@ public final class CompositeAggregator extends BucketsAggregator implements Size
         Map<String, Object> metadata,
         int size,
         CompositeValuesSourceConfig[] sourceConfigs,
+        List<CompositeValuesSourceBuilder<?>> sourceBuilders,
         CompositeKey rawAfterKey
     ) throws IOException {
         super(name, factories, aggCtx, parent, CardinalityUpperBound.MANY, metadata);
@@ -126,12 +159,16 @@ public final class CompositeAggregator extends BucketsAggregator implements Size
             );
         }
         this.sourceConfigs = sourceConfigs;
+        this.sourceBuilders = sourceBuilders;
+        // sub-aggregations would need their documents replayed so we only prefetch bare buckets
+        this.pointInTimeState = parent == null && factories.countAggregators() == 0 ? aggCtx.pointInTimeState() : null;
+        this.collectSize = pointInTimeState == null ? size : (int) Math.min((long) size * PREFETCH_PAGES, bucketLimit);
         List<DateHistogramValuesSource> dateHistogramValuesSources = new ArrayList<>();
         for (int i = 0; i < sourceConfigs.length; i++) {
             this.sources[i] = sourceConfigs[i].createValuesSource(
                 aggCtx.bigArrays(),
                 aggCtx.searcher().getIndexReader(),
-                size,
+                collectSize,
                 this::addRequestCircuitBreakerBytes
             );
             if (this.sources[i] instanceof DateHistogramValuesSource) {
@@ -139,7 +176,7 @@ public final class CompositeAggregator extends BucketsAggregator implements Size
             }
         }
         this.innerSizedBucketAggregators = dateHistogramValuesSources.toArray(new DateHistogramValuesSource[0]);
-        this.queue = new CompositeValuesCollectorQueue(aggCtx.bigArrays(), sources, size, aggCtx.searcher().getIndexReader());
+        this.queue = new CompositeValuesCollectorQueue(aggCtx.bigArrays(), sources, collectSize, aggCtx.searcher().getIndexReader());
         if (rawAfterKey != null) {
             try {
                 this.queue.setAfterKey(rawAfterKey);
@@ -151,6 +188,63 @@ public final class CompositeAggregator extends BucketsAggregator implements Size
             }
         }
         this.rawAfterKey = rawAfterKey;
+        PrefetchedBuckets prefetched = prefetchedOrNull();
+        List<InternalComposite.InternalBucket> page = prefetched == null ? null : prefetched.page(afterBucketOrNull());
+        this.prefetched = page == null ? null : prefetched;
+        this.prefetchedPage = page;
+    }
+
+    /**
+     * The prefix of the keys we keep prefetched buckets under in the point in
+     * time's shared state. Composite aggregations with the same name but
+     * different sources never see each other's buckets.
+     */
+    private String prefetchKeyPrefix() {
+        return "composite_prefetch:" + name + ":" + Integer.toHexString(sourceBuilders.hashCode()) + ":";
+    }
+
+    /**
+     * The key of the buckets that serve the page after {@code after}. Keying
+     * on the after key means we only look at buckets kept for the page the
+     * request asks for, though {@link PrefetchedBuckets#matches} and
+     * {@link PrefetchedBuckets#page} still decide whether they can serve it.
+     */
+    private String prefetchKey(CompositeKey after) {
+        return prefetchKeyPrefix() + Integer.toHexString(after.hashCode());
+    }
+
+    private PrefetchedBuckets prefetchedOrNull() {
+        if (pointInTimeState == null || rawAfterKey == null) {
+            return null;
+        }
+        if (pointInTimeState.get(prefetchKey(afterBucketOrNull().getRawKey())) instanceof PrefetchedBuckets prefetched
+            && prefetched.matches(sourceBuilders, size, topLevelQuery(), context.runtimeMappings())) {
+            return prefetched;
+        }
+        return null;
+    }
+
+    /**
+     * The after key as a bucket, with its values parsed the same way as
+     * the values we collect, so we can compare it to collected buckets.
+     */
+    private InternalComposite.InternalBucket afterBucketOrNull() {
+        if (rawAfterKey == null) {
+            return null;
+        }
+        Comparable<?>[] values = new Comparable<?>[sources.length];
+        for (int i = 0; i < sources.length; i++) {
+            values[i] = sources[i].getAfter();
+        }
+        return new InternalComposite.InternalBucket(
+            sourceNames,
+            formats,
+            new CompositeKey(values),
+            reverseMuls,
+            missingOrders,
+            0,
+            InternalAggregations.EMPTY
+        );
     }
 
     @Override
@@ -187,13 +281,33 @@ public final class CompositeAggregator extends BucketsAggregator implements Size
     public InternalAggregation[] buildAggregations(long[] owningBucketOrds) throws IOException {
         // Composite aggregator must be at the top of the aggregation tree
         assert owningBucketOrds.length == 1 && owningBucketOrds[0] == 0L;
+        if (prefetchedPage != null) {
+            CompositeKey lastBucket = prefetchedPage.isEmpty() ? null : prefetchedPage.get(prefetchedPage.size() - 1).getRawKey();
+            if (lastBucket != null && pointInTimeState.remove(prefetchKey(afterBucketOrNull().getRawKey()), prefetched)) {
+                // The next page will ask for the buckets after this one
+                keep(prefetchKey(lastBucket), prefetched);
+            }
+            return new InternalAggregation[] {
+                new InternalComposite(
+                    name,
+                    size,
+                    sourceNames,
+                    formats,
+                    prefetchedPage,
+                    lastBucket,
+                    reverseMuls,
+                    missingOrders,
+                    prefetched.earlyTerminated,
+                    metadata()
+                ) };
+        }
         if (deferredCollectors != NO_OP_BUCKET_COLLECTOR) {
             // Replay all documents that contain at least one top bucket (collected during the first pass).
             runDeferredCollections();
         }
 
-        int num = Math.min(size, (int) queue.size());
-        final InternalComposite.InternalBucket[] buckets = new InternalComposite.InternalBucket[num];
+        int collected = (int) queue.size();
+        final InternalComposite.InternalBucket[] buckets = new InternalComposite.InternalBucket[collected];
         long[] bucketOrdsToCollect = new long[(int) queue.size()];
         for (int i = 0; i < queue.size(); i++) {
             bucketOrdsToCollect[i] = i;
@@ -214,14 +328,18 @@ public final class CompositeAggregator extends BucketsAggregator implements Size
                 aggs
             );
         }
+        int num = Math.min(size, collected);
         CompositeKey lastBucket = num > 0 ? buckets[num - 1].getRawKey() : null;
+        if (pointInTimeState != null) {
+            keepForFollowingPages(List.of(buckets), collected < collectSize, lastBucket);
+        }
         return new InternalAggregation[] {
             new InternalComposite(
                 name,
                 size,
                 sourceNames,
                 formats,
-                Arrays.asList(buckets),
+                Arrays.asList(buckets).subList(0, num),
                 lastBucket,
                 reverseMuls,
                 missingOrders,
@@ -230,6 +348,60 @@ public final class CompositeAggregator extends BucketsAggregator implements Size
             ) };
     }
 
+    /**
+     * Keep the buckets we collected with the point in time so the following
+     * pages can be served from them, as long as the request circuit breaker
+     * lets us hold on to them. They replace any buckets an earlier page kept
+     * for the same sources so we never keep more than one set of them.
+     */
+    private void keepForFollowingPages(
+        List<InternalComposite.InternalBucket> buckets,
+        boolean exhausted,
+        @Nullable CompositeKey lastBucket
+    ) {
+        String prefix = prefetchKeyPrefix();
+        for (Map.Entry<String, Object> entry : pointInTimeState.entrySet()) {
+            if (entry.getKey().startsWith(prefix)
+                && entry.getValue() instanceof Releasable releasable
+                && pointInTimeState.remove(entry.getKey(), releasable)) {
+                releasable.close();
+            }
+        }
+        if (lastBucket == null) {
+            // There isn't a following page
+            return;
+        }
+        long bytes = PrefetchedBuckets.ramBytesUsed(buckets);
+        PrefetchedBuckets kept;
+        try {
+            context.breaker().addEstimateBytesAndMaybeBreak(bytes, "<composite_prefetch [" + name + "]>");
+            kept = new PrefetchedBuckets(
+                sourceBuilders,
+                size,
+                topLevelQuery(),
+                context.runtimeMappings(),
+                afterBucketOrNull(),
+                buckets,
+                exhausted,
+                earlyTerminated,
+                context.breaker(),
+                bytes
+            );
+        } catch (CircuitBreakingException e) {
+            // Prefetching is only an optimization, the following pages will collect their buckets themselves
+            logger.debug("not keeping [{}] bytes of prefetched buckets for [{}]", bytes, name);
+            return;
+        }
+        keep(prefetchKey(lastBucket), kept);
+    }
+
+    private void keep(String key, PrefetchedBuckets prefetched) {
+        Object previous = pointInTimeState.put(key, prefetched);
+        if (previous != prefetched && previous instanceof Releasable releasable) {
+            releasable.close();
+        }
+    }
+
     @Override
     public InternalAggregation buildEmptyAggregation() {
         return new InternalComposite(
@@ -452,6 +624,10 @@ public final class CompositeAggregator extends BucketsAggregator implements Size
 
     @Override
     protected LeafBucketCollector getLeafCollector(AggregationExecutionContext aggCtx, LeafBucketCollector sub) throws IOException {
+        if (prefetchedPage != null) {
+            // An earlier page already collected the buckets for this one
+            return LeafBucketCollector.NO_OP_COLLECTOR;
+        }
         finishLeaf();
 
         boolean fillDocIdSet = deferredCollectors != NO_OP_BUCKET_COLLECTOR;
@@ -0,0 +1,166 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the "Elastic License
+ * 2.0", the "GNU Affero General Public License v3.0 only", and the "Server Side
+ * Public License v 1"; you may not use this file except in compliance with, at
+ * your election, the "Elastic License 2.0", the "GNU Affero General Public
+ * License v3.0 only", or the "Server Side Public License, v 1".
+ */
+
+package org.elasticsearch.search.aggregations.bucket.composite;
+
+import org.apache.lucene.search.Query;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.RamUsageEstimator;
+import org.elasticsearch.common.breaker.CircuitBreaker;
+import org.elasticsearch.core.Nullable;
+import org.elasticsearch.core.Releasable;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Buckets that a {@link CompositeAggregator} collected past the end of the
+ * page it was asked for. They are kept with the point in time the search ran
+ * against so that the following pages can be served from them rather than
+ * collecting the whole shard again from the start.
+ * <p>
+ * The buckets are the exact top buckets of the shard that sort after
+ * {@link #origin} so any page whose {@code after} key sorts at or after the
+ * origin can be served from them as long as there are enough buckets left
+ * or the shard doesn't have any more.
+ * <p>
+ * The buckets stay on the heap for as long as the point in time is open so
+ * they are accounted for in the request circuit breaker until they are
+ * {@link #close closed}, either when they are replaced by the buckets of a
+ * later page or when the point in time is freed.
+ */
+final class PrefetchedBuckets implements Releasable {
+    private static final long BUCKET_BYTES = RamUsageEstimator.shallowSizeOfInstance(InternalComposite.InternalBucket.class)
+        + RamUsageEstimator.shallowSizeOfInstance(CompositeKey.class) + RamUsageEstimator.NUM_BYTES_ARRAY_HEADER;
+    private static final long BYTES_REF_BYTES = RamUsageEstimator.shallowSizeOfInstance(BytesRef.class)
+        + RamUsageEstimator.NUM_BYTES_ARRAY_HEADER;
+    /**
+     * A boxed {@link Long} or {@link Double}, the other values a key can have.
+     */
+    private static final long BOXED_VALUE_BYTES = RamUsageEstimator.shallowSizeOfInstance(Long.class);
+
+    private final List<CompositeValuesSourceBuilder<?>> sources;
+    private final int size;
+    private final Query query;
+    private final Map<String, Object> runtimeMappings;
+    private final CircuitBreaker breaker;
+    private final long ramBytesUsed;
+    private final AtomicBoolean closed = new AtomicBoolean();
+    @Nullable
+    final InternalComposite.InternalBucket origin;
+    final List<InternalComposite.InternalBucket> buckets;
+    /**
+     * Is {@link #buckets} every bucket in the shard after {@link #origin}?
+     */
+    final boolean exhausted;
+    final boolean earlyTerminated;
+
+    /**
+     * Build prefetched buckets whose {@code ramBytesUsed} bytes were already
+     * added to the {@code breaker}. They are released on {@link #close}.
+     */
+    PrefetchedBuckets(
+        List<CompositeValuesSourceBuilder<?>> sources,
+        int size,
+        Query query,
+        Map<String, Object> runtimeMappings,
+        @Nullable InternalComposite.InternalBucket origin,
+        List<InternalComposite.InternalBucket> buckets,
+        boolean exhausted,
+        boolean earlyTerminated,
+        CircuitBreaker breaker,
+        long ramBytesUsed
+    ) {
+        this.sources = sources;
+        this.size = size;
+        this.query = query;
+        this.runtimeMappings = runtimeMappings;
+        this.origin = origin;
+        this.buckets = buckets;
+        this.exhausted = exhausted;
+        this.earlyTerminated = earlyTerminated;
+        this.breaker = breaker;
+        this.ramBytesUsed = ramBytesUsed;
+    }
+
+    /**
+     * Estimate the heap used by the buckets, which are bare keys and counts
+     * because we don't prefetch buckets with sub-aggregations.
+     */
+    static long ramBytesUsed(List<InternalComposite.InternalBucket> buckets) {
+        long bytes = RamUsageEstimator.alignObjectSize(
+            RamUsageEstimator.NUM_BYTES_ARRAY_HEADER + (long) buckets.size() * RamUsageEstimator.NUM_BYTES_OBJECT_REF
+        );
+        for (InternalComposite.InternalBucket bucket : buckets) {
+            CompositeKey key = bucket.getRawKey();
+            bytes += BUCKET_BYTES + (long) key.size() * RamUsageEstimator.NUM_BYTES_OBJECT_REF;
+            for (int i = 0; i < key.size(); i++) {
+                Object value = key.get(i);
+                if (value instanceof BytesRef bytesRef) {
+                    bytes += BYTES_REF_BYTES + bytesRef.bytes.length;
+                } else if (value != null) {
+                    bytes += BOXED_VALUE_BYTES;
+                }
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * Were these buckets collected for the same aggregation and query, with
+     * the same runtime fields?
+     */
+    boolean matches(
+        List<CompositeValuesSourceBuilder<?>> otherSources,
+        int otherSize,
+        Query otherQuery,
+        Map<String, Object> otherRuntimeMappings
+    ) {
+        return size == otherSize
+            && sources.equals(otherSources)
+            && Objects.equals(query, otherQuery)
+            && runtimeMappings.equals(otherRuntimeMappings);
+    }
+
+    /**
+     * The bytes these buckets hold in the request circuit breaker.
+     */
+    long ramBytesUsed() {
+        return ramBytesUsed;
+    }
+
+    @Override
+    public void close() {
+        if (closed.compareAndSet(false, true)) {
+            breaker.addWithoutBreaking(-ramBytesUsed);
+        }
+    }
+
+    /**
+     * The page of buckets sorting after {@code after} or {@code null} if
+     * we didn't prefetch enough of them to fill the page.
+     */
+    @Nullable
+    List<InternalComposite.InternalBucket> page(InternalComposite.InternalBucket after) {
+        if (origin != null && origin.compareKey(after) > 0) {
+            return null;
+        }
+        int start = 0;
+        while (start < buckets.size() && buckets.get(start).compareKey(after) <= 0) {
+            start++;
+        }
+        int end = Math.min(buckets.size(), start + size);
+        if (end - start < size && exhausted == false) {
+            return null;
+        }
+        return buckets.subList(start, end);
+    }
+}
@@ -204,6 +204,11 @@ public class FilterByFilterAggregator extends FiltersAggregator {
      * perform the count from metadata or had to fall back.
      */
     private int segmentsCounted;
+    /**
+     * Node level cache of per-segment counts or {@code null} if we
+     * shouldn't cache them.
+     */
+    private final SegmentCountCache segmentCountCache;
 
     /**
      * Build the aggregation. Private to force callers to go through the
@@ -222,6 +227,7 @@ public class FilterByFilterAggregator extends FiltersAggregator {
         Map<String, Object> metadata
     ) throws IOException {
         super(name, factories, filters, keyed, keyedBucket, null, aggCtx, parent, cardinality, metadata);
+        this.segmentCountCache = aggCtx.isCacheable() ? aggCtx.segmentCountCache() : null;
     }
 
     /**
@@ -268,7 +274,7 @@ public class FilterByFilterAggregator extends FiltersAggregator {
     private void collectCount(LeafReaderContext ctx, Bits live) throws IOException {
         Counter counter = new Counter(docCountProvider);
         for (int filterOrd = 0; filterOrd < filters().size(); filterOrd++) {
-            incrementBucketDocCount(filterOrd, filters().get(filterOrd).count(ctx, counter, live));
+            incrementBucketDocCount(filterOrd, filters().get(filterOrd).count(ctx, counter, live, segmentCountCache));
         }
     }
 
@@ -27,6 +27,7 @@ import org.apache.lucene.search.ScorerSupplier;
 import org.apache.lucene.search.Weight;
 import org.apache.lucene.util.Bits;
 import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.core.Nullable;
 import org.elasticsearch.search.aggregations.Aggregator;
 import org.elasticsearch.xcontent.XContentBuilder;
 
@@ -189,9 +190,12 @@ public class QueryToFilterAdapter {
     }
 
     /**
-     * Count the number of documents that match this filter in a leaf.
+     * Count the number of documents that match this filter in a leaf,
+     * consulting the {@link SegmentCountCache} if there is one and the
+     * count can't be computed in constant time.
      */
-    long count(LeafReaderContext ctx, FiltersAggregator.Counter counter, Bits live) throws IOException {
+    long count(LeafReaderContext ctx, FiltersAggregator.Counter counter, Bits live, @Nullable SegmentCountCache countCache)
+        throws IOException {
         /*
          * weight().count will return the count of matches for ctx if it can do
          * so in constant time, otherwise -1. The Weight is responsible for
@@ -210,6 +214,13 @@ public class QueryToFilterAdapter {
                 return count;
             }
         }
+        if (countCache != null) {
+            return countCache.count(ctx, query, () -> countByCollecting(ctx, counter, live));
+        }
+        return countByCollecting(ctx, counter, live);
+    }
+
+    private long countByCollecting(LeafReaderContext ctx, FiltersAggregator.Counter counter, Bits live) throws IOException {
         BulkScorer scorer = weight().bulkScorer(ctx);
         if (scorer == null) {
             // No hits in this segment.
@@ -0,0 +1,269 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the "Elastic License
+ * 2.0", the "GNU Affero General Public License v3.0 only", and the "Server Side
+ * Public License v 1"; you may not use this file except in compliance with, at
+ * your election, the "Elastic License 2.0", the "GNU Affero General Public
+ * License v3.0 only", or the "Server Side Public License, v 1".
+ */
+
+package org.elasticsearch.search.aggregations.bucket.filter;
+
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.SegmentReader;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.util.RamUsageEstimator;
+import org.elasticsearch.common.breaker.CircuitBreaker;
+import org.elasticsearch.common.breaker.CircuitBreakingException;
+import org.elasticsearch.common.cache.Cache;
+import org.elasticsearch.common.cache.CacheBuilder;
+import org.elasticsearch.common.cache.RemovalNotification;
+import org.elasticsearch.common.settings.Setting;
+import org.elasticsearch.common.settings.Setting.Property;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
+import org.elasticsearch.core.CheckedSupplier;
+import org.elasticsearch.search.internal.ContextIndexSearcher;
+import org.elasticsearch.telemetry.metric.LongWithAttributes;
+import org.elasticsearch.telemetry.metric.MeterRegistry;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Node level cache of the number of documents that a filter matches in a
+ * single segment. Segments are immutable so, unlike the shard request cache
+ * which is invalidated on every refresh, the counts for all of the segments
+ * that survived a refresh stay valid and only the new segments have to be
+ * counted. That makes it useful on indices that are constantly written to,
+ * like the write index of a data stream, where the request cache never hits.
+ * <p>
+ * Entries are keyed on the segment's core cache key, so we only cache counts
+ * for segments without deleted documents and that aren't wrapped in a reader
+ * that can hide documents or fields. The entries of a segment are invalidated
+ * once the segment is closed, for instance after it has been merged away.
+ * <p>
+ * The cache's memory is accounted against the fielddata circuit breaker, like
+ * the other caches that keep data about segments around between requests.
+ */
+public class SegmentCountCache {
+    public static final Setting<ByteSizeValue> SIZE_SETTING = Setting.memorySizeSetting(
+        "search.aggs.segment_count_cache.size",
+        "1%",
+        Property.NodeScope
+    );
+
+    /**
+     * Size of a node of a hash table: its header, the hash, and the references
+     * to the key, the value and the next node.
+     */
+    private static final long HASH_NODE_RAM_BYTES_USED = RamUsageEstimator.alignObjectSize(
+        RamUsageEstimator.NUM_BYTES_OBJECT_HEADER + Integer.BYTES + 3L * RamUsageEstimator.NUM_BYTES_OBJECT_REF
+    );
+
+    /**
+     * Size of an entry without the query: the key, the boxed count, the cache's
+     * linked entry with its two timestamps and five references, and the hash
+     * table nodes of the cache and of the segment's keys.
+     */
+    private static final long ENTRY_RAM_BYTES_USED = RamUsageEstimator.shallowSizeOfInstance(Key.class)
+        + RamUsageEstimator.shallowSizeOfInstance(Long.class)
+        + RamUsageEstimator.alignObjectSize(
+            RamUsageEstimator.NUM_BYTES_OBJECT_HEADER + 2L * Long.BYTES + 5L * RamUsageEstimator.NUM_BYTES_OBJECT_REF
+        )
+        + 2 * HASH_NODE_RAM_BYTES_USED;
+
+    private final Cache<Key, Long> cache;
+    private final CircuitBreaker breaker;
+    /**
+     * The keys of the cached counts of each segment, to invalidate them once
+     * the segment is closed.
+     */
+    private final Map<IndexReader.CacheKey, Set<Key>> keysBySegment = ConcurrentCollections.newConcurrentMap();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public SegmentCountCache(Settings settings, CircuitBreaker breaker) {
+        this(SIZE_SETTING.get(settings), breaker);
+    }
+
+    SegmentCountCache(ByteSizeValue size, CircuitBreaker breaker) {
+        this.breaker = breaker;
+        this.cache = CacheBuilder.<Key, Long>builder()
+            .setMaximumWeight(size.getBytes())
+            .weigher((k, v) -> k.ramBytesUsed())
+            .removalListener(this::onRemoval)
+            .build();
+    }
+
+    /**
+     * Count the documents matching {@code query} in the segment, returning a
+     * cached count if there is one and calling {@code counter} otherwise.
+     */
+    long count(LeafReaderContext ctx, Query query, CheckedSupplier<Long, IOException> counter) throws IOException {
+        IndexReader.CacheHelper cacheHelper = cacheHelper(ctx.reader());
+        if (cacheHelper == null) {
+            return counter.get();
+        }
+        Key key = new Key(cacheHelper.getKey(), query);
+        Long cached = cache.get(key);
+        if (cached != null) {
+            hits.increment();
+            return cached;
+        }
+        misses.increment();
+        long count = counter.get();
+        try {
+            breaker.addEstimateBytesAndMaybeBreak(key.ramBytesUsed(), "segment_count_cache");
+        } catch (CircuitBreakingException e) {
+            // The count is still correct, there just isn't enough memory to keep it around.
+            return count;
+        }
+        keysBySegment.computeIfAbsent(key.segment, segment -> {
+            cacheHelper.addClosedListener(this::onSegmentClosed);
+            return ConcurrentCollections.newConcurrentSet();
+        }).add(key);
+        cache.put(key, count);
+        return count;
+    }
+
+    private void onSegmentClosed(IndexReader.CacheKey segment) {
+        Set<Key> keys = keysBySegment.remove(segment);
+        if (keys != null) {
+            for (Key key : keys) {
+                cache.invalidate(key);
+            }
+        }
+    }
+
+    private void onRemoval(RemovalNotification<Key, Long> notification) {
+        Key key = notification.getKey();
+        breaker.addWithoutBreaking(-key.ramBytesUsed());
+        if (notification.getRemovalReason() != RemovalNotification.RemovalReason.REPLACED) {
+            // A replaced entry has the same key as the entry that replaced it, which is still cached.
+            Set<Key> keys = keysBySegment.get(key.segment);
+            if (keys != null) {
+                keys.remove(key);
+            }
+        }
+    }
+
+    /**
+     * The cache helper to key the segment on or {@code null} if we can't
+     * safely cache counts for the segment.
+     */
+    private static IndexReader.CacheHelper cacheHelper(LeafReader reader) {
+        if (reader.getLiveDocs() != null) {
+            // Deletes change the count without changing the core cache key.
+            return null;
+        }
+        LeafReader unwrapped = ContextIndexSearcher.unwrapSearchLeafReader(reader);
+        if (false == unwrapped instanceof SegmentReader) {
+            /*
+             * Document and field level security wrap the reader but share
+             * the core cache key so counts for the same segment can differ
+             * from user to user. Other wrappers might do the same. Only the
+             * wrappers that every search adds are safe to look through.
+             */
+            return null;
+        }
+        return reader.getCoreCacheHelper();
+    }
+
+    /**
+     * Number of counts served from the cache.
+     */
+    public long hits() {
+        return hits.sum();
+    }
+
+    /**
+     * Number of counts that weren't in the cache.
+     */
+    public long misses() {
+        return misses.sum();
+    }
+
+    /**
+     * Number of cached counts.
+     */
+    public int count() {
+        return cache.count();
+    }
+
+    /**
+     * Estimated heap used by the cache.
+     */
+    public long ramBytesUsed() {
+        return cache.weight();
+    }
+
+    /**
+     * Report the hits and misses of the cache, the number of cached counts and
+     * the heap they use to the given registry.
+     */
+    public void registerMetrics(MeterRegistry meterRegistry) {
+        meterRegistry.registerLongAsyncCounter(
+            "es.search.aggs.segment_count_cache.hits.total",
+            "Number of filter counts served from the segment count cache.",
+            "count",
+            () -> new LongWithAttributes(hits())
+        );
+        meterRegistry.registerLongAsyncCounter(
+            "es.search.aggs.segment_count_cache.misses.total",
+            "Number of filter counts that weren't in the segment count cache.",
+            "count",
+            () -> new LongWithAttributes(misses())
+        );
+        meterRegistry.registerLongGauge(
+            "es.search.aggs.segment_count_cache.entries.current",
+            "Number of filter counts in the segment count cache.",
+            "count",
+            () -> new LongWithAttributes(count())
+        );
+        meterRegistry.registerLongGauge(
+            "es.search.aggs.segment_count_cache.size",
+            "Estimated heap used by the segment count cache.",
+            "bytes",
+            () -> new LongWithAttributes(ramBytesUsed())
+        );
+    }
+
+    private static class Key {
+        private final IndexReader.CacheKey segment;
+        private final Query query;
+        private final long queryRamBytesUsed;
+
+        Key(IndexReader.CacheKey segment, Query query) {
+            this.segment = segment;
+            this.query = query;
+            this.queryRamBytesUsed = RamUsageEstimator.sizeOf(query);
+        }
+
+        long ramBytesUsed() {
+            return ENTRY_RAM_BYTES_USED + queryRamBytesUsed;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            Key other = (Key) o;
+            return segment == other.segment && query.equals(other.query);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * System.identityHashCode(segment) + query.hashCode();
+        }
+    }
+}
@@ -315,10 +315,47 @@ class DateHistogramAggregator extends BucketsAggregator implements SizedBucketAg
 
     private LeafBucketCollector getLeafCollector(NumericDocValues values, LeafBucketCollector sub) {
         return new LeafBucketCollectorBase(sub, values) {
+            /*
+             * When the index is sorted on the field, or the data is just
+             * naturally clustered in time, documents arrive in long runs
+             * that all land in the same bucket. We remember the bounds of
+             * the last bucket so those runs skip the rounding and the
+             * bucket ordinal lookup entirely. We only pay for computing
+             * the upper bound once we've seen two documents in a row
+             * land in the same bucket so unsorted data doesn't get slower.
+             */
+            private long lastOwningBucketOrd = -1;
+            private long lastRounded = Long.MIN_VALUE;
+            private long lastRoundedUpperBound = Long.MIN_VALUE;
+            private long lastBucketOrd = -1;
+
             @Override
             public void collect(int doc, long owningBucketOrd) throws IOException {
                 if (values.advanceExact(doc)) {
-                    addRoundedValue(preparedRounding.round(values.longValue()), doc, owningBucketOrd, sub);
+                    long value = values.longValue();
+                    if (owningBucketOrd == lastOwningBucketOrd && value >= lastRounded && value < lastRoundedUpperBound) {
+                        collectExistingBucket(sub, doc, lastBucketOrd);
+                        return;
+                    }
+                    long rounded = preparedRounding.round(value);
+                    if (hardBounds != null && hardBounds.contain(rounded) == false) {
+                        return;
+                    }
+                    long bucketOrd = bucketOrds.add(owningBucketOrd, rounded);
+                    if (bucketOrd < 0) { // already seen
+                        bucketOrd = -1 - bucketOrd;
+                        collectExistingBucket(sub, doc, bucketOrd);
+                    } else {
+                        collectBucket(sub, doc, bucketOrd);
+                    }
+                    if (owningBucketOrd == lastOwningBucketOrd && rounded == lastRounded) {
+                        lastRoundedUpperBound = preparedRounding.nextRoundingValue(rounded);
+                    } else {
+                        lastOwningBucketOrd = owningBucketOrd;
+                        lastRounded = rounded;
+                        lastRoundedUpperBound = Long.MIN_VALUE;
+                        lastBucketOrd = bucketOrd;
+                    }
                 }
             }
         };
@@ -725,9 +725,18 @@ public abstract class RangeAggregator extends BucketsAggregator {
         }
 
         private final BucketCollector collector;
+        /**
+         * The range that matched the last value we collected, which we check
+         * before falling back to the binary search.
+         */
+        private int lastMatchedRange;
 
         @Override
         protected int collect(LeafBucketCollector sub, int doc, double value, long owningBucketOrdinal, int lowBound) throws IOException {
+            if (lastMatchedRange >= lowBound && ranges[lastMatchedRange].matches(value)) {
+                collector.accept(sub, doc, subBucketOrdinal(owningBucketOrdinal, lastMatchedRange));
+                return lastMatchedRange + 1;
+            }
             int lo = lowBound, hi = ranges.length - 1;
             while (lo <= hi) {
                 final int mid = (lo + hi) >>> 1;
@@ -737,6 +746,7 @@ public abstract class RangeAggregator extends BucketsAggregator {
                     lo = mid + 1;
                 } else {
                     collector.accept(sub, doc, subBucketOrdinal(owningBucketOrdinal, mid));
+                    lastMatchedRange = mid;
                     // The next value must fall in the next bucket to be collected.
                     return mid + 1;
                 }
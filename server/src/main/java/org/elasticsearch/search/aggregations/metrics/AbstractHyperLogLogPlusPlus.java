@@ -9,6 +9,8 @@
 
 package org.elasticsearch.search.aggregations.metrics;
 
+import org.apache.lucene.util.packed.PackedInts;
+import org.elasticsearch.TransportVersions;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.util.BigArrays;
@@ -100,10 +102,78 @@ public abstract class AbstractHyperLogLogPlusPlus extends AbstractCardinalityAlg
         } else {
             out.writeBoolean(HYPERLOGLOG);
             AbstractHyperLogLog.RunLenIterator iterator = getHyperLogLog(bucket);
-            while (iterator.next()) {
-                out.writeByte(iterator.value());
+            if (out.getTransportVersion().onOrAfter(TransportVersions.CARDINALITY_PACKED_REGISTERS)) {
+                writePackedRegisters(iterator, out);
+            } else {
+                while (iterator.next()) {
+                    out.writeByte(iterator.value());
+                }
+            }
+        }
+    }
+
+    /**
+     * Write the registers packed with just enough bits for the longest run
+     * length in the sketch. Run lengths never exceed {@code 65 - precision}
+     * so this takes at most six bits per register instead of eight, and
+     * usually fewer.
+     */
+    private void writePackedRegisters(AbstractHyperLogLog.RunLenIterator iterator, StreamOutput out) throws IOException {
+        final byte[] registers = new byte[1 << precision()];
+        int maxRunLen = 0;
+        for (int i = 0; i < registers.length; i++) {
+            iterator.next();
+            registers[i] = iterator.value();
+            maxRunLen = Math.max(maxRunLen, registers[i]);
+        }
+        final int bitsPerRegister = PackedInts.bitsRequired(maxRunLen);
+        final byte[] packed = new byte[packedLength(registers.length, bitsPerRegister)];
+        long acc = 0;
+        int accBits = 0;
+        int pos = 0;
+        for (byte register : registers) {
+            acc |= (long) register << accBits;
+            accBits += bitsPerRegister;
+            while (accBits >= Byte.SIZE) {
+                packed[pos++] = (byte) acc;
+                acc >>>= Byte.SIZE;
+                accBits -= Byte.SIZE;
+            }
+        }
+        if (accBits > 0) {
+            packed[pos++] = (byte) acc;
+        }
+        assert pos == packed.length;
+        out.writeByte((byte) bitsPerRegister);
+        out.writeBytes(packed);
+    }
+
+    private static byte[] readPackedRegisters(StreamInput in, int registerCount) throws IOException {
+        final int bitsPerRegister = in.readByte();
+        if (bitsPerRegister < 1 || bitsPerRegister > Byte.SIZE) {
+            throw new IllegalStateException("invalid bits per register [" + bitsPerRegister + "]");
+        }
+        final byte[] packed = new byte[packedLength(registerCount, bitsPerRegister)];
+        in.readBytes(packed, 0, packed.length);
+        final byte[] registers = new byte[registerCount];
+        final long mask = (1L << bitsPerRegister) - 1;
+        long acc = 0;
+        int accBits = 0;
+        int pos = 0;
+        for (int i = 0; i < registerCount; i++) {
+            while (accBits < bitsPerRegister) {
+                acc |= (packed[pos++] & 0xFFL) << accBits;
+                accBits += Byte.SIZE;
             }
+            registers[i] = (byte) (acc & mask);
+            acc >>>= bitsPerRegister;
+            accBits -= bitsPerRegister;
         }
+        return registers;
+    }
+
+    private static int packedLength(int registerCount, int bitsPerRegister) {
+        return Math.toIntExact(((long) registerCount * bitsPerRegister + Byte.SIZE - 1) / Byte.SIZE);
     }
 
     public static AbstractHyperLogLogPlusPlus readFrom(StreamInput in, BigArrays bigArrays) throws IOException {
@@ -120,10 +190,15 @@ public abstract class AbstractHyperLogLogPlusPlus extends AbstractCardinalityAlg
             return counts;
         } else {
             HyperLogLogPlusPlus counts = new HyperLogLogPlusPlus(precision, bigArrays, 1);
-            final int registers = 1 << precision;
-            for (int i = 0; i < registers; ++i) {
-                counts.addRunLen(0, i, in.readByte());
+            final int registerCount = 1 << precision;
+            final byte[] registers;
+            if (in.getTransportVersion().onOrAfter(TransportVersions.CARDINALITY_PACKED_REGISTERS)) {
+                registers = readPackedRegisters(in, registerCount);
+            } else {
+                registers = new byte[registerCount];
+                in.readBytes(registers, 0, registerCount);
             }
+            counts.mergeRegisters(0, registers, 0);
             return counts;
         }
     }
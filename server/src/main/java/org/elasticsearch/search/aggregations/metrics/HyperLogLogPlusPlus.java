@@ -18,6 +18,7 @@ import org.elasticsearch.common.util.ByteUtils;
 import org.elasticsearch.common.util.IntArray;
 import org.elasticsearch.core.Releasable;
 import org.elasticsearch.core.Releasables;
+import org.elasticsearch.simdvec.ESVectorUtil;
 
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
@@ -172,6 +173,11 @@ public final class HyperLogLogPlusPlus extends AbstractHyperLogLogPlusPlus {
         hll.ensureCapacity(thisBucket + 1);
         if (other.getAlgorithm(otherBucket) == LINEAR_COUNTING) {
             merge(thisBucket, other.getLinearCounting(otherBucket));
+        } else if (other instanceof HyperLogLogPlusPlus otherHll) {
+            // Merge whole blocks of registers rather than reading them one at a time
+            BytesRef registers = new BytesRef();
+            otherHll.hll.runLens.get(otherBucket << otherHll.hll.p, otherHll.hll.m, registers);
+            mergeRegisters(thisBucket, registers.bytes, registers.offset);
         } else {
             merge(thisBucket, other.getHyperLogLog(otherBucket));
         }
@@ -191,6 +197,17 @@ public final class HyperLogLogPlusPlus extends AbstractHyperLogLogPlusPlus {
         }
     }
 
+    /**
+     * Merge the {@code m} registers starting at {@code offset} into the bucket.
+     */
+    void mergeRegisters(long thisBucket, byte[] registers, int offset) {
+        hll.ensureCapacity(thisBucket + 1);
+        if (algorithm.get(thisBucket) != HYPERLOGLOG) {
+            upgradeToHll(thisBucket);
+        }
+        hll.mergeRegisters(thisBucket, registers, offset);
+    }
+
     private void merge(long thisBucket, AbstractHyperLogLog.RunLenIterator runLens) {
         if (algorithm.get(thisBucket) != HYPERLOGLOG) {
             upgradeToHll(thisBucket);
@@ -205,6 +222,8 @@ public final class HyperLogLogPlusPlus extends AbstractHyperLogLogPlusPlus {
         private final BigArrays bigArrays;
         // array for holding the runlens.
         private ByteArray runLens;
+        // scratch space for merging a whole bucket's registers at once, allocated on first use
+        private byte[] mergeSpare;
 
         HyperLogLog(BigArrays bigArrays, long initialBucketCount, int precision) {
             super(precision);
@@ -222,6 +241,18 @@ public final class HyperLogLogPlusPlus extends AbstractHyperLogLogPlusPlus {
             runLens.set(bucketIndex, (byte) Math.max(encoded, runLens.get(bucketIndex)));
         }
 
+        void mergeRegisters(long bucketOrd, byte[] registers, int offset) {
+            final long start = bucketOrd << p;
+            if (mergeSpare == null) {
+                mergeSpare = new byte[m];
+            }
+            BytesRef current = new BytesRef();
+            runLens.get(start, m, current);
+            System.arraycopy(current.bytes, current.offset, mergeSpare, 0, m);
+            ESVectorUtil.maxInPlace(mergeSpare, 0, registers, offset, m);
+            runLens.set(start, mergeSpare, 0, m);
+        }
+
         @Override
         protected RunLenIterator getRunLens(long bucketOrd) {
             return new HyperLogLogIterator(this, bucketOrd);
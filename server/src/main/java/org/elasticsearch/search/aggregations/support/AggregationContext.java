@@ -42,6 +42,7 @@ import org.elasticsearch.search.aggregations.AggregationExecutionContext;
 import org.elasticsearch.search.aggregations.Aggregator;
 import org.elasticsearch.search.aggregations.BucketCollector;
 import org.elasticsearch.search.aggregations.bucket.filter.FilterByFilterAggregator;
+import org.elasticsearch.search.aggregations.bucket.filter.SegmentCountCache;
 import org.elasticsearch.search.internal.SubSearchContext;
 import org.elasticsearch.search.lookup.SearchLookup;
 import org.elasticsearch.search.profile.aggregation.AggregationProfiler;
@@ -53,8 +54,10 @@ import org.elasticsearch.search.sort.SortBuilder;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
 import java.util.function.Function;
 import java.util.function.LongSupplier;
 import java.util.function.Supplier;
@@ -317,6 +320,33 @@ public abstract class AggregationContext implements Releasable {
         return null;
     }
 
+    /**
+     * Node level cache of per-segment filter counts or {@code null} if
+     * counts shouldn't be cached.
+     */
+    @Nullable
+    public SegmentCountCache segmentCountCache() {
+        return null;
+    }
+
+    /**
+     * Storage shared with later searches against the same point in time or
+     * {@code null} if this search isn't bound to a point in time.
+     */
+    @Nullable
+    public ConcurrentMap<String, Object> pointInTimeState() {
+        return null;
+    }
+
+    /**
+     * The runtime mappings of the search request, which state shared with
+     * later searches against the same point in time has to match because
+     * they can change the values of any field.
+     */
+    public Map<String, Object> runtimeMappings() {
+        return Map.of();
+    }
+
     /**
      * Does this index have a {@code _doc_count} field in any segment?
      */
@@ -362,6 +392,9 @@ public abstract class AggregationContext implements Releasable {
         private final boolean enableRewriteToFilterByFilter;
         private final boolean inSortOrderExecutionRequired;
         private final AnalysisRegistry analysisRegistry;
+        private final SegmentCountCache segmentCountCache;
+        private final ConcurrentMap<String, Object> pointInTimeState;
+        private final Map<String, Object> runtimeMappings;
 
         private final List<Aggregator> releaseMe = new ArrayList<>();
 
@@ -381,7 +414,10 @@ public abstract class AggregationContext implements Releasable {
             Supplier<Boolean> isCancelled,
             Function<Query, Query> filterQuery,
             boolean enableRewriteToFilterByFilter,
-            boolean inSortOrderExecutionRequired
+            boolean inSortOrderExecutionRequired,
+            @Nullable SegmentCountCache segmentCountCache,
+            @Nullable ConcurrentMap<String, Object> pointInTimeState,
+            Map<String, Object> runtimeMappings
         ) {
             this.analysisRegistry = analysisRegistry;
             this.context = context;
@@ -416,6 +452,9 @@ public abstract class AggregationContext implements Releasable {
             this.filterQuery = filterQuery;
             this.enableRewriteToFilterByFilter = enableRewriteToFilterByFilter;
             this.inSortOrderExecutionRequired = inSortOrderExecutionRequired;
+            this.segmentCountCache = segmentCountCache;
+            this.pointInTimeState = pointInTimeState;
+            this.runtimeMappings = runtimeMappings;
         }
 
         @Override
@@ -616,6 +655,21 @@ public abstract class AggregationContext implements Releasable {
             return inSortOrderExecutionRequired;
         }
 
+        @Override
+        public SegmentCountCache segmentCountCache() {
+            return segmentCountCache;
+        }
+
+        @Override
+        public ConcurrentMap<String, Object> pointInTimeState() {
+            return pointInTimeState;
+        }
+
+        @Override
+        public Map<String, Object> runtimeMappings() {
+            return runtimeMappings;
+        }
+
         @Override
         public Set<String> sourcePath(String fullName) {
             return context.sourcePath(fullName);
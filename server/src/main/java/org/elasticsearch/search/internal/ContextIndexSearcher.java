@@ -10,7 +10,9 @@
 package org.elasticsearch.search.internal;
 
 import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.FilterLeafReader;
 import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReader;
 import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.index.Term;
 import org.apache.lucene.search.BulkScorer;
@@ -36,6 +38,7 @@ import org.apache.lucene.util.BitSet;
 import org.apache.lucene.util.BitSetIterator;
 import org.apache.lucene.util.Bits;
 import org.apache.lucene.util.SparseFixedBitSet;
+import org.elasticsearch.common.lucene.index.ElasticsearchLeafReader;
 import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
 import org.elasticsearch.core.Releasable;
 import org.elasticsearch.lucene.util.CombinedBitSet;
@@ -551,6 +554,24 @@ public class ContextIndexSearcher extends IndexSearcher implements Releasable {
         return (DirectoryReader) reader;
     }
 
+    /**
+     * Unwraps the readers that every search wraps around a segment: the ones that check for cancellation, track field usage and carry
+     * the shard id. They expose exactly the documents and fields of the reader they wrap. Any other wrapper, like the ones that
+     * implement document and field level security, is left in place.
+     */
+    public static LeafReader unwrapSearchLeafReader(LeafReader reader) {
+        while (true) {
+            if (reader instanceof ExitableDirectoryReader.ExitableLeafReader
+                || reader instanceof FieldUsageTrackingDirectoryReader.FieldUsageTrackingLeafReader) {
+                reader = ((FilterLeafReader) reader).getDelegate();
+            } else if (reader instanceof ElasticsearchLeafReader esReader) {
+                reader = esReader.getDelegate();
+            } else {
+                return reader;
+            }
+        }
+    }
+
     private static class MutableQueryTimeout implements ExitableDirectoryReader.QueryCancellation {
 
         private final List<Runnable> runnables = new ArrayList<>();
@@ -9,6 +9,7 @@
 
 package org.elasticsearch.search.internal;
 
+import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
 import org.elasticsearch.core.AbstractRefCounted;
 import org.elasticsearch.core.RefCounted;
 import org.elasticsearch.core.Releasable;
@@ -24,6 +25,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
@@ -54,6 +56,8 @@ public class ReaderContext implements Releasable {
 
     private Map<String, Object> context;
 
+    private ConcurrentMap<String, Object> sharedState;
+
     @SuppressWarnings("this-escape")
     public ReaderContext(
         ShardSearchContextId id,
@@ -191,6 +195,25 @@ public class ReaderContext implements Releasable {
         context.put(key, value);
     }
 
+    /**
+     * Storage for state that later requests against this reader, like the
+     * next page of a search against a point in time, can pick up and reuse.
+     * Unlike {@link #putInContext} this is safe to use from concurrent
+     * requests. Values that are {@link Releasable} are released when this
+     * context is freed. Whoever replaces or removes one before that has to
+     * release it.
+     */
+    public synchronized ConcurrentMap<String, Object> sharedState() {
+        if (sharedState == null) {
+            final ConcurrentMap<String, Object> state = ConcurrentCollections.newConcurrentMap();
+            addOnClose(
+                () -> Releasables.close(state.values().stream().filter(Releasable.class::isInstance).map(Releasable.class::cast).toList())
+            );
+            sharedState = state;
+        }
+        return sharedState;
+    }
+
     public long getStartTimeInNano() {
         return startTimeInNano;
     }
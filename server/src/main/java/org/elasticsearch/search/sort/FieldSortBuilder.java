@@ -14,6 +14,7 @@ import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.MultiTerms;
 import org.apache.lucene.index.PointValues;
 import org.apache.lucene.index.Terms;
+import org.apache.lucene.search.Query;
 import org.apache.lucene.search.SortField;
 import org.elasticsearch.ElasticsearchParseException;
 import org.elasticsearch.TransportVersion;
@@ -391,6 +392,70 @@ public final class FieldSortBuilder extends SortBuilder<FieldSortBuilder> {
         return nestedSort == null && (missing == null || "_last".equals(missing));
     }
 
+    /**
+     * Builds a filter that matches the documents whose primary sort value is at least as competitive as the
+     * primary sort value provided in the <code>bottomSortValues</code> or {@code null} if we can't build one.
+     * Documents that don't match the filter can't make it into the top hits so it's safe to skip them when
+     * nothing else needs to see every matching document.
+     */
+    public Query buildBottomSortFilterOrNull(SearchExecutionContext context, SearchSortValuesAndFormats bottomSortValues) {
+        if (bottomSortValues == null || bottomSortValues.getRawSortValues().length == 0) {
+            return null;
+        }
+        if (canRewriteToMatchNone() == false || numericType != null || sortMode == SortMode.SUM) {
+            // the sum of many values can be more competitive than any single value
+            return null;
+        }
+        MappedFieldType fieldType = context.getFieldType(fieldName);
+        if (false == (fieldType instanceof NumberFieldType || fieldType instanceof DateFieldType)) {
+            return null;
+        }
+        if (fieldType.isIndexed() == false) {
+            // without points the filter couldn't skip anything
+            return null;
+        }
+        Object rawBottomSortValue = bottomSortValues.getRawSortValues()[0];
+        Object bottomSortValue = bottomSortValues.getFormattedSortValues()[0];
+        if (bottomSortValue == null || isMissingValueSubstitute(rawBottomSortValue)) {
+            // documents without a value could tie with the bottom
+            return null;
+        }
+        DocValueFormat docValueFormat = bottomSortValues.getSortValueFormats()[0];
+        final DateMathParser dateMathParser;
+        if (docValueFormat instanceof DocValueFormat.DateTime) {
+            dateMathParser = ((DocValueFormat.DateTime) docValueFormat).getDateMathParser();
+        } else {
+            dateMathParser = null;
+        }
+        Object minValue = order() == SortOrder.DESC ? bottomSortValue : null;
+        Object maxValue = order() == SortOrder.DESC ? null : bottomSortValue;
+        try {
+            return fieldType.rangeQuery(minValue, maxValue, true, true, null, null, dateMathParser, context);
+        } catch (ElasticsearchParseException | IllegalArgumentException exc) {
+            // can happen if the sort field is mapped differently in another search index
+            return null;
+        }
+    }
+
+    /**
+     * Is this raw sort value the one we use to sort documents without a value first or last?
+     */
+    private static boolean isMissingValueSubstitute(Object rawSortValue) {
+        if (rawSortValue instanceof Long l) {
+            return l == Long.MIN_VALUE || l == Long.MAX_VALUE;
+        }
+        if (rawSortValue instanceof Integer i) {
+            return i == Integer.MIN_VALUE || i == Integer.MAX_VALUE;
+        }
+        if (rawSortValue instanceof Double d) {
+            return d.isInfinite();
+        }
+        if (rawSortValue instanceof Float f) {
+            return f.isInfinite();
+        }
+        return false;
+    }
+
     /**
      * Returns whether some values of the given {@link SearchExecutionContext#getIndexReader()} are within the
      * primary sort value provided in the <code>bottomSortValues</code>.
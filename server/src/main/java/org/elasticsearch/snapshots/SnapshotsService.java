@@ -148,6 +148,8 @@ public final class SnapshotsService extends AbstractLifecycleComponent implement
 
     public static final IndexVersion FILE_INFO_WRITER_UUIDS_IN_SHARD_DATA_VERSION = IndexVersions.V_7_16_0;
 
+    public static final IndexVersion SHARD_INDEX_DELTAS_VERSION = IndexVersions.SHARD_INDEX_DELTAS;
+
     public static final IndexVersion OLD_SNAPSHOT_FORMAT = IndexVersions.V_7_5_0;
 
     public static final String POLICY_ID_METADATA_FIELD = "policy";
@@ -2364,6 +2366,17 @@ public final class SnapshotsService extends AbstractLifecycleComponent implement
         return repositoryMetaVersion.onOrAfter(FILE_INFO_WRITER_UUIDS_IN_SHARD_DATA_VERSION);
     }
 
+    /**
+     * Checks whether the metadata version supports writing the shard-level {@code index-${uuid}} blob as a delta on top of a base blob,
+     * see {@link ShardGeneration#newDelta}.
+     *
+     * @param repositoryMetaVersion version to check
+     * @return true if version supports shard-level index deltas
+     */
+    public static boolean useShardIndexDeltas(IndexVersion repositoryMetaVersion) {
+        return repositoryMetaVersion.onOrAfter(SHARD_INDEX_DELTAS_VERSION);
+    }
+
     /** Deletes snapshot from repository
      *
      * @param deleteEntry       delete entry in cluster state
@@ -0,0 +1,192 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the "Elastic License
+ * 2.0", the "GNU Affero General Public License v3.0 only", and the "Server Side
+ * Public License v 1"; you may not use this file except in compliance with, at
+ * your election, the "Elastic License 2.0", the "GNU Affero General Public
+ * License v3.0 only", or the "Server Side Public License, v 1".
+ */
+
+package org.elasticsearch.action.bulk;
+
+import org.elasticsearch.action.DocWriteRequest;
+import org.elasticsearch.action.delete.DeleteRequest;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.action.support.WriteRequest;
+import org.elasticsearch.action.update.UpdateRequest;
+import org.elasticsearch.client.internal.Requests;
+import org.elasticsearch.common.util.concurrent.EsExecutors;
+import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
+import org.elasticsearch.index.mapper.DocumentMapper;
+import org.elasticsearch.index.mapper.MapperService;
+import org.elasticsearch.index.mapper.ParsedDocument;
+import org.elasticsearch.index.mapper.SourceToParse;
+import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.plugins.internal.DocumentParsingProvider;
+import org.elasticsearch.test.ESTestCase;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.nullValue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class BulkDocumentPreParserTests extends ESTestCase {
+
+    public void testParsesIndexRequestsAhead() {
+        BulkShardRequest request = request(
+            new IndexRequest("index").id("0").source(Requests.INDEX_CONTENT_TYPE),
+            new IndexRequest("index").id("1").source(Requests.INDEX_CONTENT_TYPE).create(true),
+            new DeleteRequest("index", "2"),
+            new UpdateRequest("index", "3").doc(Requests.INDEX_CONTENT_TYPE, "field", "value"),
+            new IndexRequest("index").id("4").source(Requests.INDEX_CONTENT_TYPE)
+        );
+        DocumentMapper mapper = mockMapper();
+        MapperService mapperService = mock(MapperService.class);
+        when(mapperService.documentMapper()).thenReturn(mapper);
+
+        BulkDocumentPreParser preParser = new BulkDocumentPreParser(
+            request,
+            mapperService,
+            EsExecutors.DIRECT_EXECUTOR_SERVICE,
+            DocumentParsingProvider.EMPTY_INSTANCE
+        );
+        preParser.parseAhead(0);
+        // The current item is parsed by the executing thread
+        assertThat(preParser.take(0), nullValue());
+        assertThat(preParser.take(1).id(), equalTo("1"));
+        // Only once
+        assertThat(preParser.take(1), nullValue());
+        assertThat(preParser.take(2), nullValue());
+        assertThat(preParser.take(3), nullValue());
+        assertThat(preParser.take(4).id(), equalTo("4"));
+    }
+
+    public void testParsesWithinWindow() {
+        int items = BulkDocumentPreParser.WINDOW * 2 + between(1, 10);
+        DocWriteRequest<?>[] requests = new DocWriteRequest<?>[items];
+        for (int i = 0; i < items; i++) {
+            requests[i] = new IndexRequest("index").id(Integer.toString(i)).source(Requests.INDEX_CONTENT_TYPE);
+        }
+        List<Runnable> submitted = new ArrayList<>();
+        MapperService mapperService = mock(MapperService.class);
+        DocumentMapper mapper = mockMapper();
+        when(mapperService.documentMapper()).thenReturn(mapper);
+        BulkDocumentPreParser preParser = new BulkDocumentPreParser(
+            request(requests),
+            mapperService,
+            submitted::add,
+            DocumentParsingProvider.EMPTY_INSTANCE
+        );
+
+        preParser.parseAhead(0);
+        assertThat(submitted, hasSize(BulkDocumentPreParser.WINDOW));
+        preParser.parseAhead(0);
+        assertThat(submitted, hasSize(BulkDocumentPreParser.WINDOW));
+        preParser.parseAhead(3);
+        assertThat(submitted, hasSize(BulkDocumentPreParser.WINDOW + 3));
+        preParser.parseAhead(items - 1);
+        assertThat(submitted, hasSize(items - 1));
+
+        // Not run yet so it's parsed by the executing thread
+        assertThat(preParser.take(1), nullValue());
+        submitted.get(0).run();
+        submitted.get(1).run();
+        assertThat(preParser.take(2).id(), equalTo("2"));
+
+        // Doesn't parse anymore once closed
+        preParser.close();
+        submitted.get(2).run();
+        assertThat(preParser.take(3), nullValue());
+    }
+
+    public void testDiscardsDocumentsParsedWithAnOutdatedMapping() {
+        BulkShardRequest request = request(
+            new IndexRequest("index").id("0").source(Requests.INDEX_CONTENT_TYPE),
+            new IndexRequest("index").id("1").source(Requests.INDEX_CONTENT_TYPE),
+            new IndexRequest("index").id("2").source(Requests.INDEX_CONTENT_TYPE)
+        );
+        DocumentMapper before = mockMapper();
+        DocumentMapper after = mockMapper();
+        MapperService mapperService = mock(MapperService.class);
+        when(mapperService.documentMapper()).thenReturn(before);
+
+        BulkDocumentPreParser preParser = new BulkDocumentPreParser(
+            request,
+            mapperService,
+            EsExecutors.DIRECT_EXECUTOR_SERVICE,
+            DocumentParsingProvider.EMPTY_INSTANCE
+        );
+        preParser.parseAhead(0);
+        ParsedDocument doc = preParser.take(1);
+        assertThat(doc.id(), equalTo("1"));
+
+        // Item 2 was parsed before the mapping changed
+        when(mapperService.documentMapper()).thenReturn(after);
+        assertThat(preParser.take(2), nullValue());
+    }
+
+    public void testDiscardsFailures() {
+        BulkShardRequest request = request(
+            new IndexRequest("index").id("0").source(Requests.INDEX_CONTENT_TYPE),
+            new IndexRequest("index").id("1").source(Requests.INDEX_CONTENT_TYPE)
+        );
+        DocumentMapper mapper = mock(DocumentMapper.class);
+        when(mapper.parse(any())).thenThrow(new IllegalArgumentException("boom"));
+        MapperService mapperService = mock(MapperService.class);
+        when(mapperService.documentMapper()).thenReturn(mapper);
+
+        BulkDocumentPreParser preParser = new BulkDocumentPreParser(
+            request,
+            mapperService,
+            EsExecutors.DIRECT_EXECUTOR_SERVICE,
+            DocumentParsingProvider.EMPTY_INSTANCE
+        );
+        preParser.parseAhead(0);
+        assertThat(preParser.take(1), nullValue());
+    }
+
+    public void testStopsOnRejection() {
+        BulkShardRequest request = request(
+            new IndexRequest("index").id("0").source(Requests.INDEX_CONTENT_TYPE),
+            new IndexRequest("index").id("1").source(Requests.INDEX_CONTENT_TYPE),
+            new IndexRequest("index").id("2").source(Requests.INDEX_CONTENT_TYPE)
+        );
+        MapperService mapperService = mock(MapperService.class);
+        DocumentMapper mapper = mockMapper();
+        when(mapperService.documentMapper()).thenReturn(mapper);
+        List<Runnable> submitted = new ArrayList<>();
+
+        BulkDocumentPreParser preParser = new BulkDocumentPreParser(request, mapperService, runnable -> {
+            submitted.add(runnable);
+            throw new EsRejectedExecutionException("rejected");
+        }, DocumentParsingProvider.EMPTY_INSTANCE);
+        preParser.parseAhead(0);
+        preParser.parseAhead(1);
+        assertThat(submitted, hasSize(1));
+        assertThat(preParser.take(1), nullValue());
+        assertThat(preParser.take(2), nullValue());
+    }
+
+    private static DocumentMapper mockMapper() {
+        DocumentMapper mapper = mock(DocumentMapper.class);
+        when(mapper.parse(any())).thenAnswer(invocation -> {
+            ParsedDocument doc = mock(ParsedDocument.class);
+            when(doc.id()).thenReturn(invocation.<SourceToParse>getArgument(0).id());
+            return doc;
+        });
+        return mapper;
+    }
+
+    private static BulkShardRequest request(DocWriteRequest<?>... requests) {
+        BulkItemRequest[] items = new BulkItemRequest[requests.length];
+        for (int i = 0; i < requests.length; i++) {
+            items[i] = new BulkItemRequest(i, requests[i]);
+        }
+        return new BulkShardRequest(new ShardId("index", "_na_", 0), WriteRequest.RefreshPolicy.NONE, items);
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the "Elastic License
+ * 2.0", the "GNU Affero General Public License v3.0 only", and the "Server Side
+ * Public License v 1"; you may not use this file except in compliance with, at
+ * your election, the "Elastic License 2.0", the "GNU Affero General Public
+ * License v3.0 only", or the "Server Side Public License, v 1".
+ */
+
+package org.elasticsearch.action.bulk;
+
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.DocWriteRequest;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.action.index.IndexResponse;
+import org.elasticsearch.action.support.PlainActionFuture;
+import org.elasticsearch.client.internal.Client;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.concurrent.ThreadContext;
+import org.elasticsearch.core.AbstractRefCounted;
+import org.elasticsearch.index.IndexingPressure;
+import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.test.ESTestCase;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasSize;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+public class IncrementalBulkServiceTests extends ESTestCase {
+
+    private final List<BulkRequest> sent = new ArrayList<>();
+    private final List<ActionListener<BulkResponse>> inProgress = new ArrayList<>();
+    private IndexingPressure indexingPressure;
+    private IncrementalBulkService service;
+
+    @Override
+    public void setUp() throws Exception {
+        super.setUp();
+        Client client = mock(Client.class);
+        doAnswer(invocation -> {
+            sent.add(invocation.getArgument(0));
+            inProgress.add(invocation.getArgument(1));
+            return null;
+        }).when(client).bulk(any(), any());
+        // Every addItems call makes a sub-batch of its own
+        indexingPressure = new IndexingPressure(
+            Settings.builder().put(IndexingPressure.SPLIT_BULK_STREAMING_SIZE.getKey(), "1b").build()
+        );
+        service = new IncrementalBulkService(client, indexingPressure, new ThreadContext(Settings.EMPTY));
+    }
+
+    public void testSendsSubBatchesWhileReading() {
+        IncrementalBulkService.Handler handler = service.newBulkRequest();
+        AbstractRefCounted refCounted = AbstractRefCounted.of(() -> {});
+        AtomicInteger nextItems = new AtomicInteger();
+
+        refCounted.incRef();
+        handler.addItems(List.of(indexRequest("1"), indexRequest("2")), refCounted::decRef, nextItems::incrementAndGet);
+        // Sent right away and the next items are read while it's indexed
+        assertThat(sent, hasSize(1));
+        assertThat(nextItems.get(), equalTo(1));
+
+        refCounted.incRef();
+        handler.addItems(List.of(indexRequest("3")), refCounted::decRef, nextItems::incrementAndGet);
+        // Waits for the sub-batch in progress and doesn't read any further meanwhile
+        assertThat(sent, hasSize(1));
+        assertThat(nextItems.get(), equalTo(1));
+
+        respond(0);
+        assertThat(sent, hasSize(2));
+        assertThat(nextItems.get(), equalTo(2));
+        assertThat(sent.get(1).incrementalState().indexingPressureAccounted(), equalTo(true));
+
+        PlainActionFuture<BulkResponse> future = new PlainActionFuture<>();
+        handler.lastItems(List.of(indexRequest("4")), refCounted::decRef, future);
+        assertThat(sent, hasSize(2));
+        respond(1);
+        assertThat(sent, hasSize(3));
+        assertFalse(future.isDone());
+        respond(2);
+
+        BulkResponse response = future.actionGet();
+        assertFalse(response.hasFailures());
+        assertThat(Arrays.stream(response.getItems()).map(BulkItemResponse::getId).toList(), contains("1", "2", "3", "4"));
+        assertFalse(refCounted.hasReferences());
+        assertThat(indexingPressure.stats().getCurrentCoordinatingBytes(), equalTo(0L));
+    }
+
+    public void testFailureFailsTheWaitingSubBatch() {
+        IncrementalBulkService.Handler handler = service.newBulkRequest();
+        AbstractRefCounted refCounted = AbstractRefCounted.of(() -> {});
+        AtomicInteger nextItems = new AtomicInteger();
+
+        refCounted.incRef();
+        handler.addItems(List.of(indexRequest("1")), refCounted::decRef, nextItems::incrementAndGet);
+        respond(0);
+        refCounted.incRef();
+        handler.addItems(List.of(indexRequest("2")), refCounted::decRef, nextItems::incrementAndGet);
+        refCounted.incRef();
+        handler.addItems(List.of(indexRequest("3")), refCounted::decRef, nextItems::incrementAndGet);
+        assertThat(sent, hasSize(2));
+        assertThat(nextItems.get(), equalTo(2));
+
+        inProgress.get(1).onFailure(new IllegalStateException("boom"));
+        // Not sent but reading carries on to short circuit the remaining items
+        assertThat(sent, hasSize(2));
+        assertThat(nextItems.get(), equalTo(3));
+
+        PlainActionFuture<BulkResponse> future = new PlainActionFuture<>();
+        handler.lastItems(List.of(indexRequest("4")), refCounted::decRef, future);
+        BulkResponse response = future.actionGet();
+        assertThat(Arrays.stream(response.getItems()).map(BulkItemResponse::isFailed).toList(), contains(false, true, true, true));
+        assertThat(response.getItems()[2].getFailure().getCause().getMessage(), equalTo("boom"));
+        assertFalse(refCounted.hasReferences());
+        assertThat(indexingPressure.stats().getCurrentCoordinatingBytes(), equalTo(0L));
+    }
+
+    private void respond(int request) {
+        List<DocWriteRequest<?>> requests = sent.get(request).requests();
+        BulkItemResponse[] items = new BulkItemResponse[requests.size()];
+        for (int i = 0; i < items.length; i++) {
+            IndexResponse indexResponse = new IndexResponse(new ShardId("index", "_na_", 0), requests.get(i).id(), 1, 1, 1, true);
+            items[i] = BulkItemResponse.success(i, DocWriteRequest.OpType.INDEX, indexResponse);
+        }
+        inProgress.get(request).onResponse(new BulkResponse(items, 0, 0, new BulkRequest.IncrementalState(Map.of(), true)));
+    }
+
+    private static IndexRequest indexRequest(String id) {
+        return new IndexRequest("index").id(id).source(Map.of("field", randomAlphaOfLength(10)));
+    }
+}
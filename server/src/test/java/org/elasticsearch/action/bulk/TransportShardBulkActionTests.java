@@ -44,6 +44,7 @@ import org.elasticsearch.index.mapper.Mapping;
 import org.elasticsearch.index.mapper.MappingLookup;
 import org.elasticsearch.index.mapper.MetadataFieldMapper;
 import org.elasticsearch.index.mapper.RootObjectMapper;
+import org.elasticsearch.index.seqno.SequenceNumbers;
 import org.elasticsearch.index.shard.IndexShard;
 import org.elasticsearch.index.shard.IndexShardTestCase;
 import org.elasticsearch.index.shard.ShardId;
@@ -60,6 +61,8 @@ import org.mockito.stubbing.Stubbing;
 
 import java.io.IOException;
 import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
 import java.util.concurrent.BrokenBarrierException;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.CyclicBarrier;
@@ -254,6 +257,51 @@ public class TransportShardBulkActionTests extends IndexShardTestCase {
         latch.await();
     }
 
+    public void testExecuteBulkIndexRequestsParsedAhead() throws Exception {
+        IndexShard shard = newStartedShard(true);
+
+        BulkItemRequest[] items = new BulkItemRequest[between(2, BulkDocumentPreParser.WINDOW * 4)];
+        Set<String> liveIds = new HashSet<>();
+        for (int i = 0; i < items.length; i++) {
+            final DocWriteRequest<?> writeRequest;
+            if (rarely()) {
+                writeRequest = new DeleteRequest("index", "id_" + between(0, i));
+                liveIds.remove(writeRequest.id());
+            } else {
+                writeRequest = new IndexRequest("index").id("id_" + i).source(Requests.INDEX_CONTENT_TYPE).create(randomBoolean());
+                liveIds.add(writeRequest.id());
+            }
+            items[i] = new BulkItemRequest(i, writeRequest);
+        }
+        BulkShardRequest bulkShardRequest = new BulkShardRequest(shardId, RefreshPolicy.NONE, items);
+
+        final CountDownLatch latch = new CountDownLatch(1);
+        TransportShardBulkAction.performOnPrimary(
+            bulkShardRequest,
+            shard,
+            null,
+            threadPool::absoluteTimeInMillis,
+            new NoopMappingUpdatePerformer(),
+            (listener, mappingVersion) -> {},
+            ActionListener.runAfter(ActionTestUtils.assertNoFailureListener(result -> {
+                // items are still executed in order so their sequence numbers are too
+                long seqNo = SequenceNumbers.NO_OPS_PERFORMED;
+                for (int i = 0; i < items.length; i++) {
+                    BulkItemResponse response = result.replicationResponse.getResponses()[i];
+                    assertThat(response.getItemId(), equalTo(i));
+                    assertFalse(response.isFailed());
+                    assertThat(response.getResponse().getSeqNo(), equalTo(seqNo + 1));
+                    seqNo = response.getResponse().getSeqNo();
+                }
+            }), latch::countDown),
+            threadPool.executor(Names.WRITE)
+        );
+        latch.await();
+
+        assertDocCount(shard, liveIds.size());
+        closeShards(shard);
+    }
+
     public void testExecuteBulkIndexRequestWithMappingUpdates() throws Exception {
 
         BulkItemRequest[] items = new BulkItemRequest[1];
@@ -16,24 +16,38 @@ import org.elasticsearch.client.internal.Client;
 import org.elasticsearch.client.internal.IndicesAdminClient;
 import org.elasticsearch.cluster.ClusterName;
 import org.elasticsearch.cluster.ClusterState;
+import org.elasticsearch.cluster.NotMasterException;
+import org.elasticsearch.cluster.coordination.FailedToCommitClusterStateException;
+import org.elasticsearch.cluster.metadata.ProcessClusterEventTimeoutException;
 import org.elasticsearch.cluster.node.DiscoveryNodeUtils;
 import org.elasticsearch.cluster.node.DiscoveryNodes;
 import org.elasticsearch.cluster.service.ClusterService;
 import org.elasticsearch.common.settings.ClusterSettings;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.util.concurrent.AdjustableSemaphore;
+import org.elasticsearch.core.TimeValue;
 import org.elasticsearch.index.Index;
+import org.elasticsearch.index.IndexVersion;
+import org.elasticsearch.index.mapper.KeywordFieldMapper;
 import org.elasticsearch.index.mapper.MapperBuilderContext;
 import org.elasticsearch.index.mapper.Mapping;
 import org.elasticsearch.index.mapper.MetadataFieldMapper;
 import org.elasticsearch.index.mapper.ObjectMapper;
 import org.elasticsearch.index.mapper.RootObjectMapper;
+import org.elasticsearch.telemetry.InstrumentType;
+import org.elasticsearch.telemetry.Measurement;
+import org.elasticsearch.telemetry.RecordingMeterRegistry;
+import org.elasticsearch.telemetry.metric.MeterRegistry;
 import org.elasticsearch.test.ESTestCase;
+import org.elasticsearch.transport.RemoteTransportException;
 
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
 
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
@@ -127,6 +141,218 @@ public class MappingUpdatedActionTests extends ESTestCase {
         assertTrue(fut2.isDone());
     }
 
+    public void testCoalescesUpdatesForTheSameIndex() throws Exception {
+        List<Mapping> sentUpdates = new CopyOnWriteArrayList<>();
+        List<ActionListener<Void>> inFlightListeners = new CopyOnWriteArrayList<>();
+        final MappingUpdatedAction mua = newBlockingAction(sentUpdates, inFlightListeners);
+        Index index = new Index("index", "uuid");
+
+        PlainActionFuture<Void> fut1 = new PlainActionFuture<>();
+        mua.updateMappingOnMaster(new Index("other", "uuid"), dynamicUpdate("a"), fut1);
+        PlainActionFuture<Void> fut2 = new PlainActionFuture<>();
+        Thread thread = new Thread(() -> mua.updateMappingOnMaster(index, dynamicUpdate("b"), fut2));
+        thread.start();
+        assertBusy(() -> assertEquals(1, mua.blockedThreads()));
+
+        // Merged into the blocked update without blocking
+        PlainActionFuture<Void> fut3 = new PlainActionFuture<>();
+        mua.updateMappingOnMaster(index, dynamicUpdate("c"), fut3);
+        assertEquals(1, mua.blockedThreads());
+
+        inFlightListeners.remove(0).onResponse(null);
+        assertTrue(fut1.isDone());
+        thread.join();
+        assertEquals(2, sentUpdates.size());
+        assertThat(sentUpdates.get(1).toString(), containsString("\"b\""));
+        assertThat(sentUpdates.get(1).toString(), containsString("\"c\""));
+        assertFalse(fut2.isDone());
+        assertFalse(fut3.isDone());
+
+        inFlightListeners.remove(0).onResponse(null);
+        assertTrue(fut2.isDone());
+        assertTrue(fut3.isDone());
+        assertTrue(inFlightListeners.isEmpty());
+    }
+
+    public void testRecordsWaitTimeAndCoalescedUpdates() throws Exception {
+        RecordingMeterRegistry meterRegistry = new RecordingMeterRegistry();
+        List<Mapping> sentUpdates = new CopyOnWriteArrayList<>();
+        List<ActionListener<Void>> inFlightListeners = new CopyOnWriteArrayList<>();
+        final MappingUpdatedAction mua = newBlockingAction(sentUpdates, inFlightListeners, meterRegistry);
+        Index index = new Index("index", "uuid");
+
+        PlainActionFuture<Void> fut1 = new PlainActionFuture<>();
+        mua.updateMappingOnMaster(new Index("other", "uuid"), dynamicUpdate("a"), fut1);
+        PlainActionFuture<Void> fut2 = new PlainActionFuture<>();
+        Thread thread = new Thread(() -> mua.updateMappingOnMaster(index, dynamicUpdate("b"), fut2));
+        thread.start();
+        assertBusy(() -> assertEquals(1, mua.blockedThreads()));
+        PlainActionFuture<Void> fut3 = new PlainActionFuture<>();
+        mua.updateMappingOnMaster(index, dynamicUpdate("c"), fut3);
+
+        inFlightListeners.remove(0).onResponse(null);
+        thread.join();
+        inFlightListeners.remove(0).onResponse(null);
+        fut2.actionGet();
+        fut3.actionGet();
+
+        // Only the updates that waited for a permit record their wait time, the merged one did not wait
+        List<Measurement> waitTimes = meterRegistry.getRecorder()
+            .getMeasurements(InstrumentType.LONG_HISTOGRAM, MappingUpdatedAction.WAIT_TIME_METRIC);
+        assertEquals(2, waitTimes.size());
+        for (Measurement waitTime : waitTimes) {
+            assertThat(waitTime.getLong(), greaterThanOrEqualTo(0L));
+        }
+        List<Measurement> coalesced = Measurement.combine(
+            meterRegistry.getRecorder().getMeasurements(InstrumentType.LONG_COUNTER, MappingUpdatedAction.COALESCED_METRIC)
+        );
+        assertEquals(1, coalesced.size());
+        assertEquals(1L, coalesced.get(0).getLong());
+    }
+
+    public void testSendsUpdateOnItsOwnIfItFailsToMerge() throws Exception {
+        List<Mapping> sentUpdates = new CopyOnWriteArrayList<>();
+        List<ActionListener<Void>> inFlightListeners = new CopyOnWriteArrayList<>();
+        final MappingUpdatedAction mua = newBlockingAction(sentUpdates, inFlightListeners);
+        Index index = new Index("index", "uuid");
+
+        PlainActionFuture<Void> fut1 = new PlainActionFuture<>();
+        mua.updateMappingOnMaster(new Index("other", "uuid"), dynamicUpdate("a"), fut1);
+        PlainActionFuture<Void> fut2 = new PlainActionFuture<>();
+        Thread thread = new Thread(() -> mua.updateMappingOnMaster(index, dynamicUpdate("b"), fut2));
+        thread.start();
+        assertBusy(() -> assertEquals(1, mua.blockedThreads()));
+
+        // Mapping the same field to another type can't be merged, so the update waits for a permit of its own
+        PlainActionFuture<Void> fut3 = new PlainActionFuture<>();
+        Thread otherThread = new Thread(() -> mua.updateMappingOnMaster(index, dynamicObjectUpdate("b"), fut3));
+        otherThread.start();
+        assertBusy(() -> assertEquals(2, mua.blockedThreads()));
+
+        inFlightListeners.remove(0).onResponse(null);
+        assertBusy(() -> assertEquals(2, sentUpdates.size()));
+        inFlightListeners.remove(0).onResponse(null);
+        thread.join();
+        fut2.actionGet();
+        assertBusy(() -> assertEquals(3, sentUpdates.size()));
+        inFlightListeners.remove(0).onResponse(null);
+        otherThread.join();
+        fut3.actionGet();
+        assertThat(sentUpdates.get(1).toString(), containsString("keyword"));
+        assertThat(sentUpdates.get(2).toString(), containsString("object"));
+    }
+
+    public void testSendsMergedUpdatesOneByOneOnFailure() throws Exception {
+        List<Mapping> sentUpdates = new CopyOnWriteArrayList<>();
+        List<ActionListener<Void>> inFlightListeners = new CopyOnWriteArrayList<>();
+        final MappingUpdatedAction mua = newBlockingAction(sentUpdates, inFlightListeners);
+        Index index = new Index("index", "uuid");
+
+        PlainActionFuture<Void> fut1 = new PlainActionFuture<>();
+        mua.updateMappingOnMaster(new Index("other", "uuid"), dynamicUpdate("a"), fut1);
+        PlainActionFuture<Void> fut2 = new PlainActionFuture<>();
+        Thread thread = new Thread(() -> mua.updateMappingOnMaster(index, dynamicUpdate("b"), fut2));
+        thread.start();
+        assertBusy(() -> assertEquals(1, mua.blockedThreads()));
+        PlainActionFuture<Void> fut3 = new PlainActionFuture<>();
+        mua.updateMappingOnMaster(index, dynamicUpdate("c"), fut3);
+
+        inFlightListeners.remove(0).onResponse(null);
+        thread.join();
+        inFlightListeners.remove(0).onFailure(new IllegalArgumentException("limit of total fields exceeded"));
+
+        // The updates are sent one after the other
+        assertEquals(3, sentUpdates.size());
+        assertEquals(1, inFlightListeners.size());
+        inFlightListeners.remove(0).onFailure(new IllegalArgumentException("limit of total fields exceeded"));
+        expectThrows(IllegalArgumentException.class, fut2::actionGet);
+        assertFalse(fut3.isDone());
+        assertEquals(4, sentUpdates.size());
+        assertEquals(1, inFlightListeners.size());
+        inFlightListeners.remove(0).onResponse(null);
+        fut3.actionGet();
+
+        // The permit was released once both were done
+        PlainActionFuture<Void> fut4 = new PlainActionFuture<>();
+        mua.updateMappingOnMaster(index, dynamicUpdate("d"), fut4);
+        assertEquals(1, inFlightListeners.size());
+    }
+
+    public void testFailsMergedUpdatesIfTheMasterFailsToProcessThem() throws Exception {
+        List<Mapping> sentUpdates = new CopyOnWriteArrayList<>();
+        List<ActionListener<Void>> inFlightListeners = new CopyOnWriteArrayList<>();
+        final MappingUpdatedAction mua = newBlockingAction(sentUpdates, inFlightListeners);
+        Index index = new Index("index", "uuid");
+
+        PlainActionFuture<Void> fut1 = new PlainActionFuture<>();
+        mua.updateMappingOnMaster(new Index("other", "uuid"), dynamicUpdate("a"), fut1);
+        PlainActionFuture<Void> fut2 = new PlainActionFuture<>();
+        Thread thread = new Thread(() -> mua.updateMappingOnMaster(index, dynamicUpdate("b"), fut2));
+        thread.start();
+        assertBusy(() -> assertEquals(1, mua.blockedThreads()));
+        PlainActionFuture<Void> fut3 = new PlainActionFuture<>();
+        mua.updateMappingOnMaster(index, dynamicUpdate("c"), fut3);
+
+        inFlightListeners.remove(0).onResponse(null);
+        thread.join();
+        final Exception failure = randomFrom(
+            new ProcessClusterEventTimeoutException(TimeValue.timeValueSeconds(30), "put-mapping"),
+            new NotMasterException("no longer master"),
+            new FailedToCommitClusterStateException("failed to commit"),
+            new RemoteTransportException("remote", new NotMasterException("no longer master"))
+        );
+        inFlightListeners.remove(0).onFailure(failure);
+
+        // Sending the updates one by one would not help, so they all fail without being sent again
+        assertEquals(2, sentUpdates.size());
+        assertTrue(inFlightListeners.isEmpty());
+        assertSame(failure, expectThrows(ExecutionException.class, fut2::get).getCause());
+        assertSame(failure, expectThrows(ExecutionException.class, fut3::get).getCause());
+
+        // The permit was released
+        PlainActionFuture<Void> fut4 = new PlainActionFuture<>();
+        mua.updateMappingOnMaster(index, dynamicUpdate("d"), fut4);
+        assertEquals(1, inFlightListeners.size());
+    }
+
+    private static MappingUpdatedAction newBlockingAction(List<Mapping> sentUpdates, List<ActionListener<Void>> inFlightListeners) {
+        return newBlockingAction(sentUpdates, inFlightListeners, MeterRegistry.NOOP);
+    }
+
+    private static MappingUpdatedAction newBlockingAction(
+        List<Mapping> sentUpdates,
+        List<ActionListener<Void>> inFlightListeners,
+        MeterRegistry meterRegistry
+    ) {
+        return new MappingUpdatedAction(
+            Settings.builder().put(MappingUpdatedAction.INDICES_MAX_IN_FLIGHT_UPDATES_SETTING.getKey(), 1).build(),
+            new ClusterSettings(Settings.EMPTY, ClusterSettings.BUILT_IN_CLUSTER_SETTINGS),
+            meterRegistry
+        ) {
+            @Override
+            protected void sendUpdateMapping(Index index, Mapping mappingUpdate, ActionListener<Void> listener) {
+                sentUpdates.add(mappingUpdate);
+                inFlightListeners.add(listener);
+            }
+        };
+    }
+
+    private static Mapping dynamicUpdate(String field) {
+        RootObjectMapper root = new RootObjectMapper.Builder("_doc", ObjectMapper.Defaults.SUBOBJECTS).add(
+            new KeywordFieldMapper.Builder(field, IndexVersion.current())
+        ).build(MapperBuilderContext.root(false, false));
+        return new Mapping(root, new MetadataFieldMapper[0], null);
+    }
+
+    private static Mapping dynamicObjectUpdate(String field) {
+        ObjectMapper.Builder object = new ObjectMapper.Builder(field, ObjectMapper.Defaults.SUBOBJECTS).add(
+            new KeywordFieldMapper.Builder("c", IndexVersion.current())
+        );
+        RootObjectMapper root = new RootObjectMapper.Builder("_doc", ObjectMapper.Defaults.SUBOBJECTS).add(object)
+            .build(MapperBuilderContext.root(false, false));
+        return new Mapping(root, new MetadataFieldMapper[0], null);
+    }
+
     public void testSendUpdateMappingUsingAutoPutMappingAction() {
         DiscoveryNodes nodes = DiscoveryNodes.builder().add(DiscoveryNodeUtils.builder("first").build()).build();
         ClusterState clusterState = ClusterState.builder(new ClusterName("_name")).nodes(nodes).build();
@@ -37,6 +37,7 @@ import org.elasticsearch.common.util.MockPageCacheRecycler;
 import org.elasticsearch.common.util.concurrent.DeterministicTaskQueue;
 import org.elasticsearch.core.IOUtils;
 import org.elasticsearch.core.Nullable;
+import org.elasticsearch.core.TimeValue;
 import org.elasticsearch.index.IndexVersions;
 import org.elasticsearch.tasks.Task;
 import org.elasticsearch.tasks.TaskId;
@@ -49,6 +50,7 @@ import org.elasticsearch.threadpool.TestThreadPool;
 import org.elasticsearch.threadpool.ThreadPool;
 import org.elasticsearch.transport.BytesRefRecycler;
 import org.elasticsearch.transport.BytesTransportRequest;
+import org.elasticsearch.transport.NodeNotConnectedException;
 import org.elasticsearch.transport.RemoteTransportException;
 import org.elasticsearch.transport.TestTransportChannel;
 import org.elasticsearch.transport.Transport;
@@ -60,6 +62,7 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -68,11 +71,16 @@ import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
 
 import static java.util.Collections.emptyMap;
 import static org.elasticsearch.cluster.service.MasterService.STATE_UPDATE_ACTION_NAME;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
 import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.instanceOf;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
@@ -520,4 +528,241 @@ public class PublicationTransportHandlerTests extends ESTestCase {
         assertFalse(deterministicTaskQueue.hasRunnableTasks());
         assertFalse(deterministicTaskQueue.hasDeferredTasks());
     }
+
+    public void testRelaysDiffsThroughRelayNodes() {
+        final var deterministicTaskQueue = new DeterministicTaskQueue();
+        final var threadPool = deterministicTaskQueue.getThreadPool();
+
+        final var masterNode = DiscoveryNodeUtils.create("masterNode");
+        final var dataNodes = new ArrayList<DiscoveryNode>();
+        for (int i = 0; i < 5; i++) {
+            dataNodes.add(DiscoveryNodeUtils.builder("dataNode" + i).roles(Set.of(DiscoveryNodeRole.DATA_ROLE)).build());
+        }
+
+        final var transportsByNode = new HashMap<DiscoveryNode, MockTransport>();
+        final var transportHandlersByNode = new HashMap<DiscoveryNode, PublicationTransportHandler>();
+        final var transportServicesByNode = new HashMap<DiscoveryNode, TransportService>();
+        final var receivedStates = new HashMap<DiscoveryNode, ClusterState>();
+        final var masterRequests = new ArrayList<String>();
+        final var failRelayRequests = new AtomicBoolean();
+        final var failForwardedRequests = new AtomicBoolean();
+        final var dropForwardedRequests = new AtomicBoolean();
+        final var unresponsiveNode = new AtomicReference<DiscoveryNode>();
+        final var droppedRequests = new ArrayList<Transport.ResponseContext<TransportResponse>>();
+
+        final var allNodes = new ArrayList<>(dataNodes);
+        allNodes.add(masterNode);
+        for (final var discoveryNode : allNodes) {
+            final var transport = new MockTransport() {
+                @Override
+                protected void onSendRequest(long requestId, String action, TransportRequest request, DiscoveryNode node) {
+                    @SuppressWarnings("unchecked")
+                    final var context = (ResponseContext<TransportResponse>) getResponseHandlers().remove(requestId);
+                    if (discoveryNode.equals(masterNode)) {
+                        masterRequests.add(action);
+                        if (failRelayRequests.get() && action.equals(PublicationTransportHandler.PUBLISH_STATE_RELAY_ACTION_NAME)) {
+                            context.handler().handleException(new NodeNotConnectedException(node, "simulated"));
+                            return;
+                        }
+                    } else if (failForwardedRequests.get()) {
+                        context.handler().handleException(new NodeNotConnectedException(node, "simulated"));
+                        return;
+                    } else if (dropForwardedRequests.get()) {
+                        // the first node a relay forwards to never receives the diff, but still handles it if it comes from the master
+                        unresponsiveNode.compareAndSet(null, node);
+                        if (node.equals(unresponsiveNode.get())) {
+                            droppedRequests.add(context);
+                            return;
+                        }
+                    }
+                    try {
+                        transportsByNode.get(node)
+                            .getRequestHandlers()
+                            .getHandler(action)
+                            .getHandler()
+                            .messageReceived(request, new TestTransportChannel(new ActionListener<>() {
+                                @Override
+                                public void onResponse(TransportResponse transportResponse) {
+                                    context.handler().handleResponse(transportResponse);
+                                }
+
+                                @Override
+                                public void onFailure(Exception e) {
+                                    fail(e);
+                                }
+                            }), new Task(randomNonNegativeLong(), "test", "test", "", TaskId.EMPTY_TASK_ID, Map.of()));
+                    } catch (IncompatibleClusterStateVersionException e) {
+                        context.handler().handleException(new RemoteTransportException("wrapped", e));
+                    } catch (Exception e) {
+                        fail(e);
+                    }
+                }
+            };
+            transportsByNode.put(discoveryNode, transport);
+
+            final var transportService = transport.createTransportService(
+                Settings.EMPTY,
+                threadPool,
+                TransportService.NOOP_TRANSPORT_INTERCEPTOR,
+                ignored -> discoveryNode,
+                null,
+                Set.of()
+            );
+            transportServicesByNode.put(discoveryNode, transportService);
+
+            final var publicationTransportHandler = new PublicationTransportHandler(
+                transportService,
+                writableRegistry(),
+                publishRequest -> {
+                    assertNull(receivedStates.put(discoveryNode, publishRequest.getAcceptedState()));
+                    return new PublishWithJoinResponse(
+                        new PublishResponse(publishRequest.getAcceptedState().term(), publishRequest.getAcceptedState().version()),
+                        Optional.empty()
+                    );
+                }
+            );
+            transportHandlersByNode.put(discoveryNode, publicationTransportHandler);
+        }
+
+        for (final var transportService : transportServicesByNode.values()) {
+            transportService.start();
+            transportService.acceptIncomingRequests();
+        }
+
+        threadPool.getThreadContext().markAsSystemContext();
+        final var masterHandler = transportHandlersByNode.get(masterNode);
+        // one group of a relay and two other nodes, and one group of a relay and one other node
+        masterHandler.setRelayFanOut(2);
+        final var relayTimeout = TimeValue.timeValueSeconds(between(1, 30));
+        masterHandler.setRelayTimeout(relayTimeout);
+
+        final var nodes = DiscoveryNodes.builder().add(masterNode).localNodeId(masterNode.getId()).masterNodeId(masterNode.getId());
+        dataNodes.forEach(nodes::add);
+        final var clusterState0 = ClusterState.builder(ClusterState.EMPTY_STATE)
+            .nodes(nodes)
+            .metadata(
+                Metadata.builder()
+                    .coordinationMetadata(
+                        CoordinationMetadata.builder().lastAcceptedConfiguration(VotingConfiguration.of(masterNode)).build()
+                    )
+                    .generateClusterUuidIfNeeded()
+            )
+            .build();
+
+        final var responses = new HashSet<DiscoveryNode>();
+        final var failures = new HashSet<DiscoveryNode>();
+        final BiConsumer<ClusterState, ClusterState> publish = (previousState, newState) -> {
+            responses.clear();
+            failures.clear();
+            receivedStates.clear();
+            masterRequests.clear();
+            final var context = masterHandler.newPublicationContext(
+                new ClusterStatePublicationEvent(
+                    new BatchSummary(() -> "test"),
+                    previousState,
+                    newState,
+                    new Task(randomNonNegativeLong(), "test", "test", "", TaskId.EMPTY_TASK_ID, Map.of()),
+                    0L,
+                    0L
+                )
+            );
+            try {
+                for (final var dataNode : dataNodes) {
+                    context.sendPublishRequest(
+                        dataNode,
+                        new PublishRequest(newState),
+                        ActionListener.wrap(r -> assertTrue(responses.add(dataNode)), e -> assertTrue(failures.add(dataNode)))
+                    );
+                }
+                // held back until all the publish requests have been issued
+                assertThat(masterRequests, hasSize(0));
+                context.sendRelayedPublishRequests();
+                deterministicTaskQueue.runAllTasks();
+            } finally {
+                context.decRef();
+            }
+        };
+
+        // The nodes don't have a state to apply the diff to yet, the master sends them the full state directly
+        publish.accept(clusterState0, clusterState0);
+        assertThat(responses, equalTo(Set.copyOf(dataNodes)));
+        assertThat(receivedStates.keySet(), equalTo(Set.copyOf(dataNodes)));
+        assertThat(
+            masterRequests,
+            containsInAnyOrder(
+                PublicationTransportHandler.PUBLISH_STATE_RELAY_ACTION_NAME,
+                PublicationTransportHandler.PUBLISH_STATE_RELAY_ACTION_NAME,
+                PublicationTransportHandler.PUBLISH_STATE_ACTION_NAME,
+                PublicationTransportHandler.PUBLISH_STATE_ACTION_NAME,
+                PublicationTransportHandler.PUBLISH_STATE_ACTION_NAME,
+                PublicationTransportHandler.PUBLISH_STATE_ACTION_NAME,
+                PublicationTransportHandler.PUBLISH_STATE_ACTION_NAME
+            )
+        );
+
+        // The diff only goes to the relays
+        final var clusterState1 = ClusterState.builder(clusterState0).incrementVersion().build();
+        publish.accept(clusterState0, clusterState1);
+        assertThat(responses, equalTo(Set.copyOf(dataNodes)));
+        assertThat(
+            masterRequests,
+            contains(
+                PublicationTransportHandler.PUBLISH_STATE_RELAY_ACTION_NAME,
+                PublicationTransportHandler.PUBLISH_STATE_RELAY_ACTION_NAME
+            )
+        );
+        for (final var dataNode : dataNodes) {
+            assertEquals(clusterState1.stateUUID(), receivedStates.get(dataNode).stateUUID());
+            assertEquals(dataNode, receivedStates.get(dataNode).nodes().getLocalNode());
+            assertEquals(1, transportHandlersByNode.get(dataNode).stats().getCompatibleClusterStateDiffReceivedCount());
+        }
+
+        // The relays can't reach the other nodes, the master sends them the diff directly
+        failForwardedRequests.set(true);
+        final var clusterState2 = ClusterState.builder(clusterState1).incrementVersion().build();
+        publish.accept(clusterState1, clusterState2);
+        failForwardedRequests.set(false);
+        assertThat(responses, equalTo(Set.copyOf(dataNodes)));
+        assertThat(receivedStates.keySet(), equalTo(Set.copyOf(dataNodes)));
+        assertThat(masterRequests, hasSize(5));
+
+        // One of the nodes doesn't respond to its relay, the relay responds without it once the relay timeout has elapsed and the
+        // master sends it the diff directly
+        dropForwardedRequests.set(true);
+        final var clusterState3 = ClusterState.builder(clusterState2).incrementVersion().build();
+        publish.accept(clusterState2, clusterState3);
+        dropForwardedRequests.set(false);
+        assertNotNull(unresponsiveNode.get());
+        assertThat(droppedRequests, hasSize(1));
+        assertThat(responses, equalTo(Set.copyOf(dataNodes)));
+        assertThat(receivedStates.keySet(), equalTo(Set.copyOf(dataNodes)));
+        assertThat(
+            masterRequests,
+            containsInAnyOrder(
+                PublicationTransportHandler.PUBLISH_STATE_RELAY_ACTION_NAME,
+                PublicationTransportHandler.PUBLISH_STATE_RELAY_ACTION_NAME,
+                PublicationTransportHandler.PUBLISH_STATE_ACTION_NAME
+            )
+        );
+        assertThat(deterministicTaskQueue.getCurrentTimeMillis(), greaterThanOrEqualTo(relayTimeout.millis()));
+        // a late response from the unresponsive node doesn't change anything
+        for (final var context : droppedRequests) {
+            context.handler().handleException(new NodeNotConnectedException(unresponsiveNode.get(), "late"));
+        }
+        deterministicTaskQueue.runAllTasks();
+        assertThat(responses, equalTo(Set.copyOf(dataNodes)));
+        assertThat(failures, hasSize(0));
+
+        // The relays fail, the master sends the diff to the other nodes directly
+        failRelayRequests.set(true);
+        final var clusterState4 = ClusterState.builder(clusterState3).incrementVersion().build();
+        publish.accept(clusterState3, clusterState4);
+        assertThat(failures, hasSize(2));
+        assertThat(responses, hasSize(3));
+        assertThat(receivedStates.keySet(), equalTo(responses));
+        assertThat(masterRequests, hasSize(5));
+
+        assertFalse(deterministicTaskQueue.hasRunnableTasks());
+        assertFalse(deterministicTaskQueue.hasDeferredTasks());
+    }
 }
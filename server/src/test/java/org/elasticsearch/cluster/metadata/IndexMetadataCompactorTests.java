@@ -0,0 +1,171 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the "Elastic License
+ * 2.0", the "GNU Affero General Public License v3.0 only", and the "Server Side
+ * Public License v 1"; you may not use this file except in compliance with, at
+ * your election, the "Elastic License 2.0", the "GNU Affero General Public
+ * License v3.0 only", or the "Server Side Public License, v 1".
+ */
+
+package org.elasticsearch.cluster.metadata;
+
+import org.elasticsearch.action.admin.indices.rollover.MaxDocsCondition;
+import org.elasticsearch.action.admin.indices.rollover.RolloverInfo;
+import org.elasticsearch.cluster.node.DiscoveryNodeRole;
+import org.elasticsearch.common.Strings;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.io.stream.NamedWriteableAwareStreamInput;
+import org.elasticsearch.common.io.stream.NamedWriteableRegistry;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.index.IndexVersion;
+import org.elasticsearch.indices.IndicesModule;
+import org.elasticsearch.test.ESTestCase;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.elasticsearch.test.NodeRoles.dataOnlyNode;
+import static org.elasticsearch.test.NodeRoles.masterNode;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+
+public class IndexMetadataCompactorTests extends ESTestCase {
+
+    @Override
+    protected NamedWriteableRegistry writableRegistry() {
+        return new NamedWriteableRegistry(IndicesModule.getNamedWriteables());
+    }
+
+    public void testEnabledByDefaultOnlyOnNodesThatAreNotMasterEligible() {
+        assertTrue(IndexMetadataCompactor.COMPACT_INDEX_METADATA_SETTING.get(dataOnlyNode()));
+        assertFalse(IndexMetadataCompactor.COMPACT_INDEX_METADATA_SETTING.get(masterNode()));
+        assertFalse(IndexMetadataCompactor.COMPACT_INDEX_METADATA_SETTING.get(Settings.EMPTY));
+        assertFalse(
+            IndexMetadataCompactor.COMPACT_INDEX_METADATA_SETTING.get(
+                Settings.builder().putList("node.roles", DiscoveryNodeRole.MASTER_ROLE.roleName()).build()
+            )
+        );
+
+        final Metadata metadata = Metadata.builder().put(randomIndexMetadata("index"), false).build();
+        assertThat(new IndexMetadataCompactor(masterNode(), writableRegistry()).compact(metadata), sameInstance(metadata));
+    }
+
+    public void testCompactIndexMetadataBehavesLikeFullInstance() throws IOException {
+        final IndexMetadataCompactor compactor = new IndexMetadataCompactor(dataOnlyNode(), writableRegistry());
+        final IndexMetadata full = randomIndexMetadata("index");
+        final IndexMetadata compact = compactor.compact(full);
+        assertTrue(compact.isCompact());
+
+        assertEquals(full, compact);
+        assertEquals(compact, full);
+        assertEquals(full.hashCode(), compact.hashCode());
+        assertEquals(full.getSettings(), compact.getSettings());
+        assertEquals(full.getCustomData(), compact.getCustomData());
+        assertEquals(full.getInSyncAllocationIds(), compact.getInSyncAllocationIds());
+        assertEquals(full.inSyncAllocationIds(0), compact.inSyncAllocationIds(0));
+        assertEquals(full.getRolloverInfos(), compact.getRolloverInfos());
+        assertEquals(full.getLifecycleExecutionState(), compact.getLifecycleExecutionState());
+        assertEquals(full.getInferenceFields(), compact.getInferenceFields());
+        assertEquals(full.getStats(), compact.getStats());
+        assertSame(full.mapping(), compact.mapping());
+        assertEquals(full.getAliases(), compact.getAliases());
+        assertEquals(full.getTierPreference(), compact.getTierPreference());
+        assertEquals(Strings.toString(full), Strings.toString(compact));
+
+        final BytesStreamOutput fullBytes = new BytesStreamOutput();
+        full.writeTo(fullBytes);
+        final BytesStreamOutput compactBytes = new BytesStreamOutput();
+        compact.writeTo(compactBytes);
+        assertEquals(fullBytes.bytes(), compactBytes.bytes());
+        try (StreamInput in = new NamedWriteableAwareStreamInput(compactBytes.bytes().streamInput(), writableRegistry())) {
+            assertEquals(full, IndexMetadata.readFrom(in));
+        }
+
+        final IndexMetadata updated = IndexMetadata.builder(compact)
+            .settingsVersion(full.getSettingsVersion() + 1)
+            .settings(Settings.builder().put(full.getSettings()).put("index.refresh_interval", "5s"))
+            .build();
+        assertFalse(updated.isCompact());
+        assertEquals(updated, updated.diff(compact).apply(compact));
+        assertEquals(updated, updated.diff(full).apply(compact));
+        assertEquals(compact.withIncrementedPrimaryTerm(0), full.withIncrementedPrimaryTerm(0));
+        assertEquals(compact.withInSyncAllocationIds(0, Set.of("other")), full.withInSyncAllocationIds(0, Set.of("other")));
+    }
+
+    public void testOnlyCompactsIndexMetadataThatIsNotCompactYet() {
+        final IndexMetadataCompactor compactor = new IndexMetadataCompactor(dataOnlyNode(), writableRegistry());
+        final Metadata.Builder builder = Metadata.builder();
+        final int indices = between(2, 10);
+        for (int i = 0; i < indices; i++) {
+            builder.put(randomIndexMetadata("index-" + i), false);
+        }
+        final Metadata metadata = builder.build();
+        final Metadata compacted = compactor.compact(metadata);
+        assertThat(compacted, not(sameInstance(metadata)));
+        assertEquals(metadata.indices(), compacted.indices());
+        assertEquals(metadata.getTotalNumberOfShards(), compacted.getTotalNumberOfShards());
+        for (IndexMetadata indexMetadata : compacted) {
+            assertTrue(indexMetadata.isCompact());
+        }
+        assertThat(compactor.compact(compacted), sameInstance(compacted));
+
+        final String updatedIndex = "index-" + between(0, indices - 1);
+        final Metadata updated = Metadata.builder(compacted)
+            .put(IndexMetadata.builder(compacted.index(updatedIndex)).putCustom("custom", Map.of("key", "value")))
+            .build();
+        final Metadata recompacted = compactor.compact(updated);
+        for (IndexMetadata indexMetadata : recompacted) {
+            assertTrue(indexMetadata.isCompact());
+            final String name = indexMetadata.getIndex().getName();
+            if (name.equals(updatedIndex)) {
+                assertEquals(Map.of("key", "value"), indexMetadata.getCustomData("custom"));
+            } else {
+                assertSame(compacted.index(name), indexMetadata);
+            }
+        }
+    }
+
+    public void testMaterializedInstancesAreBounded() {
+        final int cacheSize = between(1, 5);
+        final IndexMetadataCompactor compactor = new IndexMetadataCompactor(
+            Settings.builder()
+                .put(dataOnlyNode())
+                .put(IndexMetadataCompactor.INDEX_METADATA_CACHE_SIZE_SETTING.getKey(), cacheSize)
+                .build(),
+            writableRegistry()
+        );
+        final IndexMetadata compact = compactor.compact(randomIndexMetadata("index"));
+        assertSame(compact.getSettings(), compact.getSettings());
+        assertEquals(1, compactor.cachedCount());
+
+        for (int i = 0; i < cacheSize * 3; i++) {
+            final IndexMetadata other = compactor.compact(randomIndexMetadata("index-" + i));
+            assertNotNull(other.getSettings());
+            assertThat(compactor.cachedCount(), lessThanOrEqualTo(cacheSize));
+        }
+        // an evicted instance is read again from its serialized form
+        assertThat(compact.getSettings().get(IndexMetadata.SETTING_INDEX_UUID), equalTo(compact.getIndexUUID()));
+    }
+
+    private static IndexMetadata randomIndexMetadata(String name) {
+        final int numberOfShards = between(1, 4);
+        final IndexMetadata.Builder builder = IndexMetadata.builder(name)
+            .settings(
+                indexSettings(IndexVersion.current(), numberOfShards, between(0, 2)).put(IndexMetadata.SETTING_INDEX_UUID, randomUUID())
+                    .put(IndexMetadata.LIFECYCLE_NAME, randomAlphaOfLength(5))
+            )
+            .putMapping("{\"_doc\":{\"properties\":{\"" + randomAlphaOfLength(5) + "\":{\"type\":\"keyword\"}}}}")
+            .putAlias(AliasMetadata.builder(name + "-alias"))
+            .putCustom(LifecycleExecutionState.ILM_CUSTOM_METADATA_KEY, Map.of("phase", randomFrom("hot", "warm")))
+            .putRolloverInfo(new RolloverInfo(name + "-alias", List.of(new MaxDocsCondition(randomNonNegativeLong())), randomLong()));
+        for (int shard = 0; shard < numberOfShards; shard++) {
+            builder.putInSyncAllocationIds(shard, Set.of(randomAlphaOfLength(10)));
+        }
+        return builder.build();
+    }
+}
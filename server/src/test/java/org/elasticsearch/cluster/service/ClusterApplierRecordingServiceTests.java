@@ -72,6 +72,25 @@ public class ClusterApplierRecordingServiceTests extends ESTestCase {
         expectThrows(IllegalStateException.class, () -> recorder.record("action2"));
     }
 
+    public void testRecorderParts() {
+        var recorder = new Recorder(threadPool, TimeValue.ZERO);
+        expectThrows(IllegalStateException.class, () -> recorder.recordPart("part1"));
+        try (var r = recorder.record("action1")) {
+            advanceTime(2);
+            try (var p = recorder.recordPart("part1")) {
+                advanceTime(5);
+            }
+            try (var p = recorder.recordPart("part2")) {
+                advanceTime(7);
+            }
+        }
+
+        assertThat(
+            recorder.getRecordings(),
+            contains(Tuple.tuple("action1 > part1", 5L), Tuple.tuple("action1 > part2", 7L), Tuple.tuple("action1", 14L))
+        );
+    }
+
     public void testRecordingServiceStats() {
         var service = new ClusterApplierRecordingService();
 
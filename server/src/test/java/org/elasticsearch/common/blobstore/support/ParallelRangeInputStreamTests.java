@@ -0,0 +1,273 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the "Elastic License
+ * 2.0", the "GNU Affero General Public License v3.0 only", and the "Server Side
+ * Public License v 1"; you may not use this file except in compliance with, at
+ * your election, the "Elastic License 2.0", the "GNU Affero General Public
+ * License v3.0 only", or the "Server Side Public License, v 1".
+ */
+
+package org.elasticsearch.common.blobstore.support;
+
+import org.elasticsearch.common.blobstore.BlobContainer;
+import org.elasticsearch.common.blobstore.OperationPurpose;
+import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.io.Streams;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.common.util.MockBigArrays;
+import org.elasticsearch.common.util.MockPageCacheRecycler;
+import org.elasticsearch.common.util.concurrent.EsExecutors;
+import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
+import org.elasticsearch.indices.breaker.NoneCircuitBreakerService;
+import org.elasticsearch.test.ESTestCase;
+import org.elasticsearch.threadpool.TestThreadPool;
+import org.elasticsearch.threadpool.ThreadPool;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.elasticsearch.repositories.blobstore.BlobStoreTestUtil.randomPurpose;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ParallelRangeInputStreamTests extends ESTestCase {
+
+    public void testReadsBlobInRanges() throws Exception {
+        final BytesReference content = randomBytesReference(between(0, 10_000));
+        final long rangeSize = between(1, 1_000);
+        final int concurrency = between(1, 8);
+        final AtomicInteger rangeReads = new AtomicInteger();
+        final BlobContainer container = mock(BlobContainer.class);
+        when(container.readBlob(any(OperationPurpose.class), eq("blob"), anyLong(), anyLong())).thenAnswer(invocation -> {
+            final long position = invocation.getArgument(2);
+            final long length = invocation.getArgument(3);
+            assertThat(length, lessThanOrEqualTo(rangeSize));
+            rangeReads.incrementAndGet();
+            return content.slice(Math.toIntExact(position), Math.toIntExact(length)).streamInput();
+        });
+
+        final ThreadPool threadPool = new TestThreadPool(getTestName());
+        try {
+            final Executor executor = randomFrom(
+                threadPool.generic(),
+                EsExecutors.DIRECT_EXECUTOR_SERVICE,
+                command -> {} // drops the reads ahead, so the consumer reads every range itself
+            );
+            try (
+                InputStream stream = new ParallelRangeInputStream(
+                    container,
+                    randomPurpose(),
+                    "blob",
+                    content.length(),
+                    rangeSize,
+                    concurrency,
+                    executor,
+                    BigArrays.NON_RECYCLING_INSTANCE
+                )
+            ) {
+                assertEquals(content, Streams.readFully(stream));
+                assertThat(stream.read(), equalTo(-1));
+            }
+            assertThat((long) rangeReads.get(), equalTo(content.length() == 0 ? 0L : 1L + (content.length() - 1L) / rangeSize));
+        } finally {
+            ThreadPool.terminate(threadPool, 10, TimeUnit.SECONDS);
+        }
+    }
+
+    public void testFailsOnShortRange() throws Exception {
+        final BytesReference content = randomBytesReference(between(2, 1_000));
+        final BlobContainer container = mock(BlobContainer.class);
+        when(container.readBlob(any(OperationPurpose.class), eq("blob"), anyLong(), anyLong())).thenAnswer(invocation -> {
+            final long position = invocation.getArgument(2);
+            final long length = invocation.getArgument(3);
+            // every range misses its last byte
+            return content.slice(Math.toIntExact(position), Math.toIntExact(length) - 1).streamInput();
+        });
+        try (
+            InputStream stream = new ParallelRangeInputStream(
+                container,
+                randomPurpose(),
+                "blob",
+                content.length(),
+                between(2, content.length()),
+                between(1, 4),
+                EsExecutors.DIRECT_EXECUTOR_SERVICE,
+                BigArrays.NON_RECYCLING_INSTANCE
+            )
+        ) {
+            expectThrows(IOException.class, () -> Streams.readFully(stream));
+        }
+    }
+
+    public void testCloseBeforeConsumingAllRanges() throws Exception {
+        final BytesReference content = randomBytesReference(between(100, 1_000));
+        final BlobContainer container = mock(BlobContainer.class);
+        when(container.readBlob(any(OperationPurpose.class), eq("blob"), anyLong(), anyLong())).thenAnswer(invocation -> {
+            final long position = invocation.getArgument(2);
+            final long length = invocation.getArgument(3);
+            return content.slice(Math.toIntExact(position), Math.toIntExact(length)).streamInput();
+        });
+        final ThreadPool threadPool = new TestThreadPool(getTestName());
+        try {
+            try (
+                InputStream stream = new ParallelRangeInputStream(
+                    container,
+                    randomPurpose(),
+                    "blob",
+                    content.length(),
+                    between(1, 10),
+                    between(1, 8),
+                    threadPool.generic(),
+                    BigArrays.NON_RECYCLING_INSTANCE
+                )
+            ) {
+                final byte[] buffer = new byte[between(1, 50)];
+                final int read = stream.read(buffer);
+                assertEquals(content.slice(0, read), new BytesArray(buffer, 0, read));
+            }
+        } finally {
+            ThreadPool.terminate(threadPool, 10, TimeUnit.SECONDS);
+        }
+    }
+
+    public void testFailsOnFailedRange() throws Exception {
+        final BytesReference content = randomBytesReference(between(2, 1_000));
+        final long rangeSize = between(1, content.length() - 1);
+        final int rangeCount = Math.toIntExact(1L + (content.length() - 1L) / rangeSize);
+        final long failedPosition = between(0, rangeCount - 1) * rangeSize;
+        final IOException failure = new IOException("simulated");
+        final BlobContainer container = mock(BlobContainer.class);
+        when(container.readBlob(any(OperationPurpose.class), eq("blob"), anyLong(), anyLong())).thenAnswer(invocation -> {
+            final long position = invocation.getArgument(2);
+            final long length = invocation.getArgument(3);
+            if (position == failedPosition) {
+                throw failure;
+            }
+            return content.slice(Math.toIntExact(position), Math.toIntExact(length)).streamInput();
+        });
+        final ThreadPool threadPool = new TestThreadPool(getTestName());
+        try {
+            try (
+                InputStream stream = new ParallelRangeInputStream(
+                    container,
+                    randomPurpose(),
+                    "blob",
+                    content.length(),
+                    rangeSize,
+                    between(1, 8),
+                    randomFrom(threadPool.generic(), EsExecutors.DIRECT_EXECUTOR_SERVICE),
+                    new MockBigArrays(new MockPageCacheRecycler(Settings.EMPTY), new NoneCircuitBreakerService())
+                )
+            ) {
+                // the ranges before the failed one are still consumed in order
+                final byte[] before = new byte[Math.toIntExact(failedPosition)];
+                assertEquals(before.length, stream.readNBytes(before, 0, before.length));
+                assertEquals(content.slice(0, before.length), new BytesArray(before));
+                assertThat(expectThrows(IOException.class, stream::read), sameInstance(failure));
+            }
+        } finally {
+            ThreadPool.terminate(threadPool, 10, TimeUnit.SECONDS);
+        }
+    }
+
+    public void testCloseWaitsForRangesInFlight() throws Exception {
+        final BytesReference content = randomBytesReference(between(100, 1_000));
+        final long rangeSize = between(1, 10);
+        final int concurrency = between(2, 8);
+        final CountDownLatch readAheadStarted = new CountDownLatch(1);
+        final CountDownLatch releaseReadAhead = new CountDownLatch(1);
+        final AtomicInteger rangeReads = new AtomicInteger();
+        final BlobContainer container = mock(BlobContainer.class);
+        when(container.readBlob(any(OperationPurpose.class), eq("blob"), anyLong(), anyLong())).thenAnswer(invocation -> {
+            final long position = invocation.getArgument(2);
+            final long length = invocation.getArgument(3);
+            rangeReads.incrementAndGet();
+            if (position > 0) {
+                readAheadStarted.countDown();
+                safeAwait(releaseReadAhead);
+            }
+            return content.slice(Math.toIntExact(position), Math.toIntExact(length)).streamInput();
+        });
+        // the reads ahead only run when the test runs them
+        final List<Runnable> readsAhead = new ArrayList<>();
+        final InputStream stream = new ParallelRangeInputStream(
+            container,
+            randomPurpose(),
+            "blob",
+            content.length(),
+            rangeSize,
+            concurrency,
+            readsAhead::add,
+            new MockBigArrays(new MockPageCacheRecycler(Settings.EMPTY), new NoneCircuitBreakerService())
+        );
+        assertEquals(content.get(0), (byte) stream.read());
+        assertEquals(concurrency - 1, readsAhead.size());
+
+        final Thread readAhead = new Thread(readsAhead.get(0));
+        readAhead.start();
+        safeAwait(readAheadStarted);
+        final Thread closer = new Thread(() -> {
+            try {
+                stream.close();
+            } catch (IOException e) {
+                throw new AssertionError(e);
+            }
+        });
+        closer.start();
+        assertBusy(() -> assertEquals(Thread.State.WAITING, closer.getState()));
+        releaseReadAhead.countDown();
+        closer.join();
+        readAhead.join();
+
+        // the ranges that hadn't started by the time the stream was closed are never read
+        readsAhead.forEach(Runnable::run);
+        assertEquals(2, rangeReads.get());
+        expectThrows(IOException.class, stream::read);
+    }
+
+    public void testConsumerReadsRangesTheExecutorRejects() throws Exception {
+        final BytesReference content = randomBytesReference(between(0, 10_000));
+        final long rangeSize = between(1, 1_000);
+        final AtomicInteger rangeReads = new AtomicInteger();
+        final BlobContainer container = mock(BlobContainer.class);
+        when(container.readBlob(any(OperationPurpose.class), eq("blob"), anyLong(), anyLong())).thenAnswer(invocation -> {
+            final long position = invocation.getArgument(2);
+            final long length = invocation.getArgument(3);
+            rangeReads.incrementAndGet();
+            return content.slice(Math.toIntExact(position), Math.toIntExact(length)).streamInput();
+        });
+        final Executor executor = command -> {
+            throw randomFrom(new EsRejectedExecutionException("rejected", randomBoolean()), new RejectedExecutionException("rejected"));
+        };
+        try (
+            InputStream stream = new ParallelRangeInputStream(
+                container,
+                randomPurpose(),
+                "blob",
+                content.length(),
+                rangeSize,
+                between(1, 8),
+                executor,
+                new MockBigArrays(new MockPageCacheRecycler(Settings.EMPTY), new NoneCircuitBreakerService())
+            )
+        ) {
+            assertEquals(content, Streams.readFully(stream));
+        }
+        assertThat((long) rangeReads.get(), equalTo(content.length() == 0 ? 0L : 1L + (content.length() - 1L) / rangeSize));
+    }
+}
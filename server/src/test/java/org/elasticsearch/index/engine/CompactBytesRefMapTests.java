@@ -0,0 +1,125 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the "Elastic License
+ * 2.0", the "GNU Affero General Public License v3.0 only", and the "Server Side
+ * Public License v 1"; you may not use this file except in compliance with, at
+ * your election, the "Elastic License 2.0", the "GNU Affero General Public
+ * License v3.0 only", or the "Server Side Public License, v 1".
+ */
+
+package org.elasticsearch.index.engine;
+
+import org.apache.lucene.tests.util.RamUsageTester;
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
+import org.elasticsearch.test.ESTestCase;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.lessThan;
+
+public class CompactBytesRefMapTests extends ESTestCase {
+
+    public void testRandomOperations() {
+        CompactBytesRefMap<Integer> map = new CompactBytesRefMap<>(between(0, 1000));
+        Map<BytesRef, Integer> expected = new HashMap<>();
+        int keys = between(1, 2000);
+        for (int i = 0; i < 20000; i++) {
+            BytesRef key = randomKey(keys);
+            BytesRef expectedKey = BytesRef.deepCopyOf(key);
+            switch (between(0, 2)) {
+                case 0 -> {
+                    int value = randomInt();
+                    assertThat(map.put(key, value), equalTo(expected.put(expectedKey, value)));
+                }
+                case 1 -> assertThat(map.remove(key), equalTo(expected.remove(expectedKey)));
+                default -> assertThat(map.get(key), equalTo(expected.get(expectedKey)));
+            }
+        }
+        assertThat(map.size(), equalTo(expected.size()));
+        assertThat(map.isEmpty(), equalTo(expected.isEmpty()));
+        assertThat(new HashMap<>(map), equalTo(expected));
+        map.clear();
+        assertTrue(map.isEmpty());
+        assertThat(map.get(randomKey(keys)), equalTo(null));
+    }
+
+    public void testKeysAreCopied() {
+        CompactBytesRefMap<String> map = new CompactBytesRefMap<>();
+        byte[] bytes = "foo".getBytes(StandardCharsets.UTF_8);
+        map.put(new BytesRef(bytes), "bar");
+        bytes[0] = 'g';
+        assertThat(map.get(new BytesRef("foo")), equalTo("bar"));
+        assertThat(map.get(new BytesRef("goo")), equalTo(null));
+        assertThat(map.entrySet().iterator().next().getKey(), equalTo(new BytesRef("foo")));
+    }
+
+    public void testConcurrentUpdates() throws InterruptedException {
+        CompactBytesRefMap<Integer> map = new CompactBytesRefMap<>();
+        int threads = between(2, 8);
+        int keysPerThread = between(100, 2000);
+        CountDownLatch start = new CountDownLatch(1);
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            final int thread = t;
+            workers[t] = new Thread(() -> {
+                safeAwait(start);
+                // each thread owns its keys, like the engine does by locking the uid
+                for (int i = 0; i < keysPerThread; i++) {
+                    BytesRef key = new BytesRef(thread + "_" + i);
+                    assertNull(map.put(key, i));
+                    assertThat(map.get(key), equalTo(i));
+                    if (i % 3 == 0) {
+                        assertThat(map.remove(key), equalTo(i));
+                    }
+                }
+            });
+            workers[t].start();
+        }
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        int expectedSize = 0;
+        for (int t = 0; t < threads; t++) {
+            for (int i = 0; i < keysPerThread; i++) {
+                Integer value = map.get(new BytesRef(t + "_" + i));
+                if (i % 3 == 0) {
+                    assertNull(value);
+                } else {
+                    assertThat(value, equalTo(i));
+                    expectedSize++;
+                }
+            }
+        }
+        assertThat(map.size(), equalTo(expectedSize));
+    }
+
+    public void testUsesLessMemoryThanConcurrentHashMap() {
+        Map<BytesRef, Boolean> compact = new CompactBytesRefMap<>();
+        Map<BytesRef, Boolean> concurrent = ConcurrentCollections.newConcurrentMapWithAggressiveConcurrency();
+        for (int i = 0; i < 10000; i++) {
+            BytesRef key = new BytesRef(randomAlphaOfLength(20));
+            compact.put(key, Boolean.TRUE);
+            concurrent.put(key, Boolean.TRUE);
+        }
+        long compactBytes = RamUsageTester.ramUsed(compact);
+        assertThat(compactBytes, lessThan(RamUsageTester.ramUsed(concurrent)));
+        // the estimate the version map accounts with is in the right ballpark
+        long estimatedBytes = compact.size() * (CompactBytesRefMap.BYTES_PER_ENTRY + 20);
+        assertEquals(compactBytes, estimatedBytes, compactBytes / 2);
+    }
+
+    private static BytesRef randomKey(int keys) {
+        byte[] key = ("key_" + between(0, keys)).getBytes(StandardCharsets.UTF_8);
+        // the map must only look at the slice of the array the key refers to
+        int offset = between(0, 3);
+        byte[] padded = new byte[offset + key.length + between(0, 3)];
+        System.arraycopy(key, 0, padded, offset, key.length);
+        return new BytesRef(padded, offset, key.length);
+    }
+}
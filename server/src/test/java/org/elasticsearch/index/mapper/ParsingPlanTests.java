@@ -0,0 +1,255 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the "Elastic License
+ * 2.0", the "GNU Affero General Public License v3.0 only", and the "Server Side
+ * Public License v 1"; you may not use this file except in compliance with, at
+ * your election, the "Elastic License 2.0", the "GNU Affero General Public
+ * License v3.0 only", or the "Server Side Public License, v 1".
+ */
+
+package org.elasticsearch.index.mapper;
+
+import org.elasticsearch.core.CheckedConsumer;
+import org.elasticsearch.xcontent.XContentBuilder;
+
+import java.io.IOException;
+
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.mockito.Mockito.mock;
+
+public class ParsingPlanTests extends MapperServiceTestCase {
+
+    public void testFollowsThePlan() {
+        Mapper message = mock(Mapper.class);
+        Mapper count = mock(Mapper.class);
+        ParsingPlan.Cursor cursor = ParsingPlan.EMPTY.cursor();
+        cursor.nextField("message", 0);
+        assertThat(cursor.mapper("message", 0), nullValue());
+        cursor.resolved("message", 0, message);
+        cursor.nextField("host", 0);
+        cursor.nextField("count", 0);
+        cursor.resolved("count", 0, count);
+        ParsingPlan plan = cursor.build();
+        assertThat(plan.size(), equalTo(3));
+
+        cursor = plan.cursor();
+        cursor.nextField("message", 0);
+        assertThat(cursor.mapper("message", 0), sameInstance(message));
+        cursor.nextField("host", 0);
+        assertThat(cursor.mapper("host", 0), nullValue());
+        cursor.nextField("count", 0);
+        assertThat(cursor.mapper("count", 0), sameInstance(count));
+        assertThat(cursor.build(), nullValue());
+    }
+
+    public void testRecordsDivergingDocuments() {
+        Mapper message = mock(Mapper.class);
+        Mapper count = mock(Mapper.class);
+        ParsingPlan.Cursor cursor = ParsingPlan.EMPTY.cursor();
+        cursor.nextField("message", 0);
+        cursor.resolved("message", 0, message);
+        cursor.nextField("count", 0);
+        cursor.resolved("count", 0, count);
+        ParsingPlan plan = cursor.build();
+
+        // The fields that still match keep their mappers
+        cursor = plan.cursor();
+        cursor.nextField("message", 0);
+        assertThat(cursor.mapper("message", 0), sameInstance(message));
+        cursor.nextField("level", 0);
+        assertThat(cursor.mapper("level", 0), nullValue());
+        ParsingPlan diverged = cursor.build();
+        assertThat(diverged.size(), equalTo(2));
+        cursor = diverged.cursor();
+        cursor.nextField("message", 0);
+        assertThat(cursor.mapper("message", 0), sameInstance(message));
+        cursor.nextField("count", 0);
+        assertThat(cursor.mapper("count", 0), nullValue());
+
+        // Fewer fields
+        cursor = plan.cursor();
+        cursor.nextField("message", 0);
+        assertThat(cursor.build().size(), equalTo(1));
+
+        // A field that gets a mapper the plan didn't have
+        cursor = diverged.cursor();
+        cursor.nextField("message", 0);
+        cursor.nextField("level", 0);
+        Mapper level = mock(Mapper.class);
+        cursor.resolved("level", 0, level);
+        cursor = cursor.build().cursor();
+        cursor.nextField("message", 0);
+        cursor.nextField("level", 0);
+        assertThat(cursor.mapper("level", 0), sameInstance(level));
+    }
+
+    public void testFieldsAtOtherDepthsDiverge() {
+        Mapper host = mock(Mapper.class);
+        Mapper hostName = mock(Mapper.class);
+        Mapper name = mock(Mapper.class);
+        ParsingPlan.Cursor cursor = ParsingPlan.EMPTY.cursor();
+        cursor.nextField("host", 0);
+        cursor.resolved("host", 0, host);
+        cursor.nextField("name", 1);
+        cursor.resolved("name", 1, hostName);
+        ParsingPlan plan = cursor.build();
+        assertThat(plan.size(), equalTo(2));
+
+        cursor = plan.cursor();
+        cursor.nextField("host", 0);
+        assertThat(cursor.mapper("host", 0), sameInstance(host));
+        cursor.nextField("name", 1);
+        // A field with the same name that isn't the current field, like the field of an array of objects
+        assertThat(cursor.mapper("host", 0), nullValue());
+        assertThat(cursor.mapper("name", 1), sameInstance(hostName));
+        assertThat(cursor.build(), nullValue());
+
+        // The same name at the root is another field
+        cursor = plan.cursor();
+        cursor.nextField("host", 0);
+        cursor.nextField("name", 0);
+        assertThat(cursor.mapper("name", 0), nullValue());
+        cursor.resolved("name", 0, name);
+        cursor = cursor.build().cursor();
+        cursor.nextField("host", 0);
+        assertThat(cursor.mapper("host", 0), sameInstance(host));
+        cursor.nextField("name", 0);
+        assertThat(cursor.mapper("name", 0), sameInstance(name));
+    }
+
+    public void testCoversAtMostMaxFields() {
+        ParsingPlan.Cursor cursor = ParsingPlan.EMPTY.cursor();
+        for (int i = 0; i < ParsingPlan.MAX_FIELDS + 10; i++) {
+            cursor.nextField("field" + i, 0);
+            cursor.resolved("field" + i, 0, mock(Mapper.class));
+        }
+        ParsingPlan plan = cursor.build();
+        assertThat(plan.size(), equalTo(ParsingPlan.MAX_FIELDS));
+        cursor = plan.cursor();
+        for (int i = 0; i < ParsingPlan.MAX_FIELDS + 10; i++) {
+            cursor.nextField("field" + i, 0);
+            assertThat(cursor.mapper("field" + i, 0) == null, equalTo(i >= ParsingPlan.MAX_FIELDS));
+        }
+        assertThat(cursor.build(), nullValue());
+    }
+
+    public void testParsesAlongThePlan() throws Exception {
+        DocumentMapper mapper = createDocumentMapper(mapping(b -> {
+            b.startObject("message").field("type", "keyword").endObject();
+            b.startObject("count").field("type", "long").endObject();
+            b.startObject("host").startObject("properties");
+            b.startObject("name").field("type", "keyword").endObject();
+            b.endObject().endObject();
+        }));
+        ParsedDocument doc = mapper.parse(source(b -> {
+            b.field("message", "first");
+            b.field("count", 1);
+            b.startObject("host").field("name", "a").endObject();
+        }));
+        ParsingPlan plan = mapper.parsingPlan();
+        assertThat(plan.size(), equalTo(4));
+        assertThat(doc.rootDoc().getFields("count"), hasSize(1));
+
+        // Same order, the plan is kept
+        doc = mapper.parse(source(b -> {
+            b.field("message", "second");
+            b.field("count", 2);
+            b.startObject("host").field("name", "b").endObject();
+        }));
+        assertThat(mapper.parsingPlan(), sameInstance(plan));
+        assertThat(doc.rootDoc().getField("message").binaryValue().utf8ToString(), equalTo("second"));
+        assertThat(doc.rootDoc().getField("count").numericValue(), equalTo(2L));
+        assertThat(doc.rootDoc().getField("host.name").binaryValue().utf8ToString(), equalTo("b"));
+
+        // Different order, still parsed correctly and the plan follows the new order
+        doc = mapper.parse(source(b -> {
+            b.field("count", 3);
+            b.field("message", "third");
+            b.field("unmapped", "value");
+        }));
+        assertThat(mapper.parsingPlan(), not(sameInstance(plan)));
+        assertThat(doc.rootDoc().getField("message").binaryValue().utf8ToString(), equalTo("third"));
+        assertThat(doc.rootDoc().getField("count").numericValue(), equalTo(3L));
+        assertNotNull(doc.dynamicMappingsUpdate());
+
+        // Values of the wrong type still fail
+        expectThrows(DocumentParsingException.class, () -> mapper.parse(source(b -> {
+            b.field("count", "not a number");
+            b.field("message", "fourth");
+        })));
+    }
+
+    public void testParsesDottedFieldsAlongThePlan() throws Exception {
+        DocumentMapper mapper = createDocumentMapper(mapping(b -> {
+            b.startObject("message").field("type", "keyword").endObject();
+            b.startObject("host").startObject("properties");
+            b.startObject("name").field("type", "keyword").endObject();
+            b.startObject("ip").field("type", "ip").endObject();
+            b.endObject().endObject();
+            b.startObject("event").startObject("properties");
+            b.startObject("dataset").field("type", "keyword").endObject();
+            b.endObject().endObject();
+        }));
+        mapper.parse(source(b -> {
+            b.field("host.name", "a");
+            b.field("host.ip", "10.0.0.1");
+            b.field("event.dataset", "app.access");
+            b.field("message", "first");
+        }));
+        // The dotted fields are expanded to objects, so each of them is an object and a field in it
+        ParsingPlan plan = mapper.parsingPlan();
+        assertThat(plan.size(), equalTo(7));
+        ParsingPlan.Cursor cursor = plan.cursor();
+        cursor.nextField("host", 0);
+        assertThat(cursor.mapper("host", 0), sameInstance(mapper.mappers().objectMappers().get("host")));
+        cursor.nextField("name", 1);
+        assertThat(cursor.mapper("name", 1), sameInstance(mapper.mappers().getMapper("host.name")));
+
+        ParsedDocument doc = mapper.parse(source(b -> {
+            b.field("host.name", "b");
+            b.field("host.ip", "10.0.0.2");
+            b.field("event.dataset", "app.error");
+            b.field("message", "second");
+        }));
+        assertThat(mapper.parsingPlan(), sameInstance(plan));
+        assertThat(doc.rootDoc().getField("host.name").binaryValue().utf8ToString(), equalTo("b"));
+        assertThat(doc.rootDoc().getField("event.dataset").binaryValue().utf8ToString(), equalTo("app.error"));
+        assertThat(doc.rootDoc().getField("message").binaryValue().utf8ToString(), equalTo("second"));
+        assertThat(doc.rootDoc().getFields("host.ip"), not(empty()));
+
+        // The same fields as objects are another shape, so they get a plan of their own
+        doc = mapper.parse(source(b -> {
+            b.startObject("host").field("name", "c").field("ip", "10.0.0.3").endObject();
+            b.field("message", "third");
+        }));
+        assertThat(mapper.parsingPlan().size(), equalTo(4));
+        assertThat(doc.rootDoc().getField("host.name").binaryValue().utf8ToString(), equalTo("c"));
+        assertThat(doc.rootDoc().getField("message").binaryValue().utf8ToString(), equalTo("third"));
+    }
+
+    public void testParsesArraysOfObjectsAlongThePlan() throws Exception {
+        DocumentMapper mapper = createDocumentMapper(mapping(b -> {
+            b.startObject("tag").startObject("properties");
+            b.startObject("tag").field("type", "keyword").endObject();
+            b.endObject().endObject();
+        }));
+        CheckedConsumer<XContentBuilder, IOException> source = b -> {
+            b.startArray("tag");
+            b.startObject().field("tag", "a").endObject();
+            b.startObject().field("tag", "b").endObject();
+            b.endArray();
+        };
+        ParsedDocument first = mapper.parse(source(source));
+        ParsingPlan plan = mapper.parsingPlan();
+        // The objects of the array look their field up by name, and the field in the first object has the same name
+        ParsedDocument second = mapper.parse(source(source));
+        assertThat(mapper.parsingPlan(), sameInstance(plan));
+        assertThat(second.rootDoc().getFields("tag.tag"), hasSize(first.rootDoc().getFields("tag.tag").size()));
+        assertNull(second.dynamicMappingsUpdate());
+    }
+}
@@ -36,11 +36,15 @@ import org.elasticsearch.cluster.routing.RoutingTable;
 import org.elasticsearch.cluster.routing.ShardRouting;
 import org.elasticsearch.cluster.routing.ShardRoutingState;
 import org.elasticsearch.cluster.routing.allocation.FailedShard;
+import org.elasticsearch.cluster.service.ClusterApplierService;
 import org.elasticsearch.cluster.service.ClusterService;
 import org.elasticsearch.common.UUIDs;
 import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
+import org.elasticsearch.common.util.concurrent.ThreadContext;
 import org.elasticsearch.common.util.set.Sets;
 import org.elasticsearch.index.Index;
+import org.elasticsearch.index.IndexSettings;
 import org.elasticsearch.index.seqno.RetentionLeaseSyncer;
 import org.elasticsearch.index.shard.PrimaryReplicaSyncer;
 import org.elasticsearch.index.shard.ShardId;
@@ -306,6 +310,71 @@ public class IndicesClusterStateServiceRandomUpdatesTests extends AbstractIndice
         assertNull(indicesCSSvc.indicesService.getShardOrNull(shardId));
     }
 
+    public void testUpdatesMappingsOfIndicesConcurrently() {
+        disableRandomFailures();
+        DiscoveryNode node = createNode(DiscoveryNodeRole.MASTER_ROLE, DiscoveryNodeRole.DATA_ROLE);
+        ClusterState initialState = ClusterStateCreationUtils.state(node, node, node);
+        ClusterState state = initialState;
+        final List<String> indices = new ArrayList<>();
+        final int numberOfIndices = randomIntBetween(5, 20);
+        for (int i = 0; i < numberOfIndices; i++) {
+            String name = "index_" + i;
+            Settings settings = Settings.builder()
+                .put(SETTING_NUMBER_OF_SHARDS, randomIntBetween(1, 3))
+                .put(SETTING_NUMBER_OF_REPLICAS, 0)
+                .build();
+            state = cluster.createIndex(state, new CreateIndexRequest(name, settings).waitForActiveShards(ActiveShardCount.NONE));
+            indices.add(name);
+        }
+
+        // the mappings are updated on the generic pool as well as on the applying thread, and the update of one index fails
+        final String failingIndex = randomFrom(indices);
+        final Set<String> updatedIndices = ConcurrentCollections.newConcurrentSet();
+        final Supplier<MockIndicesService> indicesServiceSupplier = () -> new MockIndicesService() {
+            @Override
+            protected MockIndexService newIndexService(IndexSettings indexSettings) {
+                return new MockIndexService(indexSettings) {
+                    @Override
+                    public void updateMapping(IndexMetadata currentIndexMetadata, IndexMetadata newIndexMetadata) {
+                        final String name = newIndexMetadata.getIndex().getName();
+                        assertTrue("mapping of [" + name + "] updated twice", updatedIndices.add(name));
+                        if (name.equals(failingIndex)) {
+                            throw new IllegalArgumentException("failed to merge mapping of [" + name + "]");
+                        }
+                    }
+                };
+            }
+        };
+        IndicesClusterStateService indicesCSSvc = createIndicesClusterStateService(
+            node,
+            indicesServiceSupplier,
+            Settings.builder().put(IndicesClusterStateService.CONCURRENT_MAPPING_UPDATES_SETTING.getKey(), randomIntBetween(2, 8)).build(),
+            threadPool.generic()
+        );
+        indicesCSSvc.start();
+        indicesCSSvc.applyClusterState(new ClusterChangedEvent("cluster state change that adds the indices", state, initialState));
+
+        assertThat(updatedIndices, equalTo(Set.copyOf(indices)));
+        final Set<ShardId> expectedFailedShards = new HashSet<>();
+        for (String name : indices) {
+            final IndexMetadata indexMetadata = state.metadata().index(name);
+            final var indexService = indicesCSSvc.indicesService.indexService(indexMetadata.getIndex());
+            for (int shard = 0; shard < indexMetadata.getNumberOfShards(); shard++) {
+                final ShardId shardId = new ShardId(indexMetadata.getIndex(), shard);
+                if (name.equals(failingIndex)) {
+                    expectedFailedShards.add(shardId);
+                } else {
+                    assertNotNull(indexService.getShardOrNull(shardId.id()));
+                }
+            }
+            if (name.equals(failingIndex)) {
+                assertNull(indexService);
+            }
+        }
+        assertThat(indicesCSSvc.failedShardsCache.keySet(), equalTo(expectedFailedShards));
+        assertClusterStateMatchesNodeState(state, indicesCSSvc);
+    }
+
     public ClusterState randomInitialClusterState(
         Map<DiscoveryNode, IndicesClusterStateService> clusterStateServiceMap,
         Supplier<MockIndicesService> indicesServiceSupplier
@@ -511,11 +580,21 @@ public class IndicesClusterStateServiceRandomUpdatesTests extends AbstractIndice
     private IndicesClusterStateService createIndicesClusterStateService(
         DiscoveryNode discoveryNode,
         final Supplier<MockIndicesService> indicesServiceSupplier
+    ) {
+        return createIndicesClusterStateService(discoveryNode, indicesServiceSupplier, Settings.EMPTY, mock(ExecutorService.class));
+    }
+
+    private IndicesClusterStateService createIndicesClusterStateService(
+        DiscoveryNode discoveryNode,
+        final Supplier<MockIndicesService> indicesServiceSupplier,
+        final Settings nodeSettings,
+        final ExecutorService genericExecutor
     ) {
         final ThreadPool threadPool = mock(ThreadPool.class);
-        when(threadPool.generic()).thenReturn(mock(ExecutorService.class));
+        when(threadPool.generic()).thenReturn(genericExecutor);
+        when(threadPool.getThreadContext()).thenReturn(new ThreadContext(Settings.EMPTY));
         final MockIndicesService indicesService = indicesServiceSupplier.get();
-        final Settings settings = Settings.builder().put("node.name", discoveryNode.getName()).build();
+        final Settings settings = Settings.builder().put("node.name", discoveryNode.getName()).put(nodeSettings).build();
         final TransportService transportService = new TransportService(
             settings,
             mock(Transport.class),
@@ -529,6 +608,7 @@ public class IndicesClusterStateServiceRandomUpdatesTests extends AbstractIndice
             Collections.emptySet()
         );
         final ClusterService clusterService = mock(ClusterService.class);
+        when(clusterService.getClusterApplierService()).thenReturn(mock(ClusterApplierService.class));
         final NodeClient client = mock(NodeClient.class);
         final RepositoriesService repositoriesService = new RepositoriesService(
             settings,
@@ -45,7 +45,10 @@ import org.elasticsearch.common.bytes.BytesArray;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.time.DateFormatter;
 import org.elasticsearch.common.util.Maps;
+import org.elasticsearch.common.util.concurrent.AbstractRunnable;
+import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
 import org.elasticsearch.common.util.concurrent.EsExecutors;
+import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
 import org.elasticsearch.common.xcontent.XContentHelper;
 import org.elasticsearch.core.Strings;
 import org.elasticsearch.core.Tuple;
@@ -79,12 +82,17 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
@@ -94,6 +102,7 @@ import java.util.function.Function;
 import java.util.function.IntConsumer;
 import java.util.function.LongSupplier;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import static org.elasticsearch.cluster.service.ClusterStateTaskExecutorUtils.executeAndAssertSuccessful;
 import static org.elasticsearch.core.Tuple.tuple;
@@ -1831,6 +1840,175 @@ public class IngestServiceTests extends ESTestCase {
         }
     }
 
+    public void testBulkRequestExecutionInConcurrentChunks() throws Exception {
+        final int numRequest = IngestService.MIN_DOCUMENTS_PER_CHUNK * IngestService.MAX_CONCURRENT_CHUNKS + between(0, 100);
+        BulkRequest bulkRequest = new BulkRequest();
+        for (int i = 0; i < numRequest; i++) {
+            if (i % 7 == 0) {
+                // requests without a pipeline are skipped but still take up a slot
+                bulkRequest.add(new IndexRequest("_index").id("_id").setPipeline("_none").setFinalPipeline("_none").source("n", i));
+            } else {
+                bulkRequest.add(new IndexRequest("_index").id("_id").setPipeline("_id").setFinalPipeline("_none").source("n", i));
+            }
+        }
+
+        Set<String> threads = ConcurrentCollections.newConcurrentSet();
+        IngestService ingestService = createWithProcessors(
+            Map.of("drop_every_third", (factories, tag, description, config) -> new TestProcessor(tag, "drop_every_third", null, doc -> {
+                threads.add(Thread.currentThread().getName());
+                return doc.getFieldValue("n", Integer.class) % 3 == 0 ? null : doc;
+            }))
+        );
+        PutPipelineRequest putRequest = putJsonPipelineRequest("_id", """
+            {"processors": [{"drop_every_third": {}}]}""");
+        ClusterState clusterState = ClusterState.builder(new ClusterName("_name")).build();
+        ClusterState previousClusterState = clusterState;
+        clusterState = executePut(putRequest, clusterState);
+        ingestService.applyClusterState(new ClusterChangedEvent("", clusterState, previousClusterState));
+
+        Set<Integer> dropped = ConcurrentCollections.newConcurrentSet();
+        CountDownLatch completed = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(IngestService.MAX_CONCURRENT_CHUNKS);
+        try {
+            ingestService.executeBulkRequest(
+                numRequest,
+                bulkRequest.requests(),
+                dropped::add,
+                (s) -> false,
+                (slot, targetIndex, e) -> fail("Should not be redirecting failures"),
+                (slot, e) -> fail("Should not fail"),
+                (thread, e) -> {
+                    assertNull(e);
+                    completed.countDown();
+                },
+                executor
+            );
+            safeAwait(completed);
+        } finally {
+            terminate(executor);
+        }
+
+        Set<Integer> expectedDropped = new HashSet<>();
+        int expectedIngested = 0;
+        for (int i = 0; i < numRequest; i++) {
+            if (i % 7 != 0) {
+                expectedIngested++;
+                if (i % 3 == 0) {
+                    expectedDropped.add(i);
+                }
+            }
+        }
+        assertThat(dropped, equalTo(expectedDropped));
+        assertThat(threads.size(), greaterThanOrEqualTo(2));
+        assertStats(ingestService.stats().totalStats(), expectedIngested, 0, 0);
+    }
+
+    public void testBulkRequestExecutionInConcurrentChunksWithRejectedChunks() throws Exception {
+        final int numRequest = IngestService.MIN_DOCUMENTS_PER_CHUNK * IngestService.MAX_CONCURRENT_CHUNKS;
+        BulkRequest bulkRequest = new BulkRequest();
+        for (int i = 0; i < numRequest; i++) {
+            bulkRequest.add(new IndexRequest("_index").id("_id").setPipeline("_id").setFinalPipeline("_none").source("n", i));
+        }
+
+        IngestService ingestService = createWithProcessors(
+            Map.of("noop", (factories, tag, description, config) -> new TestProcessor(tag, "noop", null, doc -> {}))
+        );
+        PutPipelineRequest putRequest = putJsonPipelineRequest("_id", """
+            {"processors": [{"noop": {}}]}""");
+        ClusterState clusterState = ClusterState.builder(new ClusterName("_name")).build();
+        ClusterState previousClusterState = clusterState;
+        clusterState = executePut(putRequest, clusterState);
+        ingestService.applyClusterState(new ClusterChangedEvent("", clusterState, previousClusterState));
+
+        // runs the bulk request itself, but rejects the chunks it forks like a full write pool would
+        AtomicBoolean started = new AtomicBoolean();
+        Executor executor = command -> {
+            if (started.compareAndSet(false, true)) {
+                command.run();
+            } else {
+                AbstractRunnable chunk = (AbstractRunnable) command;
+                chunk.onRejection(new EsRejectedExecutionException("rejected"));
+                chunk.onAfter();
+            }
+        };
+        Map<Integer, Exception> failures = ConcurrentCollections.newConcurrentMap();
+        AtomicBoolean completed = new AtomicBoolean();
+        ingestService.executeBulkRequest(
+            numRequest,
+            bulkRequest.requests(),
+            slot -> fail("Should not drop documents"),
+            (s) -> false,
+            (slot, targetIndex, e) -> fail("Should not be redirecting failures"),
+            (slot, e) -> assertNull(failures.put(slot, e)),
+            (thread, e) -> {
+                assertNull(e);
+                assertTrue(completed.compareAndSet(false, true));
+            },
+            executor
+        );
+        assertTrue(completed.get());
+
+        final Set<Integer> expectedFailures = IntStream.range(IngestService.MIN_DOCUMENTS_PER_CHUNK, numRequest)
+            .boxed()
+            .collect(Collectors.toSet());
+        assertThat(failures.keySet(), equalTo(expectedFailures));
+        assertStats(ingestService.stats().totalStats(), IngestService.MIN_DOCUMENTS_PER_CHUNK, expectedFailures.size(), 0);
+    }
+
+    public void testBulkRequestExecutionInConcurrentChunksWithUnparseableDocument() throws Exception {
+        final int numRequest = IngestService.MIN_DOCUMENTS_PER_CHUNK * IngestService.MAX_CONCURRENT_CHUNKS;
+        // a document in one of the forked chunks, but not the last one of its chunk so that there are documents after it to fail
+        final int unparseableSlot = between(IngestService.MIN_DOCUMENTS_PER_CHUNK, numRequest - 2);
+        BulkRequest bulkRequest = new BulkRequest();
+        for (int i = 0; i < numRequest; i++) {
+            IndexRequest indexRequest = new IndexRequest("_index").id("_id").setPipeline("_id").setFinalPipeline("_none");
+            if (i == unparseableSlot) {
+                indexRequest.source(new BytesArray("{\"n\": "), XContentType.JSON);
+            } else {
+                indexRequest.source("n", i);
+            }
+            bulkRequest.add(indexRequest);
+        }
+
+        IngestService ingestService = createWithProcessors(
+            Map.of("noop", (factories, tag, description, config) -> new TestProcessor(tag, "noop", null, doc -> {}))
+        );
+        PutPipelineRequest putRequest = putJsonPipelineRequest("_id", """
+            {"processors": [{"noop": {}}]}""");
+        ClusterState clusterState = ClusterState.builder(new ClusterName("_name")).build();
+        ClusterState previousClusterState = clusterState;
+        clusterState = executePut(putRequest, clusterState);
+        ingestService.applyClusterState(new ClusterChangedEvent("", clusterState, previousClusterState));
+
+        Map<Integer, Exception> failures = ConcurrentCollections.newConcurrentMap();
+        CountDownLatch completed = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(IngestService.MAX_CONCURRENT_CHUNKS);
+        try {
+            ingestService.executeBulkRequest(
+                numRequest,
+                bulkRequest.requests(),
+                slot -> fail("Should not drop documents"),
+                (s) -> false,
+                (slot, targetIndex, e) -> fail("Should not be redirecting failures"),
+                (slot, e) -> assertNull(failures.put(slot, e)),
+                (thread, e) -> {
+                    assertNull(e);
+                    completed.countDown();
+                },
+                executor
+            );
+            safeAwait(completed);
+        } finally {
+            terminate(executor);
+        }
+
+        // the unparseable document fails the documents after it in its chunk, the other chunks run on their own
+        final int chunkEnd = (unparseableSlot / IngestService.MIN_DOCUMENTS_PER_CHUNK + 1) * IngestService.MIN_DOCUMENTS_PER_CHUNK;
+        final Set<Integer> expectedFailures = IntStream.range(unparseableSlot, chunkEnd).boxed().collect(Collectors.toSet());
+        assertThat(failures.keySet(), equalTo(expectedFailures));
+        assertStats(ingestService.stats().totalStats(), numRequest - expectedFailures.size() + 1, expectedFailures.size(), 0);
+    }
+
     public void testIngestAndPipelineStats() throws Exception {
         final Processor processor = mock(Processor.class);
         when(processor.getType()).thenReturn("mock");
@@ -0,0 +1,260 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the "Elastic License
+ * 2.0", the "GNU Affero General Public License v3.0 only", and the "Server Side
+ * Public License v 1"; you may not use this file except in compliance with, at
+ * your election, the "Elastic License 2.0", the "GNU Affero General Public
+ * License v3.0 only", or the "Server Side Public License, v 1".
+ */
+
+package org.elasticsearch.ingest;
+
+import org.elasticsearch.ElasticsearchParseException;
+import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.xcontent.XContentHelper;
+import org.elasticsearch.test.ESTestCase;
+import org.elasticsearch.xcontent.XContentBuilder;
+import org.elasticsearch.xcontent.XContentFactory;
+import org.elasticsearch.xcontent.XContentType;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.not;
+
+public class LazySourceMapTests extends ESTestCase {
+    private static final String SOURCE = """
+        {"message": "hello", "count": 3, "tags": ["a", "b"], "host": {"name": "h1", "os": {"family": "linux"}}, "empty": {}}""";
+
+    public void testParsesTheSameAsAMap() throws IOException {
+        XContentType type = randomFrom(XContentType.JSON, XContentType.SMILE, XContentType.CBOR, XContentType.YAML);
+        BytesReference source = convert(SOURCE, type);
+        Map<String, Object> lazy = LazySourceMap.parse(source, type);
+        if (type == XContentType.JSON) {
+            assertThat(lazy.get("host"), instanceOf(LazySourceMap.class));
+        } else {
+            assertThat(lazy.get("host"), not(instanceOf(LazySourceMap.class)));
+        }
+        assertThat(lazy, equalTo(XContentHelper.convertToMap(source, false, type).v2()));
+    }
+
+    public void testParsesRandomDocumentsTheSameAsAMap() throws IOException {
+        for (int i = 0; i < 20; i++) {
+            Map<String, Object> document = randomObject(3);
+            XContentBuilder builder = XContentFactory.jsonBuilder().prettyPrint(randomBoolean()).map(document);
+            BytesReference source = BytesReference.bytes(builder);
+            Map<String, Object> expected = XContentHelper.convertToMap(source, false, XContentType.JSON).v2();
+            assertThat(LazySourceMap.parse(source, XContentType.JSON), equalTo(expected));
+        }
+    }
+
+    public void testParsesScalarsLikeTheParser() throws IOException {
+        String json = """
+            {"int": -12, "long": 12345678901, "big": 123456789012345678901234567890, "double": 1.5e3, "zero": -0,
+             "escaped": "a\\"b\\u00e9", "unicode": "héllo", "t": true, "f": false, "n": null, "k\\u0065y": 1}""";
+        Map<String, Object> lazy = LazySourceMap.parse(new BytesArray(json), XContentType.JSON);
+        assertThat(lazy, equalTo(XContentHelper.convertToMap(new BytesArray(json), false, XContentType.JSON).v2()));
+        assertThat(lazy.get("int"), equalTo(-12));
+        assertThat(lazy.get("long"), equalTo(12345678901L));
+        assertThat(lazy.get("big"), equalTo(new BigInteger("123456789012345678901234567890")));
+        assertThat(lazy.get("double"), equalTo(1500.0));
+        assertThat(lazy.get("escaped"), equalTo("a\"bé"));
+        assertThat(lazy.get("key"), equalTo(1));
+    }
+
+    public void testOnlyParsesWhatIsRead() {
+        Map<String, Object> lazy = LazySourceMap.parse(new BytesArray(SOURCE), XContentType.JSON);
+        LazySourceMap host = (LazySourceMap) lazy.get("host");
+        assertFalse(host.isParsed());
+        assertThat(host.get("name"), equalTo("h1"));
+        assertTrue(host.isParsed());
+        LazySourceMap os = (LazySourceMap) host.get("os");
+        assertFalse(os.isParsed());
+    }
+
+    public void testErrorsInUnreadObjectsAreFoundWhenRead() {
+        String json = """
+            {"message": "hello", "broken": {"a": 1, "b": tru}}""";
+        Map<String, Object> lazy = LazySourceMap.parse(new BytesArray(json), XContentType.JSON);
+        assertThat(lazy.get("message"), equalTo("hello"));
+        expectThrows(UncheckedIOException.class, () -> ((Map<?, ?>) lazy.get("broken")).get("a"));
+    }
+
+    public void testErrorsInTheTopLevelAreFoundUpFront() {
+        for (String json : List.of("{\"a\": 1, \"a\": 2}", "{\"a\": tru}", "{\"a\": {}")) {
+            expectThrows(ElasticsearchParseException.class, () -> LazySourceMap.parse(new BytesArray(json), XContentType.JSON));
+        }
+    }
+
+    public void testParsesJsonWithCommentsUpFront() {
+        String json = """
+            {"host": /* the host */ {"name": "h1"}}""";
+        Map<String, Object> map = LazySourceMap.parse(new BytesArray(json), XContentType.JSON);
+        assertThat(map, not(instanceOf(LazySourceMap.class)));
+        assertThat(map, equalTo(Map.of("host", Map.of("name", "h1"))));
+    }
+
+    public void testUnmodifiedRoundTrip() throws IOException {
+        XContentType type = randomFrom(XContentType.JSON, XContentType.SMILE, XContentType.CBOR, XContentType.YAML);
+        BytesReference source = convert(SOURCE, type);
+        Map<String, Object> lazy = LazySourceMap.parse(source, type);
+        if (randomBoolean()) {
+            // reading a field shouldn't change the output
+            ((Map<?, ?>) lazy.get("host")).get("name");
+        }
+        assertThat(
+            XContentHelper.convertToMap(write(lazy, type), false, type).v2(),
+            equalTo(XContentHelper.convertToMap(source, false, type).v2())
+        );
+    }
+
+    public void testUnchangedObjectsAreCopiedFromTheSource() throws IOException {
+        // spacing and field order that serializing a map again wouldn't reproduce
+        String json = """
+            {"host": {"z":  1, "os": { "family" : "linux",  "version": "6.1" } }, "agent": {"b": [1, 2], "a": "x"}}""";
+        Map<String, Object> lazy = LazySourceMap.parse(new BytesArray(json), XContentType.JSON);
+        Map<?, ?> host = (Map<?, ?>) lazy.get("host");
+        // reading an object doesn't change it
+        assertThat(((Map<?, ?>) host.get("os")).get("family"), equalTo("linux"));
+        assertThat(write(lazy, XContentType.JSON).utf8ToString(), containsString("""
+            "host":{"z":  1, "os": { "family" : "linux",  "version": "6.1" } }"""));
+        assertThat(write(lazy, XContentType.JSON).utf8ToString(), containsString("""
+            "agent":{"b": [1, 2], "a": "x"}"""));
+    }
+
+    @SuppressWarnings("unchecked")
+    public void testChangedObjectsCopyTheValuesTheyKept() throws IOException {
+        // values written in ways that serializing them again wouldn't reproduce
+        String json = """
+            {"host": {"z": 1.50, "name": "h1", "city": "caf\\u00e9", "os": {"family": "li\\u006eux", "version": "6.1"}, "ips": [ 1,2 ]}}""";
+        Map<String, Object> lazy = LazySourceMap.parse(new BytesArray(json), XContentType.JSON);
+        Map<String, Object> host = (Map<String, Object>) lazy.get("host");
+        ((Map<String, Object>) host.get("os")).put("version", "6.2");
+        host.put("name", "h2");
+        String written = write(lazy, XContentType.JSON).utf8ToString();
+        // values that are still the ones from the source are copied as they were
+        assertThat(written, containsString("\"z\":1.50"));
+        assertThat(written, containsString("\"city\":\"caf\\u00e9\""));
+        assertThat(written, containsString("\"family\":\"li\\u006eux\""));
+        // but new values and arrays, which we can't tell if they changed, are serialized
+        assertThat(written, containsString("\"version\":\"6.2\""));
+        assertThat(written, containsString("\"name\":\"h2\""));
+        assertThat(written, containsString("\"ips\":[1,2]"));
+        assertThat(
+            XContentHelper.convertToMap(new BytesArray(written), false, XContentType.JSON).v2(),
+            equalTo(
+                Map.of(
+                    "host",
+                    Map.of("z", 1.5, "name", "h2", "city", "café", "os", Map.of("family", "linux", "version", "6.2"), "ips", List.of(1, 2))
+                )
+            )
+        );
+    }
+
+    @SuppressWarnings("unchecked")
+    public void testModified() throws IOException {
+        Map<String, Object> lazy = LazySourceMap.parse(new BytesArray(SOURCE), XContentType.JSON);
+        Map<String, Object> host = (Map<String, Object>) lazy.get("host");
+        host.put("ip", "127.0.0.1");
+        ((Map<String, Object>) host.get("os")).remove("family");
+        // change an array in place
+        ((List<Object>) lazy.get("tags")).add("c");
+        // move an unparsed object into an array where we can't copy its raw bytes
+        lazy.put("objects", new ArrayList<>(List.of("a", lazy.remove("empty"))));
+
+        Map<String, Object> written = XContentHelper.convertToMap(write(lazy, XContentType.JSON), false, XContentType.JSON).v2();
+        assertThat(written.get("host"), equalTo(Map.of("name", "h1", "ip", "127.0.0.1", "os", Map.of())));
+        assertThat(written.get("tags"), equalTo(List.of("a", "b", "c")));
+        assertThat(written.get("objects"), equalTo(List.of("a", Map.of())));
+        assertFalse(written.containsKey("empty"));
+    }
+
+    @SuppressWarnings("unchecked")
+    public void testRandomChangesRoundTrip() throws IOException {
+        for (int i = 0; i < 20; i++) {
+            Map<String, Object> document = randomObject(3);
+            BytesReference source = BytesReference.bytes(XContentFactory.jsonBuilder().map(document));
+            Map<String, Object> lazy = LazySourceMap.parse(source, XContentType.JSON);
+            Map<String, Object> expected = XContentHelper.convertToMap(source, false, XContentType.JSON).v2();
+            for (int c = 0; c < 5; c++) {
+                Map<String, Object> lazyObject = lazy;
+                Map<String, Object> expectedObject = expected;
+                // walk down to a random object and change one of its fields
+                while (randomBoolean()) {
+                    List<String> objects = new ArrayList<>();
+                    for (Map.Entry<String, Object> field : expectedObject.entrySet()) {
+                        if (field.getValue() instanceof Map) {
+                            objects.add(field.getKey());
+                        }
+                    }
+                    if (objects.isEmpty()) {
+                        break;
+                    }
+                    String name = randomFrom(objects);
+                    lazyObject = (Map<String, Object>) lazyObject.get(name);
+                    expectedObject = (Map<String, Object>) expectedObject.get(name);
+                }
+                String name = randomAlphaOfLength(3);
+                if (expectedObject.isEmpty() == false && randomBoolean()) {
+                    name = randomFrom(expectedObject.keySet());
+                }
+                if (randomBoolean()) {
+                    Object value = randomAlphaOfLength(5);
+                    lazyObject.put(name, value);
+                    expectedObject.put(name, value);
+                } else {
+                    lazyObject.remove(name);
+                    expectedObject.remove(name);
+                }
+            }
+            assertThat(XContentHelper.convertToMap(write(lazy, XContentType.JSON), false, XContentType.JSON).v2(), equalTo(expected));
+        }
+    }
+
+    private static Map<String, Object> randomObject(int depth) {
+        Map<String, Object> object = new HashMap<>();
+        int fields = randomIntBetween(0, 6);
+        for (int f = 0; f < fields; f++) {
+            String name = randomBoolean() ? randomAlphaOfLength(4) : randomUnicodeOfLengthBetween(1, 4);
+            object.put(name, randomValue(depth));
+        }
+        return object;
+    }
+
+    private static Object randomValue(int depth) {
+        return switch (between(0, depth > 0 ? 8 : 6)) {
+            case 0 -> randomUnicodeOfLengthBetween(0, 10);
+            case 1 -> randomInt();
+            case 2 -> randomLong();
+            case 3 -> randomDouble();
+            case 4 -> randomBoolean();
+            case 5 -> null;
+            case 6 -> randomRealisticUnicodeOfLengthBetween(0, 10);
+            case 7 -> randomList(0, 3, () -> randomValue(depth - 1));
+            default -> randomObject(depth - 1);
+        };
+    }
+
+    private static BytesReference write(Map<String, Object> source, XContentType type) throws IOException {
+        XContentBuilder builder = XContentFactory.contentBuilder(type);
+        builder.startObject();
+        LazySourceMap.writeFields(source, builder);
+        builder.endObject();
+        return BytesReference.bytes(builder);
+    }
+
+    private static BytesReference convert(String json, XContentType type) throws IOException {
+        XContentBuilder builder = XContentFactory.contentBuilder(type);
+        builder.map(XContentHelper.convertToMap(XContentType.JSON.xContent(), json, false));
+        return BytesReference.bytes(builder);
+    }
+}
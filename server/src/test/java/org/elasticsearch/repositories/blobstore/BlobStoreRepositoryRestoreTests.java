@@ -18,8 +18,14 @@ import org.elasticsearch.cluster.routing.ShardRouting;
 import org.elasticsearch.cluster.routing.ShardRoutingHelper;
 import org.elasticsearch.cluster.service.ClusterService;
 import org.elasticsearch.common.UUIDs;
+import org.elasticsearch.common.blobstore.BlobContainer;
+import org.elasticsearch.common.blobstore.BlobPath;
+import org.elasticsearch.common.blobstore.BlobStore;
+import org.elasticsearch.common.blobstore.OperationPurpose;
+import org.elasticsearch.common.blobstore.support.FilterBlobContainer;
 import org.elasticsearch.common.settings.ClusterSettings;
 import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.ByteSizeValue;
 import org.elasticsearch.common.util.MockBigArrays;
 import org.elasticsearch.core.IOUtils;
 import org.elasticsearch.env.Environment;
@@ -45,15 +51,21 @@ import org.elasticsearch.repositories.fs.FsRepository;
 import org.elasticsearch.snapshots.Snapshot;
 import org.elasticsearch.snapshots.SnapshotId;
 import org.elasticsearch.snapshots.SnapshotInfo;
+import org.elasticsearch.snapshots.mockstore.BlobStoreWrapper;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.UnaryOperator;
 
 import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
 
 /**
  * This class tests the behavior of {@link BlobStoreRepository} when it
@@ -213,9 +225,100 @@ public class BlobStoreRepositoryRestoreTests extends IndexShardTestCase {
         }
     }
 
+    /**
+     * Restoring a file part that is larger than the restore range size must read it as concurrent ranges if the repository allows it, and
+     * must still restore the file intact.
+     */
+    public void testRestoreReadsLargeFilePartsInRanges() throws IOException {
+        final IndexId indexId = new IndexId(randomAlphaOfLength(10), UUIDs.randomBase64UUID());
+        final ShardId shardId = new ShardId(indexId.getName(), indexId.getId(), 0);
+
+        IndexShard shard = newShard(shardId, true);
+        try {
+            // index a few large documents so that the stored fields file is larger than a range
+            final int numDocs = randomIntBetween(2, 4);
+            recoverShardFromStore(shard);
+            for (int i = 0; i < numDocs; i++) {
+                indexDoc(shard, "_doc", Integer.toString(i), "{\"field\":\"" + randomAlphaOfLength(1 << 20) + "\"}");
+            }
+            flushShard(shard, false);
+            assertDocCount(shard, numDocs);
+
+            // snapshot the shard to a repository that reads large parts in ranges of 1mb and counts the ranged reads
+            final long restoreRangeSize = ByteSizeValue.ofMb(1).getBytes();
+            final AtomicLong rangeReads = new AtomicLong();
+            final Repository repository = createRepository(
+                Settings.builder()
+                    .put(BlobStoreRepository.MAX_CONCURRENT_RESTORE_RANGE_READS_SETTING.getKey(), randomIntBetween(2, 8))
+                    .put(BlobStoreRepository.RESTORE_RANGE_SIZE_SETTING.getKey(), restoreRangeSize + "b")
+                    .build(),
+                blobStore -> new BlobStoreWrapper(blobStore) {
+                    @Override
+                    public BlobContainer blobContainer(BlobPath path) {
+                        return new RangeReadCountingBlobContainer(super.blobContainer(path), rangeReads);
+                    }
+                }
+            );
+            final Snapshot snapshot = new Snapshot(repository.getMetadata().name(), new SnapshotId(randomAlphaOfLength(10), "_uuid"));
+            snapshotShard(shard, snapshot, repository);
+            assertThat(rangeReads.get(), equalTo(0L));
+
+            final Store.MetadataSnapshot storeFiles = shard.snapshotStoreMetadata();
+            long expectedRangeReads = 0L;
+            for (StoreFileMetadata storeFile : storeFiles) {
+                if (storeFile.length() > restoreRangeSize) {
+                    expectedRangeReads += 1L + (storeFile.length() - 1L) / restoreRangeSize;
+                }
+            }
+            assertThat(expectedRangeReads, greaterThan(1L));
+
+            // restore the shard into an empty store
+            closeShards(shard);
+            for (String fileName : storeFiles.fileMetadataMap().keySet()) {
+                Files.delete(shard.shardPath().resolveIndex().resolve(fileName));
+            }
+            ShardRouting shardRouting = ShardRoutingHelper.initWithSameId(
+                shard.routingEntry(),
+                RecoverySource.ExistingStoreRecoverySource.INSTANCE
+            );
+            shard = newShard(
+                shardRouting,
+                shard.shardPath(),
+                shard.indexSettings().getIndexMetadata(),
+                null,
+                null,
+                new InternalEngineFactory(),
+                NOOP_GCP_SYNCER,
+                RetentionLeaseSyncer.EMPTY,
+                EMPTY_EVENT_LISTENER
+            );
+            recoverShardFromSnapshot(shard, snapshot, repository);
+
+            // every part larger than a range was read in ranges, and the files were restored intact
+            assertThat(rangeReads.get(), equalTo(expectedRangeReads));
+            TestUtil.checkIndex(shard.store().directory());
+            for (StoreFileMetadata storeFile : storeFiles) {
+                assertEquals(storeFile.length(), shard.store().directory().fileLength(storeFile.name()));
+            }
+        } finally {
+            if (shard != null && shard.state() != IndexShardState.CLOSED) {
+                try {
+                    closeShardNoCheck(shard);
+                } finally {
+                    IOUtils.close(shard.store());
+                }
+            }
+        }
+    }
+
     /** Create a {@link Repository} with a random name **/
     private Repository createRepository() {
-        Settings settings = Settings.builder().put("location", randomAlphaOfLength(10)).build();
+        return createRepository(Settings.EMPTY, UnaryOperator.identity());
+    }
+
+    /** Create a {@link Repository} with a random name, the given settings and a blob store wrapped as given **/
+    private Repository createRepository(Settings repositorySettings, UnaryOperator<BlobStore> blobStoreWrapper) {
+        Settings settings = Settings.builder().put(repositorySettings).put("location", randomAlphaOfLength(10)).build();
         RepositoryMetadata repositoryMetadata = new RepositoryMetadata(randomAlphaOfLength(10), FsRepository.TYPE, settings);
         final ClusterService clusterService = BlobStoreTestUtil.mockClusterService(repositoryMetadata);
         final FsRepository repository = new FsRepository(
@@ -225,7 +328,12 @@ public class BlobStoreRepositoryRestoreTests extends IndexShardTestCase {
             clusterService,
             MockBigArrays.NON_RECYCLING_INSTANCE,
             new RecoverySettings(Settings.EMPTY, new ClusterSettings(Settings.EMPTY, ClusterSettings.BUILT_IN_CLUSTER_SETTINGS))
-        );
+        ) {
+            @Override
+            protected BlobStore createBlobStore() throws Exception {
+                return blobStoreWrapper.apply(super.createBlobStore());
+            }
+        };
         clusterService.addStateApplier(event -> repository.updateState(event.state()));
         // Apply state once to initialize repo properly like RepositoriesService would
         repository.updateState(clusterService.state());
@@ -243,4 +351,26 @@ public class BlobStoreRepositoryRestoreTests extends IndexShardTestCase {
                 .build()
         );
     }
+
+    private static class RangeReadCountingBlobContainer extends FilterBlobContainer {
+        private final AtomicLong rangeReads;
+
+        RangeReadCountingBlobContainer(BlobContainer delegate, AtomicLong rangeReads) {
+            super(delegate);
+            this.rangeReads = rangeReads;
+        }
+
+        @Override
+        protected BlobContainer wrapChild(BlobContainer child) {
+            return new RangeReadCountingBlobContainer(child, rangeReads);
+        }
+
+        @Override
+        public InputStream readBlob(OperationPurpose purpose, String blobName, long position, long length) throws IOException {
+            if (purpose == OperationPurpose.SNAPSHOT_DATA) {
+                rangeReads.incrementAndGet();
+            }
+            return super.readBlob(purpose, blobName, position, length);
+        }
+    }
 }
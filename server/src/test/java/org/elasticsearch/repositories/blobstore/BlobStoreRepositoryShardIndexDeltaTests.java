@@ -0,0 +1,293 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the "Elastic License
+ * 2.0", the "GNU Affero General Public License v3.0 only", and the "Server Side
+ * Public License v 1"; you may not use this file except in compliance with, at
+ * your election, the "Elastic License 2.0", the "GNU Affero General Public
+ * License v3.0 only", or the "Server Side Public License, v 1".
+ */
+
+package org.elasticsearch.repositories.blobstore;
+
+import org.elasticsearch.action.support.PlainActionFuture;
+import org.elasticsearch.cluster.metadata.RepositoryMetadata;
+import org.elasticsearch.cluster.service.ClusterService;
+import org.elasticsearch.common.UUIDs;
+import org.elasticsearch.common.blobstore.BlobContainer;
+import org.elasticsearch.common.blobstore.BlobPath;
+import org.elasticsearch.common.blobstore.BlobStore;
+import org.elasticsearch.common.blobstore.OperationPurpose;
+import org.elasticsearch.common.blobstore.support.FilterBlobContainer;
+import org.elasticsearch.common.settings.ClusterSettings;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.MockBigArrays;
+import org.elasticsearch.core.IOUtils;
+import org.elasticsearch.env.Environment;
+import org.elasticsearch.env.TestEnvironment;
+import org.elasticsearch.index.IndexVersion;
+import org.elasticsearch.index.engine.Engine;
+import org.elasticsearch.index.shard.IndexShard;
+import org.elasticsearch.index.shard.IndexShardState;
+import org.elasticsearch.index.shard.IndexShardTestCase;
+import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.index.snapshots.IndexShardSnapshotStatus;
+import org.elasticsearch.index.snapshots.blobstore.SnapshotFiles;
+import org.elasticsearch.indices.recovery.RecoverySettings;
+import org.elasticsearch.repositories.IndexId;
+import org.elasticsearch.repositories.ShardGeneration;
+import org.elasticsearch.repositories.ShardSnapshotResult;
+import org.elasticsearch.repositories.SnapshotIndexCommit;
+import org.elasticsearch.repositories.SnapshotShardContext;
+import org.elasticsearch.repositories.fs.FsRepository;
+import org.elasticsearch.snapshots.SnapshotId;
+import org.elasticsearch.snapshots.SnapshotsService;
+import org.elasticsearch.snapshots.mockstore.BlobStoreWrapper;
+import org.elasticsearch.test.index.IndexVersionUtils;
+import org.elasticsearch.xcontent.NamedXContentRegistry;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.Matchers.equalTo;
+
+/**
+ * Tests that {@link BlobStoreRepository} writes the shard-level {@code index-${uuid}} blobs as deltas on top of a base blob if the
+ * repository supports it, and that it compacts them into a new base blob.
+ */
+public class BlobStoreRepositoryShardIndexDeltaTests extends IndexShardTestCase {
+
+    public void testSnapshotsWriteDeltasAndCompactThem() throws Exception {
+        final IndexId indexId = new IndexId(randomAlphaOfLength(10), UUIDs.randomBase64UUID());
+        final ShardId shardId = new ShardId(indexId.getName(), indexId.getId(), 0);
+
+        final IndexShard shard = newShard(shardId, true);
+        try {
+            recoverShardFromStore(shard);
+            final AtomicInteger shardIndexReads = new AtomicInteger();
+            final BlobStoreRepository repository = createRepository(shardIndexReads);
+            final BlobContainer shardContainer = repository.shardContainer(indexId, shardId.id());
+
+            final List<String> snapshotNames = new ArrayList<>();
+            ShardGeneration generation = null;
+            int baseSnapshotCount = 0;
+            int deltaSnapshotCount = 0;
+            final int snapshotCount = between(BlobStoreRepository.MAX_SHARD_INDEX_DELTA_SNAPSHOTS, 40);
+            for (int i = 0; i < snapshotCount; i++) {
+                indexDoc(shard, "_doc", Integer.toString(i));
+                flushShard(shard, false);
+
+                shardIndexReads.set(0);
+                final String snapshotName = "snapshot-" + i;
+                final ShardGeneration previousGeneration = generation;
+                generation = snapshotShard(shard, snapshotName, repository, generation, IndexVersion.current());
+                snapshotNames.add(snapshotName);
+
+                // the snapshot read the previous delta and its base, or the single previous blob
+                final int expectedReads = previousGeneration == null ? 0 : previousGeneration.isDelta() ? 2 : 1;
+                assertThat(shardIndexReads.get(), equalTo(expectedReads));
+
+                if (deltaSnapshotCount + 1 <= Math.min(BlobStoreRepository.MAX_SHARD_INDEX_DELTA_SNAPSHOTS, baseSnapshotCount)) {
+                    deltaSnapshotCount++;
+                    assertTrue(generation.isDelta());
+                    assertThat(generation.baseGeneration(), equalTo(previousGeneration.baseGeneration()));
+                    // the delta blob only lists the snapshots since its base
+                    assertThat(
+                        readShardIndexBlob(repository, shardContainer, generation),
+                        equalTo(snapshotNames.subList(baseSnapshotCount, snapshotNames.size()))
+                    );
+                } else {
+                    baseSnapshotCount = snapshotNames.size();
+                    deltaSnapshotCount = 0;
+                    assertFalse(generation.isDelta());
+                    assertThat(readShardIndexBlob(repository, shardContainer, generation), equalTo(snapshotNames));
+                }
+
+                shardIndexReads.set(0);
+                assertThat(
+                    repository.getBlobStoreIndexShardSnapshots(indexId, shardId.id(), generation)
+                        .snapshots()
+                        .stream()
+                        .map(SnapshotFiles::snapshot)
+                        .toList(),
+                    equalTo(snapshotNames)
+                );
+                assertThat(shardIndexReads.get(), equalTo(generation.isDelta() ? 2 : 1));
+            }
+        } finally {
+            closeShard(shard);
+        }
+    }
+
+    public void testNoDeltasBeforeRepositoryVersionSupportsThem() throws Exception {
+        final IndexId indexId = new IndexId(randomAlphaOfLength(10), UUIDs.randomBase64UUID());
+        final ShardId shardId = new ShardId(indexId.getName(), indexId.getId(), 0);
+
+        final IndexShard shard = newShard(shardId, true);
+        try {
+            recoverShardFromStore(shard);
+            final BlobStoreRepository repository = createRepository(new AtomicInteger());
+            final IndexVersion repositoryMetaVersion = IndexVersionUtils.randomVersionBetween(
+                random(),
+                SnapshotsService.FILE_INFO_WRITER_UUIDS_IN_SHARD_DATA_VERSION,
+                IndexVersionUtils.getPreviousVersion(SnapshotsService.SHARD_INDEX_DELTAS_VERSION)
+            );
+            ShardGeneration generation = null;
+            final int snapshotCount = between(2, 5);
+            for (int i = 0; i < snapshotCount; i++) {
+                indexDoc(shard, "_doc", Integer.toString(i));
+                flushShard(shard, false);
+                generation = snapshotShard(shard, "snapshot-" + i, repository, generation, repositoryMetaVersion);
+                assertFalse(generation.isDelta());
+            }
+        } finally {
+            closeShard(shard);
+        }
+    }
+
+    public void testObsoleteShardIndexBlobsKeepBaseOfCurrentGeneration() {
+        final String containerPath = "indices/" + randomAlphaOfLength(10) + "/0/" + BlobStoreRepository.SNAPSHOT_INDEX_PREFIX;
+        final ShardGeneration base = ShardGeneration.newGeneration(random());
+        final ShardGeneration delta = ShardGeneration.newDelta(base);
+        final ShardGeneration otherDelta = ShardGeneration.newDelta(delta);
+        final ShardGeneration compacted = ShardGeneration.newGeneration(random());
+        assertThat(otherDelta.baseGeneration(), equalTo(base));
+
+        // the base stays as long as the current generation is a delta on top of it
+        assertThat(obsoleteShardIndexBlobs(containerPath, base, delta), equalTo(Set.of()));
+        assertThat(obsoleteShardIndexBlobs(containerPath, delta, otherDelta), equalTo(Set.of(containerPath + delta)));
+
+        // but goes with the obsolete generations once a new base is written
+        assertThat(obsoleteShardIndexBlobs(containerPath, base, compacted), equalTo(Set.of(containerPath + base)));
+        assertThat(
+            obsoleteShardIndexBlobs(containerPath, delta, compacted),
+            equalTo(Set.of(containerPath + delta, containerPath + base))
+        );
+        assertThat(obsoleteShardIndexBlobs(containerPath, delta, null), equalTo(Set.of(containerPath + delta, containerPath + base)));
+        assertThat(
+            obsoleteShardIndexBlobs(containerPath, delta, ShardGeneration.newDelta(compacted)),
+            equalTo(Set.of(containerPath + delta, containerPath + base))
+        );
+    }
+
+    private static Set<String> obsoleteShardIndexBlobs(String containerPath, ShardGeneration obsolete, ShardGeneration current) {
+        final Set<String> toDelete = new HashSet<>();
+        BlobStoreRepository.addObsoleteShardIndexBlobs(toDelete, containerPath, obsolete, current);
+        return toDelete;
+    }
+
+    private List<String> readShardIndexBlob(BlobStoreRepository repository, BlobContainer shardContainer, ShardGeneration generation)
+        throws IOException {
+        return BlobStoreRepository.INDEX_SHARD_SNAPSHOTS_FORMAT.read(
+            repository.getMetadata().name(),
+            shardContainer,
+            generation.getGenerationUUID(),
+            NamedXContentRegistry.EMPTY
+        ).snapshots().stream().map(SnapshotFiles::snapshot).toList();
+    }
+
+    private ShardGeneration snapshotShard(
+        IndexShard shard,
+        String snapshotName,
+        BlobStoreRepository repository,
+        ShardGeneration generation,
+        IndexVersion repositoryMetaVersion
+    ) throws IOException {
+        final PlainActionFuture<ShardSnapshotResult> future = new PlainActionFuture<>();
+        try (Engine.IndexCommitRef indexCommitRef = shard.acquireLastIndexCommit(true)) {
+            repository.snapshotShard(
+                new SnapshotShardContext(
+                    shard.store(),
+                    shard.mapperService(),
+                    new SnapshotId(snapshotName, UUIDs.randomBase64UUID()),
+                    new IndexId(shard.shardId().getIndexName(), shard.shardId().getIndex().getUUID()),
+                    new SnapshotIndexCommit(indexCommitRef),
+                    null,
+                    IndexShardSnapshotStatus.newInitializing(generation),
+                    repositoryMetaVersion,
+                    randomMillisUpToYear9999(),
+                    future
+                )
+            );
+            return future.actionGet().getGeneration();
+        }
+    }
+
+    private void closeShard(IndexShard shard) throws IOException {
+        if (shard.state() != IndexShardState.CLOSED) {
+            try {
+                closeShardNoCheck(shard);
+            } finally {
+                IOUtils.close(shard.store());
+            }
+        }
+    }
+
+    /** Create a {@link BlobStoreRepository} that counts the reads of shard-level {@code index-${uuid}} blobs **/
+    private BlobStoreRepository createRepository(AtomicInteger shardIndexReads) {
+        final Path home = createTempDir();
+        final Environment environment = TestEnvironment.newEnvironment(
+            Settings.builder()
+                .put(Environment.PATH_HOME_SETTING.getKey(), home.toAbsolutePath())
+                .put(Environment.PATH_REPO_SETTING.getKey(), home.resolve("repo").toAbsolutePath())
+                .build()
+        );
+        final RepositoryMetadata repositoryMetadata = new RepositoryMetadata(
+            randomAlphaOfLength(10),
+            FsRepository.TYPE,
+            Settings.builder().put("location", randomAlphaOfLength(10)).build()
+        );
+        final ClusterService clusterService = BlobStoreTestUtil.mockClusterService(repositoryMetadata);
+        final FsRepository repository = new FsRepository(
+            repositoryMetadata,
+            environment,
+            xContentRegistry(),
+            clusterService,
+            MockBigArrays.NON_RECYCLING_INSTANCE,
+            new RecoverySettings(Settings.EMPTY, new ClusterSettings(Settings.EMPTY, ClusterSettings.BUILT_IN_CLUSTER_SETTINGS))
+        ) {
+            @Override
+            protected BlobStore createBlobStore() throws Exception {
+                return new BlobStoreWrapper(super.createBlobStore()) {
+                    @Override
+                    public BlobContainer blobContainer(BlobPath path) {
+                        return new ShardIndexReadCountingBlobContainer(super.blobContainer(path), shardIndexReads);
+                    }
+                };
+            }
+        };
+        clusterService.addStateApplier(event -> repository.updateState(event.state()));
+        // Apply state once to initialize repo properly like RepositoriesService would
+        repository.updateState(clusterService.state());
+        repository.start();
+        return repository;
+    }
+
+    private static class ShardIndexReadCountingBlobContainer extends FilterBlobContainer {
+        private final AtomicInteger shardIndexReads;
+
+        ShardIndexReadCountingBlobContainer(BlobContainer delegate, AtomicInteger shardIndexReads) {
+            super(delegate);
+            this.shardIndexReads = shardIndexReads;
+        }
+
+        @Override
+        protected BlobContainer wrapChild(BlobContainer child) {
+            return new ShardIndexReadCountingBlobContainer(child, shardIndexReads);
+        }
+
+        @Override
+        public InputStream readBlob(OperationPurpose purpose, String blobName) throws IOException {
+            // only the shard-level blobs, not the root-level index-N blobs of the repository data
+            if (blobName.startsWith(BlobStoreRepository.SNAPSHOT_INDEX_PREFIX) && path().parts().isEmpty() == false) {
+                shardIndexReads.incrementAndGet();
+            }
+            return super.readBlob(purpose, blobName);
+        }
+    }
+}
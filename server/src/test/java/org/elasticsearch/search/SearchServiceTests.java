@@ -108,6 +108,8 @@ import org.elasticsearch.search.internal.ReaderContext;
 import org.elasticsearch.search.internal.SearchContext;
 import org.elasticsearch.search.internal.ShardSearchContextId;
 import org.elasticsearch.search.internal.ShardSearchRequest;
+import org.elasticsearch.search.profile.ProfileResult;
+import org.elasticsearch.search.profile.query.QueryProfileShardResult;
 import org.elasticsearch.search.query.NonCountingTermQuery;
 import org.elasticsearch.search.query.QuerySearchRequest;
 import org.elasticsearch.search.query.QuerySearchResult;
@@ -125,6 +127,7 @@ import org.elasticsearch.search.rank.feature.RankFeatureResult;
 import org.elasticsearch.search.rank.feature.RankFeatureShardRequest;
 import org.elasticsearch.search.rank.feature.RankFeatureShardResult;
 import org.elasticsearch.search.slice.SliceBuilder;
+import org.elasticsearch.search.sort.SortOrder;
 import org.elasticsearch.search.suggest.SuggestBuilder;
 import org.elasticsearch.tasks.TaskCancelHelper;
 import org.elasticsearch.tasks.TaskCancelledException;
@@ -177,6 +180,7 @@ import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.CoreMatchers.notNullValue;
 import static org.hamcrest.CoreMatchers.startsWith;
 import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.hasItem;
 import static org.hamcrest.Matchers.not;
 import static org.mockito.Mockito.mock;
 
@@ -2065,6 +2069,72 @@ public class SearchServiceTests extends ESSingleNodeTestCase {
         }
     }
 
+    public void testBottomSortFilter() throws Exception {
+        assertAcked(indicesAdmin().prepareCreate("index").setMapping("value", "type=long"));
+        for (int i = 0; i < 10; i++) {
+            prepareIndex("index").setId(Integer.toString(i)).setSource("value", i).get();
+        }
+        indicesAdmin().prepareRefresh("index").get();
+        String bottomSortFilter = "value:[-9223372036854775808 TO 5]";
+        Supplier<SearchSourceBuilder> source = () -> new SearchSourceBuilder().sort("value", SortOrder.ASC)
+            .trackTotalHits(false)
+            .size(3)
+            .profile(true);
+
+        assertThat(profiledQueries(source.get()), hasItem(containsString(bottomSortFilter)));
+        assertThat(profiledQueries(source.get().searchAfter(new Object[] { 1L })), hasItem(containsString(bottomSortFilter)));
+
+        // these need to see the documents that can't make it into the top hits
+        assertThat(profiledQueries(source.get().terminateAfter(between(1, 10))), not(hasItem(containsString(bottomSortFilter))));
+        assertThat(
+            profiledQueries(source.get().aggregation(AggregationBuilders.max("max").field("value"))),
+            not(hasItem(containsString(bottomSortFilter)))
+        );
+        assertThat(profiledQueries(source.get().trackTotalHits(true)), not(hasItem(containsString(bottomSortFilter))));
+    }
+
+    /**
+     * Run the query phase on a shard of a two shard search whose other shard already collected hits down to a bottom sort value of
+     * {@code 5} and return the descriptions of the queries it profiled.
+     */
+    private List<String> profiledQueries(SearchSourceBuilder source) throws Exception {
+        SearchService service = getInstanceFromNode(SearchService.class);
+        ShardSearchRequest request = new ShardSearchRequest(
+            OriginalIndices.NONE,
+            new SearchRequest().allowPartialSearchResults(true).source(source),
+            new ShardId(resolveIndex("index"), 0),
+            0,
+            2,
+            AliasFilter.EMPTY,
+            1.0f,
+            -1,
+            null
+        );
+        request.setBottomSortValues(new SearchSortValuesAndFormats(new Object[] { 5L }, new DocValueFormat[] { DocValueFormat.RAW }));
+        PlainActionFuture<SearchPhaseResult> future = new PlainActionFuture<>();
+        service.executeQueryPhase(request, new SearchShardTask(123L, "", "", "", null, emptyMap()), future);
+        QuerySearchResult result = (QuerySearchResult) future.get();
+        try {
+            List<String> descriptions = new ArrayList<>();
+            for (QueryProfileShardResult shardResult : result.consumeProfileResult().getQueryProfileResults()) {
+                for (ProfileResult profileResult : shardResult.getQueryResults()) {
+                    addDescriptions(profileResult, descriptions);
+                }
+            }
+            return descriptions;
+        } finally {
+            service.freeReaderContext(result.getContextId());
+            result.decRef();
+        }
+    }
+
+    private static void addDescriptions(ProfileResult profileResult, List<String> descriptions) {
+        descriptions.add(profileResult.getLuceneDescription());
+        for (ProfileResult child : profileResult.getProfiledChildren()) {
+            addDescriptions(child, descriptions);
+        }
+    }
+
     /**
      * While we have no NPE in DefaultContext constructor anymore, we still want to guard against it (or other failures) in the future to
      * avoid leaking searchers.
@@ -101,9 +101,12 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
@@ -124,12 +127,16 @@ import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.instanceOf;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.not;
 import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
 
 public class CompositeAggregatorTests extends AggregatorTestCase {
     private static MappedFieldType[] FIELD_TYPES;
     private List<ObjectMapper> objectMappers;
     private Sort indexSort;
+    private ConcurrentMap<String, Object> pointInTimeState;
+    private Map<String, Object> runtimeMappings;
 
     @Override
     @Before
@@ -147,6 +154,8 @@ public class CompositeAggregatorTests extends AggregatorTestCase {
         FIELD_TYPES[8] = TimeSeriesIdFieldMapper.FIELD_TYPE;
 
         objectMappers = new ArrayList<>();
+        pointInTimeState = null;
+        runtimeMappings = Map.of();
     }
 
     @Override
@@ -162,6 +171,16 @@ public class CompositeAggregatorTests extends AggregatorTestCase {
         return objectMappers;
     }
 
+    @Override
+    protected ConcurrentMap<String, Object> pointInTimeState() {
+        return pointInTimeState;
+    }
+
+    @Override
+    protected Map<String, Object> runtimeMappings() {
+        return runtimeMappings;
+    }
+
     @Override
     protected DirectoryReader wrapDirectoryReader(DirectoryReader reader) throws IOException {
         if (false == objectMappers().isEmpty()) {
@@ -3149,6 +3168,87 @@ public class CompositeAggregatorTests extends AggregatorTestCase {
         }
     }
 
+    public void testPaginateAgainstPointInTime() throws Exception {
+        pointInTimeState = new ConcurrentHashMap<>();
+        try (Directory directory = newDirectory()) {
+            try (RandomIndexWriter indexWriter = newRandomIndexWriterWithLogDocMergePolicy(directory)) {
+                for (int i = 0; i < 30; i++) {
+                    Document document = new Document();
+                    addToDocument(i, document, createDocument("keyword", String.format(Locale.ROOT, "%02d", i), "long", (long) (i % 2)));
+                    indexWriter.addDocument(document);
+                }
+            }
+            try (DirectoryReader indexReader = DirectoryReader.open(directory)) {
+                Query matchAll = new MatchAllDocsQuery();
+                InternalComposite page = paginate(indexReader, matchAll, null);
+                assertThat(keys(page), equalTo(List.of("00", "01", "02")));
+                PrefetchedBuckets kept = prefetched();
+
+                page = paginate(indexReader, matchAll, page.afterKey());
+                assertThat(keys(page), equalTo(List.of("03", "04", "05")));
+                assertThat("served from the buckets the first page prefetched", prefetched(), sameInstance(kept));
+
+                // Jumping ahead asks for buckets that no page kept for it
+                page = paginate(indexReader, matchAll, createAfterKey("keyword", "10"));
+                assertThat(keys(page), equalTo(List.of("11", "12", "13")));
+                assertThat(prefetched(), not(sameInstance(kept)));
+                kept = prefetched();
+
+                Query even = LongPoint.newExactQuery("long", 0L);
+                page = paginate(indexReader, even, page.afterKey());
+                assertThat(keys(page), equalTo(List.of("14", "16", "18")));
+                assertThat("the buckets were prefetched for another query", prefetched(), not(sameInstance(kept)));
+                kept = prefetched();
+
+                runtimeMappings = Map.of("runtime", Map.of("type", "long"));
+                page = paginate(indexReader, even, page.afterKey());
+                assertThat(keys(page), equalTo(List.of("20", "22", "24")));
+                assertThat("the buckets were prefetched for other runtime fields", prefetched(), not(sameInstance(kept)));
+                kept = prefetched();
+
+                page = paginate(indexReader, even, page.afterKey());
+                assertThat(keys(page), equalTo(List.of("26", "28")));
+                assertThat(prefetched(), sameInstance(kept));
+            }
+        }
+        for (Object state : pointInTimeState.values()) {
+            ((PrefetchedBuckets) state).close();
+        }
+    }
+
+    /**
+     * Run a page of a composite aggregation on a single shard, the way a
+     * search against a point in time would.
+     */
+    private InternalComposite paginate(DirectoryReader indexReader, Query query, Map<String, Object> after) throws IOException {
+        CompositeAggregationBuilder builder = new CompositeAggregationBuilder(
+            "name",
+            List.of(new TermsValuesSourceBuilder("keyword").field("keyword"))
+        ).size(3);
+        if (after != null) {
+            builder.aggregateAfter(after);
+        }
+        try (AggregationContext context = createAggregationContext(indexReader, query, FIELD_TYPES)) {
+            Aggregator aggregator = createAggregator(builder, context);
+            aggregator.preCollection();
+            context.searcher().search(query, aggregator.asCollector());
+            aggregator.postCollection();
+            return (InternalComposite) aggregator.buildTopLevel();
+        }
+    }
+
+    /**
+     * The buckets kept with the point in time, of which there is only ever one set.
+     */
+    private PrefetchedBuckets prefetched() {
+        assertThat(pointInTimeState.values(), hasSize(1));
+        return (PrefetchedBuckets) pointInTimeState.values().iterator().next();
+    }
+
+    private static List<String> keys(InternalComposite composite) {
+        return composite.getBuckets().stream().map(bucket -> (String) bucket.getKey().get("keyword")).toList();
+    }
+
     public void testCompositeWithSampling() throws Exception {
         final int numDocsPerBucket = 1_000;
         final List<Map<String, List<Object>>> dataset = new ArrayList<>(numDocsPerBucket * 8);
@@ -0,0 +1,207 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the "Elastic License
+ * 2.0", the "GNU Affero General Public License v3.0 only", and the "Server Side
+ * Public License v 1"; you may not use this file except in compliance with, at
+ * your election, the "Elastic License 2.0", the "GNU Affero General Public
+ * License v3.0 only", or the "Server Side Public License, v 1".
+ */
+
+package org.elasticsearch.search.aggregations.bucket.composite;
+
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.TermQuery;
+import org.elasticsearch.common.breaker.CircuitBreaker;
+import org.elasticsearch.common.breaker.NoopCircuitBreaker;
+import org.elasticsearch.index.shard.IndexShard;
+import org.elasticsearch.search.DocValueFormat;
+import org.elasticsearch.search.aggregations.InternalAggregations;
+import org.elasticsearch.search.internal.ReaderContext;
+import org.elasticsearch.search.internal.ShardSearchContextId;
+import org.elasticsearch.test.ESTestCase;
+import org.elasticsearch.threadpool.ThreadPool;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.nullValue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class PrefetchedBucketsTests extends ESTestCase {
+    private static final List<CompositeValuesSourceBuilder<?>> SOURCES = List.of(new TermsValuesSourceBuilder("k").field("k"));
+
+    public void testPages() {
+        PrefetchedBuckets prefetched = prefetched(null, buckets(0, 8), false);
+        assertThat(keys(prefetched.page(bucket(1))), equalTo(List.of(2L, 3L)));
+        assertThat(keys(prefetched.page(bucket(5))), equalTo(List.of(6L, 7L)));
+        // Not enough buckets left and there might be more in the shard
+        assertThat(prefetched.page(bucket(6)), nullValue());
+    }
+
+    public void testExhausted() {
+        PrefetchedBuckets prefetched = prefetched(null, buckets(0, 3), true);
+        assertThat(keys(prefetched.page(bucket(1))), equalTo(List.of(2L)));
+        assertThat(keys(prefetched.page(bucket(2))), equalTo(List.of()));
+    }
+
+    public void testBeforeOrigin() {
+        PrefetchedBuckets prefetched = prefetched(bucket(4), buckets(5, 10), false);
+        assertThat(prefetched.page(bucket(1)), nullValue());
+        assertThat(keys(prefetched.page(bucket(4))), equalTo(List.of(5L, 6L)));
+    }
+
+    public void testMatches() {
+        PrefetchedBuckets prefetched = prefetched(null, buckets(0, 3), true);
+        assertTrue(prefetched.matches(List.of(new TermsValuesSourceBuilder("k").field("k")), 2, new MatchAllDocsQuery(), Map.of()));
+        assertFalse(prefetched.matches(SOURCES, 3, new MatchAllDocsQuery(), Map.of()));
+        assertFalse(prefetched.matches(List.of(new TermsValuesSourceBuilder("k").field("other")), 2, new MatchAllDocsQuery(), Map.of()));
+        assertFalse(prefetched.matches(SOURCES, 2, new TermQuery(new Term("k", "v")), Map.of()));
+    }
+
+    public void testMatchesRuntimeMappings() {
+        Map<String, Object> runtimeMappings = Map.of("k", Map.of("type", "long", "script", "emit(1)"));
+        PrefetchedBuckets prefetched = new PrefetchedBuckets(
+            SOURCES,
+            2,
+            new MatchAllDocsQuery(),
+            runtimeMappings,
+            null,
+            buckets(0, 3),
+            true,
+            false,
+            new NoopCircuitBreaker("test"),
+            0
+        );
+        assertTrue(prefetched.matches(SOURCES, 2, new MatchAllDocsQuery(), Map.of("k", Map.of("type", "long", "script", "emit(1)"))));
+        // the same field computed differently has different buckets
+        assertFalse(prefetched.matches(SOURCES, 2, new MatchAllDocsQuery(), Map.of("k", Map.of("type", "long", "script", "emit(2)"))));
+        assertFalse(prefetched.matches(SOURCES, 2, new MatchAllDocsQuery(), Map.of()));
+    }
+
+    public void testReleasesBreakerOnClose() {
+        CountingBreaker breaker = new CountingBreaker();
+        List<InternalComposite.InternalBucket> buckets = buckets(0, between(1, 100));
+        long bytes = PrefetchedBuckets.ramBytesUsed(buckets);
+        assertThat(bytes, greaterThan(0L));
+        breaker.addEstimateBytesAndMaybeBreak(bytes, "test");
+        PrefetchedBuckets prefetched = new PrefetchedBuckets(
+            SOURCES,
+            2,
+            new MatchAllDocsQuery(),
+            Map.of(),
+            null,
+            buckets,
+            false,
+            false,
+            breaker,
+            bytes
+        );
+        assertThat(breaker.getUsed(), equalTo(bytes));
+        prefetched.close();
+        assertThat(breaker.getUsed(), equalTo(0L));
+        // closing twice doesn't release twice
+        prefetched.close();
+        assertThat(breaker.getUsed(), equalTo(0L));
+    }
+
+    public void testReleasedWhenPointInTimeIsFreed() {
+        ThreadPool threadPool = mock(ThreadPool.class);
+        IndexShard indexShard = mock(IndexShard.class);
+        when(indexShard.getThreadPool()).thenReturn(threadPool);
+        ReaderContext readerContext = new ReaderContext(new ShardSearchContextId("test", 1L), null, indexShard, null, 0L, false);
+
+        CountingBreaker breaker = new CountingBreaker();
+        List<InternalComposite.InternalBucket> buckets = buckets(0, 10);
+        long bytes = PrefetchedBuckets.ramBytesUsed(buckets);
+        breaker.addEstimateBytesAndMaybeBreak(bytes, "test");
+        PrefetchedBuckets prefetched = new PrefetchedBuckets(
+            SOURCES,
+            2,
+            new MatchAllDocsQuery(),
+            Map.of(),
+            null,
+            buckets,
+            false,
+            false,
+            breaker,
+            bytes
+        );
+        readerContext.sharedState().put("prefetched", prefetched);
+        assertThat(breaker.getUsed(), equalTo(bytes));
+
+        readerContext.close();
+        assertThat(breaker.getUsed(), equalTo(0L));
+    }
+
+    private static PrefetchedBuckets prefetched(
+        InternalComposite.InternalBucket origin,
+        List<InternalComposite.InternalBucket> buckets,
+        boolean exhausted
+    ) {
+        return new PrefetchedBuckets(
+            SOURCES,
+            2,
+            new MatchAllDocsQuery(),
+            Map.of(),
+            origin,
+            buckets,
+            exhausted,
+            false,
+            new NoopCircuitBreaker("test"),
+            0
+        );
+    }
+
+    private static List<InternalComposite.InternalBucket> buckets(long from, long to) {
+        List<InternalComposite.InternalBucket> buckets = new ArrayList<>();
+        for (long k = from; k < to; k++) {
+            buckets.add(bucket(k));
+        }
+        return buckets;
+    }
+
+    private static InternalComposite.InternalBucket bucket(long k) {
+        return new InternalComposite.InternalBucket(
+            List.of("k"),
+            List.of(DocValueFormat.RAW),
+            new CompositeKey(k),
+            new int[] { 1 },
+            new MissingOrder[] { MissingOrder.DEFAULT },
+            1,
+            InternalAggregations.EMPTY
+        );
+    }
+
+    private static List<Long> keys(List<InternalComposite.InternalBucket> buckets) {
+        return buckets.stream().map(b -> (Long) b.getRawKey().get(0)).toList();
+    }
+
+    private static class CountingBreaker extends NoopCircuitBreaker {
+        private final AtomicLong used = new AtomicLong();
+
+        CountingBreaker() {
+            super(CircuitBreaker.REQUEST);
+        }
+
+        @Override
+        public void addEstimateBytesAndMaybeBreak(long bytes, String label) {
+            used.addAndGet(bytes);
+        }
+
+        @Override
+        public void addWithoutBreaking(long bytes) {
+            used.addAndGet(bytes);
+        }
+
+        @Override
+        public long getUsed() {
+            return used.get();
+        }
+    }
+}
@@ -0,0 +1,344 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the "Elastic License
+ * 2.0", the "GNU Affero General Public License v3.0 only", and the "Server Side
+ * Public License v 1"; you may not use this file except in compliance with, at
+ * your election, the "Elastic License 2.0", the "GNU Affero General Public
+ * License v3.0 only", or the "Server Side Public License, v 1".
+ */
+
+package org.elasticsearch.search.aggregations.bucket.filter;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.LongPoint;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.FilterDirectoryReader;
+import org.apache.lucene.index.FilterLeafReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.store.Directory;
+import org.elasticsearch.common.breaker.CircuitBreakingException;
+import org.elasticsearch.common.breaker.NoopCircuitBreaker;
+import org.elasticsearch.common.lucene.index.ElasticsearchDirectoryReader;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.index.search.stats.ShardFieldUsageTracker;
+import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.search.internal.ContextIndexSearcher;
+import org.elasticsearch.search.internal.FieldUsageTrackingDirectoryReader;
+import org.elasticsearch.telemetry.InstrumentType;
+import org.elasticsearch.telemetry.Measurement;
+import org.elasticsearch.telemetry.RecordingMeterRegistry;
+import org.elasticsearch.test.ESTestCase;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+
+public class SegmentCountCacheTests extends ESTestCase {
+    public void testCachesCounts() throws IOException {
+        SegmentCountCache cache = new SegmentCountCache(ByteSizeValue.ofMb(1), new NoopCircuitBreaker("test"));
+        Query query = LongPoint.newRangeQuery("f", 0, 5);
+        try (Directory directory = newDirectory()) {
+            indexDocs(directory, false);
+            try (DirectoryReader reader = ElasticsearchDirectoryReader.wrap(DirectoryReader.open(directory), new ShardId("i", "_na_", 0))) {
+                LeafReaderContext ctx = reader.leaves().get(0);
+                AtomicInteger counted = new AtomicInteger();
+                assertThat(cache.count(ctx, query, () -> (long) counted.incrementAndGet()), equalTo(1L));
+                assertThat(cache.count(ctx, query, () -> (long) counted.incrementAndGet()), equalTo(1L));
+                assertThat(counted.get(), equalTo(1));
+                assertThat(cache.hits(), equalTo(1L));
+                assertThat(cache.misses(), equalTo(1L));
+                assertThat(cache.count(), equalTo(1));
+
+                // A different query is a different entry
+                assertThat(cache.count(ctx, LongPoint.newRangeQuery("f", 0, 6), () -> (long) counted.incrementAndGet()), equalTo(2L));
+                assertThat(cache.count(), equalTo(2));
+            }
+        }
+    }
+
+    public void testCachesCountsThroughContextIndexSearcher() throws IOException {
+        SegmentCountCache cache = new SegmentCountCache(ByteSizeValue.ofMb(1), new NoopCircuitBreaker("test"));
+        Query query = LongPoint.newRangeQuery("f", 0, 5);
+        try (Directory directory = newDirectory()) {
+            indexDocs(directory, false);
+            try (
+                DirectoryReader reader = new FieldUsageTrackingDirectoryReader(
+                    ElasticsearchDirectoryReader.wrap(DirectoryReader.open(directory), new ShardId("i", "_na_", 0)),
+                    new ShardFieldUsageTracker().createSession()
+                );
+                ContextIndexSearcher searcher = newContextIndexSearcher(reader)
+            ) {
+                // every search wraps the segment like this, so these counts have to be cached for the cache to be of any use
+                LeafReaderContext ctx = searcher.getIndexReader().leaves().get(0);
+                assertThat(ctx.reader(), not(sameInstance(reader.leaves().get(0).reader())));
+                AtomicInteger counted = new AtomicInteger();
+                cache.count(ctx, query, () -> (long) counted.incrementAndGet());
+                cache.count(ctx, query, () -> (long) counted.incrementAndGet());
+                assertThat(counted.get(), equalTo(1));
+                assertThat(cache.hits(), equalTo(1L));
+
+                // another search of the same segment hits the same entry
+                try (ContextIndexSearcher other = newContextIndexSearcher(reader)) {
+                    cache.count(other.getIndexReader().leaves().get(0), query, () -> (long) counted.incrementAndGet());
+                }
+                assertThat(counted.get(), equalTo(1));
+                assertThat(cache.hits(), equalTo(2L));
+            }
+        }
+    }
+
+    public void testSkipsSegmentsWrappedInUnknownReaders() throws IOException {
+        SegmentCountCache cache = new SegmentCountCache(ByteSizeValue.ofMb(1), new NoopCircuitBreaker("test"));
+        Query query = LongPoint.newRangeQuery("f", 0, 5);
+        try (Directory directory = newDirectory()) {
+            indexDocs(directory, false);
+            try (
+                DirectoryReader reader = new SecurityLikeDirectoryReader(
+                    ElasticsearchDirectoryReader.wrap(DirectoryReader.open(directory), new ShardId("i", "_na_", 0))
+                );
+                ContextIndexSearcher searcher = newContextIndexSearcher(reader)
+            ) {
+                // like document and field level security the wrapper shares the core cache key but might hide documents
+                LeafReaderContext ctx = searcher.getIndexReader().leaves().get(0);
+                AtomicInteger counted = new AtomicInteger();
+                cache.count(ctx, query, () -> (long) counted.incrementAndGet());
+                cache.count(ctx, query, () -> (long) counted.incrementAndGet());
+                assertThat(counted.get(), equalTo(2));
+                assertThat(cache.count(), equalTo(0));
+            }
+        }
+    }
+
+    public void testSkipsSegmentsWithDeletes() throws IOException {
+        SegmentCountCache cache = new SegmentCountCache(ByteSizeValue.ofMb(1), new NoopCircuitBreaker("test"));
+        Query query = LongPoint.newRangeQuery("f", 0, 5);
+        try (Directory directory = newDirectory()) {
+            indexDocs(directory, true);
+            try (DirectoryReader reader = DirectoryReader.open(directory)) {
+                LeafReaderContext ctx = reader.leaves().get(0);
+                AtomicInteger counted = new AtomicInteger();
+                cache.count(ctx, query, () -> (long) counted.incrementAndGet());
+                cache.count(ctx, query, () -> (long) counted.incrementAndGet());
+                assertThat(counted.get(), equalTo(2));
+                assertThat(cache.count(), equalTo(0));
+            }
+        }
+    }
+
+    public void testDisabled() throws IOException {
+        SegmentCountCache cache = new SegmentCountCache(ByteSizeValue.ZERO, new NoopCircuitBreaker("test"));
+        Query query = LongPoint.newRangeQuery("f", 0, 5);
+        try (Directory directory = newDirectory()) {
+            indexDocs(directory, false);
+            try (DirectoryReader reader = DirectoryReader.open(directory)) {
+                LeafReaderContext ctx = reader.leaves().get(0);
+                AtomicInteger counted = new AtomicInteger();
+                cache.count(ctx, query, () -> (long) counted.incrementAndGet());
+                cache.count(ctx, query, () -> (long) counted.incrementAndGet());
+                assertThat(counted.get(), equalTo(2));
+            }
+        }
+    }
+
+    public void testInvalidatesCountsOfClosedSegments() throws IOException {
+        AccountingCircuitBreaker breaker = new AccountingCircuitBreaker(Long.MAX_VALUE);
+        SegmentCountCache cache = new SegmentCountCache(ByteSizeValue.ofMb(1), breaker);
+        try (Directory directory = newDirectory()) {
+            indexDocs(directory, false);
+            try (DirectoryReader reader = ElasticsearchDirectoryReader.wrap(DirectoryReader.open(directory), new ShardId("i", "_na_", 0))) {
+                LeafReaderContext ctx = reader.leaves().get(0);
+                cache.count(ctx, LongPoint.newRangeQuery("f", 0, 5), () -> 6L);
+                cache.count(ctx, LongPoint.newRangeQuery("f", 0, 6), () -> 7L);
+                assertThat(cache.count(), equalTo(2));
+                assertThat(breaker.getUsed(), greaterThan(0L));
+            }
+            // closing the only reader of the segment closes the segment
+            assertThat(cache.count(), equalTo(0));
+            assertThat(cache.ramBytesUsed(), equalTo(0L));
+            assertThat(breaker.getUsed(), equalTo(0L));
+        }
+    }
+
+    public void testAccountsCountsAgainstBreaker() throws IOException {
+        Query query = LongPoint.newRangeQuery("f", 0, 5);
+        try (Directory directory = newDirectory()) {
+            indexDocs(directory, false);
+            try (DirectoryReader reader = ElasticsearchDirectoryReader.wrap(DirectoryReader.open(directory), new ShardId("i", "_na_", 0))) {
+                LeafReaderContext ctx = reader.leaves().get(0);
+                AccountingCircuitBreaker breaker = new AccountingCircuitBreaker(Long.MAX_VALUE);
+                SegmentCountCache cache = new SegmentCountCache(ByteSizeValue.ofMb(1), breaker);
+                cache.count(ctx, query, () -> 6L);
+                assertThat(breaker.getUsed(), equalTo(cache.ramBytesUsed()));
+                assertThat(breaker.getUsed(), greaterThan(0L));
+
+                // a count that doesn't fit in the breaker is still returned but isn't cached
+                AccountingCircuitBreaker full = new AccountingCircuitBreaker(0);
+                SegmentCountCache uncached = new SegmentCountCache(ByteSizeValue.ofMb(1), full);
+                AtomicInteger counted = new AtomicInteger();
+                assertThat(uncached.count(ctx, query, () -> (long) counted.incrementAndGet()), equalTo(1L));
+                assertThat(uncached.count(ctx, query, () -> (long) counted.incrementAndGet()), equalTo(2L));
+                assertThat(uncached.count(), equalTo(0));
+                assertThat(full.getUsed(), equalTo(0L));
+            }
+        }
+    }
+
+    public void testReleasesEvictedCountsFromBreaker() throws IOException {
+        AccountingCircuitBreaker breaker = new AccountingCircuitBreaker(Long.MAX_VALUE);
+        // only room for a few counts
+        SegmentCountCache cache = new SegmentCountCache(ByteSizeValue.ofKb(1), breaker);
+        try (Directory directory = newDirectory()) {
+            indexDocs(directory, false);
+            try (DirectoryReader reader = ElasticsearchDirectoryReader.wrap(DirectoryReader.open(directory), new ShardId("i", "_na_", 0))) {
+                LeafReaderContext ctx = reader.leaves().get(0);
+                for (int i = 0; i < 10; i++) {
+                    cache.count(ctx, LongPoint.newRangeQuery("f", 0, i), () -> 1L);
+                }
+                assertThat(cache.count(), lessThan(10));
+                assertThat(breaker.getUsed(), equalTo(cache.ramBytesUsed()));
+            }
+            assertThat(breaker.getUsed(), equalTo(0L));
+        }
+    }
+
+    public void testRegistersMetrics() throws IOException {
+        SegmentCountCache cache = new SegmentCountCache(ByteSizeValue.ofMb(1), new NoopCircuitBreaker("test"));
+        RecordingMeterRegistry meterRegistry = new RecordingMeterRegistry();
+        cache.registerMetrics(meterRegistry);
+        Query query = LongPoint.newRangeQuery("f", 0, 5);
+        try (Directory directory = newDirectory()) {
+            indexDocs(directory, false);
+            try (DirectoryReader reader = ElasticsearchDirectoryReader.wrap(DirectoryReader.open(directory), new ShardId("i", "_na_", 0))) {
+                LeafReaderContext ctx = reader.leaves().get(0);
+                for (int i = 0; i < 3; i++) {
+                    cache.count(ctx, query, () -> 6L);
+                }
+                meterRegistry.getRecorder().collect();
+                assertThat(
+                    lastValue(meterRegistry, InstrumentType.LONG_ASYNC_COUNTER, "es.search.aggs.segment_count_cache.hits.total"),
+                    equalTo(2L)
+                );
+                assertThat(
+                    lastValue(meterRegistry, InstrumentType.LONG_ASYNC_COUNTER, "es.search.aggs.segment_count_cache.misses.total"),
+                    equalTo(1L)
+                );
+                assertThat(
+                    lastValue(meterRegistry, InstrumentType.LONG_GAUGE, "es.search.aggs.segment_count_cache.entries.current"),
+                    equalTo(1L)
+                );
+                assertThat(
+                    lastValue(meterRegistry, InstrumentType.LONG_GAUGE, "es.search.aggs.segment_count_cache.size"),
+                    equalTo(cache.ramBytesUsed())
+                );
+            }
+        }
+    }
+
+    private static long lastValue(RecordingMeterRegistry meterRegistry, InstrumentType type, String name) {
+        List<Measurement> measurements = meterRegistry.getRecorder().getMeasurements(type, name);
+        assertThat(measurements.size(), greaterThan(0));
+        return measurements.get(measurements.size() - 1).getLong();
+    }
+
+    private static ContextIndexSearcher newContextIndexSearcher(DirectoryReader reader) throws IOException {
+        return new ContextIndexSearcher(
+            reader,
+            IndexSearcher.getDefaultSimilarity(),
+            IndexSearcher.getDefaultQueryCache(),
+            IndexSearcher.getDefaultQueryCachingPolicy(),
+            true
+        );
+    }
+
+    private void indexDocs(Directory directory, boolean withDeletes) throws IOException {
+        try (IndexWriter iw = new IndexWriter(directory, new IndexWriterConfig())) {
+            for (int i = 0; i < 10; i++) {
+                Document doc = new Document();
+                doc.add(new LongPoint("f", i));
+                doc.add(new StringField("id", Integer.toString(i), Field.Store.NO));
+                iw.addDocument(doc);
+            }
+            iw.commit();
+            if (withDeletes) {
+                iw.deleteDocuments(new Term("id", "0"));
+            }
+        }
+    }
+
+    private static class SecurityLikeDirectoryReader extends FilterDirectoryReader {
+        SecurityLikeDirectoryReader(DirectoryReader in) throws IOException {
+            super(in, new SubReaderWrapper() {
+                @Override
+                public LeafReader wrap(LeafReader reader) {
+                    return new FilterLeafReader(reader) {
+                        @Override
+                        public CacheHelper getCoreCacheHelper() {
+                            return in.getCoreCacheHelper();
+                        }
+
+                        @Override
+                        public CacheHelper getReaderCacheHelper() {
+                            return in.getReaderCacheHelper();
+                        }
+                    };
+                }
+            });
+        }
+
+        @Override
+        protected DirectoryReader doWrapDirectoryReader(DirectoryReader in) throws IOException {
+            return new SecurityLikeDirectoryReader(in);
+        }
+
+        @Override
+        public CacheHelper getReaderCacheHelper() {
+            return in.getReaderCacheHelper();
+        }
+    }
+
+    /**
+     * A breaker that keeps track of the bytes that were added to it and breaks once they'd exceed its limit.
+     */
+    private static class AccountingCircuitBreaker extends NoopCircuitBreaker {
+        private final long limit;
+        private final AtomicLong used = new AtomicLong();
+
+        AccountingCircuitBreaker(long limit) {
+            super("test");
+            this.limit = limit;
+        }
+
+        @Override
+        public void addEstimateBytesAndMaybeBreak(long bytes, String label) throws CircuitBreakingException {
+            if (used.addAndGet(bytes) > limit) {
+                used.addAndGet(-bytes);
+                throw new CircuitBreakingException("broken", getDurability());
+            }
+        }
+
+        @Override
+        public void addWithoutBreaking(long bytes) {
+            used.addAndGet(bytes);
+        }
+
+        @Override
+        public long getUsed() {
+            return used.get();
+        }
+    }
+}
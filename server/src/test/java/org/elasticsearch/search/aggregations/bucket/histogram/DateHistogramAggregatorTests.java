@@ -781,6 +781,33 @@ public class DateHistogramAggregatorTests extends DateHistogramAggregatorTestCas
         );
     }
 
+    /**
+     * Sends long runs of ascending values that land in the same bucket, the
+     * way an index sorted on the date would, to the native aggregator.
+     */
+    public void testSortedRunsWithManyRoundingPoints() throws IOException {
+        List<String> dataset = new ArrayList<>();
+        for (int year = 2000; year < 3000; year++) {
+            dataset.add(year + "-01-01T00:00:00");
+            dataset.add(year + "-05-18T04:11:00");
+            dataset.add(year + "-12-31T23:59:59");
+        }
+        testSearchCase(
+            new MatchAllDocsQuery(),
+            dataset,
+            aggregation -> aggregation.calendarInterval(DateHistogramInterval.YEAR).field(AGGREGABLE_DATE),
+            histogram -> {
+                List<? extends Histogram.Bucket> buckets = histogram.getBuckets();
+                assertEquals(1000, buckets.size());
+                for (int i = 0; i < buckets.size(); i++) {
+                    assertEquals((2000 + i) + "-01-01T00:00:00.000Z", buckets.get(i).getKeyAsString());
+                    assertEquals(3, buckets.get(i).getDocCount());
+                }
+            },
+            false
+        );
+    }
+
     public void testFewRoundingPointsUsesFromRange() throws IOException {
         aggregationImplementationChoiceTestCase(
             aggregableDateFieldType(false, true, DateFormatter.forPattern("yyyy")),
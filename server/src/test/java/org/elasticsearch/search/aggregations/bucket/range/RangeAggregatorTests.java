@@ -14,8 +14,15 @@ import org.apache.lucene.document.LongPoint;
 import org.apache.lucene.document.NumericDocValuesField;
 import org.apache.lucene.document.SortedNumericDocValuesField;
 import org.apache.lucene.document.SortedSetDocValuesField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.IndexableField;
 import org.apache.lucene.search.MatchAllDocsQuery;
 import org.apache.lucene.search.Query;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.search.SortedNumericSortField;
+import org.apache.lucene.store.Directory;
 import org.apache.lucene.tests.index.RandomIndexWriter;
 import org.apache.lucene.util.BytesRef;
 import org.apache.lucene.util.NumericUtils;
@@ -42,6 +49,7 @@ import org.elasticsearch.search.runtime.StringScriptFieldTermQuery;
 import java.io.IOException;
 import java.time.ZoneOffset;
 import java.time.ZonedDateTime;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
@@ -587,6 +595,52 @@ public class RangeAggregatorTests extends AggregatorTestCase {
         }, new AggTestConfig(aggregationBuilder, new NumberFieldMapper.NumberFieldType(NUMBER_FIELD_NAME, NumberType.INTEGER)));
     }
 
+    public void testNonOverlappingRangesOnIndexSortedReader() throws IOException {
+        RangeAggregationBuilder aggregationBuilder = new RangeAggregationBuilder("test_range_agg").field(NUMBER_FIELD_NAME)
+            .addRange(0d, 10d)
+            .addRange(10d, 20d)
+            .addRange(30d, 40d)
+            .missing(100);            // Set a missing value to force the "normal" range collection instead of filter-based
+        long[] expectedDocCounts = new long[3];
+        try (Directory directory = newDirectory()) {
+            IndexWriterConfig config = newIndexWriterConfig().setIndexSort(
+                new Sort(new SortedNumericSortField(NUMBER_FIELD_NAME, SortField.Type.LONG))
+            );
+            try (RandomIndexWriter iw = new RandomIndexWriter(random(), directory, config)) {
+                int numDocs = between(100, 1000);
+                for (int i = 0; i < numDocs; i++) {
+                    // Some documents have two values, which may land in the same range
+                    int[] values = randomBoolean() ? new int[] { between(0, 49) } : new int[] { between(0, 29), between(0, 49) };
+                    List<IndexableField> fields = new ArrayList<>();
+                    boolean[] matched = new boolean[3];
+                    for (int value : values) {
+                        fields.add(new SortedNumericDocValuesField(NUMBER_FIELD_NAME, value));
+                        if (value < 20 || (value >= 30 && value < 40)) {
+                            matched[value < 20 ? value / 10 : 2] = true;
+                        }
+                    }
+                    for (int r = 0; r < matched.length; r++) {
+                        if (matched[r]) {
+                            expectedDocCounts[r]++;
+                        }
+                    }
+                    iw.addDocument(fields);
+                }
+            }
+            try (DirectoryReader reader = DirectoryReader.open(directory)) {
+                InternalRange<?, ?> range = searchAndReduce(
+                    reader,
+                    new AggTestConfig(aggregationBuilder, new NumberFieldMapper.NumberFieldType(NUMBER_FIELD_NAME, NumberType.INTEGER))
+                );
+                List<? extends InternalRange.Bucket> ranges = range.getBuckets();
+                assertThat(ranges, hasSize(3));
+                for (int r = 0; r < ranges.size(); r++) {
+                    assertThat(ranges.get(r).getKeyAsString(), ranges.get(r).getDocCount(), equalTo(expectedDocCounts[r]));
+                }
+            }
+        }
+    }
+
     /**
      * If the top level query is a runtime field we use the standard aggregator
      * because it's marginally faster. You'd expect it to be a *ton* faster but
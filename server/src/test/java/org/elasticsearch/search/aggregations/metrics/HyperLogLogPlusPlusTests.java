@@ -11,17 +11,24 @@ package org.elasticsearch.search.aggregations.metrics;
 
 import com.carrotsearch.hppc.BitMixer;
 
+import org.elasticsearch.TransportVersion;
+import org.elasticsearch.TransportVersions;
 import org.elasticsearch.common.breaker.CircuitBreaker;
 import org.elasticsearch.common.breaker.CircuitBreakingException;
 import org.elasticsearch.common.breaker.NoopCircuitBreaker;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.unit.ByteSizeValue;
 import org.elasticsearch.common.util.BigArrays;
 import org.elasticsearch.common.util.MockBigArrays;
 import org.elasticsearch.common.util.PageCacheRecycler;
 import org.elasticsearch.indices.breaker.CircuitBreakerService;
 import org.elasticsearch.test.ESTestCase;
+import org.elasticsearch.test.TransportVersionUtils;
 
+import java.io.IOException;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicLong;
 
@@ -105,6 +112,32 @@ public class HyperLogLogPlusPlusTests extends ESTestCase {
         }
     }
 
+    public void testSerialization() throws IOException {
+        final int p = randomIntBetween(MIN_PRECISION, MAX_PRECISION);
+        final HyperLogLogPlusPlus counts = new HyperLogLogPlusPlus(p, BigArrays.NON_RECYCLING_INSTANCE, 1);
+        final int numValues = randomIntBetween(1, 100000);
+        for (int i = 0; i < numValues; ++i) {
+            counts.collect(0, BitMixer.mix64(randomInt()));
+        }
+        if (counts.getAlgorithm(0) == AbstractHyperLogLogPlusPlus.LINEAR_COUNTING) {
+            counts.upgradeToHll(0);
+        }
+        for (TransportVersion version : List.of(
+            TransportVersionUtils.getPreviousVersion(TransportVersions.CARDINALITY_PACKED_REGISTERS),
+            TransportVersion.current()
+        )) {
+            BytesStreamOutput out = new BytesStreamOutput();
+            out.setTransportVersion(version);
+            counts.writeTo(0, out);
+            StreamInput in = out.bytes().streamInput();
+            in.setTransportVersion(version);
+            AbstractHyperLogLogPlusPlus copy = AbstractHyperLogLogPlusPlus.readFrom(in, BigArrays.NON_RECYCLING_INSTANCE);
+            assertEquals(0, in.available());
+            assertTrue(counts.equals(0, copy, 0));
+            assertEquals(counts.cardinality(0), copy.cardinality(0));
+        }
+    }
+
     public void testFakeHashes() {
         // hashes with lots of leading zeros trigger different paths in the code that we try to go through here
         final int p = randomIntBetween(MIN_PRECISION, MAX_PRECISION);
@@ -21,6 +21,7 @@ import org.apache.lucene.document.TextField;
 import org.apache.lucene.index.DirectoryReader;
 import org.apache.lucene.index.Term;
 import org.apache.lucene.sandbox.document.HalfFloatPoint;
+import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.SortField;
 import org.apache.lucene.search.SortedNumericSelector;
 import org.apache.lucene.search.SortedNumericSortField;
@@ -653,6 +654,45 @@ public class FieldSortBuilderTests extends AbstractSortTestCase<FieldSortBuilder
         }
     }
 
+    public void testBuildBottomSortFilter() throws Exception {
+        try (Directory dir = newDirectory()) {
+            try (RandomIndexWriter writer = new RandomIndexWriter(random(), dir, new KeywordAnalyzer())) {
+                for (long value = 1; value <= 10; value++) {
+                    Document doc = new Document();
+                    doc.add(new LongPoint("custom-date", value));
+                    doc.add(new SortedNumericDocValuesField("custom-date", value));
+                    writer.addDocument(doc);
+                }
+                try (DirectoryReader reader = writer.getReader()) {
+                    IndexSearcher searcher = newSearcher(reader);
+                    SearchExecutionContext context = createMockSearchExecutionContext(searcher);
+                    DocValueFormat[] dateValueFormat = new DocValueFormat[] {
+                        context.getFieldType("custom-date").docValueFormat(null, null) };
+                    SearchSortValuesAndFormats bottom = new SearchSortValuesAndFormats(new Object[] { 5L }, dateValueFormat);
+                    FieldSortBuilder fieldSort = SortBuilders.fieldSort("custom-date");
+                    assertNull(fieldSort.buildBottomSortFilterOrNull(context, null));
+                    assertThat(searcher.count(fieldSort.buildBottomSortFilterOrNull(context, bottom)), equalTo(5));
+                    fieldSort.order(SortOrder.DESC);
+                    assertThat(searcher.count(fieldSort.buildBottomSortFilterOrNull(context, bottom)), equalTo(6));
+
+                    // documents without a value sort at the bottom so they could tie with it
+                    SearchSortValuesAndFormats missingBottom = new SearchSortValuesAndFormats(
+                        new Object[] { Long.MIN_VALUE },
+                        dateValueFormat
+                    );
+                    assertNull(fieldSort.buildBottomSortFilterOrNull(context, missingBottom));
+
+                    fieldSort.sortMode(SortMode.SUM);
+                    assertNull(fieldSort.buildBottomSortFilterOrNull(context, bottom));
+                    fieldSort.sortMode(SortMode.MAX);
+                    assertNotNull(fieldSort.buildBottomSortFilterOrNull(context, bottom));
+                    fieldSort.missing("100");
+                    assertNull(fieldSort.buildBottomSortFilterOrNull(context, bottom));
+                }
+            }
+        }
+    }
+
     @Override
     protected FieldSortBuilder fromXContent(XContentParser parser, String fieldName) throws IOException {
         return FieldSortBuilder.fromXContent(parser, fieldName);
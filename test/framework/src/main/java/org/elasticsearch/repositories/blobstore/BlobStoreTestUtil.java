@@ -182,10 +182,11 @@ public final class BlobStoreTestUtil {
                     if (generation != null && generation.equals(ShardGenerations.NEW_SHARD_GEN) == false) {
                         final String shardId = Integer.toString(i);
                         assertThat(shardContainers, hasKey(shardId));
-                        assertThat(
-                            shardContainers.get(shardId).listBlobsByPrefix(randomPurpose(), BlobStoreRepository.SNAPSHOT_INDEX_PREFIX),
-                            hasKey(BlobStoreRepository.SNAPSHOT_INDEX_PREFIX + generation)
-                        );
+                        final Map<String, BlobMetadata> shardIndexBlobs = shardContainers.get(shardId)
+                            .listBlobsByPrefix(randomPurpose(), BlobStoreRepository.SNAPSHOT_INDEX_PREFIX);
+                        assertThat(shardIndexBlobs, hasKey(BlobStoreRepository.SNAPSHOT_INDEX_PREFIX + generation));
+                        // a delta generation also needs the blob of its base generation
+                        assertThat(shardIndexBlobs, hasKey(BlobStoreRepository.SNAPSHOT_INDEX_PREFIX + generation.baseGeneration()));
                     }
                 }
             }
@@ -330,17 +331,19 @@ public final class BlobStoreTestUtil {
                             shardPathContents,
                             hasKey(String.format(Locale.ROOT, BlobStoreRepository.SNAPSHOT_NAME_FORMAT, snapshotId.getUUID()))
                         );
+                        final ShardGeneration shardGeneration = repositoryData.shardGenerations().getShardGen(indexId, shardId);
+                        // one more blob for the base of a delta generation
                         assertThat(
                             shardPathContents.keySet()
                                 .stream()
                                 .filter(name -> name.startsWith(BlobStoreRepository.SNAPSHOT_INDEX_PREFIX))
                                 .count(),
-                            lessThanOrEqualTo(2L)
+                            lessThanOrEqualTo(shardGeneration != null && shardGeneration.isDelta() ? 3L : 2L)
                         );
                         final BlobStoreIndexShardSnapshots blobStoreIndexShardSnapshots = repository.getBlobStoreIndexShardSnapshots(
                             indexId,
                             shardId,
-                            repositoryData.shardGenerations().getShardGen(indexId, shardId)
+                            shardGeneration
                         );
                         assertTrue(
                             blobStoreIndexShardSnapshots.snapshots()
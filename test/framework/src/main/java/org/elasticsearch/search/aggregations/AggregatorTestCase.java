@@ -70,6 +70,7 @@ import org.elasticsearch.common.util.BigArrays;
 import org.elasticsearch.common.util.MockBigArrays;
 import org.elasticsearch.common.util.MockPageCacheRecycler;
 import org.elasticsearch.core.CheckedConsumer;
+import org.elasticsearch.core.Nullable;
 import org.elasticsearch.core.Releasable;
 import org.elasticsearch.core.Releasables;
 import org.elasticsearch.core.Strings;
@@ -165,6 +166,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.function.BiFunction;
 import java.util.function.Consumer;
@@ -412,7 +414,10 @@ public abstract class AggregatorTestCase extends ESTestCase {
             () -> false,
             q -> q,
             true,
-            isInSortOrderExecutionRequired
+            isInSortOrderExecutionRequired,
+            null,
+            pointInTimeState(),
+            runtimeMappings()
         );
         return context;
     }
@@ -433,6 +438,22 @@ public abstract class AggregatorTestCase extends ESTestCase {
         return List.of();
     }
 
+    /**
+     * State shared by the searches against the same point in time. By default
+     * the searches don't run against a point in time so there isn't any.
+     */
+    @Nullable
+    protected ConcurrentMap<String, Object> pointInTimeState() {
+        return null;
+    }
+
+    /**
+     * The runtime mappings of the search request the aggs run for.
+     */
+    protected Map<String, Object> runtimeMappings() {
+        return emptyMap();
+    }
+
     /**
      * Build a {@link SubSearchContext}s to power {@code top_hits}.
      */
@@ -12,6 +12,7 @@ module org.elasticsearch.blobcache {
 
     requires org.apache.logging.log4j;
     requires org.apache.lucene.core;
+    requires jdk.unsupported;
 
     exports org.elasticsearch.blobcache;
     exports org.elasticsearch.blobcache.common;
@@ -29,6 +29,9 @@ public class BlobCacheMetrics {
 
     private final LongCounter cacheMissCounter;
     private final LongCounter evictedCountNonZeroFrequency;
+    private final LongCounter evictedCount;
+    private final LongCounter admittedCount;
+    private final LongCounter rejectedCount;
     private final LongHistogram cacheMissLoadTimes;
     private final DoubleHistogram cachePopulationThroughput;
     private final LongCounter cachePopulationBytes;
@@ -57,6 +60,21 @@ public class BlobCacheMetrics {
                 "The number of times a cache entry was evicted where the frequency was not zero",
                 "entries"
             ),
+            meterRegistry.registerLongCounter(
+                "es.blob_cache.count_of_evicted_regions.total",
+                "The number of times a cache entry was evicted to make room for another one",
+                "entries"
+            ),
+            meterRegistry.registerLongCounter(
+                "es.blob_cache.admission.admitted.total",
+                "The number of times the admission filter let a region into the full cache like any new region",
+                "entries"
+            ),
+            meterRegistry.registerLongCounter(
+                "es.blob_cache.admission.rejected.total",
+                "The number of times the admission filter let a region into the full cache on probation, as the next region to evict",
+                "entries"
+            ),
             meterRegistry.registerLongHistogram(
                 "es.blob_cache.cache_miss_load_times.histogram",
                 "The time in milliseconds for populating entries in the blob store resulting from a cache miss, expressed as a histogram.",
@@ -83,6 +101,9 @@ public class BlobCacheMetrics {
     BlobCacheMetrics(
         LongCounter cacheMissCounter,
         LongCounter evictedCountNonZeroFrequency,
+        LongCounter evictedCount,
+        LongCounter admittedCount,
+        LongCounter rejectedCount,
         LongHistogram cacheMissLoadTimes,
         DoubleHistogram cachePopulationThroughput,
         LongCounter cachePopulationBytes,
@@ -90,6 +111,9 @@ public class BlobCacheMetrics {
     ) {
         this.cacheMissCounter = cacheMissCounter;
         this.evictedCountNonZeroFrequency = evictedCountNonZeroFrequency;
+        this.evictedCount = evictedCount;
+        this.admittedCount = admittedCount;
+        this.rejectedCount = rejectedCount;
         this.cacheMissLoadTimes = cacheMissLoadTimes;
         this.cachePopulationThroughput = cachePopulationThroughput;
         this.cachePopulationBytes = cachePopulationBytes;
@@ -106,6 +130,18 @@ public class BlobCacheMetrics {
         return evictedCountNonZeroFrequency;
     }
 
+    public LongCounter getEvictedCount() {
+        return evictedCount;
+    }
+
+    public LongCounter getAdmittedCount() {
+        return admittedCount;
+    }
+
+    public LongCounter getRejectedCount() {
+        return rejectedCount;
+    }
+
     public LongHistogram getCacheMissLoadTimes() {
         return cacheMissLoadTimes;
     }
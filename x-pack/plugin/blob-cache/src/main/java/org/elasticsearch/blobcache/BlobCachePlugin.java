@@ -24,10 +24,13 @@ public class BlobCachePlugin extends Plugin implements ExtensiblePlugin {
             SharedBlobCacheService.SHARED_CACHE_RANGE_SIZE_SETTING,
             SharedBlobCacheService.SHARED_CACHE_RECOVERY_RANGE_SIZE_SETTING,
             SharedBlobCacheService.SHARED_CACHE_MAX_FREQ_SETTING,
+            SharedBlobCacheService.SHARED_CACHE_ADMISSION_FILTER_ENABLED_SETTING,
             SharedBlobCacheService.SHARED_CACHE_DECAY_INTERVAL_SETTING,
             SharedBlobCacheService.SHARED_CACHE_MIN_TIME_DELTA_SETTING,
             SharedBlobCacheService.SHARED_CACHE_MMAP,
-            SharedBlobCacheService.SHARED_CACHE_COUNT_READS
+            SharedBlobCacheService.SHARED_CACHE_DIRECT_IO,
+            SharedBlobCacheService.SHARED_CACHE_COUNT_READS,
+            SharedBlobCacheService.SHARED_CACHE_READ_AHEAD_MAX_CONCURRENT_FETCHES_SETTING
         );
     }
 }
@@ -57,10 +57,13 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.IntConsumer;
 import java.util.function.LongSupplier;
 import java.util.function.Predicate;
@@ -241,6 +244,17 @@ public class SharedBlobCacheService<KeyType> implements Releasable {
         Setting.Property.NodeScope
     );
 
+    /**
+     * Whether a region that misses a full cache is only let in as the next region to evict unless it was accessed more frequently than
+     * the least frequently used region, so that a scan over data that is accessed only once does not evict the regions that other
+     * readers use.
+     */
+    public static final Setting<Boolean> SHARED_CACHE_ADMISSION_FILTER_ENABLED_SETTING = Setting.boolSetting(
+        SHARED_CACHE_SETTINGS_PREFIX + "admission_filter.enabled",
+        false,
+        Setting.Property.NodeScope
+    );
+
     public static final Setting<TimeValue> SHARED_CACHE_MIN_TIME_DELTA_SETTING = Setting.timeSetting(
         SHARED_CACHE_SETTINGS_PREFIX + "min_time_delta",
         TimeValue.timeValueSeconds(60L),                        // default
@@ -254,12 +268,30 @@ public class SharedBlobCacheService<KeyType> implements Releasable {
         Setting.Property.NodeScope
     );
 
+    /**
+     * Whether the cache file is read and written with direct I/O ({@code O_DIRECT}), so that the data in the cache is not held in the
+     * page cache a second time, where it would compete with the files of the other shards on the node. Cannot be combined with
+     * {@link #SHARED_CACHE_MMAP}.
+     */
+    public static final Setting<Boolean> SHARED_CACHE_DIRECT_IO = Setting.boolSetting(
+        SHARED_CACHE_SETTINGS_PREFIX + "direct_io",
+        false,
+        Setting.Property.NodeScope
+    );
+
     public static final Setting<Boolean> SHARED_CACHE_COUNT_READS = Setting.boolSetting(
         SHARED_CACHE_SETTINGS_PREFIX + "count_reads",
         true,
         Setting.Property.NodeScope
     );
 
+    public static final Setting<Integer> SHARED_CACHE_READ_AHEAD_MAX_CONCURRENT_FETCHES_SETTING = Setting.intSetting(
+        SHARED_CACHE_SETTINGS_PREFIX + "read_ahead.max_concurrent_fetches",
+        8,                         // default
+        0,                            // min
+        Setting.Property.NodeScope
+    );
+
     // used in tests
     void computeDecay() {
         if (cache instanceof LFUCache lfuCache) {
@@ -329,6 +361,9 @@ public class SharedBlobCacheService<KeyType> implements Releasable {
 
     private final LongSupplier relativeTimeInNanosSupplier;
 
+    // bounds the number of read-ahead fetches that are in flight on this node
+    private final Semaphore readAheadPermits;
+
     public SharedBlobCacheService(
         NodeEnvironment environment,
         Settings settings,
@@ -366,6 +401,13 @@ public class SharedBlobCacheService<KeyType> implements Releasable {
         this.regionSize = regionSize;
         assert regionSize > 0L;
         this.cache = new LFUCache(settings);
+        final boolean mmap = SHARED_CACHE_MMAP.get(settings);
+        final boolean directIO = SHARED_CACHE_DIRECT_IO.get(settings);
+        if (mmap && directIO) {
+            throw new IllegalArgumentException(
+                "[" + SHARED_CACHE_MMAP.getKey() + "] and [" + SHARED_CACHE_DIRECT_IO.getKey() + "] cannot both be enabled"
+            );
+        }
         try {
             sharedBytes = new SharedBytes(
                 numRegions,
@@ -373,7 +415,8 @@ public class SharedBlobCacheService<KeyType> implements Releasable {
                 environment,
                 writeBytes::add,
                 SHARED_CACHE_COUNT_READS.get(settings) ? readBytes::add : ignored -> {},
-                SHARED_CACHE_MMAP.get(settings)
+                mmap,
+                directIO
             );
         } catch (IOException e) {
             throw new UncheckedIOException(e);
@@ -388,6 +431,7 @@ public class SharedBlobCacheService<KeyType> implements Releasable {
         this.blobCacheMetrics = blobCacheMetrics;
         this.evictIncrementer = blobCacheMetrics.getEvictedCountNonZeroFrequency()::increment;
         this.relativeTimeInNanosSupplier = relativeTimeInNanosSupplier;
+        this.readAheadPermits = new Semaphore(SHARED_CACHE_READ_AHEAD_MAX_CONCURRENT_FETCHES_SETTING.get(settings));
     }
 
     public static long calculateCacheSize(Settings settings, long totalFsSize) {
@@ -643,6 +687,78 @@ public class SharedBlobCacheService<KeyType> implements Releasable {
         }
     }
 
+    /**
+     * Fetch and write in cache a range of a blob that a reader is expected to need soon, for instance because it reads the blob
+     * sequentially. Unlike {@link #maybeFetchRange} this is a best effort: the range is not fetched if there are already
+     * {@link #SHARED_CACHE_READ_AHEAD_MAX_CONCURRENT_FETCHES_SETTING} read-ahead fetches in flight on this node or if there is no free
+     * page in the cache to fetch it into, and failures are only logged.
+     * <p>
+     * The range is truncated to the end of the region it starts in, and the fetching runs on the IO executor.
+     *
+     * @param cacheKey   the key to fetch data for
+     * @param range      the range of the blob to fetch
+     * @param blobLength the length of the blob from which the range is fetched
+     * @param writer     a writer that handles writing of newly downloaded data to the shared cache
+     * @return the outcome of the read-ahead, {@link ReadAhead#SKIPPED} if it was not attempted
+     */
+    public ReadAhead maybeReadAhead(KeyType cacheKey, ByteRange range, long blobLength, RangeMissingHandler writer) {
+        if (range.isEmpty() || readAheadPermits.tryAcquire() == false) {
+            return ReadAhead.SKIPPED;
+        }
+        boolean success = false;
+        try {
+            if (freeRegionCount() < 1 && maybeEvictLeastUsed() == false) {
+                // read-ahead must not evict regions that are still in use
+                return ReadAhead.SKIPPED;
+            }
+            final int region = getRegion(range.start());
+            final ByteRange regionRange = mapSubRangeToRegion(range, region);
+            if (regionRange.isEmpty()) {
+                return ReadAhead.SKIPPED;
+            }
+            final CacheFileRegion<KeyType> entry = get(cacheKey, blobLength, region);
+            // populate completes with false straight away if there are no gaps for this caller to fill, it only completes with true
+            // once the gaps it started to fill are written
+            final AtomicBoolean nothingFetched = new AtomicBoolean();
+            entry.populate(
+                regionRange,
+                writerWithOffset(writer, Math.toIntExact(range.start() - getRegionStart(region))),
+                ioExecutor,
+                ActionListener.releaseAfter(ActionListener.wrap(fetched -> {
+                    if (fetched == false) {
+                        nothingFetched.set(true);
+                    }
+                }, e -> {
+                    nothingFetched.set(true);
+                    if (e instanceof AlreadyClosedException == false) {
+                        logger.debug(() -> Strings.format("failed to read ahead %s of [%s]", range, cacheKey), e);
+                    }
+                }), readAheadPermits::release)
+            );
+            success = true;
+            return new ReadAhead(ByteRange.of(range.start(), range.start() + regionRange.length()), nothingFetched.get() == false);
+        } catch (Exception e) {
+            logger.debug(() -> Strings.format("failed to read ahead %s of [%s]", range, cacheKey), e);
+            return ReadAhead.SKIPPED;
+        } finally {
+            if (success == false) {
+                readAheadPermits.release();
+            }
+        }
+    }
+
+    /**
+     * The outcome of {@link #maybeReadAhead}.
+     *
+     * @param range    the range that was read ahead, truncated to the end of its region, or {@link ByteRange#EMPTY} if the read-ahead was
+     *                 skipped
+     * @param fetching {@code true} if some of the range was missing and is being fetched by this read-ahead, {@code false} if it was
+     *                 already available in the cache or being fetched by another reader
+     */
+    public record ReadAhead(ByteRange range, boolean fetching) {
+        public static final ReadAhead SKIPPED = new ReadAhead(ByteRange.EMPTY, false);
+    }
+
     private RangeMissingHandler writerWithOffset(RangeMissingHandler writer, int writeOffset) {
         if (writeOffset == 0) {
             // no need to allocate a new capturing lambda if the offset isn't adjusted
@@ -1150,6 +1266,14 @@ public class SharedBlobCacheService<KeyType> implements Releasable {
             return cacheKey;
         }
 
+        /**
+         * Fetches the given range of this file in the background, see {@link SharedBlobCacheService#maybeReadAhead}.
+         */
+        public ReadAhead maybeReadAhead(ByteRange range, RangeMissingHandler writer) {
+            assert assertOffsetsWithinFileLength(range.start(), range.length(), length);
+            return SharedBlobCacheService.this.maybeReadAhead(cacheKey, range, length, writer);
+        }
+
         public boolean tryRead(ByteBuffer buf, long offset) throws IOException {
             assert assertOffsetsWithinFileLength(offset, buf.remaining(), length);
             final int startRegion = getRegion(offset);
@@ -1501,6 +1625,8 @@ public class SharedBlobCacheService<KeyType> implements Releasable {
             LFUCacheEntry next;
             int freq;
             volatile long lastAccessedEpoch;
+            // whether the entry did not pass the admission filter and was not accessed again since, see admit
+            volatile boolean onProbation;
 
             LFUCacheEntry(CacheFileRegion<KeyType> chunk, long lastAccessed) {
                 super(chunk);
@@ -1510,14 +1636,12 @@ public class SharedBlobCacheService<KeyType> implements Releasable {
                 // if the freq 1 LRU chain was short.
                 // seems ok for now, since if it were to get evicted soon, the decays done would ensure we have more level 1
                 // entries eventually and thus such an entry would (after some decays) be able to survive in the cache.
+                // with the admission filter enabled, entries that do not pass it start at freq=0 instead, see admit.
                 this.freq = 1;
             }
 
             void touch() {
-                long now = epoch.get();
-                if (now > lastAccessedEpoch) {
-                    maybePromote(now, this);
-                }
+                onHit(epoch.get(), this);
             }
         }
 
@@ -1528,11 +1652,18 @@ public class SharedBlobCacheService<KeyType> implements Releasable {
 
         private final AtomicLong epoch = new AtomicLong();
 
+        // estimates how often each region was accessed recently, or null if the admission filter is disabled
+        @Nullable
+        private final FrequencySketch admissionSketch;
+        // guards the admission sketch, which is also updated on cache hits that do not otherwise need the cache's lock
+        private final ReentrantLock admissionSketchLock = new ReentrantLock();
+
         @SuppressWarnings("unchecked")
         LFUCache(Settings settings) {
             this.maxFreq = SHARED_CACHE_MAX_FREQ_SETTING.get(settings);
             freqs = (LFUCacheEntry[]) Array.newInstance(LFUCacheEntry.class, maxFreq);
             decayAndNewEpochTask = new DecayAndNewEpochTask(threadPool.generic());
+            admissionSketch = SHARED_CACHE_ADMISSION_FILTER_ENABLED_SETTING.get(settings) ? new FrequencySketch(numRegions) : null;
         }
 
         @Override
@@ -1568,11 +1699,7 @@ public class SharedBlobCacheService<KeyType> implements Releasable {
             }
             assert assertChunkActiveOrEvicted(entry);
 
-            // existing item, check if we need to promote item
-            if (now > entry.lastAccessedEpoch) {
-                maybePromote(now, entry);
-            }
-
+            onHit(now, entry);
             return entry;
         }
 
@@ -1624,7 +1751,15 @@ public class SharedBlobCacheService<KeyType> implements Releasable {
                 // need to evict something
                 SharedBytes.IO io;
                 synchronized (SharedBlobCacheService.this) {
-                    io = maybeEvictAndTake(evictIncrementer);
+                    if (admit(regionKey)) {
+                        io = maybeEvictAndTake(evictIncrementer, true);
+                    } else {
+                        // on probation: the region is the first to be evicted unless it is accessed again, and it must not make the
+                        // other regions decay so that a scan does not push them out of the cache
+                        entry.freq = 0;
+                        entry.onProbation = true;
+                        io = maybeEvictAndTake(evictIncrementer, false);
+                    }
                 }
                 if (io == null) {
                     io = freeRegions.poll();
@@ -1651,11 +1786,81 @@ public class SharedBlobCacheService<KeyType> implements Releasable {
                     throwAlreadyClosed("evicted during free region allocation");
                 }
                 pushEntryToBack(entry);
+                recordAccess(entry.chunk.regionKey);
                 // assign io only when chunk is ready for use. Under lock to avoid concurrent tryEvict.
                 entry.chunk.volatileIO(freeSlot);
             }
         }
 
+        private void recordAccess(RegionKey<KeyType> regionKey) {
+            if (admissionSketch != null) {
+                admissionSketchLock.lock();
+                try {
+                    admissionSketch.increment(regionKey.hashCode());
+                } finally {
+                    admissionSketchLock.unlock();
+                }
+            }
+        }
+
+        /**
+         * Records a cache hit on the given entry and promotes it if it was not accessed in the current epoch yet, or if it is on probation.
+         * An entry on probation is promoted right away since the admission filter is meant to keep out regions that are read only once,
+         * like those of a scan, and epochs do not advance while a scan only lets regions in on probation.
+         */
+        private void onHit(long now, LFUCacheEntry entry) {
+            // a hit that would have to wait for another one to update the sketch is not counted, the sketch is an estimate anyway
+            if (admissionSketch != null && admissionSketchLock.tryLock()) {
+                try {
+                    admissionSketch.increment(entry.chunk.regionKey.hashCode());
+                } finally {
+                    admissionSketchLock.unlock();
+                }
+            }
+            if (entry.onProbation) {
+                promoteFromProbation(now, entry);
+            } else if (now > entry.lastAccessedEpoch) {
+                maybePromote(now, entry);
+            }
+        }
+
+        /**
+         * Decides whether a region that misses the full cache enters it like any other new region, which it does if the admission filter
+         * is disabled or if the region is estimated to be accessed more frequently than the least frequently used region with a non-zero
+         * frequency. Otherwise the region is let in on probation at frequency 0, since reading it directly from the blob store would be
+         * much slower for the reader that missed the cache.
+         *
+         * @return true if the region is admitted, false if it is on probation
+         */
+        private boolean admit(RegionKey<KeyType> regionKey) {
+            assert Thread.holdsLock(SharedBlobCacheService.this);
+            if (admissionSketch == null) {
+                return true;
+            }
+            LFUCacheEntry victim = null;
+            for (int i = 1; i < maxFreq && victim == null; i++) {
+                victim = freqs[i];
+            }
+            if (victim == null) {
+                return true;
+            }
+            final boolean admitted;
+            admissionSketchLock.lock();
+            try {
+                // the access that missed the cache is only recorded once the region is assigned a slot
+                final int candidateFrequency = admissionSketch.frequency(regionKey.hashCode()) + 1;
+                admitted = candidateFrequency > admissionSketch.frequency(victim.chunk.regionKey.hashCode());
+            } finally {
+                admissionSketchLock.unlock();
+            }
+            if (admitted) {
+                blobCacheMetrics.getAdmittedCount().increment();
+                return true;
+            }
+            blobCacheMetrics.getRejectedCount().increment();
+            return false;
+        }
+
         private void pushEntryToBack(final LFUCacheEntry entry) {
             assert Thread.holdsLock(SharedBlobCacheService.this);
             assert invariant(entry, false);
@@ -1735,6 +1940,20 @@ public class SharedBlobCacheService<KeyType> implements Releasable {
             }
         }
 
+        private void promoteFromProbation(long epoch, LFUCacheEntry entry) {
+            synchronized (SharedBlobCacheService.this) {
+                if (entry.onProbation && entry.chunk.isEvicted() == false) {
+                    assert entry.freq == 0 : entry.freq;
+                    unlink(entry);
+                    // like any other new entry once it is accessed again within the same epoch
+                    entry.freq = 1;
+                    entry.onProbation = false;
+                    entry.lastAccessedEpoch = epoch;
+                    pushEntryToBack(entry);
+                }
+            }
+        }
+
         private void unlink(final LFUCacheEntry entry) {
             assert Thread.holdsLock(SharedBlobCacheService.this);
             assert invariant(entry, true);
@@ -1807,13 +2026,14 @@ public class SharedBlobCacheService<KeyType> implements Releasable {
          *
          * Also regularly polls for free regions and thus might steal one in case any become available.
          *
+         * @param mayDecay whether running out of frequency 0 entries may start a new epoch
          * @return a now free IO region or null if none available.
          */
-        private SharedBytes.IO maybeEvictAndTake(Runnable evictedNotification) {
+        private SharedBytes.IO maybeEvictAndTake(Runnable evictedNotification, boolean mayDecay) {
             assert Thread.holdsLock(SharedBlobCacheService.this);
             long currentEpoch = epoch.get(); // must be captured before attempting to evict a freq 0
             SharedBytes.IO freq0 = maybeEvictAndTakeForFrequency(evictedNotification, 0);
-            if (freqs[0] == null) {
+            if (freqs[0] == null && mayDecay) {
                 // no frequency 0 entries, let us switch epoch and decay so we get some for next time.
                 maybeScheduleDecayAndNewEpoch(currentEpoch);
             }
@@ -1857,6 +2077,7 @@ public class SharedBlobCacheService<KeyType> implements Releasable {
                         }
                     } finally {
                         entry.chunk.decRef();
+                        blobCacheMetrics.getEvictedCount().increment();
                         if (currentFreq > 0) {
                             evictedNotification.run();
                         }
@@ -1888,6 +2109,7 @@ public class SharedBlobCacheService<KeyType> implements Releasable {
                     if (evicted && entry.chunk.volatileIO() != null) {
                         unlink(entry);
                         keyMapping.remove(entry.chunk.regionKey, entry);
+                        blobCacheMetrics.getEvictedCount().increment();
                         return true;
                     }
                 }
@@ -7,6 +7,8 @@
 
 package org.elasticsearch.blobcache.shared;
 
+import com.sun.nio.file.ExtendedOpenOption;
+
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.elasticsearch.blobcache.BlobCacheUtils;
@@ -14,12 +16,14 @@ import org.elasticsearch.blobcache.common.ByteBufferReference;
 import org.elasticsearch.common.unit.ByteSizeValue;
 import org.elasticsearch.core.AbstractRefCounted;
 import org.elasticsearch.core.IOUtils;
+import org.elasticsearch.core.Nullable;
 import org.elasticsearch.core.Streams;
 import org.elasticsearch.core.SuppressForbidden;
 import org.elasticsearch.env.Environment;
 import org.elasticsearch.env.NodeEnvironment;
 import org.elasticsearch.nativeaccess.NativeAccess;
 
+import java.io.Closeable;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.RandomAccessFile;
@@ -29,6 +33,8 @@ import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
 import java.util.function.IntConsumer;
 
 public class SharedBytes extends AbstractRefCounted {
@@ -55,6 +61,11 @@ public class SharedBytes extends AbstractRefCounted {
 
     private static final long MAX_BYTES_PER_MAP = ByteSizeValue.ofGb(1).getBytes();
 
+    /**
+     * Size of the aligned buffers that direct I/O reads and writes go through when the caller's buffer is not suitably aligned.
+     */
+    private static final int DIRECT_IO_BUFFER_SIZE = StrictMath.toIntExact(ByteSizeValue.ofKb(256).getBytes());
+
     final int numRegions;
 
     private final IO[] ios;
@@ -71,16 +82,42 @@ public class SharedBytes extends AbstractRefCounted {
 
     private final boolean mmap;
 
-    SharedBytes(int numRegions, int regionSize, NodeEnvironment environment, IntConsumer writeBytes, IntConsumer readBytes, boolean mmap)
-        throws IOException {
+    // the block size that direct I/O must be aligned on, or 0 if the cache file is accessed through the page cache
+    private final int directIOBlockSize;
+    @Nullable
+    private final DirectIOBuffers directIOBuffers;
+
+    public SharedBytes(
+        int numRegions,
+        int regionSize,
+        NodeEnvironment environment,
+        IntConsumer writeBytes,
+        IntConsumer readBytes,
+        boolean mmap,
+        boolean directIO
+    ) throws IOException {
+        assert mmap == false || directIO == false : "cannot use both mmap and direct I/O";
         this.numRegions = numRegions;
         this.regionSize = regionSize;
         final long fileSize = (long) numRegions * regionSize;
         Path cacheFile = null;
+        int blockSize = 0;
         if (fileSize > 0) {
             cacheFile = findCacheSnapshotCacheFilePath(environment, fileSize);
             preallocate(cacheFile, fileSize);
-            this.fileChannel = FileChannel.open(cacheFile, OPEN_OPTIONS);
+            FileChannel channel = null;
+            if (directIO) {
+                blockSize = directIOBlockSize(cacheFile, regionSize);
+                if (blockSize > 0) {
+                    try {
+                        channel = openForDirectIO(cacheFile);
+                    } catch (IOException | UnsupportedOperationException e) {
+                        logger.warn("failed to open cache file [" + cacheFile + "] for direct I/O, using the page cache instead", e);
+                        blockSize = 0;
+                    }
+                }
+            }
+            this.fileChannel = channel != null ? channel : FileChannel.open(cacheFile, OPEN_OPTIONS);
             assert this.fileChannel.size() == fileSize : "expected file size " + fileSize + " but was " + fileChannel.size();
         } else {
             this.fileChannel = null;
@@ -88,6 +125,8 @@ public class SharedBytes extends AbstractRefCounted {
                 Files.deleteIfExists(path.resolve(CACHE_FILE_NAME));
             }
         }
+        this.directIOBlockSize = blockSize;
+        this.directIOBuffers = blockSize > 0 ? new DirectIOBuffers(blockSize, Runtime.getRuntime().availableProcessors()) : null;
         this.path = cacheFile;
         this.mmap = mmap;
         this.ios = new IO[numRegions];
@@ -117,6 +156,41 @@ public class SharedBytes extends AbstractRefCounted {
         this.readBytes = readBytes;
     }
 
+    /**
+     * Returns the block size that direct I/O on the given cache file must be aligned on, or 0 if the cache file cannot be accessed with
+     * direct I/O because pages or regions are not aligned on blocks.
+     */
+    private static int directIOBlockSize(Path cacheFile, int regionSize) throws IOException {
+        long blockSize;
+        try {
+            blockSize = Files.getFileStore(cacheFile).getBlockSize();
+        } catch (UnsupportedOperationException e) {
+            blockSize = -1L;
+        }
+        if (blockSize <= 0 || blockSize > PAGE_SIZE || PAGE_SIZE % blockSize != 0 || regionSize % blockSize != 0) {
+            logger.warn(
+                "cannot use direct I/O for cache file [{}] with block size [{}] and region size [{}], using the page cache instead",
+                cacheFile,
+                blockSize,
+                regionSize
+            );
+            return 0;
+        }
+        return Math.toIntExact(blockSize);
+    }
+
+    @SuppressForbidden(reason = "O_DIRECT is only available as a JDK-specific open option")
+    private static FileChannel openForDirectIO(Path cacheFile) throws IOException {
+        return FileChannel.open(cacheFile, StandardOpenOption.READ, StandardOpenOption.WRITE, ExtendedOpenOption.DIRECT);
+    }
+
+    /**
+     * @return whether the cache file is read and written with direct I/O, bypassing the page cache
+     */
+    public boolean isDirectIO() {
+        return directIOBlockSize > 0;
+    }
+
     /**
      * Tries to find a suitable path to a searchable snapshots shared cache file in the data paths founds in the environment.
      *
@@ -293,7 +367,7 @@ public class SharedBytes extends AbstractRefCounted {
     @Override
     protected void closeInternal() {
         try {
-            IOUtils.close(fileChannel, path == null ? null : () -> Files.deleteIfExists(path));
+            IOUtils.close(directIOBuffers, fileChannel, path == null ? null : () -> Files.deleteIfExists(path));
         } catch (IOException e) {
             logger.warn("Failed to clean up shared bytes file", e);
         }
@@ -326,6 +400,8 @@ public class SharedBytes extends AbstractRefCounted {
                 bytesRead = remaining;
                 int startPosition = dst.position();
                 dst.put(startPosition, mappedByteBuffer, position, bytesRead).position(startPosition + bytesRead);
+            } else if (directIOBlockSize > 0) {
+                bytesRead = readDirect(dst, pageStart + position);
             } else {
                 bytesRead = fileChannel.read(dst, pageStart + position);
             }
@@ -339,7 +415,9 @@ public class SharedBytes extends AbstractRefCounted {
             assert position % PAGE_SIZE == 0;
             assert src.remaining() % PAGE_SIZE == 0;
             checkOffsets(position, src.remaining());
-            int bytesWritten = fileChannel.write(src, pageStart + position);
+            int bytesWritten = directIOBlockSize > 0
+                ? writeDirect(src, pageStart + position)
+                : fileChannel.write(src, pageStart + position);
             writeBytes.accept(bytesWritten);
             return bytesWritten;
         }
@@ -356,4 +434,115 @@ public class SharedBytes extends AbstractRefCounted {
         }
     }
 
+    /**
+     * Reads from the cache file opened for direct I/O, which only reads whole blocks into aligned memory: reads the blocks that cover
+     * the requested bytes into a pooled aligned buffer and copies the requested bytes from there.
+     */
+    private int readDirect(ByteBuffer dst, long position) throws IOException {
+        final ByteBuffer buffer = directIOBuffers.acquire();
+        try {
+            return readDirect(dst, position, buffer);
+        } finally {
+            directIOBuffers.release(buffer);
+        }
+    }
+
+    @SuppressForbidden(reason = "Use positional reads on purpose")
+    private int readDirect(ByteBuffer dst, long position, ByteBuffer buffer) throws IOException {
+        final int length = dst.remaining();
+        int bytesRead = 0;
+        while (bytesRead < length) {
+            final long start = position + bytesRead;
+            final long alignedStart = BlobCacheUtils.roundDownToAlignedSize(start, directIOBlockSize);
+            final int skip = Math.toIntExact(start - alignedStart);
+            final int toCopy = Math.min(length - bytesRead, buffer.capacity() - skip);
+            final int alignedLength = Math.toIntExact(BlobCacheUtils.roundUpToAlignedSize(skip + toCopy, directIOBlockSize));
+            buffer.clear().limit(alignedLength);
+            while (buffer.hasRemaining()) {
+                if (fileChannel.read(buffer, alignedStart + buffer.position()) < 0) {
+                    break;
+                }
+            }
+            final int copied = Math.min(toCopy, buffer.position() - skip);
+            if (copied <= 0) {
+                break;
+            }
+            buffer.flip().position(skip).limit(skip + copied);
+            dst.put(buffer);
+            bytesRead += copied;
+            if (copied < toCopy) {
+                break;
+            }
+        }
+        return bytesRead == 0 && length > 0 ? -1 : bytesRead;
+    }
+
+    /**
+     * Writes to the cache file opened for direct I/O, which only writes whole blocks from aligned memory: the writes of the cache are
+     * aligned on pages already, but the bytes are copied through a pooled aligned buffer unless the source buffer is aligned too.
+     */
+    private int writeDirect(ByteBuffer src, long position) throws IOException {
+        assert position % directIOBlockSize == 0 && src.remaining() % directIOBlockSize == 0 : position + " " + src.remaining();
+        if (src.isDirect() && src.alignmentOffset(src.position(), directIOBlockSize) == 0) {
+            return writeFully(src, position);
+        }
+        final ByteBuffer buffer = directIOBuffers.acquire();
+        try {
+            int bytesWritten = 0;
+            while (src.hasRemaining()) {
+                final int length = Math.min(src.remaining(), buffer.capacity());
+                buffer.clear().put(0, src, src.position(), length).limit(length);
+                src.position(src.position() + length);
+                bytesWritten += writeFully(buffer, position + bytesWritten);
+            }
+            return bytesWritten;
+        } finally {
+            directIOBuffers.release(buffer);
+        }
+    }
+
+    @SuppressForbidden(reason = "Use positional writes on purpose")
+    private int writeFully(ByteBuffer src, long position) throws IOException {
+        int bytesWritten = 0;
+        while (src.hasRemaining()) {
+            bytesWritten += fileChannel.write(src, position + bytesWritten);
+        }
+        return bytesWritten;
+    }
+
+    /**
+     * A bounded pool of the aligned buffers that direct I/O goes through. Buffers are allocated as they are needed, up to the maximum
+     * number of buffers, and threads wait for a free buffer beyond that. Closing the pool drops the free buffers, and the buffers in use
+     * when they are returned, so their memory is reclaimed with the cache file rather than staying with the threads that used them.
+     */
+    private static final class DirectIOBuffers implements Closeable {
+        private final int alignment;
+        private final Semaphore permits;
+        private final ConcurrentLinkedQueue<ByteBuffer> free = new ConcurrentLinkedQueue<>();
+        private volatile boolean closed;
+
+        DirectIOBuffers(int alignment, int maxBuffers) {
+            this.alignment = alignment;
+            this.permits = new Semaphore(maxBuffers);
+        }
+
+        ByteBuffer acquire() {
+            permits.acquireUninterruptibly();
+            final ByteBuffer buffer = free.poll();
+            return buffer != null ? buffer : ByteBuffer.allocateDirect(DIRECT_IO_BUFFER_SIZE + alignment).alignedSlice(alignment);
+        }
+
+        void release(ByteBuffer buffer) {
+            if (closed == false) {
+                free.offer(buffer);
+            }
+            permits.release();
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+            free.clear();
+        }
+    }
 }
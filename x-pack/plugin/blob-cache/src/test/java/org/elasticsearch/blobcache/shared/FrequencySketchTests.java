@@ -0,0 +1,59 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0; you may not use this file except in compliance with the Elastic License
+ * 2.0.
+ */
+
+package org.elasticsearch.blobcache.shared;
+
+import org.elasticsearch.test.ESTestCase;
+
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.lessThan;
+
+public class FrequencySketchTests extends ESTestCase {
+
+    public void testIncrement() {
+        final FrequencySketch sketch = new FrequencySketch(between(16, 1024));
+        final int item = randomInt();
+        assertThat(sketch.frequency(item), greaterThanOrEqualTo(0));
+        final int increments = between(1, 15);
+        for (int i = 0; i < increments; i++) {
+            sketch.increment(item);
+        }
+        // estimates never undercount
+        assertThat(sketch.frequency(item), greaterThanOrEqualTo(increments));
+    }
+
+    public void testSaturates() {
+        final FrequencySketch sketch = new FrequencySketch(between(16, 1024));
+        final int item = randomInt();
+        for (int i = 0; i < 20; i++) {
+            sketch.increment(item);
+        }
+        assertEquals(15, sketch.frequency(item));
+    }
+
+    public void testAgesOutOldItems() {
+        final int maximumSize = between(16, 128);
+        final FrequencySketch sketch = new FrequencySketch(maximumSize);
+        final int item = randomInt();
+        for (int i = 0; i < 15; i++) {
+            sketch.increment(item);
+        }
+        // other items make the sketch halve its counters several times
+        for (int i = 0; i < maximumSize * 40; i++) {
+            sketch.increment(item + 1 + i);
+        }
+        assertThat(sketch.frequency(item), lessThan(15));
+    }
+
+    public void testEmptySketch() {
+        final FrequencySketch sketch = new FrequencySketch(between(0, 1));
+        final int item = randomInt();
+        sketch.increment(item);
+        assertThat(sketch.frequency(item), greaterThanOrEqualTo(1));
+        expectThrows(IllegalArgumentException.class, () -> new FrequencySketch(-1));
+    }
+}
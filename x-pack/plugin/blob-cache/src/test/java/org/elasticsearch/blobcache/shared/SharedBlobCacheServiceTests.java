@@ -40,6 +40,7 @@ import org.elasticsearch.threadpool.ThreadPool;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -1541,4 +1542,189 @@ public class SharedBlobCacheServiceTests extends ESTestCase {
             threadPool.shutdown();
         }
     }
+
+    public void testAdmissionFilterKeepsFrequentlyUsedRegions() throws IOException {
+        final int numRegions = 64;
+        Settings settings = Settings.builder()
+            .put(NODE_NAME_SETTING.getKey(), "node")
+            .put(SharedBlobCacheService.SHARED_CACHE_SIZE_SETTING.getKey(), ByteSizeValue.ofBytes(size(numRegions)).getStringRep())
+            .put(SharedBlobCacheService.SHARED_CACHE_REGION_SIZE_SETTING.getKey(), ByteSizeValue.ofBytes(size(1)).getStringRep())
+            .put(SharedBlobCacheService.SHARED_CACHE_ADMISSION_FILTER_ENABLED_SETTING.getKey(), true)
+            .put("path.home", createTempDir())
+            .build();
+        final DeterministicTaskQueue taskQueue = new DeterministicTaskQueue();
+        try (
+            NodeEnvironment environment = new NodeEnvironment(settings, TestEnvironment.newEnvironment(settings));
+            var cacheService = new SharedBlobCacheService<>(
+                environment,
+                settings,
+                taskQueue.getThreadPool(),
+                taskQueue.getThreadPool().executor(ThreadPool.Names.GENERIC),
+                BlobCacheMetrics.NOOP
+            )
+        ) {
+            final int numHotRegions = numRegions - 1;
+            final List<SharedBlobCacheService.CacheFileRegion<Object>> hotRegions = new ArrayList<>();
+            for (int i = 0; i < numHotRegions; i++) {
+                hotRegions.add(cacheService.get("hot", size(numHotRegions), i));
+            }
+            // access the hot regions again in a new epoch
+            cacheService.maybeScheduleDecayAndNewEpoch();
+            taskQueue.runAllRunnableTasks();
+            for (int i = 0; i < numHotRegions; i++) {
+                assertSame(hotRegions.get(i), cacheService.get("hot", size(numHotRegions), i));
+                assertEquals(2, cacheService.getFreq(hotRegions.get(i)));
+            }
+            assertEquals(1, cacheService.freeRegionCount());
+
+            // a scan over many regions that are only accessed once
+            for (int i = 0; i < numRegions * 2; i++) {
+                final var region = cacheService.get("scan-" + i, size(1), 0);
+                assertFalse(region.isEvicted());
+            }
+            for (int i = 0; i < numHotRegions; i++) {
+                assertFalse(hotRegions.get(i).isEvicted());
+                assertSame(hotRegions.get(i), cacheService.get("hot", size(numHotRegions), i));
+                assertEquals(2, cacheService.getFreq(hotRegions.get(i)));
+            }
+
+            // a region that keeps missing the cache eventually passes the admission filter
+            boolean admitted = false;
+            for (int i = 0; i < 10 && admitted == false; i++) {
+                final var region = cacheService.get("popular", size(1), 0);
+                admitted = cacheService.getFreq(region) == 1;
+                if (admitted == false) {
+                    // evicts the popular region, which is on probation
+                    cacheService.get("other-" + i, size(1), 0);
+                    assertTrue(region.isEvicted());
+                }
+            }
+            assertTrue(admitted);
+        }
+    }
+
+    public void testAdmissionFilterAdmitsRegionReadAgainDuringScan() throws IOException {
+        final int numRegions = 64;
+        Settings settings = Settings.builder()
+            .put(NODE_NAME_SETTING.getKey(), "node")
+            .put(SharedBlobCacheService.SHARED_CACHE_SIZE_SETTING.getKey(), ByteSizeValue.ofBytes(size(numRegions)).getStringRep())
+            .put(SharedBlobCacheService.SHARED_CACHE_REGION_SIZE_SETTING.getKey(), ByteSizeValue.ofBytes(size(1)).getStringRep())
+            .put(SharedBlobCacheService.SHARED_CACHE_ADMISSION_FILTER_ENABLED_SETTING.getKey(), true)
+            .put("path.home", createTempDir())
+            .build();
+        final DeterministicTaskQueue taskQueue = new DeterministicTaskQueue();
+        try (
+            NodeEnvironment environment = new NodeEnvironment(settings, TestEnvironment.newEnvironment(settings));
+            var cacheService = new SharedBlobCacheService<>(
+                environment,
+                settings,
+                taskQueue.getThreadPool(),
+                taskQueue.getThreadPool().executor(ThreadPool.Names.GENERIC),
+                BlobCacheMetrics.NOOP
+            )
+        ) {
+            final int numHotRegions = numRegions - 2;
+            final List<SharedBlobCacheService.CacheFileRegion<Object>> hotRegions = new ArrayList<>();
+            for (int i = 0; i < numHotRegions; i++) {
+                hotRegions.add(cacheService.get("hot", size(numHotRegions), i));
+            }
+            cacheService.maybeScheduleDecayAndNewEpoch();
+            taskQueue.runAllRunnableTasks();
+            for (int i = 0; i < numHotRegions; i++) {
+                assertSame(hotRegions.get(i), cacheService.get("hot", size(numHotRegions), i));
+            }
+            final long epoch = cacheService.epoch();
+
+            // a scan over many regions that are only accessed once, most of which are only let in on probation
+            for (int i = 0; i < numRegions; i++) {
+                cacheService.get("scan-" + i, size(1), 0);
+            }
+            final String rereadFile = onProbation(cacheService, "reread-");
+            // a region that is read again during the scan is admitted right away, even though no new epoch started
+            final var reread = cacheService.get(rereadFile, size(1), 0);
+            assertEquals(1, cacheService.getFreq(reread));
+            assertEquals(epoch, cacheService.epoch());
+
+            // so the scan evicts other regions first
+            cacheService.get("scan-after", size(1), 0);
+            assertFalse(reread.isEvicted());
+            for (int i = 0; i < numHotRegions; i++) {
+                assertFalse(hotRegions.get(i).isEvicted());
+            }
+        }
+    }
+
+    /**
+     * Misses the cache with regions of files with the given prefix until one is let in on probation, and returns the name of its file.
+     */
+    private static String onProbation(SharedBlobCacheService<Object> cacheService, String filePrefix) {
+        for (int i = 0; i < 100; i++) {
+            final String file = filePrefix + i;
+            if (cacheService.getFreq(cacheService.get(file, size(1), 0)) == 0) {
+                return file;
+            }
+        }
+        throw new AssertionError("no region of [" + filePrefix + "*] was let in on probation");
+    }
+
+    public void testMaybeReadAhead() throws Exception {
+        Settings settings = Settings.builder()
+            .put(NODE_NAME_SETTING.getKey(), "node")
+            .put(SharedBlobCacheService.SHARED_CACHE_SIZE_SETTING.getKey(), ByteSizeValue.ofBytes(size(500)).getStringRep())
+            .put(SharedBlobCacheService.SHARED_CACHE_REGION_SIZE_SETTING.getKey(), ByteSizeValue.ofBytes(size(100)).getStringRep())
+            .put(SharedBlobCacheService.SHARED_CACHE_READ_AHEAD_MAX_CONCURRENT_FETCHES_SETTING.getKey(), 1)
+            .put("path.home", createTempDir())
+            .build();
+
+        final DeterministicTaskQueue taskQueue = new DeterministicTaskQueue();
+        try (
+            NodeEnvironment environment = new NodeEnvironment(settings, TestEnvironment.newEnvironment(settings));
+            var cacheService = new SharedBlobCacheService<>(
+                environment,
+                settings,
+                taskQueue.getThreadPool(),
+                taskQueue.getThreadPool().executor(ThreadPool.Names.GENERIC),
+                BlobCacheMetrics.NOOP
+            )
+        ) {
+            final var cacheKey = generateCacheKey();
+            final var blobLength = size(250);
+            final AtomicLong bytesWritten = new AtomicLong(0L);
+            final RangeMissingHandler writer = (channel, channelPos, streamFactory, relativePos, length, progressUpdater, listener) -> {
+                completeWith(listener, () -> {
+                    bytesWritten.addAndGet(length);
+                    progressUpdater.accept(length);
+                });
+            };
+
+            // the range is truncated to the end of the first region
+            assertThat(
+                cacheService.maybeReadAhead(cacheKey, ByteRange.of(size(50), size(150)), blobLength, writer),
+                equalTo(new SharedBlobCacheService.ReadAhead(ByteRange.of(size(50), size(100)), true))
+            );
+            // the only permit is held by the first read-ahead
+            assertThat(
+                cacheService.maybeReadAhead(cacheKey, ByteRange.of(size(150), size(250)), blobLength, writer),
+                sameInstance(SharedBlobCacheService.ReadAhead.SKIPPED)
+            );
+            taskQueue.runAllRunnableTasks();
+            assertThat(bytesWritten.get(), equalTo(size(50)));
+
+            // the second region ends at 200 pages
+            assertThat(
+                cacheService.maybeReadAhead(cacheKey, ByteRange.of(size(150), size(250)), blobLength, writer),
+                equalTo(new SharedBlobCacheService.ReadAhead(ByteRange.of(size(150), size(200)), true))
+            );
+            taskQueue.runAllRunnableTasks();
+            assertThat(bytesWritten.get(), equalTo(size(100)));
+
+            // already in cache, nothing to fetch
+            assertThat(
+                cacheService.maybeReadAhead(cacheKey, ByteRange.of(size(50), size(100)), blobLength, writer),
+                equalTo(new SharedBlobCacheService.ReadAhead(ByteRange.of(size(50), size(100)), false))
+            );
+            taskQueue.runAllRunnableTasks();
+            assertThat(bytesWritten.get(), equalTo(size(100)));
+        }
+    }
 }
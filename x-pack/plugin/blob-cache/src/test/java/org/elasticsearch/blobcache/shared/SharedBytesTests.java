@@ -15,7 +15,11 @@ import org.elasticsearch.env.TestEnvironment;
 import org.elasticsearch.node.Node;
 import org.elasticsearch.test.ESTestCase;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class SharedBytesTests extends ESTestCase {
 
@@ -27,13 +31,15 @@ public class SharedBytesTests extends ESTestCase {
             .putList(Environment.PATH_DATA_SETTING.getKey(), createTempDir().toString())
             .build();
         try (var nodeEnv = new NodeEnvironment(nodeSettings, TestEnvironment.newEnvironment(nodeSettings))) {
+            final boolean mmap = IOUtils.WINDOWS == false && randomBoolean();
             final SharedBytes sharedBytes = new SharedBytes(
                 regions,
                 randomIntBetween(1, 16) * 4096,
                 nodeEnv,
                 ignored -> {},
                 ignored -> {},
-                IOUtils.WINDOWS == false && randomBoolean()
+                mmap,
+                IOUtils.LINUX && mmap == false && randomBoolean()
             );
             final var sharedBytesPath = nodeEnv.nodeDataPaths()[0].resolve("shared_snapshot_cache");
             assertTrue(Files.exists(sharedBytesPath));
@@ -41,4 +47,58 @@ public class SharedBytesTests extends ESTestCase {
             assertFalse(Files.exists(sharedBytesPath));
         }
     }
+
+    public void testReadAndWriteWithDirectIO() throws Exception {
+        assumeTrue("direct I/O is only supported on Linux", IOUtils.LINUX);
+        final int regions = randomIntBetween(1, 4);
+        final int regionSize = randomIntBetween(1, 16) * SharedBytes.PAGE_SIZE;
+        var nodeSettings = Settings.builder()
+            .put(Node.NODE_NAME_SETTING.getKey(), "node")
+            .put("path.home", createTempDir())
+            .putList(Environment.PATH_DATA_SETTING.getKey(), createTempDir().toString())
+            .build();
+        try (var nodeEnv = new NodeEnvironment(nodeSettings, TestEnvironment.newEnvironment(nodeSettings))) {
+            final AtomicLong bytesWritten = new AtomicLong();
+            final AtomicLong bytesRead = new AtomicLong();
+            final SharedBytes sharedBytes = new SharedBytes(
+                regions,
+                regionSize,
+                nodeEnv,
+                bytesWritten::addAndGet,
+                bytesRead::addAndGet,
+                false,
+                true
+            );
+            try {
+                // some file systems such as tmpfs do not support direct I/O, in which case the page cache is used instead
+                assumeTrue("the file system of the cache file must support direct I/O", sharedBytes.isDirectIO());
+                final int region = randomIntBetween(0, regions - 1);
+                final byte[] content = randomByteArrayOfLength(regionSize);
+                final ByteBuffer src = randomBoolean() ? ByteBuffer.allocateDirect(regionSize) : ByteBuffer.allocate(regionSize);
+                src.put(content).flip();
+                assertEquals(regionSize, sharedBytes.getFileChannel(region).write(src, 0));
+                assertEquals(regionSize, bytesWritten.get());
+
+                // more readers than there are pooled buffers wait for one another
+                runInParallel(between(1, 2 * Runtime.getRuntime().availableProcessors()), ignored -> {
+                    for (int i = 0; i < 10; i++) {
+                        final int position = randomIntBetween(0, regionSize - 1);
+                        final int length = randomIntBetween(1, regionSize - position);
+                        final ByteBuffer dst = randomBoolean() ? ByteBuffer.allocateDirect(length) : ByteBuffer.allocate(length);
+                        try {
+                            assertEquals(length, sharedBytes.getFileChannel(region).read(dst, position));
+                        } catch (IOException e) {
+                            throw new AssertionError(e);
+                        }
+                        assertFalse(dst.hasRemaining());
+                        final byte[] actual = new byte[length];
+                        dst.flip().get(actual);
+                        assertArrayEquals(Arrays.copyOfRange(content, position, position + length), actual);
+                    }
+                });
+            } finally {
+                sharedBytes.decRef();
+            }
+        }
+    }
 }
@@ -57,6 +57,10 @@ public class IndexInputStats {
 
     private final Counter luceneBytesRead = new Counter();
 
+    private final Counter readAheadBytesRequested = new Counter();
+    private final Counter readAheadBytesHit = new Counter();
+    private final Counter readAheadBytesWasted = new Counter();
+
     public IndexInputStats(long numFiles, long totalSize, long minSize, long maxSize, LongSupplier currentTimeNanos) {
         this(numFiles, totalSize, minSize, maxSize, SEEKING_THRESHOLD.getBytes(), currentTimeNanos);
     }
@@ -155,6 +159,18 @@ public class IndexInputStats {
         luceneBytesRead.add(bytesRead);
     }
 
+    public void addReadAheadBytesRequested(long bytesRequested) {
+        readAheadBytesRequested.add(bytesRequested);
+    }
+
+    public void addReadAheadBytesHit(long bytesRead) {
+        readAheadBytesHit.add(bytesRead);
+    }
+
+    public void addReadAheadBytesWasted(long bytesWasted) {
+        readAheadBytesWasted.add(bytesWasted);
+    }
+
     public long getNumFiles() {
         return numFiles;
     }
@@ -231,6 +247,27 @@ public class IndexInputStats {
         return luceneBytesRead;
     }
 
+    /**
+     * @return the ranges that were fetched into the cache ahead of sequential readers, excluding those that were already in cache
+     */
+    public Counter getReadAheadBytesRequested() {
+        return readAheadBytesRequested;
+    }
+
+    /**
+     * @return the reads that were served from the cache out of ranges that the reading index input had itself fetched ahead
+     */
+    public Counter getReadAheadBytesHit() {
+        return readAheadBytesHit;
+    }
+
+    /**
+     * @return the bytes that were read ahead but that the reader did not read before it stopped reading sequentially or was closed
+     */
+    public Counter getReadAheadBytesWasted() {
+        return readAheadBytesWasted;
+    }
+
     @SuppressForbidden(reason = "Handles Long.MIN_VALUE before using Math.abs()")
     public boolean isLargeSeek(long delta) {
         return delta != Long.MIN_VALUE && Math.abs(delta) > seekingThreshold;
@@ -26,13 +26,36 @@ import org.elasticsearch.xpack.searchablesnapshots.store.SearchableSnapshotDirec
 
 import java.io.InputStream;
 import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
 
 public final class FrozenIndexInput extends MetadataCachingIndexInput {
 
     private static final Logger logger = LogManager.getLogger(FrozenIndexInput.class);
 
+    /**
+     * Number of contiguous reads after which an input is considered to read sequentially, and starts reading the next range ahead. Inputs
+     * opened with {@link IOContext#READONCE} are read sequentially from the start.
+     */
+    static final int CONTIGUOUS_READS_BEFORE_READ_AHEAD = 3;
+
+    /**
+     * Maximum number of ranges that an input and its clones and slices read ahead and did not read yet. Once there are more, the oldest
+     * one is counted as wasted, since Lucene does not close clones and slices and they may never read it.
+     */
+    static final int MAX_PENDING_READ_AHEADS = 64;
+
     private final SharedBlobCacheService<CacheKey>.CacheFile cacheFile;
 
+    // shared by the input that was opened and all its clones and slices
+    private final PendingReadAheads pendingReadAheads;
+
+    // the following track the sequential reads of this instance, clones and slices track their own
+    private long lastReadEnd = -1L;
+    private int contiguousReads;
+    private long readAheadEnd = -1L;
+    // the ranges that this instance read ahead and that it has not read past yet, created on first use
+    private ArrayDeque<PendingReadAhead> readAheadRanges;
+
     public FrozenIndexInput(
         String name,
         SearchableSnapshotDirectory directory,
@@ -56,7 +79,8 @@ public final class FrozenIndexInput extends MetadataCachingIndexInput {
             rangeSize,
             recoveryRangeSize,
             directory.getBlobCacheByteRange(name, fileInfo.length()),
-            ByteRange.EMPTY
+            ByteRange.EMPTY,
+            new PendingReadAheads(stats)
         );
         stats.incrementOpenCount();
     }
@@ -75,7 +99,8 @@ public final class FrozenIndexInput extends MetadataCachingIndexInput {
         int defaultRangeSize,
         int recoveryRangeSize,
         ByteRange headerBlobCacheByteRange,
-        ByteRange footerBlobCacheByteRange
+        ByteRange footerBlobCacheByteRange,
+        PendingReadAheads pendingReadAheads
     ) {
         super(
             logger,
@@ -94,6 +119,7 @@ public final class FrozenIndexInput extends MetadataCachingIndexInput {
             footerBlobCacheByteRange
         );
         this.cacheFile = cacheFile.copy();
+        this.pendingReadAheads = pendingReadAheads;
     }
 
     /**
@@ -102,6 +128,7 @@ public final class FrozenIndexInput extends MetadataCachingIndexInput {
     private FrozenIndexInput(FrozenIndexInput input) {
         super(input);
         this.cacheFile = input.cacheFile.copy();
+        this.pendingReadAheads = input.pendingReadAheads;
     }
 
     @Override
@@ -111,9 +138,88 @@ public final class FrozenIndexInput extends MetadataCachingIndexInput {
         if (cacheFile.tryRead(b, position)) {
             // fast-path succeeded, increment stats and return
             stats.addCachedBytesRead(length);
+            maybeReadAhead(position, length, true);
             return;
         }
         readWithoutBlobCacheSlow(b, position, length);
+        maybeReadAhead(position, length, false);
+    }
+
+    /**
+     * Reads the range after the one that a sequential reader is about to reach into the cache in the background, so that a scan of a file
+     * does not stall on a cache miss every {@code rangeSize} bytes.
+     */
+    private void maybeReadAhead(long position, int length, boolean cached) {
+        if (position == lastReadEnd) {
+            contiguousReads++;
+        } else {
+            contiguousReads = 0;
+            stopReadingAhead();
+        }
+        final long end = position + length;
+        lastReadEnd = end;
+        if (readAheadRanges != null && readAheadRanges.isEmpty() == false) {
+            for (PendingReadAhead readAhead : readAheadRanges) {
+                final long bytesHit = Math.min(end, readAhead.range.end()) - Math.max(position, readAhead.range.start());
+                if (bytesHit > 0L) {
+                    readAhead.readUpTo(end);
+                    if (cached) {
+                        stats.addReadAheadBytesHit(bytesHit);
+                    }
+                }
+            }
+            while (readAheadRanges.isEmpty() == false && readAheadRanges.peekFirst().range.end() <= end) {
+                pendingReadAheads.remove(readAheadRanges.pollFirst());
+            }
+        }
+        if (contiguousReads < CONTIGUOUS_READS_BEFORE_READ_AHEAD && context.readOnce == false) {
+            return;
+        }
+        final int rangeSize = directory.isRecoveryFinalized() ? defaultRangeSize : recoveryRangeSize;
+        final long nextRangeStart = (end / rangeSize + 1) * rangeSize;
+        final long inputEnd = position - getFilePointer() + length();
+        if (nextRangeStart >= inputEnd || nextRangeStart < readAheadEnd) {
+            return;
+        }
+        final ByteRange rangeToReadAhead = ByteRange.of(nextRangeStart, Math.min(nextRangeStart + rangeSize, inputEnd));
+        final SharedBlobCacheService.ReadAhead readAhead = cacheFile.maybeReadAhead(rangeToReadAhead, fillCacheRange(rangeToReadAhead));
+        if (readAhead.range().isEmpty()) {
+            return;
+        }
+        // remember ranges that were already in cache so as not to ask for them on every read, but only track the ones fetched here
+        readAheadEnd = readAhead.range().end();
+        if (readAhead.fetching()) {
+            logger.trace("{}: reading ahead {} (details: {})", fileInfo.physicalName(), readAhead.range(), cacheFile);
+            stats.addReadAheadBytesRequested(readAhead.range().length());
+            if (readAheadRanges == null) {
+                readAheadRanges = new ArrayDeque<>();
+            }
+            final PendingReadAhead pendingReadAhead = new PendingReadAhead(readAhead.range());
+            readAheadRanges.addLast(pendingReadAhead);
+            pendingReadAheads.add(pendingReadAhead);
+        }
+    }
+
+    /**
+     * Counts the bytes that were read ahead but that this instance did not read, because it stopped reading sequentially or was closed.
+     */
+    private void stopReadingAhead() {
+        if (readAheadRanges != null) {
+            for (PendingReadAhead readAhead : readAheadRanges) {
+                pendingReadAheads.waste(readAhead);
+            }
+            readAheadRanges.clear();
+        }
+        readAheadEnd = -1L;
+    }
+
+    @Override
+    protected void onClose() {
+        stopReadingAhead();
+        if (isClone() == false) {
+            // the clones and slices are not used once the input they were created from is closed
+            pendingReadAheads.wasteAll();
+        }
     }
 
     // slow path for readWithoutBlobCache, extracted to a separate method to make the fast-path inline better
@@ -148,36 +254,7 @@ public final class FrozenIndexInput extends MetadataCachingIndexInput {
                 stats.addCachedBytesRead(read);
                 return read;
             },
-                (channel, channelPos, streamFactory, relativePos, len, progressUpdater, completionListener) -> ActionListener.completeWith(
-                    completionListener,
-                    () -> {
-                        assert streamFactory == null : streamFactory;
-                        final long startTimeNanos = stats.currentTimeNanos();
-                        try (InputStream input = openInputStreamFromBlobStore(rangeToWrite.start() + relativePos, len)) {
-                            assert ThreadPool.assertCurrentThreadPool(SearchableSnapshots.CACHE_FETCH_ASYNC_THREAD_POOL_NAME);
-                            logger.trace(
-                                "{}: writing channel {} pos {} length {} (details: {})",
-                                fileInfo.physicalName(),
-                                channelPos,
-                                relativePos,
-                                len,
-                                cacheFile
-                            );
-                            SharedBytes.copyToCacheFileAligned(
-                                channel,
-                                input,
-                                channelPos,
-                                relativePos,
-                                len,
-                                progressUpdater,
-                                writeBuffer.get().clear()
-                            );
-                            final long endTimeNanos = stats.currentTimeNanos();
-                            stats.addCachedBytesWritten(len, endTimeNanos - startTimeNanos);
-                            return null;
-                        }
-                    }
-                )
+                fillCacheRange(rangeToWrite)
             );
             assert bytesRead == length : bytesRead + " vs " + length;
             byteBufferReference.finish(bytesRead);
@@ -186,6 +263,42 @@ public final class FrozenIndexInput extends MetadataCachingIndexInput {
         }
     }
 
+    /**
+     * Returns a handler that fills the gaps of the given range in the cache with bytes read from the blob store.
+     */
+    private SharedBlobCacheService.RangeMissingHandler fillCacheRange(ByteRange rangeToWrite) {
+        return (channel, channelPos, streamFactory, relativePos, len, progressUpdater, completionListener) -> ActionListener.completeWith(
+            completionListener,
+            () -> {
+                assert streamFactory == null : streamFactory;
+                final long startTimeNanos = stats.currentTimeNanos();
+                try (InputStream input = openInputStreamFromBlobStore(rangeToWrite.start() + relativePos, len)) {
+                    assert ThreadPool.assertCurrentThreadPool(SearchableSnapshots.CACHE_FETCH_ASYNC_THREAD_POOL_NAME);
+                    logger.trace(
+                        "{}: writing channel {} pos {} length {} (details: {})",
+                        fileInfo.physicalName(),
+                        channelPos,
+                        relativePos,
+                        len,
+                        cacheFile
+                    );
+                    SharedBytes.copyToCacheFileAligned(
+                        channel,
+                        input,
+                        channelPos,
+                        relativePos,
+                        len,
+                        progressUpdater,
+                        writeBuffer.get().clear()
+                    );
+                    final long endTimeNanos = stats.currentTimeNanos();
+                    stats.addCachedBytesWritten(len, endTimeNanos - startTimeNanos);
+                    return null;
+                }
+            }
+        );
+    }
+
     @Override
     protected MetadataCachingIndexInput doSlice(
         String sliceName,
@@ -209,7 +322,8 @@ public final class FrozenIndexInput extends MetadataCachingIndexInput {
             defaultRangeSize,
             recoveryRangeSize,
             sliceHeaderByteRange,
-            sliceFooterByteRange
+            sliceFooterByteRange,
+            pendingReadAheads
         );
     }
 
@@ -226,4 +340,64 @@ public final class FrozenIndexInput extends MetadataCachingIndexInput {
     SharedBlobCacheService<CacheKey>.CacheFile cacheFile() {
         return cacheFile;
     }
+
+    /**
+     * A range that was read ahead, and how far into it the instance that read it ahead has read.
+     */
+    private static final class PendingReadAhead {
+        private final ByteRange range;
+        private long readEnd;
+
+        private PendingReadAhead(ByteRange range) {
+            this.range = range;
+            this.readEnd = range.start();
+        }
+
+        private void readUpTo(long end) {
+            readEnd = Math.max(readEnd, Math.min(end, range.end()));
+        }
+
+        private long unreadBytes() {
+            return range.end() - readEnd;
+        }
+    }
+
+    /**
+     * The ranges that an input and its clones and slices read ahead and did not read or count as wasted yet. Lucene closes the input it
+     * opened but not its clones and slices, so the ranges they leave behind are counted as wasted once the input is closed, or earlier if
+     * more than {@link #MAX_PENDING_READ_AHEADS} ranges are pending.
+     */
+    private static final class PendingReadAheads {
+        private final IndexInputStats stats;
+        private final ArrayDeque<PendingReadAhead> pending = new ArrayDeque<>();
+
+        private PendingReadAheads(IndexInputStats stats) {
+            this.stats = stats;
+        }
+
+        synchronized void add(PendingReadAhead readAhead) {
+            pending.addLast(readAhead);
+            if (pending.size() > MAX_PENDING_READ_AHEADS) {
+                final PendingReadAhead oldest = pending.pollFirst();
+                stats.addReadAheadBytesWasted(oldest.unreadBytes());
+            }
+        }
+
+        synchronized void remove(PendingReadAhead readAhead) {
+            pending.remove(readAhead);
+        }
+
+        synchronized void waste(PendingReadAhead readAhead) {
+            if (pending.remove(readAhead)) {
+                stats.addReadAheadBytesWasted(readAhead.unreadBytes());
+            }
+        }
+
+        synchronized void wasteAll() {
+            for (PendingReadAhead readAhead : pending) {
+                stats.addReadAheadBytesWasted(readAhead.unreadBytes());
+            }
+            pending.clear();
+        }
+    }
 }
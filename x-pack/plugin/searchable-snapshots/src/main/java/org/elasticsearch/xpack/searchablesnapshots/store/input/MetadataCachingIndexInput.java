@@ -635,12 +635,27 @@ public abstract class MetadataCachingIndexInput extends BlobCacheBufferedIndexIn
 
     @Override
     public final void close() throws IOException {
-        if (closed.compareAndSet(false, true) && isClone == false) {
-            stats.incrementCloseCount();
-            cacheFileReference.releaseOnClose();
+        if (closed.compareAndSet(false, true)) {
+            onClose();
+            if (isClone == false) {
+                stats.incrementCloseCount();
+                cacheFileReference.releaseOnClose();
+            }
         }
     }
 
+    /**
+     * Called the first time this instance is closed, including when it is a clone or a slice.
+     */
+    protected void onClose() {}
+
+    /**
+     * Whether this instance is a clone or a slice of the input that was opened.
+     */
+    protected final boolean isClone() {
+        return isClone;
+    }
+
     @Override
     public IndexInput clone() {
         var bufferClone = tryCloneBuffer();
@@ -7,6 +7,8 @@
 
 package org.elasticsearch.xpack.searchablesnapshots.store.input;
 
+import org.apache.lucene.codecs.CodecUtil;
+import org.apache.lucene.store.IOContext;
 import org.apache.lucene.store.IndexInput;
 import org.elasticsearch.action.ActionListener;
 import org.elasticsearch.blobcache.BlobCacheMetrics;
@@ -15,6 +17,7 @@ import org.elasticsearch.blobcache.shared.SharedBytes;
 import org.elasticsearch.common.lucene.store.ByteArrayIndexInput;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.core.CheckedConsumer;
 import org.elasticsearch.core.Tuple;
 import org.elasticsearch.env.Environment;
 import org.elasticsearch.env.NodeEnvironment;
@@ -34,13 +37,19 @@ import org.elasticsearch.xpack.searchablesnapshots.SearchableSnapshots;
 import org.elasticsearch.xpack.searchablesnapshots.cache.common.CacheKey;
 import org.elasticsearch.xpack.searchablesnapshots.cache.common.TestUtils;
 import org.elasticsearch.xpack.searchablesnapshots.cache.full.CacheService;
+import org.elasticsearch.xpack.searchablesnapshots.store.IndexInputStats;
 import org.elasticsearch.xpack.searchablesnapshots.store.SearchableSnapshotDirectory;
 
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import static org.elasticsearch.blobcache.common.BlobCacheBufferedIndexInput.BUFFER_SIZE;
+import static org.elasticsearch.core.IOUtils.LINUX;
 import static org.elasticsearch.core.IOUtils.WINDOWS;
 import static org.elasticsearch.xpack.searchablesnapshots.cache.full.CacheService.resolveSnapshotCache;
 import static org.hamcrest.Matchers.equalTo;
@@ -51,8 +60,12 @@ import static org.hamcrest.Matchers.not;
 public class FrozenIndexInputTests extends AbstractSearchableSnapshotsTestCase {
 
     private static final ShardId SHARD_ID = new ShardId(new Index("_index_name", "_index_id"), 0);
+    private static final String FILE_EXTENSION = "fdt";
 
-    public void testRandomReads() throws IOException {
+    // the cache fetches submitted to the cache fetch thread pool that have not completed yet
+    private final AtomicInteger pendingCacheFetches = new AtomicInteger();
+
+    public void testRandomReads() throws Exception {
         final String fileName = randomAlphaOfLength(5) + randomFileExtension();
         final Tuple<String, byte[]> bytes = randomChecksumBytes(randomIntBetween(1, 100_000));
 
@@ -88,15 +101,242 @@ public class FrozenIndexInputTests extends AbstractSearchableSnapshotsTestCase {
             cacheSize = ByteSizeValue.ofBytes(randomLongBetween(1L, 10L) * regionSize.getBytes() + randomIntBetween(0, 100));
         }
 
+        // don't test mmap on Windows since we don't have code to unmap the shared cache file which trips assertions after tests
+        final boolean mmap = WINDOWS == false && randomBoolean();
         final Settings settings = Settings.builder()
             .put(SharedBlobCacheService.SHARED_CACHE_REGION_SIZE_SETTING.getKey(), regionSize)
             .put(SharedBlobCacheService.SHARED_CACHE_RANGE_SIZE_SETTING.getKey(), rangeSize)
             .put(SharedBlobCacheService.SHARED_CACHE_SIZE_SETTING.getKey(), cacheSize)
-            // don't test mmap on Windows since we don't have code to unmap the shared cache file which trips assertions after tests
-            .put(SharedBlobCacheService.SHARED_CACHE_MMAP.getKey(), WINDOWS == false && randomBoolean())
+            .put(SharedBlobCacheService.SHARED_CACHE_MMAP.getKey(), mmap)
+            .put(SharedBlobCacheService.SHARED_CACHE_DIRECT_IO.getKey(), LINUX && mmap == false && randomBoolean())
             .put(SharedBlobCacheService.SHARED_CACHE_COUNT_READS.getKey(), randomBoolean())
             .put("path.home", createTempDir())
             .build();
+        doWithDirectory(settings, fileInfo, fileData, directory -> {
+            // TODO does not test using the recovery range size
+            final IndexInput indexInput = directory.openInput(fileName, randomIOContext());
+            assertThat(indexInput, instanceOf(FrozenIndexInput.class));
+            assertEquals(fileData.length, indexInput.length());
+            assertEquals(0, indexInput.getFilePointer());
+
+            final byte[] result = randomReadAndSlice(indexInput, fileData.length);
+            assertArrayEquals(fileData, result);
+
+            // validate clone copies cache file object
+            indexInput.seek(randomLongBetween(0, fileData.length - 1));
+            final IndexInput indexInputClone = indexInput.clone();
+            if (indexInputClone instanceof FrozenIndexInput clone) {
+                assertThat(clone.cacheFile(), not(equalTo(((FrozenIndexInput) indexInput).cacheFile())));
+                assertThat(clone.getFilePointer(), equalTo(indexInput.getFilePointer()));
+            } else {
+                assertThat(indexInputClone, isA(ByteArrayIndexInput.class));
+            }
+
+            indexInput.close();
+        });
+    }
+
+    public void testSequentialReadsReadAhead() throws Exception {
+        final int rangeSize = randomIntBetween(4, 16) * SharedBytes.PAGE_SIZE;
+        final Tuple<String, byte[]> bytes = randomFileBytes(randomIntBetween(3, 6) * rangeSize);
+        final byte[] fileData = bytes.v2();
+        final FileInfo fileInfo = fileInfo(bytes.v1(), fileData.length);
+
+        doWithDirectory(readAheadSettings(rangeSize, fileData.length), fileInfo, fileData, directory -> {
+            try (IndexInput input = directory.openInput(fileInfo.physicalName(), randomFrom(IOContext.DEFAULT, IOContext.READ))) {
+                assertArrayEquals(fileData, readOneBufferAtATime(input));
+            }
+            final IndexInputStats stats = directory.getStats().get(FILE_EXTENSION);
+            // every range but the first one was fetched ahead of the reader, which then found it in cache
+            assertThat(stats.getReadAheadBytesRequested().total(), equalTo(fileData.length - (long) rangeSize));
+            assertThat(stats.getReadAheadBytesHit().total(), equalTo(stats.getReadAheadBytesRequested().total()));
+            assertThat(stats.getReadAheadBytesWasted().total(), equalTo(0L));
+
+            // the ranges that another reader would read ahead are already in cache, so it neither fetches them nor counts them as hits
+            try (IndexInput input = directory.openInput(fileInfo.physicalName(), randomFrom(IOContext.DEFAULT, IOContext.READ))) {
+                assertArrayEquals(fileData, readOneBufferAtATime(input));
+            }
+            assertThat(stats.getReadAheadBytesRequested().total(), equalTo(fileData.length - (long) rangeSize));
+            assertThat(stats.getReadAheadBytesHit().total(), equalTo(stats.getReadAheadBytesRequested().total()));
+            assertThat(stats.getReadAheadBytesWasted().total(), equalTo(0L));
+        });
+    }
+
+    public void testRandomReadsDoNotReadAhead() throws Exception {
+        final int rangeSize = randomIntBetween(4, 16) * SharedBytes.PAGE_SIZE;
+        final Tuple<String, byte[]> bytes = randomFileBytes(randomIntBetween(3, 6) * rangeSize);
+        final byte[] fileData = bytes.v2();
+        final FileInfo fileInfo = fileInfo(bytes.v1(), fileData.length);
+
+        doWithDirectory(readAheadSettings(rangeSize, fileData.length), fileInfo, fileData, directory -> {
+            try (IndexInput input = directory.openInput(fileInfo.physicalName(), randomFrom(IOContext.DEFAULT, IOContext.READ))) {
+                // reading the buffers backwards means that no read starts where the previous one ended
+                final int numBuffers = (fileData.length + BUFFER_SIZE - 1) / BUFFER_SIZE;
+                for (int i = numBuffers - 1; i >= 0; i -= randomIntBetween(1, 3)) {
+                    final byte[] buffer = new byte[Math.min(BUFFER_SIZE, fileData.length - i * BUFFER_SIZE)];
+                    input.seek((long) i * BUFFER_SIZE);
+                    input.readBytes(buffer, 0, buffer.length);
+                    assertArrayEquals(Arrays.copyOfRange(fileData, i * BUFFER_SIZE, i * BUFFER_SIZE + buffer.length), buffer);
+                    awaitCacheFetches();
+                }
+            }
+            final IndexInputStats stats = directory.getStats().get(FILE_EXTENSION);
+            assertThat(stats.getReadAheadBytesRequested().total(), equalTo(0L));
+            assertThat(stats.getReadAheadBytesHit().total(), equalTo(0L));
+            assertThat(stats.getReadAheadBytesWasted().total(), equalTo(0L));
+        });
+    }
+
+    public void testReadOnceReadsAheadFromTheFirstRead() throws Exception {
+        final int rangeSize = randomIntBetween(4, 16) * SharedBytes.PAGE_SIZE;
+        final Tuple<String, byte[]> bytes = randomFileBytes(randomIntBetween(3, 6) * rangeSize);
+        final byte[] fileData = bytes.v2();
+        final FileInfo fileInfo = fileInfo(bytes.v1(), fileData.length);
+
+        doWithDirectory(readAheadSettings(rangeSize, fileData.length), fileInfo, fileData, directory -> {
+            try (IndexInput input = directory.openInput(fileInfo.physicalName(), IOContext.READONCE)) {
+                // the first buffer is the header, which is read from the blob cache index, the second one is read from the shared cache
+                final byte[] buffer = new byte[2 * BUFFER_SIZE];
+                input.readBytes(buffer, 0, BUFFER_SIZE);
+                input.readBytes(buffer, BUFFER_SIZE, BUFFER_SIZE);
+                assertArrayEquals(Arrays.copyOfRange(fileData, 0, buffer.length), buffer);
+                awaitCacheFetches();
+            }
+            // the second range was fetched straight away, and wasted once the input was closed without reading it
+            final IndexInputStats stats = directory.getStats().get(FILE_EXTENSION);
+            assertThat(stats.getReadAheadBytesRequested().total(), equalTo((long) rangeSize));
+            assertThat(stats.getReadAheadBytesHit().total(), equalTo(0L));
+            assertThat(stats.getReadAheadBytesWasted().total(), equalTo((long) rangeSize));
+        });
+    }
+
+    public void testClonesAndSlicesReadAheadOnTheirOwn() throws Exception {
+        final int rangeSize = randomIntBetween(4, 16) * SharedBytes.PAGE_SIZE;
+        final Tuple<String, byte[]> bytes = randomFileBytes(randomIntBetween(5, 6) * rangeSize);
+        final byte[] fileData = bytes.v2();
+        final FileInfo fileInfo = fileInfo(bytes.v1(), fileData.length);
+
+        doWithDirectory(readAheadSettings(rangeSize, fileData.length), fileInfo, fileData, directory -> {
+            try (IndexInput input = directory.openInput(fileInfo.physicalName(), randomFrom(IOContext.DEFAULT, IOContext.READ))) {
+                final IndexInputStats stats = directory.getStats().get(FILE_EXTENSION);
+                // a slice reads ahead up to its own end and no further
+                final IndexInput slice = input.slice("slice", rangeSize, 2L * rangeSize);
+                assertArrayEquals(Arrays.copyOfRange(fileData, rangeSize, 3 * rangeSize), readOneBufferAtATime(slice));
+                assertThat(stats.getReadAheadBytesRequested().total(), equalTo((long) rangeSize));
+                assertThat(stats.getReadAheadBytesHit().total(), equalTo((long) rangeSize));
+                assertThat(stats.getReadAheadBytesWasted().total(), equalTo(0L));
+
+                // a clone starts reading ahead after its own contiguous reads, regardless of what the input it was cloned from reads
+                final IndexInput clone = input.clone();
+                clone.seek(3L * rangeSize);
+                final byte[] buffer = new byte[BUFFER_SIZE];
+                for (int i = 0; i <= FrozenIndexInput.CONTIGUOUS_READS_BEFORE_READ_AHEAD; i++) {
+                    clone.readBytes(buffer, 0, buffer.length);
+                    awaitCacheFetches();
+                    // the input only reads ranges that are already in cache, and never where its previous read ended
+                    input.seek(rangeSize + 2L * i * BUFFER_SIZE);
+                    input.readBytes(buffer, 0, buffer.length);
+                    awaitCacheFetches();
+                }
+                assertThat(stats.getReadAheadBytesRequested().total(), equalTo(2L * rangeSize));
+                assertThat(stats.getReadAheadBytesHit().total(), equalTo((long) rangeSize));
+                assertThat(stats.getReadAheadBytesWasted().total(), equalTo(0L));
+
+                // and counts the range it read ahead as wasted once it stops reading sequentially
+                clone.seek(rangeSize);
+                clone.readBytes(buffer, 0, buffer.length);
+                assertThat(stats.getReadAheadBytesRequested().total(), equalTo(2L * rangeSize));
+                assertThat(stats.getReadAheadBytesHit().total(), equalTo((long) rangeSize));
+                assertThat(stats.getReadAheadBytesWasted().total(), equalTo((long) rangeSize));
+            }
+        });
+    }
+
+    public void testRangesReadAheadByClonesAreWastedOnceTheInputIsClosed() throws Exception {
+        final int rangeSize = randomIntBetween(4, 16) * SharedBytes.PAGE_SIZE;
+        final Tuple<String, byte[]> bytes = randomFileBytes(randomIntBetween(5, 6) * rangeSize);
+        final byte[] fileData = bytes.v2();
+        final FileInfo fileInfo = fileInfo(bytes.v1(), fileData.length);
+
+        doWithDirectory(readAheadSettings(rangeSize, fileData.length), fileInfo, fileData, directory -> {
+            final IndexInputStats stats = directory.getStats().get(FILE_EXTENSION);
+            try (IndexInput input = directory.openInput(fileInfo.physicalName(), randomFrom(IOContext.DEFAULT, IOContext.READ))) {
+                // like Lucene, read ahead with a clone or a slice and never close it
+                final IndexInput clone = randomBoolean() ? input.clone() : input.slice("slice", 0L, input.length());
+                clone.seek(3L * rangeSize);
+                final byte[] buffer = new byte[BUFFER_SIZE];
+                for (int i = 0; i <= FrozenIndexInput.CONTIGUOUS_READS_BEFORE_READ_AHEAD; i++) {
+                    clone.readBytes(buffer, 0, buffer.length);
+                    awaitCacheFetches();
+                }
+                assertThat(stats.getReadAheadBytesRequested().total(), equalTo((long) rangeSize));
+                assertThat(stats.getReadAheadBytesWasted().total(), equalTo(0L));
+            }
+            assertThat(stats.getReadAheadBytesHit().total(), equalTo(0L));
+            assertThat(stats.getReadAheadBytesWasted().total(), equalTo((long) rangeSize));
+        });
+    }
+
+    /**
+     * Reads the remaining bytes of the input one buffer at a time, waiting for the cache fetches to complete after each read so that
+     * the ranges that were read ahead are in cache by the time the reader reaches them.
+     */
+    private byte[] readOneBufferAtATime(IndexInput input) throws Exception {
+        final byte[] bytes = new byte[Math.toIntExact(input.length() - input.getFilePointer())];
+        for (int offset = 0; offset < bytes.length; offset += BUFFER_SIZE) {
+            input.readBytes(bytes, offset, Math.min(BUFFER_SIZE, bytes.length - offset));
+            awaitCacheFetches();
+        }
+        return bytes;
+    }
+
+    private void awaitCacheFetches() throws Exception {
+        assertBusy(() -> assertThat(pendingCacheFetches.get(), equalTo(0)));
+    }
+
+    private static Tuple<String, byte[]> randomFileBytes(int minLength) throws IOException {
+        Tuple<String, byte[]> bytes;
+        do {
+            bytes = randomChecksumBytes(randomByteArrayOfLength(minLength + randomIntBetween(0, SharedBytes.PAGE_SIZE)));
+            // the last bytes of the file are read from the file info if they fit in the footer, in which case the input does not see them
+        } while (bytes.v2().length % BUFFER_SIZE != 0 && bytes.v2().length % BUFFER_SIZE <= CodecUtil.footerLength());
+        return bytes;
+    }
+
+    private static FileInfo fileInfo(String checksum, long length) {
+        return new FileInfo(
+            randomAlphaOfLength(10),
+            new StoreFileMetadata(
+                randomAlphaOfLength(5) + '.' + FILE_EXTENSION,
+                length,
+                checksum,
+                IndexVersion.current().luceneVersion().toString()
+            ),
+            ByteSizeValue.ofBytes(length)
+        );
+    }
+
+    /**
+     * Settings for a shared cache in which the whole file fits, with ranges aligned with regions.
+     */
+    private static Settings readAheadSettings(int rangeSize, long fileLength) {
+        final long regionSize = (long) rangeSize * randomIntBetween(1, 4);
+        final ByteSizeValue cacheSize = ByteSizeValue.ofBytes((fileLength / regionSize + 2) * regionSize);
+        return Settings.builder()
+            .put(SharedBlobCacheService.SHARED_CACHE_REGION_SIZE_SETTING.getKey(), ByteSizeValue.ofBytes(regionSize))
+            .put(SharedBlobCacheService.SHARED_CACHE_RANGE_SIZE_SETTING.getKey(), ByteSizeValue.ofBytes(rangeSize))
+            .put(SharedBlobCacheService.SHARED_CACHE_RECOVERY_RANGE_SIZE_SETTING.getKey(), ByteSizeValue.ofBytes(rangeSize))
+            .put(SharedBlobCacheService.SHARED_CACHE_SIZE_SETTING.getKey(), cacheSize)
+            .put("path.home", createTempDir())
+            .build();
+    }
+
+    private void doWithDirectory(
+        Settings settings,
+        FileInfo fileInfo,
+        byte[] fileData,
+        CheckedConsumer<TestSearchableSnapshotDirectory, Exception> consumer
+    ) throws Exception {
         final Environment environment = TestEnvironment.newEnvironment(settings);
         for (Path path : environment.dataFiles()) {
             Files.createDirectories(path);
@@ -105,13 +345,23 @@ public class FrozenIndexInputTests extends AbstractSearchableSnapshotsTestCase {
         final Path shardDir = randomShardPath(SHARD_ID);
         final ShardPath shardPath = new ShardPath(false, shardDir, shardDir, SHARD_ID);
         final Path cacheDir = Files.createDirectories(resolveSnapshotCache(shardDir).resolve(snapshotId.getUUID()));
+        final Executor cacheFetchExecutor = threadPool.executor(SearchableSnapshots.CACHE_FETCH_ASYNC_THREAD_POOL_NAME);
         try (
             NodeEnvironment nodeEnvironment = new NodeEnvironment(settings, environment);
             SharedBlobCacheService<CacheKey> sharedBlobCacheService = new SharedBlobCacheService<>(
                 nodeEnvironment,
                 settings,
                 threadPool,
-                threadPool.executor(SearchableSnapshots.CACHE_FETCH_ASYNC_THREAD_POOL_NAME),
+                command -> {
+                    pendingCacheFetches.incrementAndGet();
+                    cacheFetchExecutor.execute(() -> {
+                        try {
+                            command.run();
+                        } finally {
+                            pendingCacheFetches.decrementAndGet();
+                        }
+                    });
+                },
                 BlobCacheMetrics.NOOP
             );
             CacheService cacheService = randomCacheService();
@@ -127,27 +377,7 @@ public class FrozenIndexInputTests extends AbstractSearchableSnapshotsTestCase {
         ) {
             cacheService.start();
             directory.loadSnapshot(createRecoveryState(true), () -> false, ActionListener.noop());
-
-            // TODO does not test using the recovery range size
-            final IndexInput indexInput = directory.openInput(fileName, randomIOContext());
-            assertThat(indexInput, instanceOf(FrozenIndexInput.class));
-            assertEquals(fileData.length, indexInput.length());
-            assertEquals(0, indexInput.getFilePointer());
-
-            final byte[] result = randomReadAndSlice(indexInput, fileData.length);
-            assertArrayEquals(fileData, result);
-
-            // validate clone copies cache file object
-            indexInput.seek(randomLongBetween(0, fileData.length - 1));
-            final IndexInput indexInputClone = indexInput.clone();
-            if (indexInputClone instanceof FrozenIndexInput clone) {
-                assertThat(clone.cacheFile(), not(equalTo(((FrozenIndexInput) indexInput).cacheFile())));
-                assertThat(clone.getFilePointer(), equalTo(indexInput.getFilePointer()));
-            } else {
-                assertThat(indexInputClone, isA(ByteArrayIndexInput.class));
-            }
-
-            indexInput.close();
+            consumer.accept(directory);
         }
     }
 